@@ -0,0 +1,49 @@
+package tvla.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures a complete analysis of an example model, from the prepared
+ * initial structures to the fixed point.
+ * An analysis can only run once per JVM (see Model), so every fork loads
+ * the model and measures a single, cold analysis, as a command-line run
+ * would see it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(5)
+public class AnalysisBenchmark {
+	@Param({"sll", "dll", "tree", "gc", "concurrent", "decomposition"})
+	public String model;
+
+	@Param({"base", "functional"})
+	public String implementation;
+
+	protected Model loaded;
+
+	@Setup(Level.Trial)
+	public void load() throws Exception {
+		loaded = Model.load(model, implementation);
+	}
+
+	@Benchmark
+	public Model analyze() {
+		loaded.analyze();
+		return loaded;
+	}
+}
@@ -0,0 +1,171 @@
+package tvla.benchmarks;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+import tvla.Runner;
+import tvla.analysis.Engine;
+import tvla.analysis.IntraProcEngine;
+import tvla.analysis.decompose.DecomposeAnalysisGraph;
+import tvla.analysis.decompose.DecompositionIntraProcEngine;
+import tvla.analysis.multithreading.MultithreadEngine;
+import tvla.core.HighLevelTVS;
+import tvla.core.TVSFactory;
+import tvla.exceptions.UserErrorException;
+import tvla.language.TVM.TVMAST;
+import tvla.language.TVM.TVMParser;
+import tvla.language.TVP.TVPParser;
+import tvla.language.TVS.TVSParser;
+import tvla.transitionSystem.Action;
+import tvla.transitionSystem.AnalysisGraph;
+import tvla.transitionSystem.Location;
+import tvla.util.ProgramProperties;
+
+/** Loads one of the example models shipped under examples/, so that the
+ * benchmarks can run the analysis, or parts of it, in the same JVM.
+ * The setup follows Runner.main, without printing, output files and
+ * abstraction refinement.
+ * The analysis keeps its state in static fields, and many classes read
+ * their properties when they are first used, so a JVM loads a single
+ * model; JMH runs every benchmark and parameter combination in its own
+ * fork.
+ */
+public class Model extends Runner {
+	/** The models, by name: the directory relative to the TVLA home, the
+	 * program, the input structures and an optional properties file.
+	 */
+	protected static final String[][] models = {
+		{"sll", "examples/sll", "insert", "sll", null},
+		{"dll", "examples/dll", "splice", "splice", null},
+		{"tree", "examples/tree", "InsertSorted", "InsertSorted", "tree.properties"},
+		{"gc", "examples/gc", "mark", "store", "mark.properties"},
+		{"concurrent", "examples/concurrent/twolockq", "twolockq", "twolockq", "tvmc.properties"},
+		{"decomposition", "examples/decomposition/linearization/set_pldi08/cas/nolin/g", "cas", "cas", "cas.properties"},
+	};
+
+	/** Set once a model has been loaded.
+	 */
+	private static boolean loadedBefore;
+
+	/** The engine type the model was loaded with ("tvla", "tvmc" or "dtvla").
+	 */
+	public final String engine;
+
+	/** The initial structures, after they have been prepared by the engine.
+	 */
+	public final Collection<HighLevelTVS> initial;
+
+	private Model(String engine, Collection<HighLevelTVS> initial) {
+		this.engine = engine;
+		this.initial = initial;
+	}
+
+	/** Loads the named model using the given TVS implementation (e.g.,
+	 * "base" or "functional").
+	 */
+	public static Model load(String name, String implementation) throws Exception {
+		String[] model = null;
+		for (String[] candidate : models) {
+			if (candidate[0].equals(name))
+				model = candidate;
+		}
+		if (model == null)
+			throw new UserErrorException("Unknown benchmark model: " + name);
+
+		if (loadedBefore)
+			throw new IllegalStateException("A model was already loaded in this JVM");
+		loadedBefore = true;
+		String dir = computeTvlaHome() + File.separator + model[1].replace('/', File.separatorChar) + File.separator;
+		List<String> argList = new ArrayList<String>();
+		argList.add(dir + model[2]);
+		argList.add(dir + model[3]);
+		argList.add("-terse");
+		if (model[4] != null) {
+			argList.add("-props");
+			argList.add(dir + model[4]);
+		}
+		String[] args = argList.toArray(new String[argList.size()]);
+
+		loadProgramProperties(args);
+		parseArgs(args);
+		ProgramProperties.setProperty("tvla.implementation", implementation);
+		ProgramProperties.setBooleanProperty("tvla.dot.enabled", false);
+		ProgramProperties.setBooleanProperty("tvla.tvs.enabled", false);
+		ProgramProperties.setBooleanProperty("tvla.tr.enabled", false);
+		initProgramProperties(args);
+		searchPath += ";" + dir;
+		ProgramProperties.setProperty("tvla.searchPath", searchPath);
+
+		if (engineType.equals("tvla")) {
+			Engine.setActiveEngine(new IntraProcEngine());
+			AnalysisGraph.setActiveGraph(new AnalysisGraph());
+			TVPParser.configure(programName, searchPath);
+			AnalysisGraph.getActiveGraph().init();
+		}
+		else if (engineType.equals("tvmc")) {
+			Engine.setActiveEngine(new MultithreadEngine());
+			TVMAST tvmFile = TVMParser.configure(programName, searchPath);
+			tvmFile.compileAll();
+		}
+		else if (engineType.equals("dtvla")) {
+			Engine.setActiveEngine(new DecompositionIntraProcEngine());
+			AnalysisGraph.setActiveGraph(new DecomposeAnalysisGraph());
+			TVPParser.configure(programName, searchPath);
+			AnalysisGraph.getActiveGraph().init();
+		}
+		else {
+			throw new UserErrorException("The benchmarks do not support the " + engineType + " engine");
+		}
+
+		TVSFactory.getInstance().init();
+		Collection<HighLevelTVS> initial = TVSParser.readStructures(inputFile);
+		tvla.differencing.Differencing.differencing();
+		Engine.getActiveEngine().prepare(initial);
+		return new Model(engineType, initial);
+	}
+
+	/** Runs the analysis to a fixed point.
+	 */
+	public void analyze() {
+		Engine.getActiveEngine().evaluate(initial);
+	}
+
+	/** Returns the structures stored at the program locations after the
+	 * analysis, paired with the actions leaving each location and their
+	 * targets.
+	 * Only available for engines that use an analysis graph.
+	 */
+	public List<Sample> samples() {
+		if (AnalysisGraph.getActiveGraph() == null)
+			throw new UserErrorException("The " + engine + " engine does not keep structures by location");
+		List<Sample> result = new ArrayList<Sample>();
+		for (Location location : AnalysisGraph.getActiveGraph().getLocations()) {
+			for (Iterator<HighLevelTVS> structureIt = location.allStructures(); structureIt.hasNext(); ) {
+				HighLevelTVS structure = structureIt.next();
+				for (int i = 0; i < location.getActions().size(); ++i)
+					result.add(new Sample(location, location.getAction(i), location.getTarget(i), structure));
+			}
+		}
+		return result;
+	}
+
+	/** A structure at a location together with one of the location's
+	 * actions and the label of the action's target.
+	 */
+	public static class Sample {
+		public final Location location;
+		public final Action action;
+		public final String target;
+		public final HighLevelTVS structure;
+
+		public Sample(Location location, Action action, String target, HighLevelTVS structure) {
+			this.location = location;
+			this.action = action;
+			this.target = target;
+			this.structure = structure;
+		}
+	}
+}
@@ -0,0 +1,217 @@
+package tvla.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import tvla.core.Canonic;
+import tvla.core.Focus;
+import tvla.core.HighLevelTVS;
+import tvla.core.Node;
+import tvla.core.StoresCanonicMaps;
+import tvla.core.TVSFactory;
+import tvla.core.TVSSet;
+import tvla.core.assignments.Assign;
+import tvla.core.generic.TVSHashFunc;
+import tvla.transitionSystem.Action;
+import tvla.util.HashMapFactory;
+
+/** Measures the individual abstract operations applied by the engine:
+ * focus, coerce, update (Action.evaluate), blur, structure hashing and
+ * joining into a structure set.
+ * The inputs are taken from the fixed point of an example model, by
+ * replaying each action on the structures at its source location the
+ * way Engine.apply does. Every benchmark makes one pass over its inputs.
+ * Operations that modify their input work on a copy; the copy benchmark
+ * measures that overhead. Structures cache their signature, and copies
+ * share the cache, so the hashing benchmarks clear it before every hash.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class OperationBenchmarks {
+	@Param({"sll", "dll", "tree", "gc"})
+	public String model;
+
+	@Param({"base", "functional"})
+	public String implementation;
+
+	/** The structures at the program locations, with an outgoing action
+	 * that has focus formulae.
+	 */
+	protected List<Model.Sample> focusInputs = new ArrayList<Model.Sample>();
+
+	/** The distinct structures at the program locations.
+	 */
+	protected List<HighLevelTVS> locationStructures = new ArrayList<HighLevelTVS>();
+
+	/** Copies of the structures at the program locations, which are hashed.
+	 */
+	protected List<HighLevelTVS> hashInputs = new ArrayList<HighLevelTVS>();
+
+	/** The focused and coerced structures, with the action and the
+	 * assignment satisfying its precondition.
+	 */
+	protected List<Update> updateInputs = new ArrayList<Update>();
+
+	/** The results of the updates, before coerce.
+	 */
+	protected List<HighLevelTVS> updated = new ArrayList<HighLevelTVS>();
+
+	/** The results of the updates that passed coerce, before blur.
+	 */
+	protected List<HighLevelTVS> coerced = new ArrayList<HighLevelTVS>();
+
+	/** The blurred results, grouped by the location they are joined into.
+	 */
+	protected Map<String, List<HighLevelTVS>> blurred = HashMapFactory.make();
+
+	/** An action applied to a structure under a given assignment.
+	 */
+	protected static class Update {
+		public final Action action;
+		public final HighLevelTVS structure;
+		public final Assign assign;
+
+		public Update(Action action, HighLevelTVS structure, Assign assign) {
+			this.action = action;
+			this.structure = structure;
+			this.assign = assign;
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void load() throws Exception {
+		Model loaded = Model.load(model, implementation);
+		loaded.analyze();
+
+		HighLevelTVS previous = null;
+		for (Model.Sample sample : loaded.samples()) {
+			if (sample.structure != previous) {
+				locationStructures.add(sample.structure);
+				hashInputs.add(sample.structure.copy());
+			}
+			previous = sample.structure;
+
+			Action action = sample.action;
+			Collection<HighLevelTVS> focused;
+			if (action.getFocusFormulae().isEmpty()) {
+				focused = new ArrayList<HighLevelTVS>();
+				focused.add(sample.structure);
+			}
+			else {
+				focusInputs.add(sample);
+				focused = Focus.focus(sample.structure, action.getFocusFormulae(), action.getPrecondition());
+			}
+
+			for (HighLevelTVS focusedStructure : focused) {
+				if (!focusedStructure.coerce())
+					continue;
+				for (Assign assign : action.checkPrecondition(focusedStructure)) {
+					updateInputs.add(new Update(action, focusedStructure, assign));
+					HighLevelTVS result = action.evaluate(focusedStructure, assign);
+					updated.add(result.copy());
+					if (!result.coerce())
+						continue;
+					coerced.add(result.copy());
+					result.blur();
+					List<HighLevelTVS> targetStructures = blurred.get(sample.target);
+					if (targetStructures == null) {
+						targetStructures = new ArrayList<HighLevelTVS>();
+						blurred.put(sample.target, targetStructures);
+					}
+					targetStructures.add(result);
+				}
+			}
+		}
+	}
+
+	@Benchmark
+	public void copy(Blackhole blackhole) {
+		for (HighLevelTVS structure : updated)
+			blackhole.consume(structure.copy());
+	}
+
+	@Benchmark
+	public void focus(Blackhole blackhole) {
+		for (Model.Sample sample : focusInputs)
+			blackhole.consume(Focus.focus(sample.structure, sample.action.getFocusFormulae(),
+					sample.action.getPrecondition()));
+	}
+
+	@Benchmark
+	public void coerce(Blackhole blackhole) {
+		for (HighLevelTVS structure : updated)
+			blackhole.consume(structure.copy().coerce());
+	}
+
+	@Benchmark
+	public void evaluate(Blackhole blackhole) {
+		for (Update update : updateInputs)
+			blackhole.consume(update.action.evaluate(update.structure, update.assign));
+	}
+
+	@Benchmark
+	public void blur(Blackhole blackhole) {
+		for (HighLevelTVS structure : coerced) {
+			HighLevelTVS copy = structure.copy();
+			copy.blur();
+			blackhole.consume(copy);
+		}
+	}
+
+	@Benchmark
+	public void computeHashCode(Blackhole blackhole) {
+		for (HighLevelTVS structure : hashInputs) {
+			clearSignature(structure);
+			blackhole.consume(TVSHashFunc.defaultInstance.computeHashCode(structure));
+		}
+	}
+
+	@Benchmark
+	public void mergeWith(Blackhole blackhole) {
+		for (List<HighLevelTVS> targetStructures : blurred.values()) {
+			TVSSet set = TVSFactory.getInstance().makeEmptySet();
+			for (HighLevelTVS structure : targetStructures) {
+				HighLevelTVS copy = structure.copy();
+				clearSignature(copy);
+				set.mergeWith(copy);
+			}
+			blackhole.consume(set);
+		}
+	}
+
+	/** Clears the signature cached by a structure, so that hashing it
+	 * computes the signature again. The canonic maps stored by blur, which
+	 * are cleared together with the signature, are restored.
+	 */
+	protected static void clearSignature(HighLevelTVS structure) {
+		if (!(structure instanceof StoresCanonicMaps))
+			return;
+		StoresCanonicMaps stores = (StoresCanonicMaps) structure;
+		Map<Node, Canonic> canonic = stores.getCanonic();
+		Map<Canonic, Node> invCanonic = stores.getInvCanonic();
+		stores.clearCanonic();
+		if (canonic != null)
+			stores.setCanonic(canonic, invCanonic);
+	}
+}
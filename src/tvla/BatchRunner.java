@@ -0,0 +1,290 @@
+package tvla;
+
+import java.io.BufferedReader;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import tvla.analysis.AnalysisStatus;
+import tvla.exceptions.ExceptionHandler;
+import tvla.io.IOFacade;
+import tvla.language.PreprocessedFile;
+import tvla.util.AnalysisContext;
+import tvla.util.ContextOutputStream;
+import tvla.util.Logger;
+
+/** Runs many analyses in one JVM, which saves starting the JVM, loading
+ * and compiling the classes, and preprocessing the specification files
+ * that the analyses share (see PreprocessedFile).
+ * The analyses are read one per line from the standard input, or from the
+ * connections to a local port, as the command-line arguments of Runner,
+ * e.g. "examples/sll/insert examples/sll/sll -terse -tvs insert.out.tvs".
+ * Arguments that contain spaces can be quoted. Empty lines and lines that
+ * start with '#' are ignored, and the line "quit" ends the input.
+ * For every analysis, or job, a line "job <n> accepted" is replied, and
+ * when the job ends, either
+ * "job <n> ok time=<seconds> analysis=<seconds> structures=<n> messages=<n>"
+ * or "job <n> failed time=<seconds> <error message>".
+ * Each job runs in its own thread and analysis context, so no state of one
+ * analysis is seen by another. The output of a job is written to its log
+ * file (the -log option), and discarded if it has none.
+ * Some properties are read once per JVM into static fields, by the first
+ * job whose analysis uses them (see ProgramProperties.getFixedProperty).
+ * A later job that sets one of them differently fails rather than run with
+ * the value of the earlier job. The check is made when a job starts, so
+ * jobs that run concurrently should use the same values for them. The
+ * options -d, -terse and -nowarnings are read by every job but kept in
+ * static fields, so they are shared by the jobs that run concurrently.
+ * @see Runner#analyze
+ */
+public class BatchRunner {
+	/** Bounds the number of jobs that run or wait to run. A job is read
+	 * only when a permit is available.
+	 */
+	protected final Semaphore permits;
+
+	protected final ExecutorService executor;
+
+	protected final AtomicInteger jobCounter = new AtomicInteger();
+
+	public BatchRunner(int threads, int queueSize) {
+		this.permits = new Semaphore(threads + queueSize);
+		this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private int created = 0;
+
+			public synchronized Thread newThread(Runnable runnable) {
+				++created;
+				Thread thread = new Thread(runnable, "tvla-batch-" + created);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/** Entry point of the batch mode.
+	 * Options:
+	 * -port <number>    Reads jobs from the connections to a local port,
+	 *                   rather than from the standard input.
+	 * -threads <number> The number of jobs that run concurrently (1).
+	 * -queue <number>   The number of jobs that wait to run, beyond which
+	 *                   reading jobs blocks (16).
+	 * -nocache          Preprocesses the specification of every job.
+	 */
+	public static void main(String args[]) throws Exception {
+		int port = -1;
+		int threads = 1;
+		int queueSize = 16;
+		boolean cache = true;
+		for (int i = 0; i < args.length; ++i) {
+			if (args[i].equals("-port") && i + 1 < args.length) {
+				port = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-threads") && i + 1 < args.length) {
+				threads = Math.max(1, Integer.parseInt(args[++i]));
+			} else if (args[i].equals("-queue") && i + 1 < args.length) {
+				queueSize = Math.max(0, Integer.parseInt(args[++i]));
+			} else if (args[i].equals("-nocache")) {
+				cache = false;
+			} else {
+				System.err.println("Error: invalid batch option " + args[i]);
+				System.err.println("Usage: tvla -batch [-port <number>] [-threads <number>] [-queue <number>] [-nocache]");
+				System.exit(-1);
+			}
+		}
+
+		// Redirect the output of each job to its own stream. The logger is
+		// initialized here, before any job can set its log file.
+		PrintStream out = System.out;
+		System.setOut(new PrintStream(new ContextOutputStream(out), true));
+		System.setErr(new PrintStream(new ContextOutputStream(System.err), true));
+		Logger.getUnderlyingStream();
+		Runner.exitOnUsage = false;
+		PreprocessedFile.setCaching(cache);
+
+		final BatchRunner runner = new BatchRunner(threads, queueSize);
+		if (port < 0) {
+			runner.serve(new BufferedReader(new InputStreamReader(System.in)), new PrintWriter(out, true));
+			runner.shutdown();
+		} else {
+			// Serves until the process is stopped.
+			ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+			out.println("Listening on port " + server.getLocalPort());
+			while (true) {
+				final Socket socket = server.accept();
+				Thread session = new Thread(new Runnable() {
+					public void run() {
+						try {
+							runner.serve(new BufferedReader(new InputStreamReader(socket.getInputStream())),
+									new PrintWriter(socket.getOutputStream(), true));
+						} catch (Exception e) {
+							// The connection was lost.
+						} finally {
+							try {
+								socket.close();
+							} catch (IOException e) {
+							}
+						}
+					}
+				}, "tvla-batch-session");
+				session.setDaemon(true);
+				session.start();
+			}
+		}
+	}
+
+	/** Reads jobs until the end of the input or a "quit" line, and waits for
+	 * them to end.
+	 */
+	public void serve(BufferedReader in, final PrintWriter out) throws IOException, InterruptedException {
+		final List<Integer> pending = new ArrayList<Integer>();
+		String line;
+		while ((line = in.readLine()) != null) {
+			line = line.trim();
+			if (line.length() == 0 || line.startsWith("#"))
+				continue;
+			if (line.equals("quit"))
+				break;
+			final String[] args = tokenize(line);
+			final int job = jobCounter.incrementAndGet();
+			permits.acquire();
+			synchronized (pending) {
+				pending.add(job);
+			}
+			synchronized (out) {
+				out.println("job " + job + " accepted");
+			}
+			executor.execute(new Runnable() {
+				public void run() {
+					try {
+						String result = runJob(job, args);
+						synchronized (out) {
+							out.println("job " + job + " " + result);
+						}
+					} finally {
+						permits.release();
+						synchronized (pending) {
+							pending.remove(Integer.valueOf(job));
+							pending.notifyAll();
+						}
+					}
+				}
+			});
+		}
+		synchronized (pending) {
+			while (!pending.isEmpty())
+				pending.wait();
+		}
+	}
+
+	/** Runs a job in a new analysis context, and returns its result line.
+	 */
+	protected String runJob(int job, String[] args) {
+		long start = System.nanoTime();
+		AnalysisContext previous = AnalysisContext.bind(new AnalysisContext("job-" + job));
+		OutputStream log = ContextOutputStream.DISCARD;
+		try {
+			String logFileName = findOption(args, "-log");
+			if (logFileName != null)
+				log = new FileOutputStream(logFileName);
+			ContextOutputStream.setOutput(log);
+
+			Runner.analyze(args);
+
+			AnalysisStatus status = AnalysisStatus.getActiveStatus();
+			return "ok time=" + seconds(start) + " analysis="
+					+ status.getTimerMeasure(AnalysisStatus.TOTAL_ANALYSIS_TIME) + " structures="
+					+ status.numberOfStructures + " messages=" + status.numberOfMessages;
+		} catch (Throwable t) {
+			ExceptionHandler.instance().handleException(t);
+			String message = t.getMessage();
+			if (message == null || message.length() == 0)
+				message = t.getClass().getName();
+			return "failed time=" + seconds(start) + " " + message.trim().replace('\n', ' ');
+		} finally {
+			try {
+				IOFacade.reset();
+			} catch (Throwable t) {
+				// The outputs of a failed analysis may not be closed.
+			}
+			System.out.flush();
+			System.err.flush();
+			if (log != ContextOutputStream.DISCARD) {
+				try {
+					log.close();
+				} catch (IOException e) {
+				}
+			}
+			AnalysisContext.bind(previous);
+		}
+	}
+
+	/** Stops the threads that run jobs.
+	 */
+	public void shutdown() throws InterruptedException {
+		executor.shutdown();
+		executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+	}
+
+	protected static String seconds(long start) {
+		return String.format("%.3f", (System.nanoTime() - start) / 1e9);
+	}
+
+	/** Returns the argument that follows an option, or null if the option is
+	 * not specified.
+	 */
+	protected static String findOption(String[] args, String option) {
+		for (int i = 0; i + 1 < args.length; ++i) {
+			if (args[i].equals(option))
+				return args[i + 1];
+		}
+		return null;
+	}
+
+	/** Splits a line into arguments separated by white space. Single or
+	 * double quotes group characters, including white space, into one
+	 * argument.
+	 */
+	public static String[] tokenize(String line) {
+		List<String> result = new ArrayList<String>();
+		StringBuilder current = new StringBuilder();
+		boolean inToken = false;
+		char quote = 0;
+		for (int i = 0; i < line.length(); ++i) {
+			char c = line.charAt(i);
+			if (quote != 0) {
+				if (c == quote)
+					quote = 0;
+				else
+					current.append(c);
+			} else if (c == '"' || c == '\'') {
+				quote = c;
+				inToken = true;
+			} else if (Character.isWhitespace(c)) {
+				if (inToken) {
+					result.add(current.toString());
+					current.setLength(0);
+					inToken = false;
+				}
+			} else {
+				current.append(c);
+				inToken = true;
+			}
+		}
+		if (inToken)
+			result.add(current.toString());
+		return result.toArray(new String[result.size()]);
+	}
+}
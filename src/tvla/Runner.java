@@ -4,9 +4,11 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 
 import tvla.absRef.AbstractionRefinement;
 import tvla.analysis.AnalysisStatus;
+import tvla.analysis.Checkpoint;
 import tvla.analysis.Engine;
 import tvla.analysis.IntraProcEngine;
 import tvla.analysis.decompose.DecomposeAnalysisGraph;
@@ -16,6 +18,8 @@ import tvla.analysis.interproc.PastaRunner;
 import tvla.analysis.multithreading.MultithreadEngine;
 import tvla.analysis.multithreading.buchi.BuchiAutomaton;
 import tvla.analysis.multithreading.buchi.MultithreadEngineBuchi;
+import tvla.core.Canonic;
+import tvla.core.CanonicSet;
 import tvla.core.Constraints;
 import tvla.core.HighLevelTVS;
 import tvla.core.Node;
@@ -26,7 +30,6 @@ import tvla.core.base.PredicateUpdater;
 import tvla.core.base.SparseHashTVSSet;
 import tvla.core.common.ModifiedPredicates;
 import tvla.core.functional.FnUniverse;
-import tvla.core.generic.AdvancedCoerceOld;
 import tvla.core.generic.CoerceTVLA2;
 import tvla.core.generic.ConcreteTVSSet;
 import tvla.core.generic.EmbeddingBlur;
@@ -38,7 +41,6 @@ import tvla.core.generic.GenericFocus;
 import tvla.core.generic.GenericTVSSet;
 import tvla.core.generic.GenericUpdate;
 import tvla.core.generic.MultiConstraint;
-import tvla.core.generic.TVSHashFunc;
 import tvla.differencing.Differencing;
 import tvla.differencing.FormulaDifferencing;
 import tvla.exceptions.AbstractionRefinementException;
@@ -87,33 +89,71 @@ public class Runner {
 		versionInfo = props.getProperty("version", "Unknown TVLA version");
 	}
 
+	/** When false, the usage message is followed by an exception rather than
+	 * by exiting the JVM (see BatchRunner).
+	 */
+	static boolean exitOnUsage = true;
+
 	/** Main entry point of TVLA.
 	 * @author Tal Lev-Ami 
 	 * @throws Exception
 	 */
 	public static void main(String args[]) throws Exception {
+		// Detect calls to the batch mode
+		if (args.length >= 1 && args[0].equals("-batch")) {
+			String newArgs [] = new String[args.length-1];
+			System.arraycopy(args, 1, newArgs, 0, args.length-1);
+			BatchRunner.main(newArgs);
+			return;
+		}
 
 		try {
+			analyze(args);
+		}
+		catch (Throwable t) {
+			ExceptionHandler.instance().handleException(t);
+			System.exit(-1);
+		}
+	}
+
+	/** Runs the analysis specified by the command-line arguments in the
+	 * current analysis context.
+	 * Loading the specification uses the static state of the parsers and of
+	 * this class, so analyses running in several threads (see BatchRunner)
+	 * load one at a time, and then evaluate concurrently.
+	 */
+	public static void analyze(String args[]) throws Exception {
+		Collection<HighLevelTVS> initial;
+		AbstractionRefinement absRef;
+		synchronized (Runner.class) {
+			resetOptions();
 			loadProgramProperties(args);
 			parseArgs(args);
 			initProgramProperties(args);
+			AnalysisStatus.terse = ProgramProperties.getBooleanProperty("tvla.terse", false);
+			List<String> fixed = ProgramProperties.changedFixedProperties();
+			if (!fixed.isEmpty())
+				throw new UserErrorException("The properties " + fixed + " were read once for all the analyses "
+						+ "in this JVM, and this analysis sets them differently");
 			
 		    //if (!AnalysisStatus.terse)
 		      //  System.out.println( StringUtils.addUnderline(versionInfo) );
 			
 			if (engineType.equals("tvla"))
-				Engine.activeEngine = new IntraProcEngine();
+				Engine.setActiveEngine(new IntraProcEngine());
 			else if (engineType.equals("tvmc"))
-				Engine.activeEngine = new MultithreadEngine();
+				Engine.setActiveEngine(new MultithreadEngine());
 			else if (engineType.equals("ddfs"))
-				Engine.activeEngine = new MultithreadEngineBuchi();
+				Engine.setActiveEngine(new MultithreadEngineBuchi());
 			else if (engineType.equals("pasta"))
-				Engine.activeEngine = new InterProcEngine();
+				Engine.setActiveEngine(new InterProcEngine());
             else if (engineType.equals("dtvla")) 
-                Engine.activeEngine = new DecompositionIntraProcEngine();
+                Engine.setActiveEngine(new DecompositionIntraProcEngine());
 			else {
 				throw new UserErrorException("An invalid engine was specified: " + engineType);
 			}
+			if (Checkpoint.requested() && !engineType.equals("tvla"))
+				throw new UserErrorException("Checkpoints are only supported by the tvla engine");
 			
 			// Sets the search path fo the pre-processor
 			String pathString = engineType.equals("ddfs") ? propertyName : programName;
@@ -134,13 +174,13 @@ public class Runner {
 			}
 			if (!AnalysisStatus.terse)
 				Logger.print(StringUtils.newLine + "Loading specification ... ");
-			AnalysisStatus.loadTimer.start();
+			AnalysisStatus.getLoadTimer().start();
 
 			if (engineType.equals("tvla")) {
-				AnalysisGraph.activeGraph = new AnalysisGraph();
+				AnalysisGraph.setActiveGraph(new AnalysisGraph());
 				TVPParser.configure(programName, searchPath);
-				AnalysisGraph.activeGraph.init();
-				IOFacade.instance().printProgram(AnalysisGraph.activeGraph);
+				AnalysisGraph.getActiveGraph().init();
+				IOFacade.instance().printProgram(AnalysisGraph.getActiveGraph());
 				//System.out.println("Allocated objects: " + tvla.language.TVP.AST.allocated());
 				//System.out.println("Allocated ActionMacro objects: " + tvla.language.TVP.ActionMacroAST.allocated());
 				//System.out.println("Allocated ActionDef objects: " + tvla.language.TVP.ActionDefAST.allocated());
@@ -159,13 +199,13 @@ public class Runner {
 				propertyAST.compile();
 				BuchiAutomaton property = propertyAST.getAutomaton();
 				TVSParser.setProperty(property);
-				((MultithreadEngineBuchi) Engine.activeEngine).setProperty(property);
+				((MultithreadEngineBuchi) Engine.getActiveEngine()).setProperty(property);
 			}
             else if (engineType.equals("dtvla")) {
-                AnalysisGraph.activeGraph = new DecomposeAnalysisGraph();
+                AnalysisGraph.setActiveGraph(new DecomposeAnalysisGraph());
                 TVPParser.configure(programName, searchPath);
-                AnalysisGraph.activeGraph.init();
-                IOFacade.instance().printProgram(AnalysisGraph.activeGraph);
+                AnalysisGraph.getActiveGraph().init();
+                IOFacade.instance().printProgram(AnalysisGraph.getActiveGraph());
                 //System.out.println("Allocated objects: " + tvla.language.TVP.AST.allocated());
                 //System.out.println("Allocated ActionMacro objects: " + tvla.language.TVP.ActionMacroAST.allocated());
                 //System.out.println("Allocated ActionDef objects: " + tvla.language.TVP.ActionDefAST.allocated());
@@ -180,8 +220,8 @@ public class Runner {
 			TVSFactory.getInstance().init();
 			if (!AnalysisStatus.terse)
 				Logger.print("Reading TVS files ... ");
-			Collection<HighLevelTVS> initial = TVSParser.readStructures(inputFile);
-			AnalysisStatus.loadTimer.stop();
+			initial = TVSParser.readStructures(inputFile);
+			AnalysisStatus.getLoadTimer().stop();
 			if (!AnalysisStatus.terse)
 				Logger.println("done");
 			
@@ -189,53 +229,55 @@ public class Runner {
 			tvla.differencing.Differencing.differencing();
 
 			// Create a new abstraction refinement object. 
-			AbstractionRefinement absRef = new AbstractionRefinement(engineType, inputFile, searchPath);
-			AbstractionRefinementException arException = null;
+			absRef = new AbstractionRefinement(engineType, inputFile, searchPath);
 			
 			// Coerce initial set
-			Engine.activeEngine.prepare(initial);
+			Engine.getActiveEngine().prepare(initial);
 			
 			// Construct abstract input from scratch, if requested.
 			absRef.constructAbstractInput(initial);
-			do {
-                try {
-                    // Perform the fixpoint finding analysis.
-                    if (!AnalysisStatus.terse)
-                        System.out.println(StringUtils.newLine + "Starting analysis ...");
-                    Engine.activeEngine.evaluate(initial);                    
-
-                    arException = null;
-                } 
-                catch (AbstractionRefinementException e) {
-                    Engine.activeEngine.stopTimers();
-                    // Dump statistics after every refinement iteration.
-                    Engine.activeEngine.printAnalysisInfo();
-                    arException = e;
-                } 
-                finally {
-					/** Note that you may get an exception in CanonicNodeSet having to do with
-					 *  an attempt to normalize the structure in the dump() call.  If so, either
-					 *  set tvla.dot.normalizeStructures and tvla.tvsOutput.normalizeStructures
-					 *  to false or move the two graph dump lines into the try block above. */
-					// Dump graph and statistics after every refinement iteration.
-				    if (ProgramProperties.getBooleanProperty("tvla.log.implementationSpecificStatistics", false))
-					    TVSFactory.printStatistics();
-
-  					if (AnalysisGraph.activeGraph != null)
-							AnalysisGraph.activeGraph.dump(); // this has no effect for multithreaded engines
-
-						// Clear the static load timer after load time gets reported once.
-						//if (Engine.activeEngine.getTransitionRelation() != null)
-							//Engine.activeEngine.getTransitionRelation().dump();
-
-						AnalysisStatus.loadTimer = new tvla.util.Timer();
-                    String shell = ProgramProperties.getProperty("tvla.beanshell", null);
-                    if (shell != null) {
-                        Class.forName(shell).getMethod("main", String[].class).invoke(null, new Object[] {new String[0]});
-                        return;
-                    }
-				}
-			} while (absRef.refineIfImprecise(initial, arException));
+		}
+
+		AbstractionRefinementException arException = null;
+		do {
+            try {
+                // Perform the fixpoint finding analysis.
+                if (!AnalysisStatus.terse)
+                    System.out.println(StringUtils.newLine + "Starting analysis ...");
+                Engine.getActiveEngine().evaluate(initial);                    
+
+                arException = null;
+            } 
+            catch (AbstractionRefinementException e) {
+                Engine.getActiveEngine().stopTimers();
+                // Dump statistics after every refinement iteration.
+                Engine.getActiveEngine().printAnalysisInfo();
+                arException = e;
+            } 
+            finally {
+				/** Note that you may get an exception in CanonicNodeSet having to do with
+				 *  an attempt to normalize the structure in the dump() call.  If so, either
+				 *  set tvla.dot.normalizeStructures and tvla.tvsOutput.normalizeStructures
+				 *  to false or move the two graph dump lines into the try block above. */
+				// Dump graph and statistics after every refinement iteration.
+			    if (ProgramProperties.getBooleanProperty("tvla.log.implementationSpecificStatistics", false))
+				    TVSFactory.printStatistics();
+
+  				if (AnalysisGraph.getActiveGraph() != null)
+						AnalysisGraph.getActiveGraph().dump(); // this has no effect for multithreaded engines
+
+					// Clear the static load timer after load time gets reported once.
+					//if (Engine.getActiveEngine().getTransitionRelation() != null)
+						//Engine.getActiveEngine().getTransitionRelation().dump();
+
+					AnalysisStatus.setLoadTimer(new tvla.util.Timer());
+                String shell = ProgramProperties.getProperty("tvla.beanshell", null);
+                if (shell != null) {
+                    Class.forName(shell).getMethod("main", String[].class).invoke(null, new Object[] {new String[0]});
+                    return;
+                }
+			}
+		} while (refineIfImprecise(absRef, initial, arException));
 
 //			int totalMeets = tvla.core.meet.Meet.totalNumberOfTvsMeets;
 //			int successfullMeets = tvla.core.meet.Meet.successfullTvsMeets;
@@ -245,13 +287,16 @@ public class Runner {
 //			System.out.println("#successful meet applications: " + successfullMeets);
 //			System.out.println("ratio: " + ratio);
 
-			if (!AnalysisStatus.terse)
-				System.out.println(StringUtils.newLine + "All tasks completed");
-		}
-		catch (Throwable t) {
-			ExceptionHandler.instance().handleException(t);
-			System.exit(-1);
-		}
+		if (!AnalysisStatus.terse)
+			System.out.println(StringUtils.newLine + "All tasks completed");
+	}
+
+	/** Refines the abstraction if the analysis was imprecise, which may load
+	 * specifications like the initial load (see analyze).
+	 */
+	protected static synchronized boolean refineIfImprecise(AbstractionRefinement absRef,
+			Collection<HighLevelTVS> initial, AbstractionRefinementException arException) throws Exception {
+		return absRef.refineIfImprecise(initial, arException);
 	}
 	
 	/**
@@ -259,22 +304,18 @@ public class Runner {
 	 */
 	public static void reset() {
 		ProgramProperties.reset();
-		programName = null;
-		inputFile = null;
-		propertyName = null;
-		specificPropertiesFiles = new ArrayList<String>();
-		engineType = null;
-		searchPath = null;
+		resetOptions();
 		PropertiesEx props = new PropertiesEx("/tvla/version.properties");
 				versionInfo = props.getProperty("version", "Unknown TVLA version");
 				
 		Node.reset();
+		Canonic.reset();
+		CanonicSet.reset();
 		FnUniverse.reset();
 		MultiConstraint.reset();
 		HighLevelTVS.reset();
 		Constraints.reset();
 		CoerceTVLA2.reset();
-		AdvancedCoerceOld.reset();
 		Vocabulary.reset();
 		TVSFactory.reset();
 		BaseTVSCache.reset();
@@ -292,7 +333,6 @@ public class Runner {
 		GenericFocus.reset();
 		GenericTVSSet.reset();
 		GenericUpdate.reset();
-		TVSHashFunc.reset();
 		Differencing.reset();
 		FormulaDifferencing.reset();
 		ActionMacroAST.reset();
@@ -304,6 +344,17 @@ public class Runner {
 		IOFacade.reset();
 	}
 
+	/** Clears the options set by the command-line arguments of the last run.
+	 */
+	protected static void resetOptions() {
+		programName = null;
+		inputFile = null;
+		propertyName = null;
+		specificPropertiesFiles = new ArrayList<String>();
+		engineType = null;
+		searchPath = null;
+	}
+
 	/** Informs the user how to use TVLA and what are the available options.
 	 */
 	protected static void usage() {
@@ -338,7 +389,11 @@ public class Runner {
 		System.err.println(" -props <file name>      Can be used to specify a properties file.");
 		System.err.println(" -log <file name>        Creates a log file of the execution.");
 		System.err.println(" -tvs <file name>        Creates a TVS formatted output.");
+		System.err.println(" -tvs:bin <file name>    Creates a binary TVS output, which can be used as input.");
 		System.err.println(" -xml <file name>        Creates a XML formatted output of the program CFG.");
+		System.err.println(" -checkpoint <file name> Periodically saves the state of the analysis.");
+		System.err.println(" -resume <file name>     Resumes the analysis from a saved state.");
+		System.err.println(" -telemetry <file name>  Writes per-action performance metrics (JSON or CSV).");
 		System.err.println(" -tr:tvs <file name>     Creates a transition relation output in tvs-like format.");
 		System.err.println(" -dot <file name>        Creates a DOT formatted output.");
 		System.err.println(" -tr:dot <file name>     Creates a transition relation output in dot format.");
@@ -351,6 +406,11 @@ public class Runner {
 		System.err.println(" -nowarnings             Causes all warnings to be ignored.");
 		System.err.println(" -path <directory path>  Can be used to specify a search path.");
 		System.err.println(" -post                   Post order evaluation of actions.");
+		System.err.println("Usage: tvla -batch [-port <number>] [-threads <number>] [-queue <number>]");
+		System.err.println("                         Runs the analyses given one per line on the standard");
+		System.err.println("                         input or on a local port (see tvla.BatchRunner).");
+		if (!exitOnUsage)
+			throw new UserErrorException(errorMsg != null ? errorMsg : "Invalid command line");
 		System.exit(0);
 	}
 
@@ -480,6 +540,34 @@ public class Runner {
 				ProgramProperties.setProperty("tvla.tvs.outputFile", args[i]);
 				ProgramProperties.setBooleanProperty("tvla.output.redirectToDirectory", false);
 				ProgramProperties.setBooleanProperty("tvla.tvs.enabled", true);
+			} else if (args[i].equals("-tvs:bin")) {
+				i++;
+				if (i >= args.length) {
+					System.err.println("Missing argument after -tvs:bin!");
+					usage();
+				}
+				ProgramProperties.setProperty("tvla.tvs.binaryFile", args[i]);
+			} else if (args[i].equals("-checkpoint")) {
+				i++;
+				if (i >= args.length) {
+					System.err.println("Missing argument after -checkpoint!");
+					usage();
+				}
+				ProgramProperties.setProperty("tvla.checkpoint.file", args[i]);
+			} else if (args[i].equals("-resume")) {
+				i++;
+				if (i >= args.length) {
+					System.err.println("Missing argument after -resume!");
+					usage();
+				}
+				ProgramProperties.setProperty("tvla.checkpoint.resume", args[i]);
+			} else if (args[i].equals("-telemetry")) {
+				i++;
+				if (i >= args.length) {
+					System.err.println("Missing argument after -telemetry!");
+					usage();
+				}
+				ProgramProperties.setProperty("tvla.telemetry.file", args[i]);
 			} else if (args[i].equals("-tr:tvs")) {
 				i++;
 				if (i >= args.length) {
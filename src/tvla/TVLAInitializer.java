@@ -63,7 +63,7 @@ public class TVLAInitializer {
 			
             /*
 			if (tvlaEngineType.equals("api"))
-				Engine.activeEngine = new InterProcEngine();
+				Engine.setActiveEngine(new InterProcEngine());
 			else {
 				successfulInit = false;
 				// throw new UserErrorException("An invalid engine was specified: " + engineType);
@@ -141,6 +141,7 @@ public class TVLAInitializer {
 		System.err.println(" -props <file name>      Can be used to specify a properties file.");
 		System.err.println(" -log <file name>        Creates a log file of the execution.");
 		System.err.println(" -tvs <file name>        Creates a TVS formatted output.");
+		System.err.println(" -tvs:bin <file name>    Creates a binary TVS output, which can be used as input.");
 		System.err.println(" -xml <file name>        Creates a XML formatted output of the program CFG.");
 		System.err.println(" -tr:tvs <file name>     Creates a transition relation output in tvs-like format.");
 		System.err.println(" -dot <file name>        Creates a DOT formatted output.");
@@ -278,6 +279,13 @@ public class TVLAInitializer {
 				ProgramProperties.setProperty("tvla.tvs.outputFile", args[i]);
 				ProgramProperties.setBooleanProperty("tvla.output.redirectToDirectory", false);
 				ProgramProperties.setBooleanProperty("tvla.tvs.enabled", true);
+			} else if (args[i].equals("-tvs:bin")) {
+				i++;
+				if (i >= args.length) {
+					System.err.println("Missing argument after -tvs:bin!");
+					usage();
+				}
+				ProgramProperties.setProperty("tvla.tvs.binaryFile", args[i]);
 			} else if (args[i].equals("-tr:tvs")) {
 				i++;
 				if (i >= args.length) {
@@ -20,7 +20,6 @@ import tvla.core.TVS;
 import tvla.core.TVSFactory;
 import tvla.core.assignments.Assign;
 import tvla.core.assignments.AssignKleene;
-import tvla.core.generic.AdvancedCoerce;
 import tvla.core.generic.GenericCoerce;
 import tvla.exceptions.AbstractionRefinementException;
 import tvla.exceptions.SemanticErrorException;
@@ -66,31 +65,31 @@ import tvla.util.ProgramProperties;
 public class AbstractionRefinement {
     // Is abstraction refinement enabled at all?
     protected static boolean refine =
-	ProgramProperties.getBooleanProperty("tvla.absRef.refine", false);
+	ProgramProperties.getFixedBooleanProperty("tvla.absRef.refine", false);
 	
     // Should an Unknown answer to a precondition result in an AR Exception?
     private static boolean throwUnknownPrecondException =
-	ProgramProperties.getBooleanProperty("tvla.absRef.throwUnknownPreconditionException", false);
+	ProgramProperties.getFixedBooleanProperty("tvla.absRef.throwUnknownPreconditionException", false);
 
     // Should we introduce all subformulas of query at once to define new instrum preds?
     private static boolean introduceAllSubformulasAtOnce =
-	ProgramProperties.getBooleanProperty("tvla.absRef.introduceAllSubformulasAtOnce", false);
+	ProgramProperties.getFixedBooleanProperty("tvla.absRef.introduceAllSubformulasAtOnce", false);
 
     // Should we introduce only imprecise subformulas of query to define new instrum preds
     // when doing many at once?  Always introducing only imprecise when doing it one at a time.
     private static boolean introduceOnlyImpreciseSubformulas =
 	!introduceAllSubformulasAtOnce ||
-	ProgramProperties.getBooleanProperty("tvla.absRef.introduceOnlyImpreciseSubformulas", false);
+	ProgramProperties.getFixedBooleanProperty("tvla.absRef.introduceOnlyImpreciseSubformulas", false);
 
     // Should we go into original instrumentation predicates when looking for a candidate?
     private static boolean analyzeDefnsOfStartingInstrumPreds =
-	ProgramProperties.getBooleanProperty("tvla.absRef.analyzeDefnsOfStartingInstrumPreds", false);
+	ProgramProperties.getFixedBooleanProperty("tvla.absRef.analyzeDefnsOfStartingInstrumPreds", false);
 
     protected static boolean debug = // Send some flow information to the Logger?
-	ProgramProperties.getBooleanProperty("tvla.absRef.debug", false);
+	ProgramProperties.getFixedBooleanProperty("tvla.absRef.debug", false);
 
     protected static boolean verbose = // Send more flow information to the Logger?
-	debug && ProgramProperties.getBooleanProperty("tvla.absRef.verbose", false);
+	debug && ProgramProperties.getFixedBooleanProperty("tvla.absRef.verbose", false);
 
     // Which generated predicates be non-abstraction:
     // all - all nullary and unary
@@ -99,45 +98,45 @@ public class AbstractionRefinement {
     // heuristic - use a heuristic (makeAbstraction()).
     // none - none of them
     protected static String nonAbstractionPredicates =
-	ProgramProperties.getProperty("tvla.absRef.nonAbstractionPredicates", "none");
+	ProgramProperties.getFixedProperty("tvla.absRef.nonAbstractionPredicates", "none");
 
     // Should we reset the nonabs attribute of core predicates in findNewDefiningFormula?
     protected static boolean resetCoreNonabs =
-	ProgramProperties.getBooleanProperty("tvla.absRef.resetCorePredNonabs", false);
+	ProgramProperties.getFixedBooleanProperty("tvla.absRef.resetCorePredNonabs", false);
 
     // Should we reset the nonabs attribute of instrumentation predicates in findNewDefiningFormula?
     // never - no
     // always - yes, whether or not the recursive call returns a new candidate
     // return - yes, if the recursive call returns a new candidate
     protected static String resetInstrumNonabs =
-	ProgramProperties.getProperty("tvla.absRef.resetInstrumPredNonabs", "never");
+	ProgramProperties.getFixedProperty("tvla.absRef.resetInstrumPredNonabs", "never");
 
     // Should we simply use the values stored in the TVS file for the new
     // predicate?  We must have ignored parse errors in initial parse of input.
     protected static boolean useTVSEntryOfNewPred =
-	ProgramProperties.getBooleanProperty("tvla.absRef.useTVSEntryOfNewPred", false);
+	ProgramProperties.getFixedBooleanProperty("tvla.absRef.useTVSEntryOfNewPred", false);
 
     // File containing the specification of the data-structure constructor
     // to be used for testing effectiveness of candidates on abstract input,
     // and for obtaining the most precise initial values for the new instrum pred.
     protected static String dataStructConsFileName =
-	ProgramProperties.getProperty("tvla.absRef.dataStructureConstructor", "");
+	ProgramProperties.getFixedProperty("tvla.absRef.dataStructureConstructor", "");
 
     // File containing the specification of the empty structure to be used for
     // testing effectiveness of candidates on abstract input, and for obtaining
     // the most precise initial values for the new instrum pred.  Only needed
     // if some core predicates have non-zero values in an empty structure. 
     protected static String emptyStructTVSFileName =
-	ProgramProperties.getProperty("tvla.absRef.emptyStructureTVS", "");
+	ProgramProperties.getFixedProperty("tvla.absRef.emptyStructureTVS", "");
 
     // Should we construct initial structures using the DSC on firts run?
     protected static boolean constructInitialStructures =
-	ProgramProperties.getBooleanProperty("tvla.absRef.constructInitialStructures", false);
+	ProgramProperties.getFixedBooleanProperty("tvla.absRef.constructInitialStructures", false);
 
     // Should candidate defining formulas be tested for their potential for
     // improving the precision of the analysis?
     protected static boolean testEffectiveness =
-	ProgramProperties.getBooleanProperty("tvla.absRef.testEffectiveness", false);
+	ProgramProperties.getFixedBooleanProperty("tvla.absRef.testEffectiveness", false);
 
     // Should effectiveness be testing whether we see fewer 1/2 answers after
     // the final coerce than in the unfocused structure or should it be testing
@@ -148,14 +147,14 @@ public class AbstractionRefinement {
     // about termination, seeing more 0/1 answers rather than seeing fewer 1/2
     // answers should be the default criterion.
     protected static boolean effectivenessCountUnknown =
-	ProgramProperties.getBooleanProperty("tvla.absRef.effectivenessCountUnknown", false);
+	ProgramProperties.getFixedBooleanProperty("tvla.absRef.effectivenessCountUnknown", false);
 
     // Should effectiveness (more 0/1 answers or fewer 1/2 answers) be expected
     // on all or only on at least one Out structure emerging from the final coerce?
     // Normal behavior suggests that we want to see effectiveness on all Out
     // structures but there may be situations in which this is too conservative.
     protected static boolean effectivenessReqOnAllOutStructures =
-	ProgramProperties.getBooleanProperty("tvla.absRef.effectivenessReqOnAllOutStructures", false);
+	ProgramProperties.getFixedBooleanProperty("tvla.absRef.effectivenessReqOnAllOutStructures", false);
 
     // Should we check effectiveness on all actions?  If false, check it only on
     // actions which focus on or update some of the core predicates from the
@@ -165,13 +164,13 @@ public class AbstractionRefinement {
     // dependent.  (Of course, focusing on or updating an instrumentation predicate
     // should be treated as doing that to the core predicates in the definition.)
     protected static boolean effectivenessTestAllActions =
-	ProgramProperties.getBooleanProperty("tvla.absRef.effectivenessTestAllActions", false);
+	ProgramProperties.getFixedBooleanProperty("tvla.absRef.effectivenessTestAllActions", false);
 
     // Should and/or cases of pushForall/ExistQuantifier make a copy of the quantifier?
     // If they do, formula evaluation time will go up.  However, they may give new
     // opportunities for finding new instrumentation predicates.
     protected static boolean copyPushedQuantifier =
-	ProgramProperties.getBooleanProperty("tvla.absRef.copyPushedQuantifier", false);
+	ProgramProperties.getFixedBooleanProperty("tvla.absRef.copyPushedQuantifier", false);
 
     /* Stores formulas that failed the effectiveness test, so that we can
        avoid generating them again. */
@@ -183,7 +182,7 @@ public class AbstractionRefinement {
     protected static AnalysisGraph dscCfg;
     protected static Collection emptyStore;
 
-    // For restoring AnalysisGraph.activeGraph and programName property after DSC analysis.
+    // For restoring AnalysisGraph.getActiveGraph() and programName property after DSC analysis.
     protected static AnalysisGraph programCfg;
     protected static String programName;
 
@@ -1089,7 +1088,7 @@ public class AbstractionRefinement {
     	// 1. Test abstract input.
     	//Iterator inputStructIter = initialStructures.iterator();
     	// We need to compare to joined structures, rather than initial ones.
-    	Location entryLocation = AnalysisGraph.activeGraph.getEntryLocation();
+    	Location entryLocation = AnalysisGraph.getActiveGraph().getEntryLocation();
     	Iterator inputStructIter = entryLocation.allStructures();
     	while (inputStructIter.hasNext()) {
     		TVS inputStruct = (TVS) inputStructIter.next();
@@ -1120,7 +1119,7 @@ public class AbstractionRefinement {
     				corePredsInCandDefFormula + "\n");
     	// Go through all actions (in all locations), and find all actions
     	// that modify one of the core predicates in corePredsInCandDefFormula.
-    	Iterator locIter = AnalysisGraph.activeGraph.getLocations().iterator();
+    	Iterator locIter = AnalysisGraph.getActiveGraph().getLocations().iterator();
     	while (locIter.hasNext()) {
     		Location currentLocation = (Location) locIter.next();
     		if (verbose)
@@ -1275,7 +1274,7 @@ public class AbstractionRefinement {
     protected Collection recomputeAbstractInput(Collection instrumPredsToDifference)
     throws Exception {
     	// Set activeGraph to point to the DSC CFG.
-    	AnalysisGraph.activeGraph = dscCfg;
+    	AnalysisGraph.setActiveGraph(dscCfg);
     	ProgramProperties.setProperty("tvla.programName", dataStructConsFileName);
     	
     	// Now compute values of instrumPredsToDifference.
@@ -1284,7 +1283,7 @@ public class AbstractionRefinement {
     		computeValuesOfUninitInstrumPreds(emptyStore, instrumPredsToDifference);
     	
     	// Output the DSC before analyzing it.
-    	IOFacade.instance().printProgram(AnalysisGraph.activeGraph);
+    	IOFacade.instance().printProgram(AnalysisGraph.getActiveGraph());
     	
     	clearAllLocations();  // Clear results of last DSC analysis.
     	
@@ -1295,14 +1294,14 @@ public class AbstractionRefinement {
     		Logger.println("\nAbsRef: Starting DS Constructor Analysis ...");
     	
     	// Perform the fixpoint finding analysis.
-    	Engine.activeEngine.evaluate(emptyStore);
+    	Engine.getActiveEngine().evaluate(emptyStore);
     	
     	// Dump graph after the data-structure-constructor run.
-    	if (AnalysisGraph.activeGraph != null)
+    	if (AnalysisGraph.getActiveGraph() != null)
     		// this has no effect for multithreaded engines
-    		AnalysisGraph.activeGraph.dump();
+    		AnalysisGraph.getActiveGraph().dump();
     	
-    	Location exit = AnalysisGraph.activeGraph.getLocationByLabel("exit");
+    	Location exit = AnalysisGraph.getActiveGraph().getLocationByLabel("exit");
     	if (exit == null)
     		throw new UserErrorException("Data-structure constructor has no exit location!");
     	
@@ -1315,7 +1314,7 @@ public class AbstractionRefinement {
     		Logger.println("\nAbsRef: All DS Constructor Analysis Tasks Completed");
     	
     	// Restore activeGraph to point to the program CFG.
-    	AnalysisGraph.activeGraph = programCfg;
+    	AnalysisGraph.setActiveGraph(programCfg);
     	ProgramProperties.setProperty("tvla.programName", programName);
     	
     	return newInitialStructures;
@@ -1718,7 +1717,7 @@ public class AbstractionRefinement {
     	
     	// Go through all actions (in all locations), and replace instrum's
     	// defining formula with its name (instrum(vars)) in preconditions.
-    	Iterator locIter = AnalysisGraph.activeGraph.getLocations().iterator();
+    	Iterator locIter = AnalysisGraph.getActiveGraph().getLocations().iterator();
     	while (locIter.hasNext()) {
     		Location location = (Location) locIter.next();
     		
@@ -1886,8 +1885,8 @@ public class AbstractionRefinement {
     	}
     	
     	// Re-init coerce classes with new collection of constraints.
-    	GenericCoerce.defaultGenericCoerce = new GenericCoerce(Constraints.getInstance().constraints());
-    	HighLevelTVS.advancedCoerce = new AdvancedCoerce(Constraints.getInstance().constraints());
+    	GenericCoerce.reset();
+    	HighLevelTVS.reset();
     	
     	// Perform finite differencing.
     	Set instrumPredsToDifference = HashSetFactory.make(newInstrumPreds);
@@ -1943,7 +1942,7 @@ public class AbstractionRefinement {
      next iteration of analysis. */
     protected void clearAllLocations() {
     	// Clear structures at all locations.
-    	Iterator locIter = AnalysisGraph.activeGraph.getLocations().iterator();
+    	Iterator locIter = AnalysisGraph.getActiveGraph().getLocations().iterator();
     	while (locIter.hasNext()) {
     		Location location = (Location) locIter.next();
     		location.clearLocation();
@@ -1962,7 +1961,7 @@ public class AbstractionRefinement {
     	// Save the actual program CFG, so that activeGraph can be
     	// set to the data-structure constructor.
     	// TODO: Should clean out all uses of this global var in TVLA later.
-    	programCfg = AnalysisGraph.activeGraph;
+    	programCfg = AnalysisGraph.getActiveGraph();
     	programName = ProgramProperties.getProperty("tvla.programName", "program");
     	
     	File dsConsFile = new File(dataStructConsFileName + ".tvp");
@@ -1973,13 +1972,13 @@ public class AbstractionRefinement {
     	if (debug)
     		Logger.print("\nAbsRef: Loading data-structure constructor spec ... ");
     	ProgramProperties.setProperty("tvla.programName", dataStructConsFileName);
-    	AnalysisStatus.loadTimer.start();
+    	AnalysisStatus.getLoadTimer().start();
     	
     	if (engineType.equals("tvla")) {
-    		AnalysisGraph.activeGraph = new AnalysisGraph();
+    		AnalysisGraph.setActiveGraph(new AnalysisGraph());
     		TVPParser.configure(dataStructConsFileName, searchPath);
-    		AnalysisGraph.activeGraph.init();
-    		// IOFacade.instance().printProgram(AnalysisGraph.activeGraph);
+    		AnalysisGraph.getActiveGraph().init();
+    		// IOFacade.instance().printProgram(AnalysisGraph.getActiveGraph());
     	} 
     	else if (engineType.equals("tvmc")) {
     		TVMAST tvmFile = TVMParser.configure(dataStructConsFileName, searchPath);
@@ -2016,7 +2015,7 @@ public class AbstractionRefinement {
     		//emptyStruct.initializedPredicates = new ArrayList();
     		emptyStore = Collections.singleton(emptyStruct);
     	}
-    	AnalysisStatus.loadTimer.stop();
+    	AnalysisStatus.getLoadTimer().stop();
     	if (debug) Logger.println("done");
     	
     	// Now compute values of all instrum preds and save them in emptyStore.
@@ -2029,7 +2028,7 @@ public class AbstractionRefinement {
     	tvla.differencing.Differencing.differencing();
     	
     	// Save the DSC AnalysisGraph for refineAbstractInput calls.
-    	dscCfg = AnalysisGraph.activeGraph;
+    	dscCfg = AnalysisGraph.getActiveGraph();
     	
     	// At this point, the DSC AnalysisGraph and the input emptyStore are
     	// initialized for all subsequent calls to refineAbstractInput.
@@ -2038,10 +2037,10 @@ public class AbstractionRefinement {
     		refineAbstractInput(initial, Collections.EMPTY_SET);
     		// Clear the static load timer once load time gets reported
     		// after the first DSC analysis in the above call.
-    		AnalysisStatus.loadTimer = new tvla.util.Timer();
+    		AnalysisStatus.setLoadTimer(new tvla.util.Timer());
     		
     		// Output the program to separate the DSC's structures from the program's.
-    		IOFacade.instance().printProgram(AnalysisGraph.activeGraph);
+    		IOFacade.instance().printProgram(AnalysisGraph.getActiveGraph());
     	}
     }
     
@@ -2098,7 +2097,7 @@ public class AbstractionRefinement {
     			clearAllLocations();
     			// For now just output the program to show the start of the
     			// next refinement iteration in output.
-    			IOFacade.instance().printProgram(AnalysisGraph.activeGraph);
+    			IOFacade.instance().printProgram(AnalysisGraph.getActiveGraph());
     		}
     		
     		if (newInstrumPreds.isEmpty() && nonabsPredsToAbs.isEmpty())
@@ -2115,7 +2114,7 @@ public class AbstractionRefinement {
     	
     	// Go through all actions (in all locations), and
     	// test their preconditions for imprecision.
-    	Iterator locIter = AnalysisGraph.activeGraph.getLocations().iterator();
+    	Iterator locIter = AnalysisGraph.getActiveGraph().getLocations().iterator();
     	while (locIter.hasNext()) {
     		Location location = (Location) locIter.next();
     		
@@ -2183,7 +2182,7 @@ public class AbstractionRefinement {
     								clearAllLocations();
     								// For now just output the program to show the start of the
     								// next refinement iteration in output.
-    								IOFacade.instance().printProgram(AnalysisGraph.activeGraph);
+    								IOFacade.instance().printProgram(AnalysisGraph.getActiveGraph());
     								return true;
     							}
     						}
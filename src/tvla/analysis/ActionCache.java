@@ -0,0 +1,127 @@
+package tvla.analysis;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import tvla.core.HighLevelTVS;
+import tvla.core.generic.TVSHashFunc;
+import tvla.transitionSystem.Action;
+import tvla.util.LRUCache;
+import tvla.util.ProgramProperties;
+
+/**
+ * Memoizes the results of applying actions to structures.
+ * An action applied to structures that are isomorphic to one it was already
+ * applied to yields isomorphic results, so the results are looked up by the
+ * action and the isomorphism class of the input structure, as identified by
+ * its colour-refinement signature (see TVSHashFunc).
+ * The cache holds copies of the input and result structures, and returns
+ * fresh copies of the results, since the engines modify the structures
+ * they join. The least recently used entries are evicted when the number
+ * of entries exceeds the size set by the tvla.engine.actionCache.size
+ * property; the cache is disabled when the size is 0.
+ * Actions that report messages are not cached, since reporting a message
+ * depends on the location of the structure, and so are applications in
+ * debug mode, which print the intermediate structures.
+ *
+ * @see AnalysisStatus#numberOfActionCacheHits
+ */
+public class ActionCache {
+	/**
+	 * Maps keys to the collections of results.
+	 */
+	protected final LRUCache<Key, Collection<HighLevelTVS>> cache;
+
+	/**
+	 * Returns a new cache with the size set by the properties, or null if
+	 * the cache is disabled.
+	 */
+	public static ActionCache create() {
+		int size = ProgramProperties.getIntProperty("tvla.engine.actionCache.size", 0);
+		return size > 0 ? new ActionCache(size) : null;
+	}
+
+	public ActionCache(int size) {
+		cache = new LRUCache<Key, Collection<HighLevelTVS>>(size);
+	}
+
+	/**
+	 * Returns a key for the application of the action to the structure, or
+	 * null if the application should not be cached. The key holds a copy of
+	 * the structure, since the action may modify the structure it is
+	 * applied to (e.g., by coercing it).
+	 */
+	public Key key(Action action, HighLevelTVS structure) {
+		if (AnalysisStatus.debug || !action.getMessages().isEmpty() || !action.getPostMessages().isEmpty())
+			return null;
+		return new Key(action, structure.copy());
+	}
+
+	/**
+	 * Returns copies of the results of applying the action of the key to
+	 * an isomorphic structure, or null if they are not in the cache.
+	 */
+	public synchronized Collection<HighLevelTVS> lookup(Key key, AnalysisStatus status) {
+		Collection<HighLevelTVS> results = cache.get(key);
+		if (results == null) {
+			++status.numberOfActionCacheMisses;
+			return null;
+		}
+		++status.numberOfActionCacheHits;
+		return copy(results);
+	}
+
+	/**
+	 * Stores copies of the results of applying the action of the key to its
+	 * structure.
+	 */
+	public synchronized void store(Key key, Collection<HighLevelTVS> results) {
+		cache.put(key, copy(results));
+	}
+
+	/**
+	 * Returns the number of entries in the cache.
+	 */
+	public synchronized int size() {
+		return cache.size();
+	}
+
+	protected static Collection<HighLevelTVS> copy(Collection<HighLevelTVS> structures) {
+		Collection<HighLevelTVS> result = new ArrayList<HighLevelTVS>(structures.size());
+		for (HighLevelTVS structure : structures) {
+			result.add(structure.copy());
+		}
+		return result;
+	}
+
+	/**
+	 * An action and a structure, which is equal to keys of the same action
+	 * and isomorphic structures.
+	 */
+	public static class Key {
+		protected final Action action;
+		protected final HighLevelTVS structure;
+		protected final int hashCode;
+
+		protected Key(Action action, HighLevelTVS structure) {
+			this.action = action;
+			this.structure = structure;
+			this.hashCode = 31 * System.identityHashCode(action)
+					+ TVSHashFunc.defaultInstance.computeHashCode(structure);
+		}
+
+		public int hashCode() {
+			return hashCode;
+		}
+
+		public boolean equals(Object o) {
+			if (this == o)
+				return true;
+			if (!(o instanceof Key))
+				return false;
+			Key other = (Key) o;
+			return hashCode == other.hashCode && action == other.action
+					&& TVSHashFunc.defaultInstance.equals(structure, other.structure);
+		}
+	}
+}
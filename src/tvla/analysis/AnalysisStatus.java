@@ -1,11 +1,16 @@
 package tvla.analysis;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import tvla.core.TVSFactory;
 import tvla.core.generic.AdvancedCoerce;
 import tvla.core.generic.GenericHashPartialJoinTVSSet;
 import tvla.core.generic.MultiConstraint;
 import tvla.transitionSystem.Action;
 import tvla.transitionSystem.Location;
+import tvla.util.AnalysisContext;
 import tvla.util.Logger;
 import tvla.util.ProgramProperties;
 import tvla.util.StringUtils;
@@ -114,9 +119,25 @@ public class AnalysisStatus {
 	public static final int NUM_TIMERS = 16;
 
 	/**
-	 * The global load timer.
+	 * The status state of an analysis context.
 	 */
-	public static Timer loadTimer = new Timer();
+	private static class ContextStatus {
+		/**
+		 * The last AnalysisStatus object that was constructed.
+		 */
+		AnalysisStatus activeStatus;
+
+		/**
+		 * The global load timer.
+		 */
+		Timer loadTimer = new Timer();
+	}
+
+	private static final AnalysisContext.Slot<ContextStatus> contextStatus = new AnalysisContext.Slot<ContextStatus>() {
+		protected ContextStatus create() {
+			return new ContextStatus();
+		}
+	};
 
 	/**
 	 * Specifies whether runtime printouts should be printed to the console.
@@ -153,6 +174,15 @@ public class AnalysisStatus {
 	 */
 	public int numberOfConstraintBreachesAfterUpdtae = 0;
 
+	/**
+	 * The number of action applications whose results were found in the
+	 * action cache, and the number of applications looked up and not found.
+	 * 
+	 * @see ActionCache
+	 */
+	public int numberOfActionCacheHits = 0;
+	public int numberOfActionCacheMisses = 0;
+
 	/**
 	 * The amount of memory used just before the analysis started.
 	 */
@@ -235,11 +265,6 @@ public class AnalysisStatus {
 
 	public int numberOfComposeConstraintBreaches = 0;
 
-	/**
-	 * Stores the last AnalysisStatus object that was constructued.
-	 */
-	private static AnalysisStatus activeStatus;
-
 	/**
 	 * Constructs an AnalysisStatus object and runs it in a new thread.
 	 */
@@ -255,12 +280,80 @@ public class AnalysisStatus {
 				false);
 
 		initTimers();
-		activeStatus = this;
+		contextStatus.get().activeStatus = this;
+	}
+
+	/**
+	 * Constructs a status object for a worker thread of the analysis owning
+	 * the specified status. The worker status uses the limits of the owner,
+	 * does not become the active status and is added to the owner using
+	 * {@link #merge(AnalysisStatus)}.
+	 */
+	public AnalysisStatus(AnalysisStatus owner) {
+		structuresLimit = owner.structuresLimit;
+		messagesLimit = owner.messagesLimit;
+		dumpEvery = owner.dumpEvery;
+		statisticsEvery = owner.statisticsEvery;
+		continuousStatisticsReports = owner.continuousStatisticsReports;
+		for (int i = 0; i < timers.length; ++i)
+			timers[i] = new Timer();
+	}
+
+	/**
+	 * Adds the timers and counters of a worker status to this status and
+	 * clears them in the worker.
+	 */
+	public void merge(AnalysisStatus worker) {
+		for (int i = 0; i < timers.length; ++i) {
+			if (i == LOAD_TIME)
+				continue;
+			timers[i].add(worker.timers[i]);
+			worker.timers[i] = new Timer();
+		}
+		numberOfConstraintBreaches += worker.numberOfConstraintBreaches;
+		numberOfConstraintBreachesAfterUpdtae += worker.numberOfConstraintBreachesAfterUpdtae;
+		numberOfComposeConstraintBreaches += worker.numberOfComposeConstraintBreaches;
+		worker.numberOfConstraintBreaches = 0;
+		worker.numberOfConstraintBreachesAfterUpdtae = 0;
+		worker.numberOfComposeConstraintBreaches = 0;
+		numberOfActionCacheHits += worker.numberOfActionCacheHits;
+		numberOfActionCacheMisses += worker.numberOfActionCacheMisses;
+		worker.numberOfActionCacheHits = 0;
+		worker.numberOfActionCacheMisses = 0;
+		finishAnalysis |= worker.finishAnalysis;
+	}
+
+	/**
+	 * Writes the counters of this status to a checkpoint.
+	 * 
+	 * @see #readCounters(DataInput)
+	 */
+	public void writeCounters(DataOutput out) throws IOException {
+		out.writeInt(numberOfStructures);
+		out.writeInt(numberOfMessages);
+		out.writeInt(numberOfConstraintBreaches);
+		out.writeInt(numberOfConstraintBreachesAfterUpdtae);
+		out.writeInt(numberOfComposeConstraintBreaches);
+		out.writeInt(numberOfActionCacheHits);
+		out.writeInt(numberOfActionCacheMisses);
+	}
+
+	/**
+	 * Restores the counters written by writeCounters, when an analysis is
+	 * resumed from a checkpoint.
+	 */
+	public void readCounters(DataInput in) throws IOException {
+		numberOfStructures = in.readInt();
+		numberOfMessages = in.readInt();
+		numberOfConstraintBreaches = in.readInt();
+		numberOfConstraintBreachesAfterUpdtae = in.readInt();
+		numberOfComposeConstraintBreaches = in.readInt();
+		numberOfActionCacheHits = in.readInt();
+		numberOfActionCacheMisses = in.readInt();
 	}
 
 	public static void reset() {
-		activeStatus = null;
-		loadTimer = new Timer();
+		contextStatus.reset();
 	}
 
 	/**
@@ -268,9 +361,25 @@ public class AnalysisStatus {
 	 * was created.
 	 */
 	public static AnalysisStatus getActiveStatus() {
-		if (activeStatus == null)
-			activeStatus = new AnalysisStatus();
-		return activeStatus;
+		ContextStatus status = contextStatus.get();
+		if (status.activeStatus == null)
+			status.activeStatus = new AnalysisStatus();
+		return status.activeStatus;
+	}
+
+	/**
+	 * Returns the global load timer.
+	 */
+	public static Timer getLoadTimer() {
+		return contextStatus.get().loadTimer;
+	}
+
+	/**
+	 * Replaces the global load timer. Status objects that were already
+	 * constructed keep referencing the previous timer.
+	 */
+	public static void setLoadTimer(Timer timer) {
+		contextStatus.get().loadTimer = timer;
 	}
 
 	/**
@@ -381,7 +490,7 @@ public class AnalysisStatus {
 	 * @since 21.7.2001
 	 */
 	static final boolean printIncrementStats = ProgramProperties
-			.getBooleanProperty("tvla.engine.incremental.printStatistics", false);
+			.getFixedBooleanProperty("tvla.engine.incremental.printStatistics", false);
 
 	public void printStatistics(StringBuffer to) {
 		double currentTotalTime = getTimerMeasure(TOTAL_ANALYSIS_TIME);
@@ -478,9 +587,13 @@ public class AnalysisStatus {
 		if (numberOfComposeConstraintBreaches != 0)
 			println(to, "Num of compose constraint breaches : " + numberOfComposeConstraintBreaches);
 		println(to, "Total number of messages   : " + numberOfMessages);
-		println(to, "#locations where property failed  : " + Action.locationsWherePropertyFails.size());
+		if (numberOfActionCacheHits + numberOfActionCacheMisses > 0) {
+			println(to, "Action cache hits          : " + numberOfActionCacheHits);
+			println(to, "Action cache misses        : " + numberOfActionCacheMisses);
+		}
+		println(to, "#locations where property failed  : " + Action.getLocationsWherePropertyFails().size());
 		println(to, "locations where property failed  = ");
-		for (Location failLoc : Action.locationsWherePropertyFails) {
+		for (Location failLoc : Action.getLocationsWherePropertyFails()) {
 			println(to, "PROPERTY FAILED at " + failLoc.label());
 		}
 
@@ -589,7 +702,7 @@ public class AnalysisStatus {
 	 * position.
 	 */
 	protected void initTimers() {
-		timers[0] = loadTimer; // reference the static timer
+		timers[0] = getLoadTimer(); // reference the shared timer
 		for (int i = 1; i < timers.length; ++i)
 			timers[i] = new Timer();
 	}
@@ -0,0 +1,421 @@
+package tvla.analysis;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import tvla.analysis.worklist.LocationWorklist;
+import tvla.core.HighLevelTVS;
+import tvla.core.Node;
+import tvla.core.TVS;
+import tvla.core.TVSFactory;
+import tvla.core.base.BaseTVSFactory;
+import tvla.core.functional.FnUniverse;
+import tvla.exceptions.UserErrorException;
+import tvla.io.BinaryTVSReader;
+import tvla.io.BinaryTVSWriter;
+import tvla.transitionSystem.Action;
+import tvla.transitionSystem.AnalysisGraph;
+import tvla.transitionSystem.Location;
+import tvla.util.AnalysisContext;
+import tvla.util.Logger;
+import tvla.util.ProgramProperties;
+
+/**
+ * Periodically saves the state of a fixpoint computation to a file, from
+ * which the computation can be resumed (the -resume option).
+ * A checkpoint holds the structures of every location, its unprocessed
+ * structures and messages, the worklist, the counters of the analysis
+ * status and of the engine, and the node id counter. Structures are
+ * written in the format of BinaryTVSWriter, preceded by the ids of their
+ * nodes so that a resumed analysis names them as the interrupted one did,
+ * and the file is compressed.
+ *
+ * The engine takes a snapshot between iterations, by copying the
+ * structures, and the snapshot is written by a background thread, so the
+ * engine only pauses for the copies. Copies of base structures share their
+ * predicate tables until either copy is modified, so they are cheap.
+ * Other implementations write the snapshot on the engine thread.
+ * A snapshot is skipped while the previous one is still being written.
+ * The file is first written under a temporary name and then renamed, so
+ * an interrupted write leaves the previous checkpoint intact.
+ *
+ * The file is set by the tvla.checkpoint.file property (the -checkpoint
+ * option), and the minimal number of seconds between checkpoints by
+ * tvla.checkpoint.interval.
+ */
+public class Checkpoint {
+	/** Identifies the format at the start of the file.
+	 */
+	protected static final int MAGIC = 0x54564350; // "TVCP"
+	protected static final int VERSION = 2;
+
+	protected final File file;
+
+	/** The minimal time between checkpoints, in nanoseconds.
+	 */
+	protected final long interval;
+
+	/** The time of the last checkpoint.
+	 */
+	protected long lastTime = System.nanoTime();
+
+	/** Writes the snapshots, or null if they are written on the engine
+	 * thread.
+	 */
+	protected ExecutorService writer;
+
+	/** The snapshot being written, if any.
+	 */
+	protected Future<?> pending;
+
+	/** Returns the checkpoint set by the properties, or null if checkpoints
+	 * are disabled.
+	 */
+	public static Checkpoint create() {
+		String fileName = ProgramProperties.getProperty("tvla.checkpoint.file", null);
+		if (fileName == null)
+			return null;
+		return new Checkpoint(new File(fileName), ProgramProperties.getIntProperty("tvla.checkpoint.interval", 600));
+	}
+
+	/** Returns whether checkpointing or resuming was requested.
+	 */
+	public static boolean requested() {
+		return ProgramProperties.getProperty("tvla.checkpoint.file", null) != null
+				|| ProgramProperties.getProperty("tvla.checkpoint.resume", null) != null;
+	}
+
+	public Checkpoint(File file, int intervalSeconds) {
+		this.file = file;
+		this.interval = intervalSeconds * 1000000000L;
+		if (TVSFactory.getInstance() instanceof BaseTVSFactory) {
+			final AnalysisContext context = AnalysisContext.current();
+			writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				public Thread newThread(final Runnable runnable) {
+					Thread thread = new Thread(new Runnable() {
+						public void run() {
+							AnalysisContext.bind(context);
+							runnable.run();
+						}
+					}, "tvla-checkpoint");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+	}
+
+	/** Returns whether the interval has passed since the last checkpoint
+	 * and the last checkpoint was written.
+	 */
+	public boolean isDue() {
+		return System.nanoTime() - lastTime >= interval && (pending == null || pending.isDone());
+	}
+
+	/** Takes a snapshot of the state of the analysis and writes it.
+	 *
+	 * @param engineCounters Counters of the engine, returned by restore.
+	 */
+	public void save(AnalysisGraph graph, LocationWorklist worklist, AnalysisStatus status, int[] engineCounters) {
+		final Snapshot snapshot = new Snapshot(graph, worklist, status, engineCounters);
+		lastTime = System.nanoTime();
+		Runnable write = new Runnable() {
+			public void run() {
+				try {
+					snapshot.write(file);
+				}
+				catch (IOException e) {
+					Logger.println("Failed to write the checkpoint " + file + ": " + e.getMessage());
+				}
+			}
+		};
+		if (writer != null)
+			pending = writer.submit(write);
+		else
+			write.run();
+	}
+
+	/** Waits for the last checkpoint to be written and stops the background
+	 * thread.
+	 */
+	public void close() {
+		if (writer == null)
+			return;
+		writer.shutdown();
+		try {
+			if (pending != null)
+				pending.get();
+		}
+		catch (Exception e) {
+			throw new Error(e);
+		}
+		writer = null;
+	}
+
+	/** Restores the state of an analysis from a checkpoint file into the
+	 * locations of the given graph, which must be empty, and into the
+	 * worklist and status.
+	 *
+	 * @return The counters of the engine that were passed to save.
+	 */
+	public static int[] restore(String fileName, AnalysisGraph graph, LocationWorklist worklist, AnalysisStatus status) {
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(fileName))));
+			if (in.readInt() != MAGIC || in.readInt() != VERSION)
+				throw new UserErrorException("The file " + fileName + " is not a checkpoint of this version");
+			BinaryTVSReader reader = new BinaryTVSReader(in);
+
+			int maxNodeId = in.readInt();
+			FnUniverse.reserve(maxNodeId);
+			status.readCounters(in);
+			int[] engineCounters = new int[in.readInt()];
+			for (int i = 0; i < engineCounters.length; ++i)
+				engineCounters[i] = in.readInt();
+			worklist.restoreCounts(in.readInt(), in.readInt());
+
+			for (int locations = in.readInt(); locations > 0; --locations) {
+				Location location = readLocation(in, graph);
+				List<HighLevelTVS> members = new ArrayList<HighLevelTVS>();
+				for (int size = in.readInt(); size > 0; --size) {
+					HighLevelTVS structure = readStructure(in, reader);
+					HighLevelTVS stored = location.structures.mergeWith(structure);
+					members.add(stored != null ? stored : structure);
+				}
+				for (int size = in.readInt(); size > 0; --size) {
+					location.addUnprocessed(readStructure(in, reader, members));
+				}
+				for (int size = in.readInt(); size > 0; --size) {
+					TVS structure = readStructure(in, reader, members);
+					byte[] message = new byte[in.readInt()];
+					in.readFully(message);
+					location.messages.put(structure, new StringBuffer(new String(message, StandardCharsets.UTF_8)));
+				}
+			}
+			for (int size = in.readInt(); size > 0; --size)
+				worklist.add(readLocation(in, graph));
+			for (int size = in.readInt(); size > 0; --size)
+				Action.getLocationsWherePropertyFails().add(readLocation(in, graph));
+			return engineCounters;
+		}
+		catch (IOException e) {
+			throw new UserErrorException("Failed to read the checkpoint " + fileName + ": " + e.getMessage());
+		}
+		finally {
+			if (in != null) {
+				try {
+					in.close();
+				}
+				catch (IOException e) {
+				}
+			}
+		}
+	}
+
+	private static Location readLocation(DataInputStream in, AnalysisGraph graph) throws IOException {
+		String label = in.readUTF();
+		Location location = graph.getLocationByLabel(label);
+		if (location == null)
+			throw new UserErrorException("The checkpoint refers to the location " + label
+					+ ", which is not in the program");
+		return location;
+	}
+
+	/** Reads a structure that is either a stored structure of the location,
+	 * by its position, or written in full.
+	 */
+	private static HighLevelTVS readStructure(DataInputStream in, BinaryTVSReader reader, List<HighLevelTVS> members)
+			throws IOException {
+		int index = in.readInt();
+		return index >= 0 ? members.get(index) : readStructure(in, reader);
+	}
+
+	/** Reads a structure and gives its nodes the ids they were saved with.
+	 */
+	private static HighLevelTVS readStructure(DataInputStream in, BinaryTVSReader reader) throws IOException {
+		Node[] nodes = new Node[in.readInt()];
+		for (int i = 0; i < nodes.length; ++i)
+			nodes[i] = Node.nodeForID(in.readInt());
+		return reader.read(nodes);
+	}
+
+	/** Writes a structure preceded by the ids of its nodes, in the order in
+	 * which the writer writes them.
+	 */
+	private static void writeStructure(DataOutputStream out, BinaryTVSWriter writer, TVS structure)
+			throws IOException {
+		out.writeInt(structure.nodes().size());
+		for (Node node : structure.nodes())
+			out.writeInt(node.id());
+		writer.write(structure);
+	}
+
+	/** The state of an analysis, with copies of its structures.
+	 */
+	protected static class Snapshot {
+		protected final int maxNodeId;
+		protected final byte[] counters;
+		protected final int[] engineCounters;
+		protected final int worklistIterations;
+		protected final int worklistStructures;
+		protected final List<LocationState> locations = new ArrayList<LocationState>();
+		protected final List<String> worklist = new ArrayList<String>();
+		protected final List<String> failed = new ArrayList<String>();
+
+		public Snapshot(AnalysisGraph graph, LocationWorklist worklist, AnalysisStatus status, int[] engineCounters) {
+			this.maxNodeId = Node.getMaxId();
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try {
+				status.writeCounters(new DataOutputStream(bytes));
+			}
+			catch (IOException e) {
+				throw new Error(e);
+			}
+			this.counters = bytes.toByteArray();
+			this.engineCounters = engineCounters.clone();
+			this.worklistIterations = worklist.iterations();
+			this.worklistStructures = worklist.structures();
+			for (Location location : graph.getLocations()) {
+				LocationState state = new LocationState(location);
+				if (!state.isEmpty())
+					locations.add(state);
+			}
+			for (Location location : worklist.locations())
+				this.worklist.add(location.label());
+			for (Location location : Action.getLocationsWherePropertyFails())
+				failed.add(location.label());
+		}
+
+		public void write(File file) throws IOException {
+			File temporary = new File(file.getPath() + ".tmp");
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(
+					new FileOutputStream(temporary), 1 << 16)));
+			try {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				BinaryTVSWriter writer = new BinaryTVSWriter(out);
+				out.writeInt(maxNodeId);
+				out.write(counters);
+				out.writeInt(engineCounters.length);
+				for (int counter : engineCounters)
+					out.writeInt(counter);
+				out.writeInt(worklistIterations);
+				out.writeInt(worklistStructures);
+				out.writeInt(locations.size());
+				for (LocationState location : locations)
+					location.write(out, writer);
+				writeLabels(out, worklist);
+				writeLabels(out, failed);
+			}
+			finally {
+				out.close();
+			}
+			try {
+				Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch (AtomicMoveNotSupportedException e) {
+				Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+
+		private static void writeLabels(DataOutputStream out, List<String> labels) throws IOException {
+			out.writeInt(labels.size());
+			for (String label : labels)
+				out.writeUTF(label);
+		}
+	}
+
+	/** The structures of a location. The unprocessed structures and the
+	 * structures with messages that are also stored at the location are
+	 * kept as their positions among the stored structures, so that they are
+	 * restored as the same objects.
+	 */
+	protected static class LocationState {
+		protected final String label;
+		protected final List<HighLevelTVS> structures = new ArrayList<HighLevelTVS>();
+		protected final List<Object> unprocessed = new ArrayList<Object>();
+		protected final List<Object> messageStructures = new ArrayList<Object>();
+		protected final List<String> messages = new ArrayList<String>();
+
+		public LocationState(Location location) {
+			this.label = location.label();
+			Map<TVS, Integer> positions = new IdentityHashMap<TVS, Integer>();
+			for (HighLevelTVS structure : location.structures) {
+				positions.put(structure, structures.size());
+				structures.add(structure.copy());
+			}
+			for (HighLevelTVS structure : location.unprocessed())
+				unprocessed.add(reference(structure, positions));
+			for (Map.Entry<TVS, StringBuffer> entry : location.messages.entrySet()) {
+				messageStructures.add(reference(entry.getKey(), positions));
+				messages.add(entry.getValue().toString());
+			}
+		}
+
+		public boolean isEmpty() {
+			return structures.isEmpty() && unprocessed.isEmpty() && messages.isEmpty();
+		}
+
+		public void write(DataOutputStream out, BinaryTVSWriter writer) throws IOException {
+			out.writeUTF(label);
+			out.writeInt(structures.size());
+			for (HighLevelTVS structure : structures)
+				writeStructure(out, writer, structure);
+			writeReferences(out, writer, unprocessed);
+			out.writeInt(messageStructures.size());
+			for (int i = 0; i < messageStructures.size(); ++i) {
+				writeReference(out, writer, messageStructures.get(i));
+				// Messages may be longer than writeUTF allows.
+				byte[] message = messages.get(i).getBytes(StandardCharsets.UTF_8);
+				out.writeInt(message.length);
+				out.write(message);
+			}
+		}
+
+		private static Object reference(TVS structure, Map<TVS, Integer> positions) {
+			Integer position = positions.get(structure);
+			return position != null ? position : structure.copy();
+		}
+
+		private static void writeReferences(DataOutputStream out, BinaryTVSWriter writer, Collection<Object> references)
+				throws IOException {
+			out.writeInt(references.size());
+			for (Object reference : references)
+				writeReference(out, writer, reference);
+		}
+
+		private static void writeReference(DataOutputStream out, BinaryTVSWriter writer, Object reference)
+				throws IOException {
+			if (reference instanceof Integer) {
+				out.writeInt((Integer) reference);
+			}
+			else {
+				out.writeInt(-1);
+				writeStructure(out, writer, (TVS) reference);
+			}
+		}
+	}
+}
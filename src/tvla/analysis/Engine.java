@@ -1,10 +1,12 @@
 package tvla.analysis;
 
 import java.util.*;
+import java.util.concurrent.Callable;
 
 import tvla.core.*;
 import tvla.core.assignments.Assign;
 import tvla.core.base.BaseHighLevelTVS;
+import tvla.core.base.BaseTVSFactory;
 import tvla.core.common.ModifiedPredicates;
 import tvla.exceptions.AnalysisHaltException;
 import tvla.exceptions.FocusNonTerminationException;
@@ -16,6 +18,7 @@ import tvla.termination.TerminationAnalysisInput;
 import tvla.transitionSystem.Action;
 import tvla.transitionSystem.Location;
 import tvla.transitionSystem.PrintableProgramLocation;
+import tvla.util.AnalysisContext;
 import tvla.util.Logger;
 import tvla.util.Pair;
 import tvla.util.ProgramProperties;
@@ -30,12 +33,23 @@ import tvla.util.StringUtils;
  */
 public abstract class Engine {
     /**
-     * This variable gives convenience access to the active engine.
+     * This variable gives convenience access to the active engine of each
+     * analysis context.
      * 
      * @author Roman Manevich.
      * @since 18.11.2001 Initial creation.
      */
-    public static Engine activeEngine;
+    private static final AnalysisContext.Slot<Engine> activeEngine = new AnalysisContext.Slot<Engine>() {
+        protected Engine create() {
+            return null;
+        }
+    };
+
+    /**
+     * The engine applying actions on the current thread, when it is not the
+     * active engine (e.g., a worker of a parallel engine).
+     */
+    private static final ThreadLocal<Engine> threadEngine = new ThreadLocal<Engine>();
 
     /**
      * A reference to the location currently being processed by the engine.
@@ -54,9 +68,14 @@ public abstract class Engine {
     protected Action currentAction;
 
     /**
-     * @since 5.4.2002 Blur is always performed as the last step of an action.
+     * Set when the analysis stopped since a constraint was breached after
+     * Update.
      */
-    public static boolean coerceAfterUpdateFailed = false;
+    private static final AnalysisContext.Slot<Boolean> coerceAfterUpdateFailed = new AnalysisContext.Slot<Boolean>() {
+        protected Boolean create() {
+            return Boolean.FALSE;
+        }
+    };
 
     protected boolean doBlur = true;
 
@@ -72,6 +91,23 @@ public abstract class Engine {
 
     protected AnalysisStatus status;
 
+    /**
+     * Memoizes the results of actions, or null if memoization is disabled.
+     */
+    protected ActionCache actionCache;
+
+    /**
+     * Applies actions to the branches of Focus in parallel, or null if
+     * parallel focus is disabled.
+     */
+    protected ParallelFocus parallelFocus;
+
+    /**
+     * Records per-location, per-action metrics, or null if telemetry is
+     * disabled.
+     */
+    protected Telemetry telemetry;
+
     /**
      * Holds the transition relation of the active analysis
      */
@@ -165,15 +201,44 @@ public abstract class Engine {
      *            initialized.
      * @since 8.2.2001 Added TVS output printing capabilities.
      */
-    public Collection<HighLevelTVS> apply(Action action,
-                                          HighLevelTVS structure,
-                                          String label,
-                                          Map<HighLevelTVS, Set<String>> messages,
-                                          Map<HighLevelTVS, Map<Node, Node>> nodesTransition) {
+    public Collection<HighLevelTVS> apply(final Action action,
+                                          final HighLevelTVS structure,
+                                          final String label,
+                                          final Map<HighLevelTVS, Set<String>> messages,
+                                          final Map<HighLevelTVS, Map<Node, Node>> nodesTransition) {
+        // The action is applied by a thread of the pool, so that the
+        // branches of Focus can be split into tasks.
+        if (parallelFocus != null && !AnalysisStatus.debug && !ParallelFocus.inWorker()) {
+            return parallelFocus.invoke(new Callable<Collection<HighLevelTVS>>() {
+                public Collection<HighLevelTVS> call() {
+                    Engine previous = threadEngine.get();
+                    bindToThread(Engine.this);
+                    try {
+                        return apply(action, structure, label, messages, nodesTransition);
+                    } finally {
+                        bindToThread(previous);
+                    }
+                }
+            });
+        }
+
         try {
 
             HighLevelTVS parent = structure;
 
+            // Results are not memoized when the node transitions are
+            // requested, since the cached results have other nodes.
+            ActionCache.Key cacheKey = null;
+            if (actionCache != null && nodesTransition == null) {
+                cacheKey = actionCache.key(action, structure);
+                if (cacheKey != null) {
+                    Collection<HighLevelTVS> cached = actionCache.lookup(cacheKey, status);
+                    if (cached != null)
+                        return cached;
+                }
+            }
+
+            Telemetry.Record record = telemetry != null ? telemetry.record(label, action) : null;
             Collection<HighLevelTVS> answer = new ArrayList<HighLevelTVS>();
             // Focus
             Collection<HighLevelTVS> focusResult = null;
@@ -187,9 +252,12 @@ public abstract class Engine {
             if (doFocus && action.getFocusFormulae().size() > 0) {
                 stat_FocusCalls++;
                 try {
+                    long start = record != null ? System.nanoTime() : 0;
                     status.startTimer(AnalysisStatus.FOCUS_TIME);
                     focusResult = Focus.focus(structure, action.getFocusFormulae(), action.getPrecondition());
                     status.stopTimer(AnalysisStatus.FOCUS_TIME);
+                    if (record != null)
+                        record.time(Telemetry.FOCUS, System.nanoTime() - start);
                 } catch (FocusNonTerminationException e) {
                     String message = "While focusing on " + action.getFocusFormulae()
                             + StringUtils.newLine;
@@ -201,131 +269,18 @@ public abstract class Engine {
                 focusResult = Collections.singleton(structure);
             }
             focusOnEntry = (float) focusResult.size();
+            if (record != null)
+                record.application(structure.nodes().size(), focusResult.size());
 
-            for (Iterator<HighLevelTVS> focusIt = focusResult.iterator(); focusIt.hasNext();) {
-                HighLevelTVS focusedStructure = focusIt.next();
-
-                if (AnalysisStatus.debug) {
-                    IOFacade.instance().printStructure(structure,
-                            "Executing " + label + " " + action.toString());
-                    if (doFocus)
-                        IOFacade.instance().printStructure(focusedStructure,
-                                "After Focus " + label + " " + action.toString());
-                }
-
-                // Coerce if coerce-after-focus is enabled
-                if (doCoerceAfterFocus) {
-
-                    // if (Coerce.debug)
-                    // Logger.println("FOCUS");
-
-                    status.startTimer(AnalysisStatus.COERCE_TIME);
-                    boolean valid = focusedStructure.coerce();
-                    status.stopTimer(AnalysisStatus.COERCE_TIME);
-                    if (!valid) {
-                        status.numberOfConstraintBreaches++;
-                        continue;
-                    }
-                    if (AnalysisStatus.debug)
-                        IOFacade.instance().printStructure(focusedStructure,
-                                "After Coerce " + label + " " + action.toString());
-                }
-
-                // Precondition evaluation
-                status.startTimer(AnalysisStatus.PRECONDITION_TIME);
-                Collection<Assign> assigns = action.checkPrecondition(focusedStructure);
-                status.stopTimer(AnalysisStatus.PRECONDITION_TIME);
-
-                for (Iterator<Assign> assignIt = assigns.iterator(); assignIt.hasNext();) {
-                    Assign assign = (Assign) assignIt.next();
-                    if (action.checkHaltCondition(focusedStructure, assign))
-                        throw new AnalysisHaltException(label, action);
-
-                    boolean freeze = reportMessages(action, focusedStructure, assign, messages);
-                    if (freeze) {
-                        assignIt.remove();
-                        continue;
-                    }
-
-                    if (AnalysisStatus.debug && (!assign.isEmpty() || !doCoerceAfterFocus)) {
-                        IOFacade.instance().printStructure(
-                                focusedStructure,
-                                "Precondition binding " + label + " " + action + " "
-                                        + (assign.isEmpty() ? "{}" : "" + assign));
-                    }
-
-                    // Update formulae evaluation
-                    status.startTimer(AnalysisStatus.UPDATE_TIME);
-                    HighLevelTVS result = action.evaluate(focusedStructure, assign);
-                    status.stopTimer(AnalysisStatus.UPDATE_TIME);
-
-                    if (AnalysisStatus.debug)
-                        IOFacade.instance().printStructure(
-                                result,
-                                "After Update " + label + " " + action
-                                        + (assign.isEmpty() ? "{}" : " " + assign));
-
-                    // Coerce (if coerce after update is enabled)
-                    if (doCoerceAfterUpdate) {
-                        // if (Coerce.debug)
-                        // Logger.println("UPDATE");
-
-                        status.startTimer(AnalysisStatus.COERCE_TIME);
-                        boolean valid = result.coerce();
-                        status.stopTimer(AnalysisStatus.COERCE_TIME);
-                        if (!valid) {
-                            status.numberOfConstraintBreaches++;
-                            if (breakIfCoerceAfterUpdateFailed) {
-                                Logger
-                                        .println(StringUtils.newLine
-                                                + "The analysis has stopped since a constraint was breached during the operation "
-                                                + "of Coerce, after Update was applied!"
-                                                + StringUtils.newLine + "Action = "
-                                                + action.toString() + StringUtils.newLine
-                                                + "Program location = " + label);
-                                if (!Coerce.debug) { // Print the constraint
-                                                        // breach.
-                                    boolean savedCurLocPrint = currentLocation.setShouldPrint(true);
-                                    Coerce.debug = true;
-                                    result.coerce();
-                                    Coerce.debug = false; // Restore the old
-                                                            // value.
-                                    currentLocation.setShouldPrint(savedCurLocPrint);
-                                }
-                                coerceAfterUpdateFailed = true;
-                                status.finishAnalysis();
-                                return Collections.emptySet();
-                            }
-                            continue;
-                        }
-                        if (AnalysisStatus.debug)
-                            IOFacade.instance().printStructure(
-                                    result,
-                                    "After Coerce " + label + " " + action
-                                            + (assign.isEmpty() ? "" : " " + assign));
-                    }
-
-                    reportPostMessages(action, result, messages);
-	
-                    // Blur is applied when the structure is joined to
-                    // the target location, but for the sake of debugging
-                    // it is also performed here.
-                    if (AnalysisStatus.debug && blurAllowed) {
-                        status.startTimer(AnalysisStatus.BLUR_TIME);
-                        result.blur();
-                        status.stopTimer(AnalysisStatus.BLUR_TIME);
-                        IOFacade.instance().printStructure(
-                                result,
-                                "After Blur " + label + " " + action
-                                        + (assign.isEmpty() ? "" : " " + assign));
-                    }
-
-                    answer.add(result);
-
-                    BaseHighLevelTVS resultH = (BaseHighLevelTVS)focusedStructure;
-                    if (nodesTransition != null && resultH.LastIncrements != null && resultH.LastIncrements.nodesMap != null) {
-                        nodesTransition.put(result, resultH.LastIncrements.nodesMap);
-                    }
+            if (focusResult.size() > 1 && ParallelFocus.inWorker()) {
+                if (!applyToFocusedInParallel(action, structure, focusResult, label, messages,
+                        nodesTransition, answer, record))
+                    return Collections.emptySet();
+            } else {
+                for (HighLevelTVS focusedStructure : focusResult) {
+                    if (!applyToFocused(action, structure, focusedStructure, label, messages,
+                            nodesTransition, answer, status, record))
+                        return Collections.emptySet();
                 }
             }
 
@@ -340,6 +295,8 @@ public abstract class Engine {
                     * focusDiscardPercent)
                     / (stat_FocusDeltaN + 1);
             stat_FocusDeltaN++;
+            if (cacheKey != null)
+                actionCache.store(cacheKey, answer);
             return answer;
         } catch (SemanticErrorException e) {
             e.append("while evaluating the action " + action);
@@ -347,6 +304,266 @@ public abstract class Engine {
         }
     }
 
+    /**
+     * Applies an action to a structure produced by Focus: coerces it,
+     * evaluates the precondition and applies the update for each satisfying
+     * assignment, adding the results to the answer.
+     * 
+     * @param structure
+     *            The structure before Focus.
+     * @param status
+     *            The status that records the timers and counters.
+     * @param record
+     *            The telemetry record of the action at the location, or
+     *            null if telemetry is disabled.
+     * @return false if the analysis should stop, since a constraint was
+     *         breached after Update.
+     */
+    protected boolean applyToFocused(Action action,
+                                     HighLevelTVS structure,
+                                     HighLevelTVS focusedStructure,
+                                     String label,
+                                     Map<HighLevelTVS, Set<String>> messages,
+                                     Map<HighLevelTVS, Map<Node, Node>> nodesTransition,
+                                     Collection<HighLevelTVS> answer,
+                                     AnalysisStatus status,
+                                     Telemetry.Record record) {
+        if (AnalysisStatus.debug) {
+            IOFacade.instance().printStructure(structure,
+                    "Executing " + label + " " + action.toString());
+            if (doFocus)
+                IOFacade.instance().printStructure(focusedStructure,
+                        "After Focus " + label + " " + action.toString());
+        }
+
+        // Coerce if coerce-after-focus is enabled
+        if (doCoerceAfterFocus) {
+
+            // if (Coerce.debug)
+            // Logger.println("FOCUS");
+
+            long start = record != null ? System.nanoTime() : 0;
+            status.startTimer(AnalysisStatus.COERCE_TIME);
+            boolean valid = focusedStructure.coerce();
+            status.stopTimer(AnalysisStatus.COERCE_TIME);
+            if (record != null)
+                record.time(Telemetry.COERCE, System.nanoTime() - start);
+            if (!valid) {
+                status.numberOfConstraintBreaches++;
+                if (record != null)
+                    record.coerceBreach();
+                return true;
+            }
+            if (AnalysisStatus.debug)
+                IOFacade.instance().printStructure(focusedStructure,
+                        "After Coerce " + label + " " + action.toString());
+        }
+
+        // Precondition evaluation
+        long start = record != null ? System.nanoTime() : 0;
+        status.startTimer(AnalysisStatus.PRECONDITION_TIME);
+        Collection<Assign> assigns = action.checkPrecondition(focusedStructure);
+        status.stopTimer(AnalysisStatus.PRECONDITION_TIME);
+        if (record != null)
+            record.time(Telemetry.PRECONDITION, System.nanoTime() - start);
+
+        for (Iterator<Assign> assignIt = assigns.iterator(); assignIt.hasNext();) {
+            Assign assign = (Assign) assignIt.next();
+            if (action.checkHaltCondition(focusedStructure, assign))
+                throw new AnalysisHaltException(label, action);
+
+            boolean freeze = reportMessages(action, focusedStructure, assign, messages);
+            if (freeze) {
+                assignIt.remove();
+                continue;
+            }
+
+            if (AnalysisStatus.debug && (!assign.isEmpty() || !doCoerceAfterFocus)) {
+                IOFacade.instance().printStructure(
+                        focusedStructure,
+                        "Precondition binding " + label + " " + action + " "
+                                + (assign.isEmpty() ? "{}" : "" + assign));
+            }
+
+            // Update formulae evaluation
+            if (record != null)
+                start = System.nanoTime();
+            status.startTimer(AnalysisStatus.UPDATE_TIME);
+            HighLevelTVS result = action.evaluate(focusedStructure, assign);
+            status.stopTimer(AnalysisStatus.UPDATE_TIME);
+            if (record != null)
+                record.time(Telemetry.UPDATE, System.nanoTime() - start);
+
+            if (AnalysisStatus.debug)
+                IOFacade.instance().printStructure(
+                        result,
+                        "After Update " + label + " " + action
+                                + (assign.isEmpty() ? "{}" : " " + assign));
+
+            // Coerce (if coerce after update is enabled)
+            if (doCoerceAfterUpdate) {
+                // if (Coerce.debug)
+                // Logger.println("UPDATE");
+
+                if (record != null)
+                    start = System.nanoTime();
+                status.startTimer(AnalysisStatus.COERCE_TIME);
+                boolean valid = result.coerce();
+                status.stopTimer(AnalysisStatus.COERCE_TIME);
+                if (record != null)
+                    record.time(Telemetry.COERCE, System.nanoTime() - start);
+                if (!valid) {
+                    status.numberOfConstraintBreaches++;
+                    if (record != null)
+                        record.coerceBreach();
+                    if (breakIfCoerceAfterUpdateFailed) {
+                        Logger
+                                .println(StringUtils.newLine
+                                        + "The analysis has stopped since a constraint was breached during the operation "
+                                        + "of Coerce, after Update was applied!"
+                                        + StringUtils.newLine + "Action = "
+                                        + action.toString() + StringUtils.newLine
+                                        + "Program location = " + label);
+                        if (!Coerce.debug) { // Print the constraint
+                                                // breach.
+                            boolean savedCurLocPrint = currentLocation.setShouldPrint(true);
+                            Coerce.debug = true;
+                            result.coerce();
+                            Coerce.debug = false; // Restore the old
+                                                    // value.
+                            currentLocation.setShouldPrint(savedCurLocPrint);
+                        }
+                        coerceAfterUpdateFailed.set(Boolean.TRUE);
+                        status.finishAnalysis();
+                        return false;
+                    }
+                    continue;
+                }
+                if (AnalysisStatus.debug)
+                    IOFacade.instance().printStructure(
+                            result,
+                            "After Coerce " + label + " " + action
+                                    + (assign.isEmpty() ? "" : " " + assign));
+            }
+
+            // Post messages are checked on a blurred copy, which
+            // is only made for actions that have any.
+            if (!action.getPostMessages().isEmpty())
+                reportPostMessages(action, result, messages);
+	
+            // Blur is applied when the structure is joined to
+            // the target location, but for the sake of debugging
+            // it is also performed here.
+            if (AnalysisStatus.debug && blurAllowed) {
+                status.startTimer(AnalysisStatus.BLUR_TIME);
+                result.blur();
+                status.stopTimer(AnalysisStatus.BLUR_TIME);
+                IOFacade.instance().printStructure(
+                        result,
+                        "After Blur " + label + " " + action
+                                + (assign.isEmpty() ? "" : " " + assign));
+            }
+
+            answer.add(result);
+            if (record != null)
+                record.result(result.nodes().size());
+
+            if (nodesTransition != null && focusedStructure instanceof BaseHighLevelTVS) {
+                BaseHighLevelTVS resultH = (BaseHighLevelTVS)focusedStructure;
+                if (resultH.LastIncrements != null && resultH.LastIncrements.nodesMap != null) {
+                    nodesTransition.put(result, resultH.LastIncrements.nodesMap);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Applies an action to the structures produced by Focus in parallel
+     * tasks, and collects the results, messages and statistics in the order
+     * of the focused structures.
+     * 
+     * @return false if the analysis should stop.
+     */
+    protected boolean applyToFocusedInParallel(final Action action,
+                                               final HighLevelTVS structure,
+                                               Collection<HighLevelTVS> focusResult,
+                                               final String label,
+                                               Map<HighLevelTVS, Set<String>> messages,
+                                               final Map<HighLevelTVS, Map<Node, Node>> nodesTransition,
+                                               Collection<HighLevelTVS> answer,
+                                               final Telemetry.Record record) {
+        List<Callable<BranchResult>> tasks = new ArrayList<Callable<BranchResult>>(focusResult.size());
+        for (final HighLevelTVS focusedStructure : focusResult) {
+            tasks.add(new Callable<BranchResult>() {
+                public BranchResult call() {
+                    BranchResult result = new BranchResult(nodesTransition != null);
+                    Engine previous = threadEngine.get();
+                    bindToThread(Engine.this);
+                    try {
+                        result.proceed = applyToFocused(action, structure, focusedStructure, label,
+                                result.messages, result.nodesTransition, result.answer, result.status, record);
+                    } finally {
+                        bindToThread(previous);
+                    }
+                    return result;
+                }
+            });
+        }
+        for (BranchResult result : ParallelFocus.invokeAll(tasks)) {
+            status.merge(result.status);
+            answer.addAll(result.answer);
+            messages.putAll(result.messages);
+            if (nodesTransition != null)
+                nodesTransition.putAll(result.nodesTransition);
+            if (!result.proceed)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * The outcome of applying an action to one structure produced by Focus.
+     */
+    protected class BranchResult {
+        protected final Collection<HighLevelTVS> answer = new ArrayList<HighLevelTVS>();
+        protected final Map<HighLevelTVS, Set<String>> messages = new HashMap<HighLevelTVS, Set<String>>();
+        protected final Map<HighLevelTVS, Map<Node, Node>> nodesTransition;
+        protected final AnalysisStatus status = new AnalysisStatus(Engine.this.status);
+        protected boolean proceed;
+
+        protected BranchResult(boolean withNodesTransition) {
+            nodesTransition = withNodesTransition ? new HashMap<HighLevelTVS, Map<Node, Node>>() : null;
+        }
+    }
+
+    /**
+     * Joins a structure into a location, and returns the difference between
+     * the updated set of structures and the old one, or null if there is no
+     * difference. When telemetry is enabled, the structure is blurred before
+     * the join, so that the times of Blur and of the join itself are
+     * recorded separately, under the action at the location with the
+     * specified label.
+     */
+    protected HighLevelTVS join(Location target, HighLevelTVS structure, String label, Action action) {
+        if (telemetry == null)
+            return target.join(structure);
+        Telemetry.Record record = telemetry.record(label, action);
+        if (blurAllowed) {
+            long start = System.nanoTime();
+            status.startTimer(AnalysisStatus.BLUR_TIME);
+            structure.blur();
+            status.stopTimer(AnalysisStatus.BLUR_TIME);
+            record.time(Telemetry.BLUR, System.nanoTime() - start);
+        }
+        long start = System.nanoTime();
+        HighLevelTVS delta = target.join(structure);
+        record.time(Telemetry.JOIN, System.nanoTime() - start);
+        if (delta != null)
+            record.joinChanged();
+        return delta;
+    }
+
     protected void reportPostMessages(Action action, HighLevelTVS structure,
             Map<HighLevelTVS, Set<String>> messages) {
         // Check post update, post blur messages
@@ -391,7 +608,7 @@ public abstract class Engine {
      * @since tvla-2-alpha 15 July 2002
      */
     public static PrintableProgramLocation getCurrentLocation() {
-        return activeEngine.getProcessedLocation();
+        return currentEngine().getProcessedLocation();
     }
 
     /**
@@ -402,7 +619,48 @@ public abstract class Engine {
      * @since tvla-2-alpha 15 July 2002
      */
     public static Action getCurrentAction() {
-        return activeEngine.currentAction;
+        return currentEngine().currentAction;
+    }
+
+    /**
+     * Binds an engine to the current thread, so that getCurrentLocation and
+     * getCurrentAction refer to it instead of the active engine.
+     * 
+     * @param engine
+     *            The engine, or null to revert to the active engine.
+     */
+    protected static void bindToThread(Engine engine) {
+        if (engine == null)
+            threadEngine.remove();
+        else
+            threadEngine.set(engine);
+    }
+
+    protected static Engine currentEngine() {
+        Engine engine = threadEngine.get();
+        return engine != null ? engine : activeEngine.get();
+    }
+
+    /**
+     * Returns whether the analysis in the current analysis context stopped
+     * since a constraint was breached after Update.
+     */
+    public static boolean coerceAfterUpdateFailed() {
+        return coerceAfterUpdateFailed.get();
+    }
+
+    /**
+     * Returns the active engine of the current analysis context.
+     */
+    public static Engine getActiveEngine() {
+        return activeEngine.get();
+    }
+
+    /**
+     * Sets the active engine of the current analysis context.
+     */
+    public static void setActiveEngine(Engine engine) {
+        activeEngine.set(engine);
     }
 
     /**
@@ -414,6 +672,11 @@ public abstract class Engine {
      */
     public void init() {
         status = new AnalysisStatus();
+        actionCache = ActionCache.create();
+        if (parallelFocus != null)
+            parallelFocus.shutdown();
+        parallelFocus = TVSFactory.getInstance() instanceof BaseTVSFactory ? ParallelFocus.create() : null;
+        telemetry = Telemetry.create();
     }
 
     /**
@@ -572,6 +835,6 @@ public abstract class Engine {
     }
 
     public void prepare(Collection<HighLevelTVS> initial) {
-        HighLevelTVS.advancedCoerce.coerceInitial(initial);
+        HighLevelTVS.getAdvancedCoerce().coerceInitial(initial);
     }
 }
\ No newline at end of file
@@ -4,22 +4,31 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.SortedSet;
-import java.util.TreeSet;
-
-import tvla.core.Canonic;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import tvla.analysis.worklist.LocationWorklist;
+import tvla.core.CanonicSet;
 import tvla.core.Constraints;
 import tvla.core.HighLevelTVS;
 import tvla.core.Node;
 import tvla.core.TVS;
 import tvla.core.TVSFactory;
+import tvla.core.base.BaseBlur;
+import tvla.core.base.BaseTVSFactory;
 import tvla.core.generic.BoundedStructEmbeddingTest;
 import tvla.core.generic.GenericHashPartialJoinTVSSet;
+import tvla.exceptions.UserErrorException;
 import tvla.logic.Kleene;
 import tvla.predicates.Predicate;
 import tvla.predicates.Vocabulary;
@@ -29,6 +38,7 @@ import tvla.termination.TerminationVerifier;
 import tvla.transitionSystem.Action;
 import tvla.transitionSystem.AnalysisGraph;
 import tvla.transitionSystem.Location;
+import tvla.util.AnalysisContext;
 import tvla.util.HashMapFactory;
 import tvla.util.Logger;
 import tvla.util.Pair;
@@ -44,18 +54,37 @@ import tvla.util.graph.GraphFactory;
  * 
  * @author Tal Lev-Ami
  */
-public class IntraProcEngine extends Engine {
+public class IntraProcEngine extends Engine implements Cloneable {
 	protected AnalysisGraph cfg;
 	protected int numberOfIterations;
 	protected int prevUpdate = Integer.MIN_VALUE;
 	protected int maxWorkSetSize;
 	protected int averageWorkSetSize;
+	protected LocationWorklist workSet;
 	protected boolean maintainTransitionRelation = false;
 	protected boolean postHocTransitionRelation = false;
 	protected boolean dynamicTransitionRelation = false;
 	protected boolean checkTermination = false;
 	protected boolean summarizeLoops = true;
 
+	/**
+	 * Applies actions in parallel when the engine runs with more than one
+	 * thread, and null otherwise.
+	 */
+	protected ExecutorService workers;
+
+	/**
+	 * The engines used by the worker threads. Their statistics are merged
+	 * into the status of this engine after each location.
+	 */
+	protected List<IntraProcEngine> workerEngines;
+
+	/**
+	 * Set when the worker threads join their results directly into the
+	 * target locations.
+	 */
+	protected boolean concurrentJoin;
+
 	/**
 	 * Constructs and initializes an intra-procedural engine.
 	 */
@@ -64,39 +93,65 @@ public class IntraProcEngine extends Engine {
 	}
 
 	public void evaluate(Collection<HighLevelTVS> initial) {
-		this.cfg = AnalysisGraph.activeGraph;
+		this.cfg = AnalysisGraph.getActiveGraph();
 		init();
 		status.numberOfStructures = initial.size();
 
 		Graph transitionGraph = GraphFactory.newGraph();
 		List<RTNode> entryNodes = new ArrayList<>();
-		Map<Pair<Location, Set<Canonic>>, RTNode> nodes = new HashMap<>();
+		Map<Pair<Location, CanonicSet>, RTNode> nodes = new HashMap<>();
 		Map<Node, List<Node>> embeddingFunction = HashMapFactory.make();
 		Map<HighLevelTVS, Map<Node, Node>> nodesTransition = new HashMap<>();
 		List<String> nodeMessages = new ArrayList<>();
 		int nestingDepth = 1;
 
-		// Joining the input structures and putting them in the entry location.
-		Location entryLocation = cfg.getEntryLocation();
-		cfg.storeStructures(entryLocation, initial);
+		Checkpoint checkpoint = null;
+		String resume = ProgramProperties.getProperty("tvla.checkpoint.resume", null);
+		if (Checkpoint.requested()) {
+			if (getClass() != IntraProcEngine.class || checkTermination || maintainTransitionRelation)
+				throw new UserErrorException("Checkpoints are not supported with the transition relation, "
+						+ "termination analysis or this engine");
+			checkpoint = Checkpoint.create();
+		}
+
+		workSet = LocationWorklist.create(cfg);
+		if (resume != null) {
+			// Continuing from the state saved in the checkpoint.
+			int[] counters = Checkpoint.restore(resume, cfg, workSet, status);
+			numberOfIterations = counters[0];
+			maxWorkSetSize = counters[1];
+			averageWorkSetSize = counters[2];
+		}
+		else {
+			// Joining the input structures and putting them in the entry location.
+			Location entryLocation = cfg.getEntryLocation();
+			cfg.storeStructures(entryLocation, initial);
+			workSet.add(cfg.getEntryLocation());
+		}
 
-		SortedSet<Location> workSet = new TreeSet<Location>();
-		workSet.add(cfg.getEntryLocation());
+		startWorkers();
 		OUTER: while (!workSet.isEmpty()) {
+			if (checkpoint != null && checkpoint.isDue())
+				checkpoint.save(cfg, workSet, status,
+						new int[] { numberOfIterations, maxWorkSetSize, averageWorkSetSize });
 			++numberOfIterations;
 			maxWorkSetSize = maxWorkSetSize < workSet.size() ? workSet.size() : maxWorkSetSize;
 			averageWorkSetSize += workSet.size();
 
-			Iterator<Location> first = workSet.iterator();
-			currentLocation = first.next();
+			currentLocation = workSet.extract();
 			Location currentLocationLoc = (Location) currentLocation;
 
-			first.remove();
 			if (!AnalysisStatus.terse)
 				System.err.print("\r" + currentLocation.label() + "    ");
 
 			Collection<HighLevelTVS> unprocessed = currentLocationLoc.removeUnprocessed();
 
+			if (workers != null) {
+				if (!applyInParallel(currentLocationLoc, unprocessed, workSet))
+					break OUTER;
+				continue;
+			}
+
 			for (int actionIt = 0; actionIt < currentLocationLoc.getActions().size(); actionIt++) {
 
 				currentAction = currentLocationLoc.getAction(actionIt);
@@ -112,8 +167,8 @@ public class IntraProcEngine extends Engine {
 					List<Node> filter = null;
 
 					if (checkTermination) {
-						Set<Canonic> canonic = GenericHashPartialJoinTVSSet.getCanonicSetForBlurred(structure);
-						Pair<Location, Set<Canonic>> currKey = new Pair<Location, Set<Canonic>>(currentLocationLoc,
+						CanonicSet canonic = GenericHashPartialJoinTVSSet.getCanonicSetForBlurred(structure);
+						Pair<Location, CanonicSet> currKey = new Pair<Location, CanonicSet>(currentLocationLoc,
 								canonic);
 
 						curr = nodes.getOrDefault(currKey, null);
@@ -137,11 +192,11 @@ public class IntraProcEngine extends Engine {
 					Map<HighLevelTVS, Set<String>> messages = HashMapFactory.make(0);
 					nodesTransition.clear();
 					Collection<HighLevelTVS> results = apply(currentAction, structure, currentLocation.label(),
-							messages, nodesTransition);
+							messages, checkTermination ? nodesTransition : null);
 
 					// Replay the last action to show the user details of the
 					// failure.
-					if (Engine.coerceAfterUpdateFailed || (!messages.isEmpty() && hasPostMessages(messages))) {
+					if (Engine.coerceAfterUpdateFailed() || (!messages.isEmpty() && hasPostMessages(messages))) {
 						boolean debug = AnalysisStatus.debug;
 						AnalysisStatus.debug = true;
 						apply(currentAction, structure, currentLocation.label(), messages, null);
@@ -159,7 +214,8 @@ public class IntraProcEngine extends Engine {
 						}
 
 						status.startTimer(AnalysisStatus.JOIN_TIME);
-						HighLevelTVS structureInTarget = nextLocation.join(result);
+						HighLevelTVS structureInTarget = join(nextLocation, result, currentLocation.label(),
+								currentAction);
 						boolean needJoin = structureInTarget != null;
 						status.stopTimer(AnalysisStatus.JOIN_TIME);
 
@@ -190,8 +246,8 @@ public class IntraProcEngine extends Engine {
 							 * resultCopy, s, embeddingFunction)) { result = s;
 							 * break; } } }
 							 */
-							Set<Canonic> canonic = GenericHashPartialJoinTVSSet.getCanonicSetForBlurred(result);
-							Pair<Location, Set<Canonic>> nextKey = new Pair<Location, Set<Canonic>>(nextLocation,
+							CanonicSet canonic = GenericHashPartialJoinTVSSet.getCanonicSetForBlurred(result);
+							Pair<Location, CanonicSet> nextKey = new Pair<Location, CanonicSet>(nextLocation,
 									canonic);
 							RTNode next = nodes.getOrDefault(nextKey, null);
 							if (next == null) {
@@ -257,6 +313,12 @@ public class IntraProcEngine extends Engine {
 			}
 		}
 
+		stopWorkers();
+		if (checkpoint != null)
+			checkpoint.close();
+		if (telemetry != null)
+			telemetry.export();
+
 		if (ProgramProperties.getBooleanProperty("tvla.engine.checkMessagesAtFixpoint", false))
 			evaluateMessagesAtFixpoint();
 
@@ -311,6 +373,244 @@ public class IntraProcEngine extends Engine {
 		}
 	}
 
+	/**
+	 * Starts the worker threads if parallel evaluation is requested and
+	 * supported by the current configuration.
+	 */
+	protected void startWorkers() {
+		stopWorkers(); // left over if a previous evaluation was aborted
+		int threads = ProgramProperties.getIntProperty("tvla.engine.parallel.threads", 1);
+		if (threads <= 1 || getClass() != IntraProcEngine.class || AnalysisStatus.debug || checkTermination
+				|| maintainTransitionRelation || !(TVSFactory.getInstance() instanceof BaseTVSFactory))
+			return;
+
+		// The operators are created here, since constructing them is not
+		// thread-safe.
+		final List<HighLevelTVS.Operators> operators = new ArrayList<HighLevelTVS.Operators>(threads);
+		workerEngines = new ArrayList<IntraProcEngine>(threads);
+		for (int i = 0; i < threads; ++i) {
+			operators.add(new HighLevelTVS.Operators(new BaseBlur()));
+			try {
+				IntraProcEngine worker = (IntraProcEngine) clone();
+				worker.status = new AnalysisStatus(status);
+				worker.workers = null;
+				worker.workerEngines = null;
+				workerEngines.add(worker);
+			} catch (CloneNotSupportedException e) {
+				throw new Error(e);
+			}
+		}
+		final AnalysisContext context = AnalysisContext.current();
+		workers = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private int created = 0;
+
+			public synchronized Thread newThread(final Runnable runnable) {
+				final HighLevelTVS.Operators threadOperators = operators.get(created);
+				final IntraProcEngine threadEngine = workerEngines.get(created);
+				++created;
+				Thread thread = new Thread(new Runnable() {
+					public void run() {
+						AnalysisContext.bind(context);
+						HighLevelTVS.bindOperators(threadOperators);
+						bindToThread(threadEngine);
+						runnable.run();
+					}
+				}, "tvla-worker-" + created);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		Logger.println("Parallel evaluation with " + threads + " threads");
+
+		concurrentJoin = ProgramProperties.getBooleanProperty("tvla.engine.parallel.concurrentJoin", false);
+		if (concurrentJoin) {
+			int shards = ProgramProperties.getIntProperty("tvla.engine.parallel.joinShards", 0);
+			if (shards <= 0)
+				shards = 8 * threads;
+			for (Location location : cfg.getLocations()) {
+				location.setConcurrentJoin(shards);
+			}
+		}
+	}
+
+	/**
+	 * Stops the worker threads, if any, and restores the plain structure
+	 * sets of the locations if the workers joined into them.
+	 */
+	protected void stopWorkers() {
+		if (workers == null)
+			return;
+		workers.shutdownNow();
+		workers = null;
+		workerEngines = null;
+		if (concurrentJoin) {
+			for (Location location : cfg.getLocations()) {
+				location.setConcurrentJoin(0);
+			}
+		}
+		concurrentJoin = false;
+	}
+
+	/**
+	 * The outcome of applying an action to a structure in a worker thread.
+	 */
+	protected static class ActionResult {
+		protected final Collection<HighLevelTVS> results;
+		protected final Map<HighLevelTVS, Set<String>> messages;
+		/** Set when applying the action asked the analysis to finish. */
+		protected final boolean finish;
+		/** The number of results that changed the target location, when
+		 * the worker joined them. */
+		protected final int joined;
+
+		protected ActionResult(Collection<HighLevelTVS> results, Map<HighLevelTVS, Set<String>> messages,
+				boolean finish, int joined) {
+			this.results = results;
+			this.messages = messages;
+			this.finish = finish;
+			this.joined = joined;
+		}
+	}
+
+	/**
+	 * Applies the actions of the location to the specified structures in the
+	 * worker threads, and joins the results to the target locations in the
+	 * same order as the sequential engine. Each worker operates on its own
+	 * copy of the structure, and only the calling thread modifies locations,
+	 * unless the workers join their results concurrently, in which case the
+	 * calling thread only schedules the target locations.
+	 * 
+	 * @return false if the analysis should finish.
+	 */
+	protected boolean applyInParallel(final Location location, Collection<HighLevelTVS> unprocessed,
+			LocationWorklist workSet) {
+		List<HighLevelTVS> structures = new ArrayList<HighLevelTVS>(unprocessed);
+		int numberOfActions = location.getActions().size();
+		List<Future<ActionResult>> futures = new ArrayList<Future<ActionResult>>(numberOfActions * structures.size());
+		for (int actionIt = 0; actionIt < numberOfActions; actionIt++) {
+			final Action action = location.getAction(actionIt);
+			final Location target = concurrentJoin ? cfg.getLocationByLabel(location.getTarget(actionIt)) : null;
+			for (HighLevelTVS structure : structures) {
+				final HighLevelTVS structureCopy = structure.copy();
+				futures.add(workers.submit(new Callable<ActionResult>() {
+					public ActionResult call() {
+						IntraProcEngine worker = (IntraProcEngine) currentEngine();
+						worker.currentLocation = location;
+						worker.currentAction = action;
+						boolean finished = worker.status.finishAnalysis;
+						Map<HighLevelTVS, Set<String>> messages = HashMapFactory.make(0);
+						Collection<HighLevelTVS> results = worker.apply(action, structureCopy, location.label(),
+								messages, null);
+						int joined = 0;
+						if (target != null) {
+							for (HighLevelTVS result : results) {
+								// Blur before the join, which would otherwise
+								// blur the structure when finding its shard.
+								if (worker.blurAllowed) {
+									worker.status.startTimer(AnalysisStatus.BLUR_TIME);
+									result.blur();
+									worker.status.stopTimer(AnalysisStatus.BLUR_TIME);
+								}
+								worker.status.startTimer(AnalysisStatus.JOIN_TIME);
+								if (worker.join(target, result, location.label(), action) != null)
+									++joined;
+								worker.status.stopTimer(AnalysisStatus.JOIN_TIME);
+							}
+							results = Collections.emptyList();
+						}
+						return new ActionResult(results, messages, !finished && worker.status.finishAnalysis,
+								joined);
+					}
+				}));
+			}
+		}
+
+		try {
+			Iterator<Future<ActionResult>> futureIt = futures.iterator();
+			for (int actionIt = 0; actionIt < numberOfActions; actionIt++) {
+				currentAction = location.getAction(actionIt);
+				Location nextLocation = cfg.getLocationByLabel(location.getTarget(actionIt));
+
+				for (HighLevelTVS structure : structures) {
+					ActionResult actionResult = waitFor(futureIt.next());
+					Map<HighLevelTVS, Set<String>> messages = actionResult.messages;
+					if (actionResult.finish)
+						status.finishAnalysis();
+
+					// Replay the last action to show the user details of the
+					// failure.
+					if (actionResult.finish || (!messages.isEmpty() && hasPostMessages(messages))) {
+						boolean debug = AnalysisStatus.debug;
+						AnalysisStatus.debug = true;
+						apply(currentAction, structure, location.label(), messages, null);
+						AnalysisStatus.debug = debug;
+					}
+
+					status.numberOfMessages += location.addMessages(messages);
+
+					if (actionResult.joined > 0) {
+						workSet.add(nextLocation);
+						status.numberOfStructures += actionResult.joined;
+						updateStatus();
+						if (status.shouldFinishAnalysis())
+							return false;
+					}
+
+					for (HighLevelTVS result : actionResult.results) {
+						status.startTimer(AnalysisStatus.JOIN_TIME);
+						boolean needJoin = join(nextLocation, result, location.label(), currentAction) != null;
+						status.stopTimer(AnalysisStatus.JOIN_TIME);
+
+						if (needJoin) {
+							workSet.add(nextLocation);
+							++status.numberOfStructures;
+							updateStatus();
+							if (status.shouldFinishAnalysis())
+								return false;
+						}
+					}
+
+					if (status.shouldFinishAnalysis())
+						return false;
+				}
+			}
+			return true;
+		} finally {
+			for (Future<ActionResult> future : futures) {
+				future.cancel(false);
+			}
+			// Wait for the running tasks, so that the worker statistics are
+			// stable when merged.
+			for (Future<ActionResult> future : futures) {
+				if (!future.isCancelled()) {
+					try {
+						future.get();
+					} catch (Exception e) {
+						// Either already rethrown or belongs to a skipped result.
+					}
+				}
+			}
+			for (IntraProcEngine worker : workerEngines) {
+				status.merge(worker.status);
+			}
+		}
+	}
+
+	private ActionResult waitFor(Future<ActionResult> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			throw new Error(e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new Error(cause);
+		}
+	}
+
 	protected void postHocTransitionRelation() {
 		// First, create all transition relation nodes.
 		for (Location loc : cfg.getLocations()) {
@@ -612,7 +912,7 @@ public class IntraProcEngine extends Engine {
 		super.init();
 
 		if (cfg == null) {
-			cfg = AnalysisGraph.activeGraph;
+			cfg = AnalysisGraph.getActiveGraph();
 		}
 
 		maintainTransitionRelation = ProgramProperties.getBooleanProperty("tvla.tr.enabled", false);
@@ -666,6 +966,10 @@ public class IntraProcEngine extends Engine {
 		Logger.println("max work set               : " + maxWorkSetSize);
 		Logger.println("average work set           : " + averageWorkSetSize);
 		Logger.println("#iterations                : " + numberOfIterations);
+		if (workSet != null) {
+			Logger.println("worklist policy            : " + workSet.name());
+			Logger.println("#structures processed      : " + workSet.structures());
+		}
 
 		Logger.println("#locations                 : " + cfg.getLocations().size());
 		Logger.println("#actions                   : " + cfg.getNumberOfActions());
@@ -762,7 +1066,7 @@ public class IntraProcEngine extends Engine {
 				}
 				maxNodes = maxNodes < locMaxNodes ? locMaxNodes : maxNodes;
 				largestMaxSatisfy = largestMaxSatisfy < maxSatisfy ? maxSatisfy : largestMaxSatisfy;
-				boolean propertyFailed = Action.locationsWherePropertyFails.contains(location);
+				boolean propertyFailed = Action.getLocationsWherePropertyFails().contains(location);
 				String propertyFailedStr = propertyFailed ? " PROPERTY FAILED" : "";
 				Logger.println("\tmax graph=" + (detailedPredicateStatistics ? maxSatisfy : locMaxNodes) + "\t"
 						+ location.messages.size() + " messages" + propertyFailedStr + ", time: "
@@ -826,6 +1130,8 @@ public class IntraProcEngine extends Engine {
 			}
 			status.startTimer(AnalysisStatus.TOTAL_ANALYSIS_TIME);
 		}
+		if (telemetry != null && shouldUpdate(status.statisticsEvery))
+			telemetry.export();
 
 		// if (status.numberOfStructures % status.gcEvery == 0)
 		// System.gc();
@@ -0,0 +1,186 @@
+package tvla.analysis;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+import tvla.core.HighLevelTVS;
+import tvla.core.base.BaseBlur;
+import tvla.util.AnalysisContext;
+import tvla.util.ProgramProperties;
+
+/**
+ * A fork-join pool that applies an action to the structures produced by
+ * Focus in parallel.
+ * The branches of Focus share no mutable state once they are split, so
+ * the structures produced by a focus step are focused further in separate
+ * tasks (see GenericFocus), and each focused structure is then coerced,
+ * checked against the precondition and updated in its own task (see
+ * Engine.apply). The results of the tasks are always collected in the
+ * order of the sequential algorithm, so the output does not depend on the
+ * number of threads.
+ * Each thread of the pool is bound to the analysis context that created
+ * the pool and has its own operators, like the workers of IntraProcEngine.
+ * The pool is created when the tvla.focus.parallel.threads property is
+ * greater than 1.
+ */
+public class ParallelFocus {
+	protected final ForkJoinPool pool;
+
+	/**
+	 * The operators of the threads that are not running. Operators are
+	 * created when the pool is created, since constructing them is not
+	 * thread-safe, and are handed over to threads as they start.
+	 */
+	protected final ConcurrentLinkedQueue<HighLevelTVS.Operators> freeOperators = new ConcurrentLinkedQueue<HighLevelTVS.Operators>();
+
+	/**
+	 * Returns a new pool with the number of threads set by the properties,
+	 * or null if parallel focus is disabled.
+	 */
+	public static ParallelFocus create() {
+		int threads = ProgramProperties.getIntProperty("tvla.focus.parallel.threads", 1);
+		return threads > 1 ? new ParallelFocus(threads) : null;
+	}
+
+	public ParallelFocus(int threads) {
+		for (int i = 0; i < threads; ++i) {
+			freeOperators.add(new HighLevelTVS.Operators(new BaseBlur()));
+		}
+		final AnalysisContext context = AnalysisContext.current();
+		pool = new ForkJoinPool(threads, new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+			public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+				// No more threads than operators, even when the pool would
+				// compensate for a blocked thread.
+				HighLevelTVS.Operators operators = freeOperators.poll();
+				if (operators == null)
+					return null;
+				Worker worker = new Worker(pool, context, operators);
+				worker.setDaemon(true);
+				return worker;
+			}
+		}, null, false);
+	}
+
+	/**
+	 * Returns whether the current thread belongs to a parallel focus pool,
+	 * in which case the branches of Focus are split into tasks.
+	 */
+	public static boolean inWorker() {
+		return Thread.currentThread() instanceof Worker;
+	}
+
+	/**
+	 * Calls the task in a thread of the pool and waits for its result.
+	 */
+	public <T> T invoke(Callable<T> task) {
+		Task<T> root = new Task<T>(task);
+		pool.invoke(root);
+		return root.result();
+	}
+
+	/**
+	 * Calls the tasks and returns their results in order. When called from
+	 * a thread of a pool, the tasks are run in parallel, and otherwise
+	 * one after the other.
+	 * If some tasks fail, the exception of the first one is rethrown.
+	 */
+	public static <T> List<T> invokeAll(List<? extends Callable<T>> tasks) {
+		List<T> results = new ArrayList<T>(tasks.size());
+		if (tasks.size() < 2 || !inWorker()) {
+			for (Callable<T> task : tasks) {
+				results.add(new Task<T>(task).call());
+			}
+			return results;
+		}
+		List<Task<T>> forked = new ArrayList<Task<T>>(tasks.size());
+		for (Callable<T> task : tasks) {
+			forked.add(new Task<T>(task));
+		}
+		for (int i = forked.size() - 1; i > 0; --i) {
+			forked.get(i).fork();
+		}
+		forked.get(0).invoke();
+		for (int i = 1; i < forked.size(); ++i) {
+			forked.get(i).join();
+		}
+		for (Task<T> task : forked) {
+			results.add(task.result());
+		}
+		return results;
+	}
+
+	/**
+	 * Stops the threads of the pool.
+	 */
+	public void shutdown() {
+		pool.shutdownNow();
+	}
+
+	/**
+	 * A thread of the pool.
+	 */
+	protected class Worker extends ForkJoinWorkerThread {
+		protected final AnalysisContext context;
+		protected final HighLevelTVS.Operators operators;
+
+		protected Worker(ForkJoinPool pool, AnalysisContext context, HighLevelTVS.Operators operators) {
+			super(pool);
+			this.context = context;
+			this.operators = operators;
+		}
+
+		protected void onStart() {
+			super.onStart();
+			AnalysisContext.bind(context);
+			HighLevelTVS.bindOperators(operators);
+		}
+
+		protected void onTermination(Throwable exception) {
+			freeOperators.add(operators);
+			super.onTermination(exception);
+		}
+	}
+
+	/**
+	 * Calls a task and keeps its result or the exception it threw, which is
+	 * rethrown as is by the thread that collects the result (the fork-join
+	 * framework may replace exceptions thrown in other threads).
+	 */
+	protected static class Task<T> extends RecursiveAction {
+		protected final Callable<T> task;
+		protected T result;
+		protected Throwable failure;
+
+		protected Task(Callable<T> task) {
+			this.task = task;
+		}
+
+		protected void compute() {
+			try {
+				result = task.call();
+			} catch (Throwable t) {
+				failure = t;
+			}
+		}
+
+		protected T call() {
+			compute();
+			return result();
+		}
+
+		protected T result() {
+			if (failure instanceof RuntimeException)
+				throw (RuntimeException) failure;
+			if (failure instanceof Error)
+				throw (Error) failure;
+			if (failure != null)
+				throw new RuntimeException(failure);
+			return result;
+		}
+	}
+}
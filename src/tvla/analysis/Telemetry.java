@@ -0,0 +1,305 @@
+package tvla.analysis;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import tvla.exceptions.UserErrorException;
+import tvla.transitionSystem.Action;
+import tvla.util.HashMapFactory;
+import tvla.util.ProgramProperties;
+
+/**
+ * Records performance metrics per (location, action) pair: the number and
+ * latency of each phase of applying the action (focus, coerce,
+ * precondition, update, blur and join), the number of structures produced
+ * by Focus, the number of structures that Coerce discarded, and the sizes
+ * of the input and result structures.
+ * Latencies are kept as histograms with a bucket per power of two
+ * nanoseconds, from which the export estimates percentiles.
+ * The metrics are written to the file set by the tvla.telemetry.file
+ * property, as JSON or as CSV (tvla.telemetry.format), every
+ * tvla.engine.statisticsEvery structures and at the end of the analysis.
+ * Recording is disabled when the file is not set.
+ */
+public class Telemetry {
+	/**
+	 * The phases of applying an action.
+	 */
+	public static final int FOCUS = 0;
+	public static final int COERCE = 1;
+	public static final int PRECONDITION = 2;
+	public static final int UPDATE = 3;
+	public static final int BLUR = 4;
+	public static final int JOIN = 5;
+
+	protected static final String[] PHASE_NAMES = { "focus", "coerce", "precondition", "update", "blur", "join" };
+
+	/**
+	 * The number of histogram buckets. Bucket i holds latencies below 2^i
+	 * nanoseconds, and the last bucket holds all the longer ones.
+	 */
+	protected static final int BUCKETS = 40;
+
+	protected final String fileName;
+	protected final boolean csv;
+
+	/**
+	 * The records by location label and action, in the order of their
+	 * creation.
+	 */
+	protected final Map<String, Map<Action, Record>> records = HashMapFactory.make();
+	protected final List<Record> recordList = new ArrayList<Record>();
+
+	/**
+	 * Returns a new telemetry that writes to the file set by the properties,
+	 * or null if telemetry is disabled.
+	 */
+	public static Telemetry create() {
+		String fileName = ProgramProperties.getProperty("tvla.telemetry.file", null);
+		if (fileName == null || fileName.equals("null"))
+			return null;
+		String format = ProgramProperties.getProperty("tvla.telemetry.format",
+				fileName.endsWith(".csv") ? "csv" : "json");
+		if (!format.equals("csv") && !format.equals("json"))
+			throw new UserErrorException("Invalid property value specified for tvla.telemetry.format : " + format);
+		return new Telemetry(fileName, format.equals("csv"));
+	}
+
+	public Telemetry(String fileName, boolean csv) {
+		this.fileName = fileName;
+		this.csv = csv;
+	}
+
+	/**
+	 * Returns the record of the action at the location with the specified
+	 * label. The action is null for the joins into the state space of the
+	 * multithreaded engines, which are not attributed to an action.
+	 */
+	public synchronized Record record(String label, Action action) {
+		Map<Action, Record> actionRecords = records.get(label);
+		if (actionRecords == null) {
+			actionRecords = HashMapFactory.make();
+			records.put(label, actionRecords);
+		}
+		Record record = actionRecords.get(action);
+		if (record == null) {
+			record = new Record(label, action == null ? "" : action.toString());
+			actionRecords.put(action, record);
+			recordList.add(record);
+		}
+		return record;
+	}
+
+	/**
+	 * Writes the metrics recorded so far to the file, replacing its
+	 * contents.
+	 */
+	public void export() {
+		File file = new File(fileName);
+		File temp = new File(fileName + ".tmp");
+		try {
+			PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(temp), "UTF-8"));
+			try {
+				List<Record> snapshot;
+				synchronized (this) {
+					snapshot = new ArrayList<Record>(recordList);
+				}
+				if (csv)
+					writeCSV(out, snapshot);
+				else
+					writeJSON(out, snapshot);
+			} finally {
+				out.close();
+			}
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			throw new UserErrorException("Failed to write the telemetry file " + fileName + ": " + e.getMessage());
+		}
+	}
+
+	protected void writeCSV(PrintWriter out, List<Record> snapshot) {
+		out.print("location,action,applications,focusFanOutTotal,focusFanOutMax,coerceBreaches,"
+				+ "inputNodesTotal,inputNodesMax,results,resultNodesTotal,resultNodesMax,joinsChanged");
+		for (String phase : PHASE_NAMES) {
+			out.print("," + phase + "Count," + phase + "TotalNanos," + phase + "P50Nanos," + phase + "P90Nanos,"
+					+ phase + "P99Nanos," + phase + "MaxNanos");
+		}
+		out.println();
+		for (Record record : snapshot) {
+			synchronized (record) {
+				out.print(csvString(record.location) + "," + csvString(record.action) + "," + record.applications
+						+ "," + record.focusFanOutTotal + "," + record.focusFanOutMax + "," + record.coerceBreaches
+						+ "," + record.inputNodesTotal + "," + record.inputNodesMax + "," + record.results + ","
+						+ record.resultNodesTotal + "," + record.resultNodesMax + "," + record.joinsChanged);
+				for (int phase = 0; phase < PHASE_NAMES.length; ++phase) {
+					out.print("," + record.counts[phase] + "," + record.totals[phase] + ","
+							+ record.percentile(phase, 0.5) + "," + record.percentile(phase, 0.9) + ","
+							+ record.percentile(phase, 0.99) + "," + record.maxima[phase]);
+				}
+				out.println();
+			}
+		}
+	}
+
+	protected void writeJSON(PrintWriter out, List<Record> snapshot) {
+		out.println("{");
+		out.println("  \"histogramBuckets\": \"bucket i counts latencies below 2^i nanoseconds\",");
+		out.println("  \"records\": [");
+		for (int i = 0; i < snapshot.size(); ++i) {
+			Record record = snapshot.get(i);
+			synchronized (record) {
+				out.println("    {");
+				out.println("      \"location\": " + jsonString(record.location) + ",");
+				out.println("      \"action\": " + jsonString(record.action) + ",");
+				out.println("      \"applications\": " + record.applications + ",");
+				out.println("      \"focusFanOut\": { \"total\": " + record.focusFanOutTotal + ", \"max\": "
+						+ record.focusFanOutMax + " },");
+				out.println("      \"coerceBreaches\": " + record.coerceBreaches + ",");
+				out.println("      \"inputNodes\": { \"total\": " + record.inputNodesTotal + ", \"max\": "
+						+ record.inputNodesMax + " },");
+				out.println("      \"results\": " + record.results + ",");
+				out.println("      \"resultNodes\": { \"total\": " + record.resultNodesTotal + ", \"max\": "
+						+ record.resultNodesMax + " },");
+				out.println("      \"joinsChanged\": " + record.joinsChanged + ",");
+				out.println("      \"phases\": {");
+				for (int phase = 0; phase < PHASE_NAMES.length; ++phase) {
+					StringBuilder histogram = new StringBuilder();
+					int last = BUCKETS - 1;
+					while (last > 0 && record.histograms[phase][last] == 0)
+						--last;
+					for (int bucket = 0; bucket <= last; ++bucket) {
+						if (bucket > 0)
+							histogram.append(", ");
+						histogram.append(record.histograms[phase][bucket]);
+					}
+					out.println("        \"" + PHASE_NAMES[phase] + "\": { \"count\": " + record.counts[phase]
+							+ ", \"totalNanos\": " + record.totals[phase] + ", \"maxNanos\": " + record.maxima[phase]
+							+ ", \"p50Nanos\": " + record.percentile(phase, 0.5) + ", \"p90Nanos\": "
+							+ record.percentile(phase, 0.9) + ", \"p99Nanos\": " + record.percentile(phase, 0.99)
+							+ ", \"histogram\": [" + histogram + "] }"
+							+ (phase + 1 < PHASE_NAMES.length ? "," : ""));
+				}
+				out.println("      }");
+				out.println("    }" + (i + 1 < snapshot.size() ? "," : ""));
+			}
+		}
+		out.println("  ]");
+		out.println("}");
+	}
+
+	protected static String jsonString(String value) {
+		StringBuilder result = new StringBuilder("\"");
+		for (int i = 0; i < value.length(); ++i) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\')
+				result.append('\\').append(c);
+			else if (c < 0x20)
+				result.append(String.format("\\u%04x", (int) c));
+			else
+				result.append(c);
+		}
+		return result.append('"').toString();
+	}
+
+	protected static String csvString(String value) {
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0)
+			return value;
+		return "\"" + value.replace("\"", "\"\"") + "\"";
+	}
+
+	/**
+	 * The metrics of an action at a location. The metrics may be updated by
+	 * several threads.
+	 */
+	public static class Record {
+		protected final String location;
+		protected final String action;
+
+		protected final long[] counts = new long[PHASE_NAMES.length];
+		protected final long[] totals = new long[PHASE_NAMES.length];
+		protected final long[] maxima = new long[PHASE_NAMES.length];
+		protected final long[][] histograms = new long[PHASE_NAMES.length][BUCKETS];
+
+		protected long applications;
+		protected long focusFanOutTotal;
+		protected long focusFanOutMax;
+		protected long coerceBreaches;
+		protected long inputNodesTotal;
+		protected long inputNodesMax;
+		protected long results;
+		protected long resultNodesTotal;
+		protected long resultNodesMax;
+		protected long joinsChanged;
+
+		protected Record(String location, String action) {
+			this.location = location;
+			this.action = action;
+		}
+
+		/**
+		 * Records the latency of a phase.
+		 */
+		public synchronized void time(int phase, long nanos) {
+			++counts[phase];
+			totals[phase] += nanos;
+			if (nanos > maxima[phase])
+				maxima[phase] = nanos;
+			int bucket = 64 - Long.numberOfLeadingZeros(nanos);
+			++histograms[phase][bucket < BUCKETS ? bucket : BUCKETS - 1];
+		}
+
+		/**
+		 * Records an application of the action to a structure, and the
+		 * number of structures produced by Focus.
+		 */
+		public synchronized void application(int inputNodes, int focusFanOut) {
+			++applications;
+			inputNodesTotal += inputNodes;
+			if (inputNodes > inputNodesMax)
+				inputNodesMax = inputNodes;
+			focusFanOutTotal += focusFanOut;
+			if (focusFanOut > focusFanOutMax)
+				focusFanOutMax = focusFanOut;
+		}
+
+		public synchronized void coerceBreach() {
+			++coerceBreaches;
+		}
+
+		public synchronized void result(int resultNodes) {
+			++results;
+			resultNodesTotal += resultNodes;
+			if (resultNodes > resultNodesMax)
+				resultNodesMax = resultNodes;
+		}
+
+		public synchronized void joinChanged() {
+			++joinsChanged;
+		}
+
+		/**
+		 * Returns an upper bound on the latency of the specified fraction
+		 * of the recorded times of a phase.
+		 */
+		protected long percentile(int phase, double fraction) {
+			long target = (long) Math.ceil(counts[phase] * fraction);
+			if (target == 0)
+				return 0;
+			long seen = 0;
+			for (int bucket = 0; bucket < BUCKETS; ++bucket) {
+				seen += histograms[phase][bucket];
+				if (seen >= target)
+					return Math.min(bucket == BUCKETS - 1 ? maxima[phase] : 1L << bucket, maxima[phase]);
+			}
+			return maxima[phase];
+		}
+	}
+}
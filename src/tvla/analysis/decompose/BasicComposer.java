@@ -38,7 +38,7 @@ import tvla.util.ProgramProperties;
  */
 public class BasicComposer implements Composer {
   
-        public static boolean compositionAbstraction = ProgramProperties.getBooleanProperty("tvla.decompose.compositionAbstraction", true);
+        public static boolean compositionAbstraction = ProgramProperties.getFixedBooleanProperty("tvla.decompose.compositionAbstraction", true);
 
 	protected Map<DecompositionName, Collection<DecompositionName>> toCompose;
 	protected Map<DecompositionName, Collection<DecompositionName>> baseCompose;
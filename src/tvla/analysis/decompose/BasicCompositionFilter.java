@@ -21,7 +21,7 @@ import tvla.util.ProgramProperties;
 import tvla.util.Timer;
 
 public class BasicCompositionFilter implements CompositionFilter {
-    public static boolean enableSkipFilter = ProgramProperties.getBooleanProperty("tvla.skipFilter.enable", true);
+    public static boolean enableSkipFilter = ProgramProperties.getFixedBooleanProperty("tvla.skipFilter.enable", true);
     
     private Formula filterFormula;
     private Collection<DecompositionName> targetNames;
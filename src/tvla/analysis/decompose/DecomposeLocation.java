@@ -16,7 +16,7 @@ public class DecomposeLocation extends Location {
     protected CartesianElement old = new CartesianElement();
     protected CartesianElement delta = null;
     
-    public static boolean cachingMode = ProgramProperties.getBooleanProperty("tvla.tvs.cache", false);
+    public static boolean cachingMode = ProgramProperties.getFixedBooleanProperty("tvla.tvs.cache", false);
     
     public DecomposeLocation(String label) {
         super(label);
@@ -72,6 +72,10 @@ public class DecomposeLocation extends Location {
         return element.size();
     }
 
+    public int numberOfUnprocessed() {
+        return delta == null ? 0 : delta.size();
+    }
+
     @Override
     public Iterator<HighLevelTVS> getStructuresIterator() {
         return element.iterator();
@@ -56,7 +56,7 @@ public class DecomposerRunner {
 			ProgramProperties.setProperty("tvla.dot.outputFile", programName + "_dc.dt");
             ProgramProperties.setProperty("tvla.tvs.outputFile", programName + "_dc.tvs");
 			
-            Engine.activeEngine = new DecompositionIntraProcEngine();
+            Engine.setActiveEngine(new DecompositionIntraProcEngine());
 			
 			// Sets the search path fo the pre-processor
 			String pathString = programName;
@@ -72,12 +72,12 @@ public class DecomposerRunner {
 			}
 			if (!AnalysisStatus.terse)
 				Logger.print(StringUtils.newLine + "Loading specification ... ");
-			AnalysisStatus.loadTimer.start();
+			AnalysisStatus.getLoadTimer().start();
 
-			AnalysisGraph.activeGraph = new DecomposeAnalysisGraph();
+			AnalysisGraph.setActiveGraph(new DecomposeAnalysisGraph());
             TVPParser.configure(programName, searchPath);
-            AnalysisGraph.activeGraph.init();
-            IOFacade.instance().printProgram(AnalysisGraph.activeGraph);
+            AnalysisGraph.getActiveGraph().init();
+            IOFacade.instance().printProgram(AnalysisGraph.getActiveGraph());
 
 			if (!AnalysisStatus.terse)
 				Logger.println("done"); // done loading the specification
@@ -88,13 +88,13 @@ public class DecomposerRunner {
 				Logger.print("Reading TVS files ... ");
 			Collection<Location> locations = TVSParser.readLocations(inputFile);
 			for (Location location : locations) {
-			    Location glocation = AnalysisGraph.activeGraph.getLocationByLabel(location.label());
-			    AnalysisGraph.activeGraph.storeStructures(glocation, location.structures);
+			    Location glocation = AnalysisGraph.getActiveGraph().getLocationByLabel(location.label());
+			    AnalysisGraph.getActiveGraph().storeStructures(glocation, location.structures);
 			}
-			AnalysisStatus.loadTimer.stop();
+			AnalysisStatus.getLoadTimer().stop();
 
-            if (AnalysisGraph.activeGraph != null)
-                AnalysisGraph.activeGraph.dump(); // this has no effect for multithreaded engines
+            if (AnalysisGraph.getActiveGraph() != null)
+                AnalysisGraph.getActiveGraph().dump(); // this has no effect for multithreaded engines
 
 			if (!AnalysisStatus.terse)
 				System.out.println(StringUtils.newLine + "All tasks completed");
@@ -3,15 +3,13 @@ package tvla.analysis.decompose;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
-import java.util.SortedSet;
-import java.util.TreeSet;
 
 import tvla.analysis.AnalysisStatus;
 import tvla.analysis.Engine;
 import tvla.analysis.IntraProcEngine;
+import tvla.analysis.worklist.LocationWorklist;
 import tvla.core.Coerce;
 import tvla.core.Framer;
 import tvla.core.HighLevelTVS;
@@ -72,7 +70,7 @@ public class DecompositionIntraProcEngine extends IntraProcEngine {
     
     @Override
     public void prepare(Collection<HighLevelTVS> initial) {
-        this.cfg = (DecomposeAnalysisGraph) AnalysisGraph.activeGraph;
+        this.cfg = (DecomposeAnalysisGraph) AnalysisGraph.getActiveGraph();
         init();
         
         // Filter structures according to dname 
@@ -136,16 +134,14 @@ public class DecompositionIntraProcEngine extends IntraProcEngine {
         cfg.storeStructures(entryLocation, initial);
         status.numberOfStructures = entryLocation.size();
         
-        SortedSet<Location> workSet = new TreeSet<Location>();
+        workSet = LocationWorklist.create(cfg);
         workSet.add(cfg.getEntryLocation());
         OUTER: while (!workSet.isEmpty()) {
            ++numberOfIterations;
            maxWorkSetSize = maxWorkSetSize < workSet.size() ? workSet.size() : maxWorkSetSize;
            averageWorkSetSize += workSet.size();
            
-           Iterator<Location> first = workSet.iterator();
-           currentLocation = first.next();
-           first.remove();
+           currentLocation = workSet.extract();
            
            getProcessedLocation().startTimer();
            if (!AnalysisStatus.terse)
@@ -188,7 +184,7 @@ public class DecompositionIntraProcEngine extends IntraProcEngine {
     
                     	   Map<HighLevelTVS, Set<String>> messages = HashMapFactory.make(0);
                            Collection<HighLevelTVS> results = apply(currentAction, structure, currentLocation.label(), messages, null);
-                           if (Engine.coerceAfterUpdateFailed || !messages.isEmpty()) {
+                           if (Engine.coerceAfterUpdateFailed() || !messages.isEmpty()) {
                                boolean debug = AnalysisStatus.debug;
                                AnalysisStatus.debug = true;
                                apply(currentAction, structure,
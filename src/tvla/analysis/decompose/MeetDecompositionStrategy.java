@@ -28,11 +28,11 @@ import tvla.util.ProgramProperties;
 
 public class MeetDecompositionStrategy implements DecompositionStrategy {
     protected static final boolean abstractBeforeUnframe = 
-        ProgramProperties.getBooleanProperty("tvla.decompose.abstractBeforeUnframe", false) &&
+        ProgramProperties.getFixedBooleanProperty("tvla.decompose.abstractBeforeUnframe", false) &&
         Framer.frameWithCanonicalNames &&
         TVSFactory.getInstance().makeEmptySet() instanceof GenericSingleTVSSet; // Make sure join supports StructureGroup
 
-    public static boolean focusDecomposeNames = ProgramProperties.getBooleanProperty("tvla.decompose.focusnames", true);
+    public static boolean focusDecomposeNames = ProgramProperties.getFixedBooleanProperty("tvla.decompose.focusnames", true);
 
     protected final boolean incremental;
 
@@ -31,12 +31,15 @@ import tvla.analysis.interproc.worklist.EventRet;
 import tvla.analysis.interproc.worklist.EventStaticCall;
 import tvla.analysis.interproc.worklist.EventTransition;
 import tvla.analysis.interproc.worklist.EventVirtualCall;
+import tvla.analysis.interproc.worklist.QueueWorklist;
 import tvla.analysis.interproc.worklist.StackWorklist;
 import tvla.analysis.interproc.worklist.Worklist;
 import tvla.core.HighLevelTVS;
+import tvla.exceptions.UserErrorException;
 import tvla.transitionSystem.PrintableProgramLocation;
 import tvla.util.HashSetFactory;
 import tvla.util.Logger;
+import tvla.util.ProgramProperties;
 import tvla.util.SingleSet;
 import tvla.util.graph.Graph;
 
@@ -103,12 +106,33 @@ public class Chaotic { //implements AnalysisMonitor  {
 		mainTS = progTS.getMain();
 		assert(mainTS != null);
 		
-		this.worklist = new StackWorklist();
+		this.worklist = createWorklist();
 		this.priorityPolicy = new ChaoticPriorityPolicy(progTS); 
 		
 		this.modifiedMethods = HashSetFactory.make();
 	}
 	
+	/** Creates the worklist selected by the tvla.engine.worklist property.
+	 * Events are handled newest first ("order" or "lifo"), or oldest first
+	 * ("fifo"). The location orders of the intra-procedural engine ("wto",
+	 * "widening" and "pending") do not apply to events, and fall back to
+	 * the default order, so that one properties file serves both engines.
+	 */
+	private static Worklist createWorklist() {
+		String policy = ProgramProperties.getProperty("tvla.engine.worklist", "order");
+		if (policy.equals("order") || policy.equals("lifo"))
+			return new StackWorklist();
+		else if (policy.equals("fifo"))
+			return new QueueWorklist();
+		else if (policy.equals("wto") || policy.equals("widening") || policy.equals("pending")) {
+			Logger.println("The interprocedural engine handles events in the default order instead of the "
+					+ policy + " worklist policy");
+			return new StackWorklist();
+		}
+		else
+			throw new UserErrorException("The interprocedural engine does not support the worklist policy " + policy);
+	}
+	
 	public void initAnalysis(MethodTS mainTS, Collection initial) {
 		assert(mainTS != null);
 		assert(initial != null && !initial.isEmpty());
@@ -1000,6 +1024,7 @@ public class Chaotic { //implements AnalysisMonitor  {
 			this.numOfTransitionEvents;
 		
 		Logger.println("Chaotic Iterations Statistics");
+		Logger.println("Worklist " + worklist.getClass().getSimpleName());
 		Logger.println("Total number of Intra Events " + numOfIntraEvents);
 		Logger.println("Total number of Static Call Events " + numOfStaticCallEvents);
 		Logger.println("Total number of Virtual Call Events " + numOfVirtualCallEvents);
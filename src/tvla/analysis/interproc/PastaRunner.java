@@ -38,7 +38,7 @@ public class PastaRunner {
 			setupOutput();
 			AuxiliaryPredicates.init();
 			
-			InterProcEngine eng = (InterProcEngine) Engine.activeEngine;
+			InterProcEngine eng = (InterProcEngine) Engine.getActiveEngine();
 			Calendar cal = new java.util.GregorianCalendar();
 			cal.setTimeInMillis(System.currentTimeMillis());
 			if (!AnalysisStatus.terse) 
@@ -76,7 +76,7 @@ public class PastaRunner {
 			AnalysisStatus.getActiveStatus().printMemoryStatistics();
 			AnalysisStatus.getActiveStatus().resetMemoryStatistics();
 			System.gc();
-			AnalysisStatus.loadTimer.stop();					
+			AnalysisStatus.getLoadTimer().stop();					
 			
 			if (!AnalysisStatus.terse) 
 				System.out.println(StringUtils.newLine + "Starting analysis ...");
@@ -87,7 +87,7 @@ public class PastaRunner {
 			int maxIterations = ProgramProperties.getIntProperty("tvla.pasta.maxEvents", MAX_EVENTS);
 			
 			// Added
-			HighLevelTVS.advancedCoerce.coerceInitial(initial);
+			HighLevelTVS.getAdvancedCoerce().coerceInitial(initial);
 			
 			eng.evaluate(initial, maxIterations);
 						
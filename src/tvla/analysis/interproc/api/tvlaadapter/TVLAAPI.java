@@ -237,7 +237,7 @@ public final class TVLAAPI extends AbstractTVLAAPI  {
     }
     
     
-    SetDefAST.allSets.putAll(nameToList);
+    SetDefAST.getAllSets().putAll(nameToList);
     
     try {
       SFTAST analysisDef = PTSParser.readAnalysis(analysisMainFileName, analysisDirName);
@@ -22,7 +22,7 @@ import tvla.util.LRUCache;
  */
 public class ActionInstance {
 	static private final int MAX_ACTION_INSTANTIATIONS = 500; 
-	static private 	Cache cachedActions = new LRUCache(MAX_ACTION_INSTANTIATIONS);
+	static private 	Cache<String, Action> cachedActions = new LRUCache<String, Action>(MAX_ACTION_INSTANTIATIONS);
 	
 	private String id;
 	private ActionDefinition definition;
@@ -70,14 +70,14 @@ public class ActionInstance {
 	 * (and may need to have differencing apply to them)
 	 */
 	public boolean cachedAction(){
-		Action action = (Action) cachedActions.get(id);
+		Action action = cachedActions.get(id);
 		return action != null;
 	}
 	
 	public Action getAction(){
 		Action action;
 		
-		action = (Action) cachedActions.get(id);
+		action = cachedActions.get(id);
 		if (action != null) {
 			return action;
 		}
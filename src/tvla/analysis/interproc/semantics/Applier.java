@@ -11,6 +11,7 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.Map;
 
+import tvla.analysis.ActionCache;
 import tvla.analysis.AnalysisStatus;
 import tvla.analysis.IActionApplier;
 import tvla.core.Coerce;
@@ -101,6 +102,7 @@ public final class Applier {
 		protected Action currentAction;
 		protected final AnalysisStatus status;
 		protected final AnalysisStatus totalStatus;
+		protected final ActionCache actionCache = ActionCache.create();
 		//  TODO add monitoring of SpaceStatistics: protected SpaceStatistics statistics; 		
 
 		
@@ -147,12 +149,19 @@ public final class Applier {
 		public Collection apply(Action action, TVS tvs, PrintableProgramLocation currentLocation, Map messages) {
 			String nodeLabel = currentLocation.label();
 			HighLevelTVS structure = (HighLevelTVS) tvs; 
-			Collection answer = new ArrayList();
+			Collection<HighLevelTVS> answer = new ArrayList<HighLevelTVS>();
 			
 			if (action.isSkipAction()) {
-				answer.add(tvs.copy());
+				answer.add(structure.copy());
 				return answer;
 			}
+
+			ActionCache.Key cacheKey = actionCache != null ? actionCache.key(action, structure) : null;
+			if (cacheKey != null) {
+				Collection<HighLevelTVS> cached = actionCache.lookup(cacheKey, status);
+				if (cached != null)
+					return cached;
+			}
 			
 			// Focus
 			Collection focusResult = null;
@@ -320,6 +329,8 @@ public final class Applier {
 				}
 			}
 			ModifiedPredicates.clear();
+			if (cacheKey != null)
+				actionCache.store(cacheKey, answer);
 			return answer;
 		}
 		
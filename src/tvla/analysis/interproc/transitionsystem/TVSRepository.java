@@ -66,7 +66,7 @@ public final class TVSRepository {
 			collected = TVSFactory.getInstance().makeEmptySet();
 			if (xdebug) { 
 				String joinMethod;
-				switch (TVSFactory.joinMethod) {
+				switch (TVSFactory.getJoinMethod()) {
 					case TVSFactory.JOIN_CANONIC: joinMethod = "canonic"; break;
 					case TVSFactory.JOIN_CANONIC_EMBEDDING: joinMethod = "canonic embedding"; break;
 					case TVSFactory.JOIN_RELATIONAL: joinMethod = "relational"; break;
@@ -78,8 +78,8 @@ public final class TVSRepository {
 				out.println("Woking with join " + joinMethod);
 			}
 		 
-			if (TVSFactory.joinMethod != TVSFactory.JOIN_RELATIONAL &&
-				TVSFactory.joinMethod != TVSFactory.JOIN_CANONIC) 
+			if (TVSFactory.getJoinMethod() != TVSFactory.JOIN_RELATIONAL &&
+				TVSFactory.getJoinMethod() != TVSFactory.JOIN_CANONIC) 
 				throw new Error("Analysis works only with relational join or canoninc (partial) join");
 
 			messages = new LinkedHashMap();
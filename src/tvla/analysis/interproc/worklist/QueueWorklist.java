@@ -0,0 +1,64 @@
+/*
+ * File: QueueWorklist.java 
+ */
+
+package tvla.analysis.interproc.worklist;
+
+/** A queue based implementation for the worklist.
+ * The oldest event of the highest priority level is handled first. 
+ * 
+ * @see StackWorklist
+ */
+
+import java.util.LinkedList;
+
+public class QueueWorklist implements Worklist {
+	private final LinkedList<Event> lowPriorityQueue;
+	private final LinkedList<Event> midPriorityQueue;
+	private final LinkedList<Event> highPriorityQueue;
+
+	public QueueWorklist() {
+		super();
+		lowPriorityQueue = new LinkedList<Event>();
+		midPriorityQueue = new LinkedList<Event>();
+		highPriorityQueue = new LinkedList<Event>();
+	}
+
+	public void addEvent(Event event) {
+		highPriorityQueue.addLast(event);
+	}
+
+	public void addEvent(Event event, Priority priority) {
+		if (null == priority) 
+			lowPriorityQueue.addLast(event);	
+		else
+			midPriorityQueue.addLast(event);	
+	}
+
+	public boolean hasEvent() {
+		return ! (lowPriorityQueue.isEmpty() && 
+				  midPriorityQueue.isEmpty() && 
+				  highPriorityQueue.isEmpty()  );
+	}
+
+	public boolean ignoresPriorites() {
+		return true;
+	}
+	
+	public boolean repsectLowAndHighPriorites() {
+		return true;
+	}
+	
+	public Event extractEvent() {
+		if (! highPriorityQueue.isEmpty())
+			return highPriorityQueue.removeFirst();
+		
+		if (! midPriorityQueue.isEmpty())
+			return midPriorityQueue.removeFirst();
+
+		if (! lowPriorityQueue.isEmpty())
+			return lowPriorityQueue.removeFirst();
+
+		throw new InternalError("QueueWorklist.extractEvent: Extracting event from an empty queue");
+	}
+}
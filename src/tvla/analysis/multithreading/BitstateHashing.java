@@ -0,0 +1,121 @@
+package tvla.analysis.multithreading;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import tvla.util.Logger;
+
+/** Bitstate hashing (supertrace) of the state space explored by the
+ * MultithreadEngine.
+ * Rather than storing the visited structures, the bits at several hashes of
+ * their canonical forms are set in a bit array of a fixed size, and a
+ * structure whose bits are all set is considered visited. The hashes are
+ * computed by double hashing: the i-th hash is h1 + i * h2, where h1 and h2
+ * are independent hashes of the form. A structure that was not visited may
+ * be considered visited when its bits were set by other structures, in which
+ * case it and the structures reachable only through it are omitted. The
+ * probability of omitting a structure is estimated from the number of
+ * structures stored, the size of the array and the number of hashes.
+ * @see ThreadSymmetry#canonicalForm
+ */
+public class BitstateHashing {
+	private static final long SEED1 = 0x2545F4914F6CDD1DL;
+	private static final long SEED2 = 0x9E3779B97F4A7C15L;
+
+	/** The bit array. */
+	protected final AtomicLongArray bits;
+
+	/** The number of bits in the array minus 1. */
+	protected final long mask;
+
+	/** The base-2 logarithm of the number of bits in the array. */
+	protected final int log2Bits;
+
+	/** The number of bits set for every structure. */
+	protected final int hashes;
+
+	/** The number of structures stored in the array. */
+	public final AtomicInteger storedStructures = new AtomicInteger();
+
+	/** The number of structures considered visited. */
+	public final AtomicInteger matchedStructures = new AtomicInteger();
+
+	/** The number of bits set in the array. */
+	protected final AtomicLong setBits = new AtomicLong();
+
+	/** @param log2Bits - the base-2 logarithm of the number of bits in the
+	 * array, between 6 and 36
+	 * @param hashes - the number of bits set for every structure
+	 */
+	public BitstateHashing(int log2Bits, int hashes) {
+		this.log2Bits = log2Bits;
+		this.hashes = hashes;
+		this.mask = (1L << log2Bits) - 1;
+		this.bits = new AtomicLongArray((int) (1L << (log2Bits - 6)));
+	}
+
+	/** Sets the bits of a structure.
+	 * @param form - the canonical form of the structure
+	 * @return true if some bit of the structure was not set, so the
+	 * structure was not visited.
+	 */
+	public boolean add(ThreadSymmetry.Form form) {
+		long h1 = form.hash(SEED1);
+		// An odd step visits distinct bits in an array of 2^n bits.
+		long h2 = form.hash(SEED2) | 1;
+		boolean added = false;
+		for (int i = 0; i < hashes; ++i) {
+			long index = (h1 + i * h2) & mask;
+			int word = (int) (index >>> 6);
+			long bit = 1L << (index & 63);
+			long value;
+			while (((value = bits.get(word)) & bit) == 0) {
+				if (bits.compareAndSet(word, value, value | bit)) {
+					setBits.incrementAndGet();
+					added = true;
+					break;
+				}
+			}
+		}
+		if (added)
+			storedStructures.incrementAndGet();
+		else
+			matchedStructures.incrementAndGet();
+		return added;
+	}
+
+	/** Returns the estimated probability that a structure that was not
+	 * visited is considered visited when it is added to the array in its
+	 * current state.
+	 */
+	public double omissionProbability() {
+		double filled = (double) setBits.get() / (mask + 1);
+		return Math.pow(filled, hashes);
+	}
+
+	/** Returns the estimated number of structures that were considered
+	 * visited although they were not. The i-th structure stored is omitted
+	 * with probability (1 - e^(-k*i/m))^k, where k is the number of hashes
+	 * and m is the number of bits.
+	 */
+	public double expectedOmissions() {
+		double bitsPerStructure = (double) hashes / (mask + 1);
+		double result = 0;
+		for (int i = storedStructures.get(); i > 0; --i) {
+			result += Math.pow(1 - Math.exp(-bitsPerStructure * i), hashes);
+		}
+		return result;
+	}
+
+	/** Prints the number of structures stored and the estimated
+	 * probability of omitting a structure.
+	 */
+	public void printStatistics() {
+		Logger.println("Bitstate hashing: " + storedStructures.get() + " structures stored in 2^" + log2Bits
+				+ " bits with " + hashes + " hashes, " + matchedStructures.get() + " matched");
+		Logger.println("Bitstate hashing: " + String.format("%.4f", 100.0 * setBits.get() / (mask + 1))
+				+ "% of the bits set, estimated omission probability " + String.format("%.3g", omissionProbability())
+				+ ", expected omitted structures " + String.format("%.3g", expectedOmissions()));
+	}
+}
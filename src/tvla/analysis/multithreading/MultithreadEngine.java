@@ -1,20 +1,36 @@
 package tvla.analysis.multithreading;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 import tvla.analysis.AnalysisStatus;
 import tvla.analysis.Engine;
 import tvla.core.HighLevelTVS;
 import tvla.core.Node;
 import tvla.core.TVS;
+import tvla.core.TVSFactory;
+import tvla.core.base.BaseBlur;
+import tvla.core.base.BaseTVSFactory;
 import tvla.exceptions.AnalysisHaltException;
+import tvla.exceptions.UserErrorException;
 import tvla.io.IOFacade;
 import tvla.language.TVM.ActionAST;
 import tvla.logic.Kleene;
@@ -23,13 +39,15 @@ import tvla.predicates.Predicate;
 import tvla.predicates.Vocabulary;
 import tvla.transitionSystem.Action;
 import tvla.transitionSystem.Location;
+import tvla.util.AnalysisContext;
 import tvla.util.HashMapFactory;
 import tvla.util.Logger;
+import tvla.util.ProgramProperties;
 
 /** An engine used for analyzing multi-threaded programs.
  * @author Eran Yahav
  */
-public class MultithreadEngine extends Engine {
+public class MultithreadEngine extends Engine implements Cloneable {
   
   /** status is to be updated every how many structures */
 	private static final int STATUS_EVERY = 100;
@@ -46,6 +64,12 @@ public class MultithreadEngine extends Engine {
 	/** records current search stack depth */
 	protected int stackDepth = 0;
 
+	/** set while the state space is explored by several threads */
+	protected boolean parallel = false;
+
+	/** the partial-order reduction, or null if it is turned off */
+	protected PartialOrderReduction reduction = null;
+
 	/** the program is a HashMap of (label,Location) tuples
 	 * each location has a set of corresponding actions
 	 */
@@ -174,13 +198,87 @@ public class MultithreadEngine extends Engine {
 	 * @param initial - set of initial structures for the analysis
 	 */
 	public void evaluate(Collection<HighLevelTVS> initial) {
-		/** the search stack is a stack of configurations (structures) */
-		Stack<TVS> searchStack = new Stack<TVS>();
 		stateSpace = new StateSpace("State_Space", true);
 		init();
 
 		///entryLocation = prepareProgram(entry);
 
+		if (ProgramProperties.getBooleanProperty("tvla.engine.tvmc.partialOrder", false)) {
+			reduction = new PartialOrderReduction(programThreads.values(), programMethods.values(),
+					globalActions);
+		}
+		initStateSpace();
+
+		int threads = ProgramProperties.getIntProperty("tvla.engine.tvmc.parallel.threads", 1);
+		if (threads > 1 && getClass() == MultithreadEngine.class && !AnalysisStatus.debug
+				&& TVSFactory.getInstance() instanceof BaseTVSFactory) {
+			exploreInParallel(initial, threads);
+		} else {
+			explore(initial);
+		}
+
+		status.stopTimer(AnalysisStatus.TOTAL_ANALYSIS_TIME);
+		if (telemetry != null)
+			telemetry.export();
+
+		printAnalysisInfo();
+	}
+
+	/**
+	 * Blurs a structure that is about to be joined into the state space when
+	 * the state space computes its canonical form. The blur is timed on the
+	 * status of this engine, which is that of the worker in a parallel
+	 * exploration.
+	 */
+	protected void blurForStateSpace(HighLevelTVS structure) {
+		if (stateSpace.computesForms()) {
+			status.startTimer(AnalysisStatus.BLUR_TIME);
+			structure.blur();
+			status.stopTimer(AnalysisStatus.BLUR_TIME);
+		}
+	}
+
+	/**
+	 * Turns on the thread-symmetry reduction or bitstate hashing of the
+	 * state space, as specified by the properties.
+	 */
+	protected void initStateSpace() {
+		// Concrete structures are not blurred, and are only joined by
+		// isomorphism.
+		if (!blurAllowed || ProgramProperties.getProperty("tvla.joinType", "rel").equals("conc"))
+			return;
+		if (ProgramProperties.getBooleanProperty("tvla.engine.tvmc.bitstate", false)) {
+			int log2Bits = ProgramProperties.getIntProperty("tvla.engine.tvmc.bitstate.log2Bits", 27);
+			int hashes = ProgramProperties.getIntProperty("tvla.engine.tvmc.bitstate.hashes", 3);
+			if (log2Bits < 6 || log2Bits > 36)
+				throw new UserErrorException("Invalid value for the property tvla.engine.tvmc.bitstate.log2Bits: "
+						+ log2Bits);
+			if (hashes < 1)
+				throw new UserErrorException("Invalid value for the property tvla.engine.tvmc.bitstate.hashes: "
+						+ hashes);
+			stateSpace.setBitstate(createThreadSymmetry(), new BitstateHashing(log2Bits, hashes));
+		} else if (ProgramProperties.getBooleanProperty("tvla.engine.tvmc.symmetry", false)) {
+			stateSpace.setSymmetry(createThreadSymmetry());
+		}
+	}
+
+	/**
+	 * Returns a new object that computes the canonical forms of the
+	 * structures of the program.
+	 */
+	protected ThreadSymmetry createThreadSymmetry() {
+		return new ThreadSymmetry(programThreads.values());
+	}
+
+	/**
+	 * Explores the state space by a depth-first search from the initial
+	 * structures.
+	 * @param initial - set of initial structures for the analysis
+	 */
+	protected void explore(Collection<HighLevelTVS> initial) {
+		/** the search stack is a stack of configurations (structures) */
+		Stack<TVS> searchStack = new Stack<TVS>();
+
 		/**
 		* initialize
 		* for each s in Initial: push(s)
@@ -202,8 +300,9 @@ public class MultithreadEngine extends Engine {
 					Logger.println("Structure popped" + searchStack.size());
 				}
 				// if structure is not a member of the statespace
+				blurForStateSpace(structure);
 				status.startTimer(AnalysisStatus.JOIN_TIME);
-				structure = stateSpace.join(structure);
+				structure = join(stateSpace, structure, stateSpace.label(), null);
 				boolean delta = (structure != null);
 				status.stopTimer(AnalysisStatus.JOIN_TIME);
 				if (XDEBUG) {
@@ -221,27 +320,13 @@ public class MultithreadEngine extends Engine {
 					}
 
 					// find set of enabled actions
-					// global actions are always enabled, so they are initially
-					// insereted into "enabledActions"
-					List<Action> enabledActions = new ArrayList<Action>(globalActions);
-
-					for (Iterator<Node> i = TVMCMacros.allThreadNodes(structure); i.hasNext();) {
-
-						Node n = i.next();
-						if (structure.eval(Vocabulary.ready, n) == Kleene.trueKleene) {
-							// n is a ready thread, add its actions
-							// iterate over location predicates	   
-							for (LocationPredicate lp :	Vocabulary.locationPredicates) {
-								if (structure.eval(lp, n) == Kleene.trueKleene) {
-									enabledActions.addAll(lp.getLocation().getActions());
-								}
-							}
-						}
-					}
+					List<Action> enabledActions = enabledActions(structure);
+					int numberOfActions = ampleSet(structure, enabledActions);
+					boolean hasSuccessors = false;
 
 					// for each enabled action
 					for (int actionIt = 0;
-						actionIt < enabledActions.size();
+						actionIt < numberOfActions;
 						actionIt++) {
 						Action action = enabledActions.get(actionIt);
 						String label = action.location().label();
@@ -261,7 +346,7 @@ public class MultithreadEngine extends Engine {
 						Collection<HighLevelTVS> results =
 							apply(action, structure, label, messages, null);
 						// Replay the last action to show the user details of the failure.
-						if (Engine.coerceAfterUpdateFailed) {
+						if (Engine.coerceAfterUpdateFailed()) {
 							boolean debug = AnalysisStatus.debug;
 							AnalysisStatus.debug = true;
 							apply(action, structure, label, messages, null);
@@ -290,18 +375,398 @@ public class MultithreadEngine extends Engine {
 							}
 						} // end for results
 
+						// An ample set without successors is replaced by all
+						// the enabled actions.
+						hasSuccessors |= actionIt >= globalActions.size() && !results.isEmpty();
+						if (actionIt == numberOfActions - 1 && !hasSuccessors) {
+							numberOfActions = enabledActions.size();
+						}
 					} // end for actions
 				}
 			}
 		} catch (AnalysisHaltException ahe) {
 			System.err.println(ahe.getMessage());
 		}
+	}
 
-		status.stopTimer(AnalysisStatus.TOTAL_ANALYSIS_TIME);
+	/**
+	 * Returns the actions enabled in a structure: the global actions, which
+	 * are always enabled, and the actions at the locations of the ready
+	 * threads.
+	 * @param structure - structure to check enabled actions in
+	 */
+	protected List<Action> enabledActions(TVS structure) {
+		List<Action> enabledActions = new ArrayList<Action>(globalActions);
+
+		for (Iterator<Node> i = TVMCMacros.allThreadNodes(structure); i.hasNext();) {
+
+			Node n = i.next();
+			if (structure.eval(Vocabulary.ready, n) == Kleene.trueKleene) {
+				// n is a ready thread, add its actions
+				// iterate over location predicates	   
+				for (LocationPredicate lp :	Vocabulary.allLocationPredicates()) {
+					if (structure.eval(lp, n) == Kleene.trueKleene) {
+						enabledActions.addAll(lp.getLocation().getActions());
+					}
+				}
+			}
+		}
+		return enabledActions;
+	}
 
-		printAnalysisInfo();
+	/**
+	 * Returns the number of enabled actions to apply to a structure. With
+	 * partial-order reduction, the enabled actions are reordered so that the
+	 * actions of an ample set come first, and only they are applied, unless
+	 * they have no successors.
+	 * @param structure - the structure to expand
+	 * @param enabledActions - the enabled actions of the structure
+	 */
+	protected int ampleSet(TVS structure, List<Action> enabledActions) {
+		if (reduction == null)
+			return enabledActions.size();
+		return reduction.ampleSet(structure, enabledActions, globalActions.size());
 	}
 
+	/**
+	 * Explores the state space with several worker threads. Each worker
+	 * has its own search stack, and takes the structure at its top, as the
+	 * sequential search does. A worker whose stack is empty steals the
+	 * structure at the bottom of the stack of another worker, which is
+	 * the oldest one and usually has the largest unexplored subspace.
+	 * The state space is the set of visited structures. Its structures are
+	 * split into shards by their canonic names, so workers check and add
+	 * structures in different shards concurrently (see ConcurrentTVSSet).
+	 * Structures, messages and the stack depth are counted in the status
+	 * of this engine, and the statistics of the workers are merged into it
+	 * when the exploration ends. The messages are then recounted for the
+	 * structures of the final state space, which do not depend on the
+	 * order of the joins.
+	 * @param initial - set of initial structures for the analysis
+	 * @param threads - the number of worker threads
+	 */
+	protected void exploreInParallel(Collection<HighLevelTVS> initial, int threads) {
+		int shards = ProgramProperties.getIntProperty("tvla.engine.parallel.joinShards", 0);
+		if (shards <= 0)
+			shards = 8 * threads;
+		stateSpace.setConcurrentJoin(shards);
+		parallel = true;
+
+		final ParallelExploration exploration = new ParallelExploration(threads);
+		for (HighLevelTVS s : initial) {
+			exploration.push(0, s);
+		}
+
+		// The operators are created here, since constructing them is not
+		// thread-safe.
+		final List<HighLevelTVS.Operators> operators = new ArrayList<HighLevelTVS.Operators>(threads);
+		final List<MultithreadEngine> workerEngines = new ArrayList<MultithreadEngine>(threads);
+		for (int i = 0; i < threads; ++i) {
+			operators.add(new HighLevelTVS.Operators(new BaseBlur()));
+			try {
+				MultithreadEngine worker = (MultithreadEngine) clone();
+				worker.status = new AnalysisStatus(status);
+				workerEngines.add(worker);
+			} catch (CloneNotSupportedException e) {
+				throw new Error(e);
+			}
+		}
+		final AnalysisContext context = AnalysisContext.current();
+		ExecutorService workers = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private int created = 0;
+
+			public synchronized Thread newThread(final Runnable runnable) {
+				final HighLevelTVS.Operators threadOperators = operators.get(created);
+				final MultithreadEngine threadEngine = workerEngines.get(created);
+				++created;
+				Thread thread = new Thread(new Runnable() {
+					public void run() {
+						AnalysisContext.bind(context);
+						HighLevelTVS.bindOperators(threadOperators);
+						bindToThread(threadEngine);
+						runnable.run();
+					}
+				}, "tvla-worker-" + created);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		Logger.println("Parallel exploration with " + threads + " threads");
+
+		List<Future<Object>> futures = new ArrayList<Future<Object>>(threads);
+		for (int i = 0; i < threads; ++i) {
+			final int worker = i;
+			futures.add(workers.submit(new Callable<Object>() {
+				public Object call() {
+					try {
+						exploration.run(worker);
+					} catch (AnalysisHaltException ahe) {
+						System.err.println(ahe.getMessage());
+					} finally {
+						exploration.finished = true;
+					}
+					return null;
+				}
+			}));
+		}
+
+		try {
+			for (Future<Object> future : futures) {
+				waitFor(future);
+			}
+		} finally {
+			exploration.finished = true;
+			workers.shutdown();
+			try {
+				workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				throw new Error(e);
+			}
+			for (MultithreadEngine worker : workerEngines) {
+				status.merge(worker.status);
+			}
+			stackDepth = exploration.depth.get();
+			maxStackDepth = exploration.maxDepth.get();
+			parallel = false;
+		}
+		exploration.recountMessages();
+
+		// Replay the action that failed to show the user details of the
+		// failure.
+		if (exploration.failedAction != null) {
+			currentLocation = exploration.failedAction.location();
+			currentAction = exploration.failedAction;
+			boolean debug = AnalysisStatus.debug;
+			AnalysisStatus.debug = true;
+			apply(exploration.failedAction, exploration.failedStructure, currentLocation.label(),
+					exploration.failedMessages, null);
+			AnalysisStatus.debug = debug;
+			status.numberOfMessages += stateSpace.addMessages(exploration.failedMessages);
+		}
+	}
+
+	private void waitFor(Future<Object> future) {
+		try {
+			future.get();
+		} catch (InterruptedException e) {
+			throw new Error(e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new Error(cause);
+		}
+	}
+
+	/**
+	 * Explores a structure taken from a search stack in a worker thread:
+	 * joins it into the state space, and if it is new, applies the enabled
+	 * actions to it and pushes the results on the stack of the worker.
+	 * Called on the engine of the worker.
+	 * @return false if the analysis should finish.
+	 */
+	protected boolean explore(ParallelExploration exploration, int worker, HighLevelTVS structure) {
+		blurForStateSpace(structure);
+		status.startTimer(AnalysisStatus.JOIN_TIME);
+		structure = join(stateSpace, structure, stateSpace.label(), null);
+		status.stopTimer(AnalysisStatus.JOIN_TIME);
+		if (structure == null)
+			return true;
+		if (!exploration.structureAdded())
+			return false;
+
+		List<Action> enabledActions = enabledActions(structure);
+		int numberOfActions = ampleSet(structure, enabledActions);
+		boolean hasSuccessors = false;
+		for (int actionIt = 0; actionIt < numberOfActions; actionIt++) {
+			Action action = enabledActions.get(actionIt);
+			String label = action.location().label();
+			currentLocation = action.location();
+			currentAction = action;
+
+			Map<HighLevelTVS, Set<String>> messages = HashMapFactory.make(0);
+			Collection<HighLevelTVS> results = apply(action, structure, label, messages, null);
+			if (Engine.coerceAfterUpdateFailed()) {
+				exploration.coerceFailed(action, structure, messages);
+				return false;
+			}
+			if ((!messages.isEmpty() && !exploration.messagesAdded(structure, messages))
+					|| status.shouldFinishAnalysis())
+				return false;
+
+			for (HighLevelTVS result : results) {
+				exploration.push(worker, result);
+			}
+
+			hasSuccessors |= actionIt >= globalActions.size() && !results.isEmpty();
+			if (actionIt == numberOfActions - 1 && !hasSuccessors)
+				numberOfActions = enabledActions.size();
+		}
+		return true;
+	}
+
+	/**
+	 * The state of a parallel exploration of the state space, which is
+	 * shared by the worker threads.
+	 */
+	protected class ParallelExploration {
+		/** The search stacks of the workers. Each stack is guarded by its
+		 * own lock.
+		 */
+		protected final List<Deque<HighLevelTVS>> stacks;
+		/** The number of structures that were pushed and whose exploration
+		 * did not end. The state space is explored when it drops to 0.
+		 */
+		protected final AtomicInteger pending = new AtomicInteger();
+		/** The number of structures on all the stacks. */
+		protected final AtomicInteger depth = new AtomicInteger();
+		/** The maximal number of structures on all the stacks. */
+		protected final AtomicInteger maxDepth = new AtomicInteger();
+		/** Set when the workers should stop. */
+		protected volatile boolean finished = false;
+
+		/** The first action for which Coerce failed after Update, the
+		 * structure it was applied to and the messages it reported.
+		 */
+		protected Action failedAction;
+		protected HighLevelTVS failedStructure;
+		protected Map<HighLevelTVS, Set<String>> failedMessages;
+
+		/** The messages reported by the actions applied to each explored
+		 * structure, in the order of the actions.
+		 */
+		protected final Map<HighLevelTVS, List<Map<HighLevelTVS, Set<String>>>> reported =
+			new IdentityHashMap<HighLevelTVS, List<Map<HighLevelTVS, Set<String>>>>();
+		/** The number of messages the workers added to the state space. */
+		protected int addedMessages = 0;
+
+		protected ParallelExploration(int threads) {
+			stacks = new ArrayList<Deque<HighLevelTVS>>(threads);
+			for (int i = 0; i < threads; ++i) {
+				stacks.add(new ArrayDeque<HighLevelTVS>());
+			}
+		}
+
+		/** Pushes a structure on the stack of a worker.
+		 */
+		protected void push(int worker, HighLevelTVS structure) {
+			pending.incrementAndGet();
+			Deque<HighLevelTVS> stack = stacks.get(worker);
+			synchronized (stack) {
+				stack.addLast(structure);
+			}
+			int currentDepth = depth.incrementAndGet();
+			int max;
+			while (currentDepth > (max = maxDepth.get()) && !maxDepth.compareAndSet(max, currentDepth))
+				;
+		}
+
+		/** Pops a structure from the stack of a worker, or steals one from
+		 * the stack of another worker if it is empty.
+		 * @return the structure, or null if all the stacks are empty.
+		 */
+		protected HighLevelTVS take(int worker) {
+			HighLevelTVS structure;
+			Deque<HighLevelTVS> stack = stacks.get(worker);
+			synchronized (stack) {
+				structure = stack.pollLast();
+			}
+			for (int i = 1; structure == null && i < stacks.size(); ++i) {
+				Deque<HighLevelTVS> victim = stacks.get((worker + i) % stacks.size());
+				synchronized (victim) {
+					structure = victim.pollFirst();
+				}
+			}
+			if (structure != null)
+				depth.decrementAndGet();
+			return structure;
+		}
+
+		/** Explores structures in a worker thread until the state space is
+		 * explored or the analysis should finish.
+		 */
+		protected void run(int worker) {
+			MultithreadEngine engine = (MultithreadEngine) currentEngine();
+			while (!finished) {
+				HighLevelTVS structure = take(worker);
+				if (structure == null) {
+					// Other workers may still push structures.
+					if (pending.get() == 0)
+						return;
+					LockSupport.parkNanos(50000);
+					continue;
+				}
+				try {
+					if (!engine.explore(this, worker, structure))
+						finished = true;
+				} finally {
+					pending.decrementAndGet();
+				}
+			}
+		}
+
+		/** Counts a structure added to the state space.
+		 * @return false if the analysis should finish.
+		 */
+		protected synchronized boolean structureAdded() {
+			++status.numberOfStructures;
+			updateStatus();
+			return !status.shouldFinishAnalysis();
+		}
+
+		/** Adds the messages reported by an action applied to a structure
+		 * to the state space.
+		 * @return false if the analysis should finish.
+		 */
+		protected synchronized boolean messagesAdded(HighLevelTVS structure,
+				Map<HighLevelTVS, Set<String>> messages) {
+			List<Map<HighLevelTVS, Set<String>>> structureMessages = reported.get(structure);
+			if (structureMessages == null) {
+				structureMessages = new ArrayList<Map<HighLevelTVS, Set<String>>>();
+				reported.put(structure, structureMessages);
+			}
+			structureMessages.add(messages);
+			int added = stateSpace.addMessages(messages);
+			addedMessages += added;
+			status.numberOfMessages += added;
+			return !status.shouldFinishAnalysis();
+		}
+
+		/** Replaces the messages added by the workers with those reported
+		 * for the structures of the final state space. With the part and ind
+		 * join methods, a structure may be merged into a later one after it
+		 * was explored, and which structures are explored before they are
+		 * merged depends on the order of the joins. Every structure of the
+		 * final state space was explored, so its messages do not depend on
+		 * that order. Called when the workers have finished.
+		 */
+		protected void recountMessages() {
+			stateSpace.clearMessages();
+			status.numberOfMessages -= addedMessages;
+			addedMessages = 0;
+			for (Iterator<HighLevelTVS> it = stateSpace.getStructuresIterator(); it.hasNext(); ) {
+				List<Map<HighLevelTVS, Set<String>>> structureMessages = reported.get(it.next());
+				if (structureMessages == null)
+					continue;
+				for (Map<HighLevelTVS, Set<String>> messages : structureMessages) {
+					int added = stateSpace.addMessages(messages);
+					addedMessages += added;
+					status.numberOfMessages += added;
+				}
+			}
+		}
+
+		protected synchronized void coerceFailed(Action action, HighLevelTVS structure,
+				Map<HighLevelTVS, Set<String>> messages) {
+			if (failedAction == null) {
+				failedAction = action;
+				failedStructure = structure;
+				failedMessages = messages;
+			}
+		}
+	}
 	/** Prints all statistics and info for the current analysis run
 	 *  (and current iteration of abstraction refinement).
 	 * @author Alexey Loginov.
@@ -324,9 +789,15 @@ public class MultithreadEngine extends Engine {
 	 * updates analysis status
 	 */
 	protected void updateStatus() {
-		if (status.numberOfStructures % statistics.statisticsEvery == 0) {
+		// The structures of the state space can not be iterated while
+		// other threads join structures into it.
+		if (!parallel && status.numberOfStructures % statistics.statisticsEvery == 0) {
 			statistics.doStatistics();
 		}
+		if (telemetry != null && status.statisticsEvery > 0
+			&& status.numberOfStructures % status.statisticsEvery == 0) {
+			telemetry.export();
+		}
 
 		//if (status.numberOfStructures % status.gcEvery == 0) {
 		//	System.gc();
@@ -392,6 +863,16 @@ public class MultithreadEngine extends Engine {
 		statistics = new SpaceStatistics(Collections.singleton(stateSpace));
 		maxStackDepth = 0;
 		stackDepth = 0;
+
+		// Initialize
+		for (Action action : globalActions) {
+			action.init();
+		}
+		for (LocationPredicate lp : Vocabulary.allLocationPredicates()) {
+			for (Action action : lp.getLocation().getActions()) {
+				action.init();
+			}
+		}
 		status.startTimer(AnalysisStatus.TOTAL_ANALYSIS_TIME);
 	}
 
@@ -402,5 +883,11 @@ public class MultithreadEngine extends Engine {
 	protected void printStatistics() {
 		status.printStatistics();
 		Logger.println("Maximal stack depth " + maxStackDepth);
+		if (reduction != null)
+			reduction.printStatistics();
+		if (stateSpace.bitstate != null)
+			stateSpace.bitstate.printStatistics();
+		else if (stateSpace.symmetry != null)
+			stateSpace.symmetry.printStatistics();
 	}
 }
\ No newline at end of file
@@ -0,0 +1,336 @@
+package tvla.analysis.multithreading;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import tvla.core.Node;
+import tvla.core.TVS;
+import tvla.core.common.GetFormulaPredicates;
+import tvla.formulae.Formula;
+import tvla.formulae.PredicateUpdateFormula;
+import tvla.logic.Kleene;
+import tvla.predicates.LocationPredicate;
+import tvla.predicates.Predicate;
+import tvla.predicates.Vocabulary;
+import tvla.transitionSystem.Action;
+import tvla.transitionSystem.Location;
+import tvla.util.HashMapFactory;
+import tvla.util.HashSetFactory;
+import tvla.util.Logger;
+
+/** Partial-order reduction of the interleavings explored by the
+ * MultithreadEngine.
+ * In a structure where the actions of a ready thread are independent of
+ * all the actions that the other threads and the global actions may ever
+ * apply, only the actions of that thread (an ample set) and the global
+ * actions are applied. The interleavings that start with an action of
+ * another thread reach the same concrete states through the ample sets of
+ * the successors, and since no action of an ample set changes a predicate
+ * that another action reads, including in its messages, the messages that
+ * report the violation of a safety property are still reported.
+ * Independence is computed statically from the predicates that the actions
+ * read and write. The location predicates, which an action only changes
+ * for the thread that applies it, and runnable, which every action
+ * changes in the same way, are not shared. Actions that change the
+ * universe, or the set of ready threads, depend on every action.
+ * An action on a back edge of the control-flow graph of its thread, or
+ * inside an atomic block, is never in an ample set, so every cycle of the
+ * explored state space passes through a fully expanded structure, and no
+ * action of another thread is postponed forever.
+ * @see tvla.core.common.GetFormulaPredicates
+ */
+public class PartialOrderReduction {
+	/** The predicates that an action reads and writes. */
+	protected static class Footprint {
+		protected final Set<Predicate> reads = HashSetFactory.make();
+		protected final Set<Predicate> writes = HashSetFactory.make();
+		/** Set when the action changes the universe or the ready threads. */
+		protected boolean global;
+		/** Set when the action creates or starts threads. */
+		protected boolean createsThreads;
+	}
+
+	/** The actions of each thread type. */
+	protected final Map<ProgramThread, List<Action>> threadActions = HashMapFactory.make();
+
+	/** The thread type of each location. Locations of method bodies may
+	 * be reached by threads of any type, and are not in the map.
+	 */
+	protected final Map<Location, ProgramThread> locationThread = HashMapFactory.make();
+
+	/** The actions that may not be in an ample set. */
+	protected final Set<Action> excluded = HashSetFactory.make();
+
+	/** For each action of a thread, the thread types with an action that
+	 * depends on it.
+	 */
+	protected final Map<Action, Set<ProgramThread>> dependentThreads = HashMapFactory.make();
+
+	/** The actions of a thread that depend on an action of a method body
+	 * or on a global action.
+	 */
+	protected final Set<Action> dependentOnShared = HashSetFactory.make();
+
+	/** Set when threads may be created or started, so a thread of any type
+	 * may apply actions later.
+	 */
+	protected boolean createsThreads = false;
+
+	/** Set when a global action changes the structures, in which case no
+	 * ample sets are used.
+	 */
+	protected boolean disabled = false;
+
+	/** The number of structures expanded with an ample set. */
+	public final AtomicInteger reducedStructures = new AtomicInteger();
+
+	/** The number of structures expanded with all the enabled actions. */
+	public final AtomicInteger expandedStructures = new AtomicInteger();
+
+	/** Computes the dependence between the actions of the program.
+	 * @param threads - the thread definitions of the program
+	 * @param methods - the method definitions of the program
+	 * @param globalActions - the actions that are applied in every step
+	 */
+	public PartialOrderReduction(Collection<ProgramThread> threads, Collection<ProgramMethodBody> methods,
+			List<Action> globalActions) {
+		Map<Action, Footprint> footprints = HashMapFactory.make();
+		List<Action> sharedActions = new ArrayList<Action>(globalActions);
+		for (ProgramMethodBody method : methods) {
+			for (Location location : method.getActions().values()) {
+				sharedActions.addAll(location.getActions());
+			}
+		}
+		for (ProgramThread thread : threads) {
+			List<Action> actions = new ArrayList<Action>();
+			for (Location location : thread.getThreadActions().values()) {
+				locationThread.put(location, thread);
+				actions.addAll(location.getActions());
+			}
+			threadActions.put(thread, actions);
+			excludeBackEdges(thread);
+		}
+		for (Map.Entry<ProgramThread, List<Action>> entry : threadActions.entrySet()) {
+			for (Action action : entry.getValue()) {
+				footprints.put(action, footprint(action));
+			}
+		}
+		for (Action action : sharedActions) {
+			footprints.put(action, footprint(action));
+		}
+		for (Action action : globalActions) {
+			Footprint footprint = footprints.get(action);
+			disabled |= footprint.global || !footprint.writes.isEmpty();
+		}
+		for (Footprint footprint : footprints.values()) {
+			createsThreads |= footprint.createsThreads;
+		}
+
+		for (Map.Entry<ProgramThread, List<Action>> entry : threadActions.entrySet()) {
+			for (Action action : entry.getValue()) {
+				Footprint footprint = footprints.get(action);
+				if (footprint.global || !action.performUnschedule())
+					excluded.add(action);
+				Set<ProgramThread> dependent = HashSetFactory.make();
+				for (Map.Entry<ProgramThread, List<Action>> other : threadActions.entrySet()) {
+					for (Action otherAction : other.getValue()) {
+						if (dependent(footprint, footprints.get(otherAction))) {
+							dependent.add(other.getKey());
+							break;
+						}
+					}
+				}
+				dependentThreads.put(action, dependent);
+				for (Action otherAction : sharedActions) {
+					if (dependent(footprint, footprints.get(otherAction))) {
+						dependentOnShared.add(action);
+						break;
+					}
+				}
+			}
+		}
+	}
+
+	/** Reorders the enabled actions of a structure so that the actions of an
+	 * ample set come first, followed by the other actions.
+	 * @param structure - the structure to expand
+	 * @param enabledActions - the enabled actions of the structure, which
+	 * start with the global actions
+	 * @param numberOfGlobalActions - the number of global actions
+	 * @return the number of actions in the ample set, which is the number
+	 * of enabled actions when no ample set was found.
+	 */
+	public int ampleSet(TVS structure, List<Action> enabledActions, int numberOfGlobalActions) {
+		if (!disabled) {
+			for (Iterator<Node> i = TVMCMacros.allThreadNodes(structure); i.hasNext();) {
+				Node n = i.next();
+				if (structure.eval(Vocabulary.ready, n) != Kleene.trueKleene)
+					continue;
+				for (LocationPredicate lp : Vocabulary.allLocationPredicates()) {
+					if (structure.eval(lp, n) == Kleene.trueKleene) {
+						List<Action> actions = lp.getLocation().getActions();
+						if (!actions.isEmpty() && locationThread.containsKey(lp.getLocation())
+								&& isAmple(structure, n, actions)) {
+							List<Action> others = new ArrayList<Action>(enabledActions.subList(numberOfGlobalActions,
+									enabledActions.size()));
+							others.removeAll(actions);
+							enabledActions.subList(numberOfGlobalActions, enabledActions.size()).clear();
+							enabledActions.addAll(actions);
+							int size = enabledActions.size();
+							enabledActions.addAll(others);
+							reducedStructures.incrementAndGet();
+							return size;
+						}
+						break;
+					}
+				}
+			}
+		}
+		expandedStructures.incrementAndGet();
+		return enabledActions.size();
+	}
+
+	/** Returns true if the actions of the specified thread node are an ample
+	 * set: none of them is excluded, and none depends on an action that
+	 * another thread may apply.
+	 */
+	protected boolean isAmple(TVS structure, Node thread, List<Action> actions) {
+		for (Action action : actions) {
+			if (excluded.contains(action) || dependentOnShared.contains(action))
+				return false;
+		}
+
+		// Find the types of the other threads, including the threads
+		// represented by the node of this thread when it is a summary node.
+		Set<ProgramThread> otherThreads = HashSetFactory.make();
+		if (createsThreads) {
+			otherThreads.addAll(threadActions.keySet());
+		} else {
+			for (Iterator<Node> i = TVMCMacros.allThreadNodes(structure); i.hasNext();) {
+				Node n = i.next();
+				if (n == thread && structure.eval(Vocabulary.sm, n) == Kleene.falseKleene)
+					continue;
+				for (LocationPredicate lp : Vocabulary.allLocationPredicates()) {
+					if (structure.eval(lp, n) != Kleene.falseKleene) {
+						ProgramThread type = locationThread.get(lp.getLocation());
+						if (type == null)
+							return false;
+						otherThreads.add(type);
+					}
+				}
+			}
+		}
+
+		for (Action action : actions) {
+			for (ProgramThread type : dependentThreads.get(action)) {
+				if (otherThreads.contains(type))
+					return false;
+			}
+		}
+		return true;
+	}
+
+	/** Prints the number of structures expanded with ample sets.
+	 */
+	public void printStatistics() {
+		int reduced = reducedStructures.get();
+		Logger.println("Partial-order reduction: " + reduced + " of " + (reduced + expandedStructures.get())
+				+ " structures expanded with an ample set");
+	}
+
+	/** Returns true if two actions may not commute: one writes a predicate
+	 * that the other reads or writes, or one changes the universe.
+	 */
+	protected static boolean dependent(Footprint first, Footprint second) {
+		if (first.global || second.global)
+			return true;
+		for (Predicate predicate : first.writes) {
+			if (second.reads.contains(predicate))
+				return true;
+			if (second.writes.contains(predicate) && !(predicate instanceof LocationPredicate))
+				return true;
+		}
+		for (Predicate predicate : second.writes) {
+			if (first.reads.contains(predicate))
+				return true;
+		}
+		return false;
+	}
+
+	/** Computes the predicates that an action reads and writes.
+	 */
+	protected static Footprint footprint(Action action) {
+		Footprint footprint = new Footprint();
+		addReads(footprint, action.getPrecondition());
+		for (Formula formula : action.getFocusFormulae()) {
+			addReads(footprint, formula);
+		}
+		for (Action.ReportMessage message : action.getMessages()) {
+			addReads(footprint, message.getFormula());
+		}
+		for (Action.ReportMessage message : action.getPostMessages()) {
+			addReads(footprint, message.getFormula());
+		}
+		if (action.isHalting())
+			addReads(footprint, action.haltCondition());
+		for (PredicateUpdateFormula let : action.getLetFormulae().values()) {
+			addReads(footprint, let.getFormula());
+		}
+		for (Map.Entry<Predicate, PredicateUpdateFormula> entry : action.getUpdateFormulae().entrySet()) {
+			Predicate predicate = entry.getKey();
+			footprint.writes.add(predicate);
+			// The updates of the location predicates and of runnable are
+			// created by the engine, and read the updated predicate only
+			// for the thread that applies the action.
+			if (!(predicate instanceof LocationPredicate) && predicate != Vocabulary.runnable)
+				addReads(footprint, entry.getValue().getFormula());
+		}
+		footprint.reads.removeAll(action.getLetFormulae().keySet());
+		footprint.reads.remove(Vocabulary.runnable);
+		footprint.writes.remove(Vocabulary.runnable);
+
+		footprint.createsThreads = action.getThreadType() != null || action.getStartFormula() != null
+				|| footprint.writes.contains(Vocabulary.isThread) || footprint.writes.contains(Vocabulary.ready);
+		footprint.global = footprint.createsThreads || action.getNewFormula() != null
+				|| action.getCloneFormula() != null || action.getRetainFormula() != null
+				|| action.getStopFormula() != null;
+		return footprint;
+	}
+
+	private static void addReads(Footprint footprint, Formula formula) {
+		if (formula != null)
+			footprint.reads.addAll(GetFormulaPredicates.get(formula));
+	}
+
+	/** Excludes the actions on the back edges of the control-flow graph of a
+	 * thread from ample sets. Every cycle of the graph has a back edge.
+	 */
+	private void excludeBackEdges(ProgramThread thread) {
+		Map<String, Location> locations = thread.getThreadActions();
+		Set<Location> visited = HashSetFactory.make();
+		Set<Location> onStack = HashSetFactory.make();
+		for (Location location : locations.values()) {
+			excludeBackEdges(location, locations, visited, onStack);
+		}
+	}
+
+	private void excludeBackEdges(Location location, Map<String, Location> locations, Set<Location> visited,
+			Set<Location> onStack) {
+		if (!visited.add(location))
+			return;
+		onStack.add(location);
+		for (int i = 0; i < location.getActions().size(); i++) {
+			Location target = locations.get(location.getTarget(i));
+			if (target == null || onStack.contains(target))
+				excluded.add(location.getAction(i));
+			else
+				excludeBackEdges(target, locations, visited, onStack);
+		}
+		onStack.remove(location);
+	}
+}
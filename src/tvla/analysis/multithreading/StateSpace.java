@@ -1,5 +1,10 @@
 package tvla.analysis.multithreading;
 
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import tvla.core.HighLevelTVS;
 import tvla.transitionSystem.Action;
 import tvla.transitionSystem.Location;
 
@@ -7,6 +12,17 @@ import tvla.transitionSystem.Location;
  * @author Eran Yahav
  */
 public class StateSpace extends Location implements Comparable<Location> {
+	/** computes the canonical forms of the structures, or null if neither
+	 * the thread-symmetry reduction nor bitstate hashing is turned on */
+	protected ThreadSymmetry symmetry = null;
+
+	/** the canonical forms of the structures joined into the statespace */
+	protected Set<ThreadSymmetry.Form> forms;
+
+	/** stores the explored structures under bitstate hashing, or null if it
+	 * is turned off */
+	protected BitstateHashing bitstate = null;
+
    /**
     * create a new statespace
     * @param label statespace label  
@@ -26,4 +42,67 @@ public class StateSpace extends Location implements Comparable<Location> {
 		super.addAction(action, target);
 		action.setLocation(this);
 	}
+
+	/**
+	 * turns on the thread-symmetry reduction of the structures joined into
+	 * the statespace
+	 * @param symmetry - computes the canonical forms of the structures
+	 */
+	public void setSymmetry(ThreadSymmetry symmetry) {
+		this.symmetry = symmetry;
+		this.forms = Collections.newSetFromMap(new ConcurrentHashMap<ThreadSymmetry.Form, Boolean>());
+	}
+
+	/**
+	 * turns on bitstate hashing: the structures joined into the statespace
+	 * are recorded in a bit array by their canonical forms, and are not
+	 * stored
+	 * @param symmetry - computes the canonical forms of the structures
+	 * @param bitstate - the bit array
+	 */
+	public void setBitstate(ThreadSymmetry symmetry, BitstateHashing bitstate) {
+		this.symmetry = symmetry;
+		this.forms = null;
+		this.bitstate = bitstate;
+	}
+
+	/**
+	 * returns true if the statespace computes the canonical forms of the
+	 * structures joined into it, for which they are blurred
+	 */
+	public boolean computesForms() {
+		return symmetry != null;
+	}
+
+	/**
+	 * returns true if the structures joined into the statespace are stored,
+	 * which they are not under bitstate hashing
+	 */
+	public boolean storesStructures() {
+		return bitstate == null;
+	}
+
+	/**
+	 * joins a structure into the statespace. With thread-symmetry reduction,
+	 * a structure whose canonical form was already joined is a visited state,
+	 * and is not joined again. With bitstate hashing, the structure is
+	 * recorded in the bit array instead of being joined.
+	 * @param structure - structure to be joined
+	 * @return the change to the statespace, or null if there is none
+	 */
+	public HighLevelTVS join(HighLevelTVS structure) {
+		if (symmetry != null) {
+			// The engine that joins the structure blurs it beforehand, and
+			// times the blur on its own status (see MultithreadEngine).
+			structure.blur();
+			ThreadSymmetry.Form form = symmetry.canonicalForm(structure);
+			if (bitstate != null)
+				return bitstate.add(form) ? structure : null;
+			if (!forms.add(form)) {
+				symmetry.collapsedStructures.incrementAndGet();
+				return null;
+			}
+		}
+		return super.join(structure);
+	}
 }
\ No newline at end of file
@@ -0,0 +1,242 @@
+package tvla.analysis.multithreading;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import tvla.core.Canonic;
+import tvla.core.Node;
+import tvla.core.NodeTuple;
+import tvla.core.StoresCanonicMaps;
+import tvla.core.TVS;
+import tvla.core.generic.GenericBlur;
+import tvla.logic.Kleene;
+import tvla.predicates.DynamicVocabulary;
+import tvla.predicates.LocationPredicate;
+import tvla.predicates.Predicate;
+import tvla.predicates.Vocabulary;
+import tvla.transitionSystem.Location;
+import tvla.util.HashMapFactory;
+import tvla.util.Logger;
+
+/** Thread-symmetry reduction of the state space explored by the
+ * MultithreadEngine.
+ * The thread nodes of the same thread type are interchangeable, so
+ * structures that differ only by a permutation of such nodes are the same
+ * state. A blurred structure is brought to a canonical form by sorting its
+ * thread nodes by their thread type, which is found from their location
+ * predicates, and then by their canonic names, followed by the other nodes
+ * sorted by their canonic names, and listing the values of the predicates
+ * in this order. Since blur leaves no two nodes with the same canonic
+ * name, equal forms are only computed for isomorphic structures, and a
+ * structure whose form was already seen is collapsed onto the visited
+ * state without joining it into the state space.
+ * The forms also identify the structures under bitstate hashing and in the
+ * nested depth-first search of the MultithreadEngineBuchi.
+ * @see StateSpace#join
+ */
+public class ThreadSymmetry {
+	/** The canonical form of a structure. */
+	public static final class Form {
+		private final long[] values;
+		private final int hashCode;
+
+		private Form(long[] values) {
+			this.values = values;
+			this.hashCode = Arrays.hashCode(values);
+		}
+
+		public int hashCode() {
+			return hashCode;
+		}
+
+		public boolean equals(Object o) {
+			if (this == o)
+				return true;
+			if (!(o instanceof Form))
+				return false;
+			Form other = (Form) o;
+			return hashCode == other.hashCode && Arrays.equals(values, other.values);
+		}
+
+		/** Returns a 64-bit hash of the form. Hashes with different seeds
+		 * are independent (see BitstateHashing).
+		 */
+		public long hash(long seed) {
+			long h = seed ^ values.length;
+			for (long value : values) {
+				h = (h ^ value) * 0x9E3779B97F4A7C15L;
+				h ^= h >>> 29;
+			}
+			// The finalizer of MurmurHash3.
+			h ^= h >>> 33;
+			h *= 0xFF51AFD7ED558CCDL;
+			h ^= h >>> 33;
+			h *= 0xC4CEB9FE1A85EC53L;
+			h ^= h >>> 33;
+			return h;
+		}
+	}
+
+	private static final Comparator<Predicate> byId = new Comparator<Predicate>() {
+		public int compare(Predicate first, Predicate second) {
+			return first.id() - second.id();
+		}
+	};
+
+	/** The index of the thread type of each thread location. Locations of
+	 * method bodies may be reached by threads of any type, and are not in
+	 * the map.
+	 */
+	protected final Map<Location, Integer> locationThread = HashMapFactory.make();
+
+	/** The predicates of each vocabulary, sorted by their ids. */
+	protected final Map<DynamicVocabulary, Predicate[]> sortedPredicates = new ConcurrentHashMap<DynamicVocabulary, Predicate[]>();
+
+	/** The number of structures collapsed onto visited states. */
+	public final AtomicInteger collapsedStructures = new AtomicInteger();
+
+	/** @param threads - the thread definitions of the program
+	 */
+	public ThreadSymmetry(Collection<ProgramThread> threads) {
+		int type = 0;
+		for (ProgramThread thread : threads) {
+			for (Location location : thread.getThreadActions().values()) {
+				locationThread.put(location, type);
+			}
+			++type;
+		}
+	}
+
+	/** Returns the canonical form of a blurred structure. The canonic names
+	 * of structures that do not store them are computed.
+	 */
+	public Form canonicalForm(TVS structure) {
+		Map<Node, Canonic> stored = null;
+		if (structure instanceof StoresCanonicMaps)
+			stored = ((StoresCanonicMaps) structure).getCanonic();
+		if (stored == null) {
+			stored = HashMapFactory.make(structure.nodes().size());
+			GenericBlur.getInstance().makeCanonicMapForBlurred(structure, stored);
+		}
+		final Map<Node, Canonic> canonic = stored;
+		Comparator<Node> byCanonic = new Comparator<Node>() {
+			public int compare(Node first, Node second) {
+				return canonic.get(first).compareTo(canonic.get(second));
+			}
+		};
+
+		// Sort the thread nodes of each type, and then the other nodes.
+		Map<Integer, List<Node>> threadsByType = HashMapFactory.make();
+		Map<Node, Integer> index = HashMapFactory.make(structure.nodes().size());
+		for (Iterator<Node> i = TVMCMacros.allThreadNodes(structure); i.hasNext();) {
+			Node n = i.next();
+			Integer type = threadType(structure, n);
+			List<Node> nodes = threadsByType.get(type);
+			if (nodes == null) {
+				nodes = new ArrayList<Node>();
+				threadsByType.put(type, nodes);
+			}
+			nodes.add(n);
+			index.put(n, -1);
+		}
+		List<Integer> types = new ArrayList<Integer>(threadsByType.keySet());
+		Collections.sort(types);
+		List<Node> order = new ArrayList<Node>(structure.nodes().size());
+		for (Integer type : types) {
+			List<Node> nodes = threadsByType.get(type);
+			Collections.sort(nodes, byCanonic);
+			order.addAll(nodes);
+		}
+		List<Node> others = new ArrayList<Node>();
+		for (Node n : structure.nodes()) {
+			if (!index.containsKey(n))
+				others.add(n);
+		}
+		Collections.sort(others, byCanonic);
+		order.addAll(others);
+
+		for (int i = 0; i < order.size(); ++i) {
+			index.put(order.get(i), i);
+		}
+
+		// The canonic names are determined by the values of the unary
+		// predicates, which are part of the form.
+		long[] values = new long[16];
+		int size = 0;
+		values[size++] = order.size();
+
+		long base = Math.max(order.size(), 1);
+		long[] tuples = new long[16];
+		for (Predicate predicate : predicates(structure.getVocabulary())) {
+			if (predicate.arity() == 0) {
+				values = ensure(values, size + 2);
+				values[size++] = predicate.id();
+				values[size++] = structure.eval(predicate).kleene();
+				continue;
+			}
+			int numberOfTuples = 0;
+			for (Iterator<Map.Entry<NodeTuple, Kleene>> i = structure.predicateSatisfyingNodeTuples(predicate, null,
+					null); i.hasNext();) {
+				Map.Entry<NodeTuple, Kleene> entry = i.next();
+				NodeTuple tuple = entry.getKey();
+				long value = 0;
+				for (int j = 0; j < tuple.size(); ++j) {
+					value = value * base + index.get(tuple.get(j));
+				}
+				tuples = ensure(tuples, numberOfTuples + 1);
+				tuples[numberOfTuples++] = value * 4 + entry.getValue().kleene();
+			}
+			Arrays.sort(tuples, 0, numberOfTuples);
+			values = ensure(values, size + 2 + numberOfTuples);
+			values[size++] = predicate.id();
+			values[size++] = numberOfTuples;
+			System.arraycopy(tuples, 0, values, size, numberOfTuples);
+			size += numberOfTuples;
+		}
+		return new Form(Arrays.copyOf(values, size));
+	}
+
+	/** Prints the number of structures collapsed onto visited states.
+	 */
+	public void printStatistics() {
+		Logger.println("Thread symmetry: " + collapsedStructures.get()
+				+ " structures collapsed onto visited states");
+	}
+
+	/** Returns the index of the thread type of a thread node, or -1 if its
+	 * location does not belong to a single thread type.
+	 */
+	protected int threadType(TVS structure, Node thread) {
+		for (LocationPredicate lp : Vocabulary.allLocationPredicates()) {
+			if (structure.eval(lp, thread) == Kleene.trueKleene) {
+				Integer type = locationThread.get(lp.getLocation());
+				return type != null ? type : -1;
+			}
+		}
+		return -1;
+	}
+
+	private Predicate[] predicates(DynamicVocabulary vocabulary) {
+		Predicate[] result = sortedPredicates.get(vocabulary);
+		if (result == null) {
+			result = vocabulary.all().toArray(new Predicate[vocabulary.all().size()]);
+			Arrays.sort(result, byId);
+			sortedPredicates.put(vocabulary, result);
+		}
+		return result;
+	}
+
+	private static long[] ensure(long[] array, int length) {
+		if (array.length >= length)
+			return array;
+		return Arrays.copyOf(array, Math.max(length, array.length * 2));
+	}
+}
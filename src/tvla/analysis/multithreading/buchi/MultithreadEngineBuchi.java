@@ -12,14 +12,16 @@ import tvla.analysis.AnalysisStatus;
 import tvla.analysis.multithreading.MultithreadEngine;
 import tvla.analysis.multithreading.StateSpace;
 import tvla.analysis.multithreading.TVMCMacros;
+import tvla.analysis.multithreading.ThreadSymmetry;
 import tvla.core.HighLevelTVS;
 import tvla.core.Node;
 import tvla.core.TVS;
 import tvla.core.TVSFactory;
-import tvla.core.TVSSet;
 import tvla.core.assignments.Assign;
 import tvla.core.generic.GenericFocus;
+import tvla.core.generic.GenericHashPartialJoinTVSSet;
 import tvla.exceptions.AnalysisHaltException;
+import tvla.exceptions.UserErrorException;
 import tvla.io.IOFacade;
 import tvla.logic.Kleene;
 import tvla.predicates.LocationPredicate;
@@ -49,6 +51,56 @@ public class MultithreadEngineBuchi extends MultithreadEngine {
 	 * stack used in state-space explocation
 	 */
 	protected Stack searchStack;
+	/**
+	 * computes the canonical forms that identify the search states
+	 */
+	protected ThreadSymmetry forms;
+	/**
+	 * the search states of the structures on the stack of the outer search
+	 * and of the structures visited by the inner searches, by their keys
+	 */
+	protected Map<Object, SearchState> searchStates;
+	/**
+	 * set when the state space joins the structures with the same canonical
+	 * names (part join), so that the key of a structure is its set of
+	 * canonical names, and its search state stands for the member of the
+	 * state space it is joined into
+	 */
+	protected boolean partialJoin;
+	/** the number of inner searches, for statistics */
+	protected int innerSearches = 0;
+	/** the number of structures visited by the inner searches, for statistics */
+	protected int innerStructures = 0;
+
+	/**
+	 * The flags of a structure in the nested depth-first search. All the
+	 * structures that the state space represents by the same member share a
+	 * search state, so checking whether a structure is on the stack of the
+	 * outer search, or was visited by an inner search, is a hash lookup.
+	 * The key of the search state is the canonical form of the structures
+	 * under the relational join, and their set of canonical names under the
+	 * part join.
+	 */
+	public static class SearchState {
+		/** the key of the structures */
+		public final Object key;
+		/** the number of times the structure is on the stack of the outer
+		 * search. Under the part join, each change of the member is pushed
+		 * on the stack. */
+		public int onStack;
+		/** set when the structure was visited by an inner search */
+		public boolean innerVisited;
+		/** the structure visited by an inner search. Under the part join,
+		 * this is the last change of the member joined by the outer search. */
+		public HighLevelTVS structure;
+		/** the state from which an inner search reached the structure, or
+		 * null for the accepting structure it started from */
+		public SearchState innerPredecessor;
+
+		public SearchState(Object key) {
+			this.key = key;
+		}
+	}
 
 	/**
 	 * A colored structure records the exploration status of a structure.
@@ -61,6 +113,8 @@ public class MultithreadEngineBuchi extends MultithreadEngine {
 		public HighLevelTVS structure;
 		public boolean marked;
 		public boolean accepting;
+		/** the search state of the structure if it was expanded, or null */
+		public SearchState state;
 
 		public ColoredStructure(
 			HighLevelTVS s,
@@ -92,7 +146,7 @@ public class MultithreadEngineBuchi extends MultithreadEngine {
 			if (structure.eval(Vocabulary.ready, n) == Kleene.trueKleene) {
 				// n is a ready thread, add its actions
 				// iterate over location predicates	   
-				for (Iterator li = Vocabulary.locationPredicates.iterator();
+				for (Iterator li = Vocabulary.allLocationPredicates().iterator();
 					li.hasNext();
 					) {
 					LocationPredicate lp = (LocationPredicate) li.next();
@@ -130,6 +184,18 @@ public class MultithreadEngineBuchi extends MultithreadEngine {
 		property = ba;
 	}
 
+	/** Initializes the actions of the program and of the property.
+	 */
+	public void init() {
+		super.init();
+		for (Iterator np = property.allStatePredicates(); np.hasNext();) {
+			Predicate statePredicate = (Predicate) np.next();
+			for (Iterator bt = property.transitions(statePredicate).iterator(); bt.hasNext();) {
+				((BuchiTransition) bt.next()).action().init();
+			}
+		}
+	}
+
 	/** is the given abstract state (TVS) accepting? 
 	 * @param s - a given state
 	 * @return true if the given state is accepting  
@@ -146,24 +212,52 @@ public class MultithreadEngineBuchi extends MultithreadEngine {
 		return false;
 	}
 
-	/** does the given structure (s) already exist on the search stack? 
-	 * @param stack - serach stack 
+	/** returns the search state of a structure, which is created if there
+	 * is none. The structure is blurred.
 	 * @param s - given structure
-	 * @return true if given structure already exists on the stack, false otherwise
+	 * @return the search state of the structures the state space represents
+	 * by the same member as the given one
 	 * */
-	public boolean structureContained(Stack stack, HighLevelTVS s) {
-		TVSSet set = TVSFactory.getInstance().makeEmptySet();
-		set.mergeWith(s);
+	public SearchState searchState(HighLevelTVS s) {
+		if (blurAllowed) {
+			status.startTimer(AnalysisStatus.BLUR_TIME);
+			s.blur();
+			status.stopTimer(AnalysisStatus.BLUR_TIME);
+		}
+		Object key;
+		if (partialJoin)
+			key = GenericHashPartialJoinTVSSet.getCanonicSetForBlurred(s);
+		else
+			key = forms.canonicalForm(s);
+		SearchState state = searchStates.get(key);
+		if (state == null) {
+			state = new SearchState(key);
+			searchStates.put(key, state);
+		}
+		return state;
+	}
 
-		for (Iterator i = stack.iterator(); i.hasNext();) {
-			ColoredStructure cs = (ColoredStructure) i.next();
-			HighLevelTVS delta = set.mergeWith(cs.structure);
-			if (delta == s) {
-				return true;
-			}
+	/** returns the structure explored by the inner search for a structure.
+	 * Under the part join, this is the member of the state space the
+	 * structure is joined into, which may include more structures.
+	 * @param state - search state of the structure
+	 * @param s - the structure
+	 */
+	protected HighLevelTVS representative(SearchState state, HighLevelTVS s) {
+		if (partialJoin && state.structure != null)
+			return state.structure;
+		return s;
+	}
 
-		}
-		return false;
+	/** removes a structure from the stack of the outer search. Its search
+	 * state is only kept if an inner search visited it, or if it stands for
+	 * a member of the state space under the part join.
+	 * @param state - search state of the structure
+	 */
+	protected void leaveStack(SearchState state) {
+		--state.onStack;
+		if (state.onStack == 0 && !state.innerVisited && !partialJoin)
+			searchStates.remove(state.key);
 	}
 
 	/** debug: output the stack 
@@ -381,8 +475,19 @@ public class MultithreadEngineBuchi extends MultithreadEngine {
 		boolean cycleDetected = false;
 		/** the search stack is a stack of configurations (colored-structures) */
 		searchStack = new Stack();
-		StateSpace stateSpace = new StateSpace("State_Space", true);
+		int joinMethod = TVSFactory.getJoinMethod();
+		if (joinMethod != TVSFactory.JOIN_RELATIONAL && joinMethod != TVSFactory.JOIN_CANONIC)
+			throw new UserErrorException("The double-DFS engine supports only the rel and part joins");
+		stateSpace = new StateSpace("State_Space", true);
 		init();
+		initStateSpace();
+		// Under bitstate hashing no member is stored, and structures are
+		// identified by their canonical forms.
+		partialJoin = joinMethod == TVSFactory.JOIN_CANONIC && stateSpace.storesStructures();
+		forms = createThreadSymmetry();
+		searchStates = HashMapFactory.make();
+		innerSearches = 0;
+		innerStructures = 0;
 
 		if (XDEBUG) {
 			System.err.println("evaluate " + initial + ", " + property);
@@ -408,21 +513,26 @@ public class MultithreadEngineBuchi extends MultithreadEngine {
 				ColoredStructure cs = (ColoredStructure) searchStack.peek();
 				HighLevelTVS structure = cs.structure;
 				if (cs.marked) {
-					if (cs.accepting) {
-						if (detectCycle(searchStack, structure)) {
+					// The structures reachable from an expanded structure
+					// were explored, so the inner search may start from it.
+					if (cs.state != null) {
+						if (cs.accepting && detectCycle(structure)) {
 							cycleDetected = true;
 							break OUTER;
 						}
+						leaveStack(cs.state);
 					}
 					searchStack.pop();
+					continue;
 				}
 				if (XDEBUG) {
 					Logger.println("Structure popped" + searchStack.size());
 				}
 
 				// if structure is not a member of the statespace
+				blurForStateSpace(structure);
 				status.startTimer(AnalysisStatus.JOIN_TIME);
-				structure = stateSpace.join(structure);
+				structure = join(stateSpace, structure, stateSpace.label(), null);
 				boolean delta = (structure != null);
 				status.stopTimer(AnalysisStatus.JOIN_TIME);
 				if (XDEBUG) {
@@ -431,6 +541,13 @@ public class MultithreadEngineBuchi extends MultithreadEngine {
 
 				if (delta) {
 					// add structure to the statespace
+					cs.structure = structure;
+					cs.state = searchState(structure);
+					++cs.state.onStack;
+					// Under the part join the member may have changed, so
+					// the successors of the state are explored again.
+					cs.state.structure = structure;
+					cs.state.innerVisited = false;
 					status.numberOfStructures++;
 					updateStatus();
 					if (status.shouldFinishAnalysis()) {
@@ -450,6 +567,10 @@ public class MultithreadEngineBuchi extends MultithreadEngine {
 						Action action = (Action) enabledActions.get(actionIt);
 						String label = action.location().label();
 
+						// update Rumster's fields
+						currentLocation = action.location();
+						currentAction = action;
+
 						Map messages = HashMapFactory.make(0);
 						// for each possibly enabled Buchi action
 						for (Iterator eba = enabledBuchiActions.iterator();
@@ -507,6 +628,14 @@ public class MultithreadEngineBuchi extends MultithreadEngine {
 				} // end if delta exists
 				cs.marked = true;
 			} // end while
+			if (cycleDetected) {
+				// Leave the path from an initial structure to the accepting
+				// structure on the search stack.
+				for (Iterator i = searchStack.iterator(); i.hasNext();) {
+					if (((ColoredStructure) i.next()).state == null)
+						i.remove();
+				}
+			}
 			if (!AnalysisStatus.terse && cycleDetected) {
 				System.err.println("Cycle was found");
 				cycleDepth = searchStack.size();
@@ -543,66 +672,88 @@ public class MultithreadEngineBuchi extends MultithreadEngine {
 
 		printStatistics();
 		statistics.doStatistics();
+		if (telemetry != null)
+			telemetry.export();
 	}
 	/***
 	 * detectCycle
-	 * @param aSearchStack - a given search stack
+	 * The inner search of the nested depth-first search, which starts from
+	 * an accepting structure once all the structures reachable from it were
+	 * explored. A cycle through the accepting structure exists if the inner
+	 * search reaches a structure on the stack of the outer search, since
+	 * these structures reach the accepting one. The inner search explores
+	 * the members of the state space the structures are joined into, and
+	 * finds a structure on the stack by its member, as the outer search.
+	 * Structures visited by earlier inner searches are not visited again:
+	 * they reach no structure on the stack. Both checks look up the search
+	 * state of a structure, so each edge costs a hash lookup, and every
+	 * structure is visited by at most one inner search.
+	 * When a cycle is found, the cycle stack holds the path of the inner
+	 * search from the accepting structure to a structure on the stack.
 	 * @param origin - structure from which cycle-detection begins
 	 * @return true if a cycle is found, false otherwise
 	 */
-	public boolean detectCycle(Stack aSearchStack, TVS origin) {
+	public boolean detectCycle(HighLevelTVS origin) {
 		cycleStack = new Stack();
-		StateSpace cycleSpace = new StateSpace("cycleSpace", false);
-
-		// init - push origin
-		cycleStack.push(origin);
+		SearchState originState = searchState(origin);
+		if (originState.innerVisited)
+			return false;
+		++innerSearches;
+		visit(originState, representative(originState, origin), null);
+
+		Stack pending = new Stack();
+		pending.push(originState);
 		try {
-			while (!cycleStack.isEmpty()) {
-				HighLevelTVS structure = (HighLevelTVS) cycleStack.pop();
-				structure = cycleSpace.join(structure);
-				boolean delta = (structure != null);
-				if (delta) {
-					// find set of enabled actions
-					List enabledActions = getEnabledActions(structure);
-					List enabledBuchiActions =
-						getEnabledBuchiActions(structure);
-
-					// for each enabled action
-					for (int actionIt = 0;
-						actionIt < enabledActions.size();
-						actionIt++) {
-						Action action = (Action) enabledActions.get(actionIt);
-						String label = action.location().label();
-						Map messages = HashMapFactory.make(0);
-						// for each possibly enabled Buchi action
-						for (Iterator eba = enabledBuchiActions.iterator();
-							eba.hasNext();
+			while (!pending.isEmpty()) {
+				SearchState state = (SearchState) pending.pop();
+				HighLevelTVS structure = state.structure;
+				// find set of enabled actions
+				List enabledActions = getEnabledActions(structure);
+				List enabledBuchiActions =
+					getEnabledBuchiActions(structure);
+
+				// for each enabled action
+				for (int actionIt = 0;
+					actionIt < enabledActions.size();
+					actionIt++) {
+					Action action = (Action) enabledActions.get(actionIt);
+					String label = action.location().label();
+					currentLocation = action.location();
+					currentAction = action;
+					Map messages = HashMapFactory.make(0);
+					// for each possibly enabled Buchi action
+					for (Iterator eba = enabledBuchiActions.iterator();
+						eba.hasNext();
+						) {
+						BuchiTransition bt = (BuchiTransition) eba.next();
+						Action buchiAction = bt.action();
+						Collection results =
+							apply(
+								action,
+								buchiAction,
+								structure,
+								label,
+								messages);
+						for (Iterator resultIt = results.iterator();
+							resultIt.hasNext();
 							) {
-							BuchiTransition bt = (BuchiTransition) eba.next();
-							Action buchiAction = bt.action();
-							Collection results =
-								apply(
-									action,
-									buchiAction,
-									structure,
-									label,
-									messages);
-							cycleSpace.addMessages(messages);
-							for (Iterator resultIt = results.iterator();
-								resultIt.hasNext();
-								) {
-								HighLevelTVS result =
-									(HighLevelTVS) resultIt.next();
-								// check if the search-stack already contains it
-								if (structureContained(aSearchStack, result)) {
-									return true;
-								} else {
-									cycleStack.push(result);
+							HighLevelTVS result =
+								(HighLevelTVS) resultIt.next();
+							SearchState resultState = searchState(result);
+							// check if the search-stack already contains it
+							if (resultState.onStack > 0) {
+								for (SearchState s = state; s != null; s = s.innerPredecessor) {
+									cycleStack.add(0, s.structure);
 								}
-							} // end for results
-						} // end for each buci action
-					} // end for actions
-				} // end if delta exists
+								cycleStack.push(representative(resultState, result));
+								return true;
+							} else if (!resultState.innerVisited) {
+								visit(resultState, representative(resultState, result), state);
+								pending.push(resultState);
+							}
+						} // end for results
+					} // end for each buci action
+				} // end for actions
 			} // end while
 		} catch (AnalysisHaltException ahe) {
 			System.err.println(ahe.getMessage());
@@ -610,6 +761,26 @@ public class MultithreadEngineBuchi extends MultithreadEngine {
 		return false;
 	} // end method detectCycle
 
+	/** Records that an inner search visited a structure.
+	 * @param state - search state of the structure
+	 * @param structure - the structure
+	 * @param predecessor - the state from which the structure was reached
+	 */
+	private void visit(SearchState state, HighLevelTVS structure, SearchState predecessor) {
+		state.innerVisited = true;
+		state.structure = structure;
+		state.innerPredecessor = predecessor;
+		++innerStructures;
+	}
+
+	/** Prints the statistics of the analysis and of the inner searches.
+	 */
+	protected void printStatistics() {
+		super.printStatistics();
+		Logger.println("Nested search: " + innerSearches + " inner searches visited " + innerStructures
+				+ " structures");
+	}
+
 	/** Prints statistical information about the state space structures.
 	 * @author Eran Yahav.
 	 * @since 21.7.2001 Moved here from outside the evaluate method.
@@ -129,7 +129,7 @@ public class RefinementVariableStrategy extends RefinementStrategy {
 
     System.out.println("RefinementVariableStrategy starting...");
 
-    RelevantAnalysisGraph activeGraph = (RelevantAnalysisGraph) AnalysisGraph.activeGraph;
+    RelevantAnalysisGraph activeGraph = (RelevantAnalysisGraph) AnalysisGraph.getActiveGraph();
 
     Collection relevantNames = getRelevantNames(activeGraph);
 
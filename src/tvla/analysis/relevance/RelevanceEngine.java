@@ -102,17 +102,17 @@ public class RelevanceEngine extends IntraProcEngine {
 		boolean result = true;
 
 		RelevantAnalysisGraph activeGraph =
-			(RelevantAnalysisGraph) AnalysisGraph.activeGraph;
+			(RelevantAnalysisGraph) AnalysisGraph.getActiveGraph();
 		//		specialize graph, initialize it, and dump program CFG to output
 		activeGraph.specializeGraph(relevanceSet);
-		AnalysisGraph.activeGraph.init();
-		IOFacade.instance().printProgram(AnalysisGraph.activeGraph);
+		AnalysisGraph.getActiveGraph().init();
+		IOFacade.instance().printProgram(AnalysisGraph.getActiveGraph());
 
 		// do the actual analysis 
 		super.evaluate(initial);
 		
 		stepMessages.clear();
-		for (Iterator lit = AnalysisGraph.activeGraph.getLocations().iterator();
+		for (Iterator lit = AnalysisGraph.getActiveGraph().getLocations().iterator();
 			lit.hasNext();
 			) {
 			Location currLocation = (Location) lit.next();
@@ -121,7 +121,7 @@ public class RelevanceEngine extends IntraProcEngine {
 		}
 
 		// write results
-		AnalysisGraph.activeGraph.dump();
+		AnalysisGraph.getActiveGraph().dump();
 		// rever to old graph
 		activeGraph.revertGraph(relevanceSet);
 
@@ -169,7 +169,7 @@ public class RelevanceMultiStrategy extends RelevanceEvaluationStrategy {
 	protected List generateProductTuples(List quantifierOrder) {
 
 		RelevantAnalysisGraph activeGraph =
-			(RelevantAnalysisGraph) AnalysisGraph.activeGraph;
+			(RelevantAnalysisGraph) AnalysisGraph.getActiveGraph();
 
 		RelevanceTypeInformation rti =
 			RelevanceEnvironment.getInstance().getRelevanceTypeInformation();
@@ -220,7 +220,7 @@ public class RelevanceMultiStrategy extends RelevanceEvaluationStrategy {
 	 */
 	protected Collection getQuantifierRelevantLabels(String qTypeName) {
 		RelevantAnalysisGraph activeGraph =
-			(RelevantAnalysisGraph) AnalysisGraph.activeGraph;
+			(RelevantAnalysisGraph) AnalysisGraph.getActiveGraph();
 
 		RelevanceTypeInformation rti =
 			RelevanceEnvironment.getInstance().getRelevanceTypeInformation();
@@ -127,7 +127,7 @@ public class RelevanceOuterStrategy extends RelevanceEvaluationStrategy {
 	 */
 	protected Map getNameToLabelsFromProgram() {
 		RelevantAnalysisGraph activeGraph =
-			(RelevantAnalysisGraph) AnalysisGraph.activeGraph;
+			(RelevantAnalysisGraph) AnalysisGraph.getActiveGraph();
 		Collection relevantNames = getRelevantNames(activeGraph);
 		return getLabelsForName(activeGraph, relevantNames);
 	}
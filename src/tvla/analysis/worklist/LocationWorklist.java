@@ -0,0 +1,123 @@
+package tvla.analysis.worklist;
+
+import java.util.Collection;
+
+import tvla.exceptions.UserErrorException;
+import tvla.transitionSystem.AnalysisGraph;
+import tvla.transitionSystem.Location;
+import tvla.util.ProgramProperties;
+
+/** The set of locations of an analysis graph that have structures waiting
+ * to be processed, together with the policy that decides which of them is
+ * processed next.
+ * A location is added when structures are joined into it, and appears in
+ * the worklist at most once. The worklist also counts the locations and
+ * structures it hands out, so that policies can be compared.
+ *
+ * The policy is selected by the tvla.engine.worklist property:
+ * <ul>
+ * <li>order - the order of Location.compareTo, i.e., reverse post-order
+ * (or post-order when tvla.cfg.postOrder is set).
+ * <li>wto - a weak topological order with the recursive iteration
+ * strategy (Bourdoncle).
+ * <li>widening - loop heads first, then the order of Location.compareTo.
+ * <li>pending - the location with the fewest pending structures first.
+ * <li>lifo - the most recently added location first.
+ * <li>fifo - the least recently added location first.
+ * </ul>
+ */
+public abstract class LocationWorklist {
+	/** The number of locations extracted from the worklist.
+	 */
+	protected int iterations;
+
+	/** The number of pending structures of the extracted locations.
+	 */
+	protected int structures;
+
+	/** Creates the worklist selected by the tvla.engine.worklist property
+	 * for the given analysis graph.
+	 */
+	public static LocationWorklist create(AnalysisGraph graph) {
+		String policy = ProgramProperties.getProperty("tvla.engine.worklist", "order");
+		if (policy.equals("order"))
+			return new OrderedLocationWorklist(policy, OrderedLocationWorklist.locationOrder);
+		else if (policy.equals("wto"))
+			return new OrderedLocationWorklist(policy, new WeakTopologicalOrder(graph).comparator());
+		else if (policy.equals("widening"))
+			return new OrderedLocationWorklist(policy, OrderedLocationWorklist.loopHeadsFirst);
+		else if (policy.equals("pending"))
+			return new PendingLocationWorklist(policy);
+		else if (policy.equals("lifo"))
+			return new SequentialLocationWorklist(policy, true);
+		else if (policy.equals("fifo"))
+			return new SequentialLocationWorklist(policy, false);
+		else
+			throw new UserErrorException("Invalid value for the property tvla.engine.worklist: " + policy);
+	}
+
+	/** The name of the policy.
+	 */
+	private final String name;
+
+	protected LocationWorklist(String name) {
+		this.name = name;
+	}
+
+	public String name() {
+		return name;
+	}
+
+	/** Adds a location to the worklist, unless it is already there.
+	 */
+	public abstract void add(Location location);
+
+	/** Is the worklist empty?
+	 */
+	public abstract boolean isEmpty();
+
+	/** The number of locations in the worklist.
+	 */
+	public abstract int size();
+
+	/** Removes the location that should be processed next according to the
+	 * policy and returns it.
+	 */
+	public final Location extract() {
+		Location location = remove();
+		++iterations;
+		structures += location.numberOfUnprocessed();
+		return location;
+	}
+
+	/** Removes the next location from the worklist.
+	 */
+	protected abstract Location remove();
+
+	/** Returns the locations in the worklist, in an order that recreates
+	 * the worklist when they are added to an empty worklist of the same
+	 * policy (used by checkpoints).
+	 */
+	public abstract Collection<Location> locations();
+
+	/** Sets the counts of extracted locations and structures, when an
+	 * analysis is resumed.
+	 */
+	public void restoreCounts(int iterations, int structures) {
+		this.iterations = iterations;
+		this.structures = structures;
+	}
+
+	/** The number of locations extracted so far.
+	 */
+	public int iterations() {
+		return iterations;
+	}
+
+	/** The number of structures that were pending at the extracted locations
+	 * when they were extracted.
+	 */
+	public int structures() {
+		return structures;
+	}
+}
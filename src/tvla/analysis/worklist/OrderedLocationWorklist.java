@@ -0,0 +1,64 @@
+package tvla.analysis.worklist;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import tvla.transitionSystem.Location;
+
+/** A worklist that extracts the locations according to a fixed order.
+ */
+public class OrderedLocationWorklist extends LocationWorklist {
+	/** The order of Location.compareTo.
+	 */
+	public static final Comparator<Location> locationOrder = new Comparator<Location>() {
+		public int compare(Location first, Location second) {
+			return first.compareTo(second);
+		}
+	};
+
+	/** Locations with incoming back edges (the loop heads, where the
+	 * structures would be widened) before the other locations, each
+	 * in the order of Location.compareTo.
+	 */
+	public static final Comparator<Location> loopHeadsFirst = new Comparator<Location>() {
+		public int compare(Location first, Location second) {
+			if (first.hasBackEdge != second.hasBackEdge)
+				return first.hasBackEdge ? -1 : 1;
+			return first.compareTo(second);
+		}
+	};
+
+	protected final SortedSet<Location> locations;
+
+	public OrderedLocationWorklist(String name, Comparator<Location> order) {
+		super(name);
+		this.locations = new TreeSet<Location>(order);
+	}
+
+	public void add(Location location) {
+		locations.add(location);
+	}
+
+	public boolean isEmpty() {
+		return locations.isEmpty();
+	}
+
+	public int size() {
+		return locations.size();
+	}
+
+	protected Location remove() {
+		Iterator<Location> first = locations.iterator();
+		Location result = first.next();
+		first.remove();
+		return result;
+	}
+
+	public Collection<Location> locations() {
+		return Collections.unmodifiableCollection(locations);
+	}
+}
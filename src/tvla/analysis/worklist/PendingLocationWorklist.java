@@ -0,0 +1,52 @@
+package tvla.analysis.worklist;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import tvla.transitionSystem.Location;
+
+/** A worklist that extracts the location with the fewest pending structures,
+ * breaking ties by the order of Location.compareTo.
+ * The number of pending structures changes while a location waits, so the
+ * locations are searched when one is extracted.
+ */
+public class PendingLocationWorklist extends LocationWorklist {
+	protected final List<Location> locations = new ArrayList<Location>();
+
+	public PendingLocationWorklist(String name) {
+		super(name);
+	}
+
+	public void add(Location location) {
+		if (!locations.contains(location))
+			locations.add(location);
+	}
+
+	public boolean isEmpty() {
+		return locations.isEmpty();
+	}
+
+	public int size() {
+		return locations.size();
+	}
+
+	protected Location remove() {
+		int best = 0;
+		int bestPending = locations.get(0).numberOfUnprocessed();
+		for (int i = 1; i < locations.size(); ++i) {
+			Location location = locations.get(i);
+			int pending = location.numberOfUnprocessed();
+			if (pending < bestPending || (pending == bestPending && location.compareTo(locations.get(best)) < 0)) {
+				best = i;
+				bestPending = pending;
+			}
+		}
+		return locations.remove(best);
+	}
+
+	public Collection<Location> locations() {
+		return Collections.unmodifiableCollection(locations);
+	}
+}
@@ -0,0 +1,49 @@
+package tvla.analysis.worklist;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Set;
+
+import tvla.transitionSystem.Location;
+import tvla.util.HashSetFactory;
+
+/** A worklist that extracts the locations in the order they were added
+ * (first-in first-out) or in the reverse order (last-in first-out).
+ * A location that is added while it is already in the worklist keeps
+ * its position.
+ */
+public class SequentialLocationWorklist extends LocationWorklist {
+	protected final Deque<Location> locations = new ArrayDeque<Location>();
+	protected final Set<Location> members = HashSetFactory.make();
+	protected final boolean lastInFirstOut;
+
+	public SequentialLocationWorklist(String name, boolean lastInFirstOut) {
+		super(name);
+		this.lastInFirstOut = lastInFirstOut;
+	}
+
+	public void add(Location location) {
+		if (members.add(location))
+			locations.addLast(location);
+	}
+
+	public boolean isEmpty() {
+		return locations.isEmpty();
+	}
+
+	public int size() {
+		return locations.size();
+	}
+
+	protected Location remove() {
+		Location result = lastInFirstOut ? locations.removeLast() : locations.removeFirst();
+		members.remove(result);
+		return result;
+	}
+
+	public Collection<Location> locations() {
+		return Collections.unmodifiableCollection(locations);
+	}
+}
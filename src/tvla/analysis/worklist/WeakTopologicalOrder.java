@@ -0,0 +1,200 @@
+package tvla.analysis.worklist;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import tvla.transitionSystem.AnalysisGraph;
+import tvla.transitionSystem.Location;
+import tvla.util.HashMapFactory;
+
+/** A weak topological order of the locations of an analysis graph, computed
+ * by Bourdoncle's algorithm ("Efficient chaotic iteration strategies with
+ * widenings", 1993).
+ * The order is a hierarchy of strongly connected components, each starting
+ * at its head, in which every edge that goes backwards leads to the head of
+ * an enclosing component.
+ * The comparator extracts a location only when no location before it in the
+ * order is pending. This is the recursive iteration strategy: a component
+ * is iterated until it stabilizes, inner components first, before any
+ * location that follows it is processed.
+ */
+public class WeakTopologicalOrder {
+	/** The position of each location in the order.
+	 */
+	protected final Map<Location, Integer> position = HashMapFactory.make();
+
+	/** The heads of the components.
+	 */
+	protected final List<Location> heads = new ArrayList<Location>();
+
+	protected final AnalysisGraph graph;
+
+	/** The depth-first numbers used while computing the order.
+	 */
+	private Map<Location, Integer> dfn;
+	private LinkedList<Location> stack;
+	private int num;
+
+	/** Computes the weak topological order of the locations reachable from
+	 * the entry location of the given graph.
+	 */
+	public WeakTopologicalOrder(AnalysisGraph graph) {
+		this.graph = graph;
+		this.dfn = HashMapFactory.make();
+		this.stack = new LinkedList<Location>();
+		LinkedList<Location> order = new LinkedList<Location>();
+		visit(graph.getEntryLocation(), order);
+		for (Location location : order) {
+			position.put(location, position.size());
+		}
+		dfn = null;
+		stack = null;
+	}
+
+	/** The locations in the order.
+	 */
+	public List<Location> order() {
+		Location[] result = new Location[position.size()];
+		for (Map.Entry<Location, Integer> entry : position.entrySet()) {
+			result[entry.getValue()] = entry.getKey();
+		}
+		return Arrays.asList(result);
+	}
+
+	/** The heads of the components, where the structures would be widened.
+	 */
+	public List<Location> heads() {
+		return heads;
+	}
+
+	/** Compares locations by their positions in the order. Locations that
+	 * are not reachable from the entry come last, in the order of
+	 * Location.compareTo.
+	 */
+	public Comparator<Location> comparator() {
+		return new Comparator<Location>() {
+			public int compare(Location first, Location second) {
+				Integer firstPosition = position.get(first);
+				Integer secondPosition = position.get(second);
+				if (firstPosition != null && secondPosition != null)
+					return firstPosition - secondPosition;
+				else if (firstPosition != null)
+					return -1;
+				else if (secondPosition != null)
+					return 1;
+				return first.compareTo(second);
+			}
+		};
+	}
+
+	private int dfn(Location location) {
+		Integer result = dfn.get(location);
+		return result == null ? 0 : result;
+	}
+
+	/** A location being visited, or the head of a component whose body is
+	 * being visited, in the explicit stack that replaces the recursion of
+	 * Bourdoncle's algorithm.
+	 */
+	private static final class Frame {
+		final Location vertex;
+		/** The partition to which the components found are prepended.
+		 */
+		final LinkedList<Location> partition;
+		Iterator<String> targets;
+		/** The lowest depth-first number reachable from the location.
+		 */
+		int head;
+		boolean loop = false;
+		/** The body of the component headed by the location, once all its
+		 * successors were visited and it turned out to be a head.
+		 */
+		LinkedList<Location> body = null;
+
+		Frame(Location vertex, LinkedList<Location> partition) {
+			this.vertex = vertex;
+			this.partition = partition;
+			this.targets = vertex.getTargets().iterator();
+		}
+	}
+
+	/** Visits the location and prepends the components found to the
+	 * given partition, flattened with each head before its component.
+	 * The locations are visited with an explicit stack, so the depth of the
+	 * control-flow graph is not limited by the depth of the Java stack.
+	 */
+	private void visit(Location root, LinkedList<Location> partition) {
+		LinkedList<Frame> frames = new LinkedList<Frame>();
+		frames.addFirst(enter(root, partition));
+		while (!frames.isEmpty()) {
+			Frame frame = frames.getFirst();
+			if (frame.targets.hasNext()) {
+				Location successor = graph.getLocationByLabel(frame.targets.next());
+				if (successor == null)
+					continue;
+				if (frame.body != null) {
+					// Visit the body of the component.
+					if (dfn(successor) == 0)
+						frames.addFirst(enter(successor, frame.body));
+					continue;
+				}
+				int min = dfn(successor);
+				if (min == 0)
+					frames.addFirst(enter(successor, frame.partition));
+				else
+					reach(frame, min);
+				continue;
+			}
+
+			if (frame.body == null && frame.head == dfn(frame.vertex)) {
+				dfn.put(frame.vertex, Integer.MAX_VALUE);
+				Location element = stack.removeFirst();
+				if (frame.loop) {
+					while (element != frame.vertex) {
+						dfn.put(element, 0);
+						element = stack.removeFirst();
+					}
+					// Visit the successors again to find the component.
+					heads.add(frame.vertex);
+					frame.body = new LinkedList<Location>();
+					frame.targets = frame.vertex.getTargets().iterator();
+					continue;
+				}
+				frame.partition.addFirst(frame.vertex);
+			}
+			else if (frame.body != null) {
+				frame.body.addFirst(frame.vertex);
+				frame.partition.addAll(0, frame.body);
+			}
+
+			frames.removeFirst();
+			if (!frames.isEmpty() && frames.getFirst().body == null)
+				reach(frames.getFirst(), frame.head);
+		}
+	}
+
+	/** Starts the visit of a location.
+	 */
+	private Frame enter(Location vertex, LinkedList<Location> partition) {
+		stack.addFirst(vertex);
+		dfn.put(vertex, ++num);
+		Frame frame = new Frame(vertex, partition);
+		frame.head = num;
+		return frame;
+	}
+
+	/** Records that the location of the frame reaches the given depth-first
+	 * number.
+	 */
+	private static void reach(Frame frame, int min) {
+		if (min <= frame.head) {
+			frame.head = min;
+			frame.loop = true;
+		}
+	}
+}
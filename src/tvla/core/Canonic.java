@@ -1,18 +1,26 @@
 package tvla.core;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import tvla.logic.Kleene;
 import tvla.predicates.Predicate;
 import tvla.predicates.Vocabulary;
-import tvla.util.HashSetFactory;
+import tvla.util.AnalysisContext;
 import tvla.util.Logger;
 import tvla.util.ProgramProperties;
 
 /** A canonical name for a node. Notice that to reach the same name,
  * the predicate values must be added in the same order.
+ * Complete names are interned in the analysis context (see intern), which
+ * numbers them with small ids, so that the names of the nodes of all the
+ * structures share the same objects, and sets of names can be kept as
+ * arrays of interned names (see CanonicSet).
  * @see tvla.logic.Kleene
  * @see tvla.core.Blur
  * @author Tal Lev-Ami
@@ -24,11 +32,43 @@ final public class Canonic implements Comparable<Canonic> {
 
 	private MutableBigInteger name;
 
+	/** The id of an interned name, and 0 for names that were not interned.
+	 */
+	private int id;
+
+	/** The interned names of an analysis context.
+	 */
+	private static final class Table {
+		final ConcurrentHashMap<Canonic, Canonic> names = new ConcurrentHashMap<Canonic, Canonic>();
+		final List<Canonic> byId = new ArrayList<Canonic>();
+
+		/** The ids of the names that were recorded by the statistics.
+		 */
+		final BitSet recorded = new BitSet();
+
+		synchronized Canonic add(Canonic canonic) {
+			Canonic result = names.get(canonic);
+			if (result == null) {
+				byId.add(canonic);
+				canonic.id = byId.size();
+				names.put(canonic, canonic);
+				result = canonic;
+			}
+			return result;
+		}
+	}
+
+	private static final AnalysisContext.Slot<Table> table = new AnalysisContext.Slot<Table>() {
+		protected Table create() {
+			return new Table();
+		}
+	};
+
 	/** Should the canonicalization be done using all three values or 
 	 * only using true and false ignoring unknown.
 	 */
-	public static boolean threeWay = ProgramProperties.getBooleanProperty("tvla.blur.threeWay", true);
-	final static int threeWayMask = ProgramProperties.getBooleanProperty("tvla.blur.threeWay", true) ? 3 : 2;
+	public static boolean threeWay = ProgramProperties.getFixedBooleanProperty("tvla.blur.threeWay", true);
+	final static int threeWayMask = ProgramProperties.getFixedBooleanProperty("tvla.blur.threeWay", true) ? 3 : 2;
 
 	/** Create an empty canonical name.
 	 */
@@ -58,7 +98,7 @@ final public class Canonic implements Comparable<Canonic> {
     }
 
     public boolean equals(Object o) {
-		return ((Canonic) o).name.equals(this.name);
+		return this == o || ((Canonic) o).name.equals(this.name);
 	}
 
 	public int hashCode() {
@@ -71,15 +111,42 @@ final public class Canonic implements Comparable<Canonic> {
 	 * @param value The value to add.
 	 */
 	public void add(Kleene value) {
+		assert id == 0 : "An interned canonic name was modified";
 		name.addTwoBit(value.kleene() & threeWayMask);
 		name.modified = true;
 	}
 
     public void set(int index, Kleene value) {
+        assert id == 0 : "An interned canonic name was modified";
         name.setTwoBit(index << 1, value.kleene() & threeWayMask);
         name.modified = true;
     }
 	
+	/** Returns the interned name equal to this name, which is this name if
+	 * no equal name was interned before. An interned name must not be
+	 * modified.
+	 */
+	public Canonic intern() {
+		if (id != 0)
+			return this;
+		Table names = table.get();
+		Canonic result = names.names.get(this);
+		return result != null ? result : names.add(this);
+	}
+
+	/** Returns the id of an interned name, or 0 if the name was not
+	 * interned. Equal interned names have equal ids.
+	 */
+	public int id() {
+		return id;
+	}
+
+	/** Forgets the names interned in the current analysis context.
+	 */
+	public static void reset() {
+		table.reset();
+	}
+
 	public int compareTo(Canonic other) {
 		return this.name.compareTo(other.name);
 	}
@@ -158,18 +225,32 @@ final public class Canonic implements Comparable<Canonic> {
 	 */
 	public static class CanonicNamesStatistics {
 		public static boolean doStatistics;
-		public static Set<Canonic> allCanonicNames = HashSetFactory.make();
+		
+		/** Records the interned names of the nodes of a structure.
+		 */
+		public static void record(Iterable<Canonic> names) {
+			Table statistics = table.get();
+			synchronized (statistics) {
+				for (Canonic name : names) {
+					statistics.recorded.set(name.intern().id);
+				}
+			}
+		}
 		
 		public static void dumpNames() {
 			if (!doStatistics)
 				return;
-			Logger.println("#Different canonic names generated : " + allCanonicNames.size());
-			
-			if (ProgramProperties.getBooleanProperty("tvla.log.dumpCanonicNames", false)) {
-				Logger.println("All canonic names:");
-				Logger.println("------------------");
-				for (Iterator<Canonic> iter = allCanonicNames.iterator(); iter.hasNext(); ) {
-					Logger.println(iter.next());
+			Table statistics = table.get();
+			synchronized (statistics) {
+				BitSet recorded = statistics.recorded;
+				Logger.println("#Different canonic names generated : " + recorded.cardinality());
+				
+				if (ProgramProperties.getBooleanProperty("tvla.log.dumpCanonicNames", false)) {
+					Logger.println("All canonic names:");
+					Logger.println("------------------");
+					for (int id = recorded.nextSetBit(0); id >= 0; id = recorded.nextSetBit(id + 1)) {
+						Logger.println(statistics.byId.get(id - 1));
+					}
 				}
 			}
 		}
@@ -282,13 +363,29 @@ final public class Canonic implements Comparable<Canonic> {
 			modified = true;
 		}
 		
+		/** Returns the word at the specified index, where the words beyond
+		 * the allocated size are zero. Equal names may be allocated with
+		 * different sizes, depending on how they were built.
+		 */
+		private int word(int i) {
+			return i < size ? bits[i] : 0;
+		}
+
+		/** Returns the number of words up to the last non-zero word.
+		 */
+		private int usedSize() {
+			int used = size;
+			while (used > 0 && bits[used - 1] == 0)
+				--used;
+			return used;
+		}
+
 		final public boolean equals(MutableBigInteger bi) {
 			if (position != bi.position)
 				return false;
-			int[] bits = this.bits;
-			int[] other_bits = bi.bits;
-			for (int i = size; i != 0; ) {
-				if (bits[--i] != other_bits[i])
+			for (int i = Math.max(size, bi.size); i != 0; ) {
+				--i;
+				if (word(i) != bi.word(i))
 					return false;
 			}
 			return true;
@@ -298,9 +395,9 @@ final public class Canonic implements Comparable<Canonic> {
 			if (position != bi.position) {
 				return position - bi.position;
 			}
-			for (int i=0, _size=size; i < _size; ++i) {
-				if (bits[i] != bi.bits[i])
-					return bits[i] - bi.bits[i];
+			for (int i=0, _size=Math.max(size, bi.size); i < _size; ++i) {
+				if (word(i) != bi.word(i))
+					return word(i) - bi.word(i);
 			}
 			return 0;
 		}
@@ -310,13 +407,10 @@ final public class Canonic implements Comparable<Canonic> {
 	    final public boolean lessThanOrEqual(MutableBigInteger bi) {
 	        if (position != bi.position)
 	            return false;
-	        int[] bits = this.bits;
-	        int[] otherBits = bi.bits ;
-	        
-	        for (int i = size; i != 0; ) {
-	            int mask = otherBits[--i] & UNKNOWN_MASK;
+	        for (int i = Math.max(size, bi.size); i != 0; ) {
+	            int mask = bi.word(--i) & UNKNOWN_MASK;
 	            mask = ~(mask | (mask << 1)); // places of known bits
-	            if ((bits[i] & mask) != (otherBits[i] & mask)) 
+	            if ((word(i) & mask) != (bi.word(i) & mask)) 
 	                return false;
 	        }
 	        return true;
@@ -343,7 +437,7 @@ final public class Canonic implements Comparable<Canonic> {
 		public long signature() {
 			long h = position;
 			int[] bits = this.bits;
-			for (int i=0, _size=size; i < _size; ++i) {
+			for (int i=0, _size=usedSize(); i < _size; ++i) {
 				h = 47 * h + bits[i];
 			}
 			return h;
@@ -354,7 +448,7 @@ final public class Canonic implements Comparable<Canonic> {
 				return savedHashCode;
 			int h = position;
 			int[] bits = this.bits;
-			for (int i=0, _size=size; i < _size; ++i) {
+			for (int i=0, _size=usedSize(); i < _size; ++i) {
 				h = 47 * h + bits[i];
 			}
 			savedHashCode = h;
@@ -0,0 +1,128 @@
+package tvla.core;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import tvla.util.AnalysisContext;
+
+/** An immutable set of canonic names, which identifies the universe of a
+ * blurred structure (see GenericHashPartialJoinTVSSet).
+ * The names are interned (see Canonic.intern) and sorted by their ids,
+ * and the sets are interned in the analysis context as well, so equal
+ * sets are the same object. The hash code is computed once, and is that
+ * of a java.util.Set of the same names.
+ * Sets of different analysis contexts must not be compared.
+ */
+public final class CanonicSet implements Iterable<Canonic> {
+	private static final AnalysisContext.Slot<ConcurrentHashMap<CanonicSet, CanonicSet>> sets = new AnalysisContext.Slot<ConcurrentHashMap<CanonicSet, CanonicSet>>() {
+		protected ConcurrentHashMap<CanonicSet, CanonicSet> create() {
+			return new ConcurrentHashMap<CanonicSet, CanonicSet>();
+		}
+	};
+
+	private static final Comparator<Canonic> byId = new Comparator<Canonic>() {
+		public int compare(Canonic first, Canonic second) {
+			return first.id() - second.id();
+		}
+	};
+
+	private final Canonic[] names;
+	private final int hashCode;
+
+	private CanonicSet(Canonic[] names, int hashCode) {
+		this.names = names;
+		this.hashCode = hashCode;
+	}
+
+	/** Returns the interned set of the specified names and an additional
+	 * name, which may be null.
+	 */
+	public static CanonicSet make(Collection<Canonic> names, Canonic name) {
+		Canonic[] interned = new Canonic[names.size() + (name != null ? 1 : 0)];
+		int size = 0;
+		for (Canonic canonic : names) {
+			interned[size++] = canonic.intern();
+		}
+		if (name != null)
+			interned[size++] = name.intern();
+		Arrays.sort(interned, byId);
+
+		// Remove duplicates and compute the hash code.
+		int distinct = 0;
+		int hashCode = 0;
+		for (int i = 0; i < size; ++i) {
+			if (distinct == 0 || interned[distinct - 1] != interned[i]) {
+				interned[distinct++] = interned[i];
+				hashCode += interned[i].hashCode();
+			}
+		}
+		if (distinct < interned.length)
+			interned = Arrays.copyOf(interned, distinct);
+
+		CanonicSet set = new CanonicSet(interned, hashCode);
+		CanonicSet result = sets.get().putIfAbsent(set, set);
+		return result != null ? result : set;
+	}
+
+	/** Forgets the sets interned in the current analysis context.
+	 */
+	public static void reset() {
+		sets.reset();
+	}
+
+	public int size() {
+		return names.length;
+	}
+
+	public boolean contains(Canonic name) {
+		Canonic interned = name.intern();
+		return Arrays.binarySearch(names, interned, byId) >= 0;
+	}
+
+	public Iterator<Canonic> iterator() {
+		return new Iterator<Canonic>() {
+			private int next = 0;
+
+			public boolean hasNext() {
+				return next < names.length;
+			}
+
+			public Canonic next() {
+				if (next >= names.length)
+					throw new NoSuchElementException();
+				return names[next++];
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	public int hashCode() {
+		return hashCode;
+	}
+
+	public boolean equals(Object o) {
+		if (this == o)
+			return true;
+		if (!(o instanceof CanonicSet))
+			return false;
+		CanonicSet other = (CanonicSet) o;
+		if (hashCode != other.hashCode || names.length != other.names.length)
+			return false;
+		for (int i = 0; i < names.length; ++i) {
+			if (names[i] != other.names[i])
+				return false;
+		}
+		return true;
+	}
+
+	public String toString() {
+		return Arrays.toString(names);
+	}
+}
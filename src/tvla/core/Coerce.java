@@ -22,7 +22,7 @@ public abstract class Coerce {
 	/** When this variable is set to true, Coerce reports to the user about the
 	 * structures for which there were constraints breaches that could not be repaired.
 	 */
-	public static boolean debug = ProgramProperties.getBooleanProperty("tvla.coerce.debug", false);
+	public static boolean debug = ProgramProperties.getFixedBooleanProperty("tvla.coerce.debug", false);
 
 	/** Coerce the given structure using the presupplied set of constraints.
 	 * Return true iff successful (i.e. all breaches could be repaired).
@@ -4,39 +4,38 @@ import java.util.Collections;
 import java.util.Set;
 
 import tvla.formulae.Formula;
-import tvla.formulae.PredicateFormula;
-import tvla.formulae.ValueFormula;
-import tvla.formulae.Var;
-import tvla.logic.Kleene;
-import tvla.predicates.Vocabulary;
+import tvla.util.AnalysisContext;
 import tvla.util.HashSetFactory;
 import tvla.util.Pair;
 import tvla.util.ProgramProperties;
 import tvla.util.StringUtils;
 
 /** A set of constraints to be used by the Coerce algorithm.
- * Currently the set of constraints is global.
+ * Currently the set of constraints is global to an analysis context.
  */
 public class Constraints {
 	public static boolean automaticConstraints = true; // used by AST classes
 	
 	/** The one and only instance of this class.
 	 */
-	private static Constraints instance = new Constraints();
+	private static final AnalysisContext.Slot<Constraints> instance = new AnalysisContext.Slot<Constraints>() {
+		protected Constraints create() {
+			return new Constraints();
+		}
+	};
 
 	/** A set, containing all of the constraints used for the analysis.
 	 */
-	private static Set<Constraint> allConstraints = HashSetFactory.make();
+	private Set<Constraint> allConstraints = HashSetFactory.make();
 	
 	/** Returns the one and only instance of this class.
 	 */
 	public static Constraints getInstance() {
-		return instance;
+		return instance.get();
 	}
 	
 	public static void reset() {
-		instance = new Constraints();
-		allConstraints = HashSetFactory.make();
+		instance.reset();
 	}
 	
 	/** Add a new constraint to the set.
@@ -74,10 +73,8 @@ public class Constraints {
 	private Constraints() {
 		automaticConstraints = ProgramProperties.getBooleanProperty("tvla.generateAutomaticConstraints", true);
 		
-		// Add the constraint sm(_) ==> 0, which says that the sm
-		// predicate should never take the value of 1.
-		addConstraint(new PredicateFormula(Vocabulary.sm, new Var("_")), 
-					  new ValueFormula(Kleene.falseKleene));
+		// The constraint sm(_) ==> 0 used to be added here, but the static
+		// initialization order always discarded it, so it was never used.
 	}
 	
 	/** This class represents a constraint. A constraint is made of
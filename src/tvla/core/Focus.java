@@ -4,7 +4,9 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
 
+import tvla.analysis.ParallelFocus;
 import tvla.core.assignments.Assign;
 import tvla.formulae.Formula;
 import tvla.util.ProgramProperties;
@@ -16,8 +18,8 @@ import tvla.util.ProgramProperties;
  * @author Tal Lev-Ami
  */
 public abstract class Focus {
-	protected static final boolean FILTER_IN_FOCUS = ProgramProperties.getBooleanProperty("tvla.focus.filterDuringFocus", false);
-    protected static final boolean COERCE_IN_FOCUS = ProgramProperties.getBooleanProperty("tvla.focus.coerceDuringFocus", false);
+	protected static final boolean FILTER_IN_FOCUS = ProgramProperties.getFixedBooleanProperty("tvla.focus.filterDuringFocus", false);
+    protected static final boolean COERCE_IN_FOCUS = ProgramProperties.getFixedBooleanProperty("tvla.focus.coerceDuringFocus", false);
     
     /** Signals whether there is a need to focus on maybe-active nodes.
 	 * This is turned off by default to some optimizations possible.
@@ -66,21 +68,21 @@ public abstract class Focus {
             Formula formula = formulaeIter.next();
             Collection<TVS> answer = new ArrayList<TVS>();
             boolean coerceInFocus = COERCE_IN_FOCUS && formulaeIter.hasNext();
+            if (structures.size() > 1 && ParallelFocus.inWorker()) {
+                // Focus the structures in parallel, keeping their order.
+                List<Callable<Collection<HighLevelTVS>>> tasks = new ArrayList<Callable<Collection<HighLevelTVS>>>();
+                for (TVS structure : structures) {
+                    tasks.add(focusTask((HighLevelTVS) structure, formula, filterFormula, coerceInFocus));
+                }
+                for (Collection<HighLevelTVS> focused : ParallelFocus.invokeAll(tasks)) {
+                    answer.addAll(focused);
+                }
+                structures = answer;
+                continue;
+            }
             for (Iterator<TVS> iter = structures.iterator(); iter.hasNext(); ) {
                 HighLevelTVS structure = (HighLevelTVS) iter.next(); // Cheating...
-                if (FILTER_IN_FOCUS && filterFormula != null) {
-                    if (!structure.evalFormula(filterFormula, Assign.EMPTY).hasNext()) {
-                        continue;
-                    }
-                }                
-                Collection<HighLevelTVS> focused = structure.focus(formula);
-                for (HighLevelTVS fstructure : focused) {
-                    if (coerceInFocus) {
-                        fstructure.setOriginalStructure(structure);
-                        if (!fstructure.coerce()) continue;
-                    } 
-                    answer.add(fstructure); 
-                }
+                answer.addAll(focus(structure, formula, filterFormula, coerceInFocus));
             }
             structures = answer;
         }
@@ -91,6 +93,36 @@ public abstract class Focus {
 		return structures;
 	}
 	
+	/** Focuses a structure using a single formula.
+	 */
+	private static Collection<HighLevelTVS> focus(HighLevelTVS structure, Formula formula, Formula filterFormula,
+			boolean coerceInFocus) {
+		Collection<HighLevelTVS> answer = new ArrayList<HighLevelTVS>();
+		if (FILTER_IN_FOCUS && filterFormula != null) {
+			if (!structure.evalFormula(filterFormula, Assign.EMPTY).hasNext()) {
+				return answer;
+			}
+		}
+		Collection<HighLevelTVS> focused = structure.focus(formula);
+		for (HighLevelTVS fstructure : focused) {
+			if (coerceInFocus) {
+				fstructure.setOriginalStructure(structure);
+				if (!fstructure.coerce()) continue;
+			}
+			answer.add(fstructure);
+		}
+		return answer;
+	}
+
+	private static Callable<Collection<HighLevelTVS>> focusTask(final HighLevelTVS structure, final Formula formula,
+			final Formula filterFormula, final boolean coerceInFocus) {
+		return new Callable<Collection<HighLevelTVS>>() {
+			public Collection<HighLevelTVS> call() {
+				return focus(structure, formula, filterFormula, coerceInFocus);
+			}
+		};
+	}
+
 	/** Focuses all the structures in the given collection using all the given focus
 	 * formulae.
 	 * @param structures the structures to focus.
@@ -40,10 +40,10 @@ import tvla.util.Timer;
  * Class to handle removing and re-adding the frame of structures before and after an action.
  */
 public class Framer {
-    public static boolean enabled = ProgramProperties.getBooleanProperty("tvla.framer.enabled", false);
-    public static boolean collapseIsomorphic = ProgramProperties.getBooleanProperty("tvla.framer.collapseIsomorphic", true);
-    public static boolean frameWithCanonicalNames = ProgramProperties.getBooleanProperty("tvla.framer.withCanoincalNames", false);
-    public static boolean checkSoundness = ProgramProperties.getBooleanProperty("tvla.framer.checkSoundness", true);
+    public static boolean enabled = ProgramProperties.getFixedBooleanProperty("tvla.framer.enabled", false);
+    public static boolean collapseIsomorphic = ProgramProperties.getFixedBooleanProperty("tvla.framer.collapseIsomorphic", true);
+    public static boolean frameWithCanonicalNames = ProgramProperties.getFixedBooleanProperty("tvla.framer.withCanoincalNames", false);
+    public static boolean checkSoundness = ProgramProperties.getFixedBooleanProperty("tvla.framer.checkSoundness", true);
     
     protected DynamicVocabulary frameVocabulary;
     protected DynamicVocabulary contextFrameVocabulary;
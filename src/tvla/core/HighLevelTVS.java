@@ -1,7 +1,9 @@
 package tvla.core;
 
 import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 
 import tvla.core.Combine.INullaryCombiner;
 import tvla.core.assignments.Assign;
@@ -10,11 +12,13 @@ import tvla.core.generic.GenericBlur;
 import tvla.core.generic.GenericCombine;
 import tvla.core.generic.GenericFocus;
 import tvla.core.generic.GenericUpdate;
+import tvla.core.generic.StructureSignature;
 import tvla.formulae.CloneUpdateFormula;
 import tvla.formulae.Formula;
 import tvla.formulae.NewUpdateFormula;
 import tvla.formulae.RetainUpdateFormula;
 import tvla.predicates.Predicate;
+import tvla.util.AnalysisContext;
 
 /** A high-level interface for three-valued structures.
  * This interface provides high-level functionalities that can be used by
@@ -27,34 +31,93 @@ import tvla.predicates.Predicate;
  * @author Mooly Sagiv.
  */
 public abstract class HighLevelTVS extends TVS implements Comparable<HighLevelTVS> {
-	/** the default implementation of the Blur operation.
+	/** The default operators of each analysis context: the generic
+	 * implementations of Blur, Focus, Update and Combine, and the advanced
+	 * implementation of Coerce.
 	 */
-	protected static Blur genericBlur = new GenericBlur();
+	private static final AnalysisContext.Slot<Operators> defaultOperators = new AnalysisContext.Slot<Operators>() {
+		protected Operators create() {
+			return new Operators(new GenericBlur(), Constraints.getInstance().constraints());
+		}
+	};
+	
+	public static void reset() {
+		defaultOperators.reset();
+	}
 
-	/** the advanced implementation of the Coerce operation.
+	/** A set of operators used to apply actions. The operators keep scratch
+	 * state between calls and may only be used by one thread at a time, so
+	 * a thread that applies actions concurrently with other threads uses a
+	 * private set of operators.
 	 */
-	public static Coerce advancedCoerce = new AdvancedCoerce(Constraints.getInstance().constraints());
-	
-	/** the default implementation of the Focus operation.
+	public static class Operators {
+		protected final Blur blur;
+		protected final Coerce coerce;
+		protected final Focus focus = new GenericFocus();
+		protected final Update update = new GenericUpdate();
+		protected final Combine combine = new GenericCombine();
+
+		/** Creates a set of operators over private copies of the constraints.
+		 * @param blur A blur operator that is not shared with other threads.
+		 */
+		public Operators(Blur blur) {
+			this.blur = blur;
+			Set<Constraints.Constraint> constraints = new LinkedHashSet<Constraints.Constraint>();
+			for (Constraints.Constraint constraint : Constraints.getInstance().constraints()) {
+				constraints.add(new Constraints.Constraint(constraint.getBody().copy(), constraint.getHead().copy()));
+			}
+			this.coerce = new AdvancedCoerce(constraints);
+		}
+
+		/** Creates a set of operators over the specified constraints.
+		 */
+		protected Operators(Blur blur, Set<Constraints.Constraint> constraints) {
+			this.blur = blur;
+			this.coerce = new AdvancedCoerce(constraints);
+		}
+
+		public Blur getBlur() {
+			return blur;
+		}
+
+		public Coerce getCoerce() {
+			return coerce;
+		}
+	}
+
+	/** The operators bound to the current thread, if any.
 	 */
-	protected static Focus  genericFocus = new GenericFocus();
+	private static final ThreadLocal<Operators> boundOperators = new ThreadLocal<Operators>();
 
-	/** the default implementation of the Update operation.
+	/** Binds a set of operators to the current thread.
+	 * @param operators The operators to use, or null to restore the defaults.
 	 */
-	protected static Update genericUpdate = new GenericUpdate();
+	public static void bindOperators(Operators operators) {
+		if (operators == null)
+			boundOperators.remove();
+		else
+			boundOperators.set(operators);
+	}
 
-	/** the default implementation of the Combine operation.
+	/** Returns the operators bound to the current thread, or null if the
+	 * default operators should be used.
 	 */
-	protected static Combine genericCombine = new GenericCombine();
-	/** Bounds the structure in-place.
+	public static Operators getBoundOperators() {
+		return boundOperators.get();
+	}
+
+	/** Returns the operators bound to the current thread, or the default
+	 * operators of the current analysis context.
 	 */
-	
-	public static void reset() {
-		genericBlur = new GenericBlur();
-		advancedCoerce = new AdvancedCoerce(Constraints.getInstance().constraints());
-		genericFocus = new GenericFocus();
-		genericUpdate = new GenericUpdate();
-		genericCombine = new GenericCombine();
+	public static Operators operators() {
+		Operators operators = boundOperators.get();
+		return operators != null ? operators : defaultOperators.get();
+	}
+
+	/** Returns the advanced implementation of the Coerce operation.
+	 */
+	public static Coerce getAdvancedCoerce() {
+		return operators().coerce;
 	}
     
     /**
@@ -63,14 +126,23 @@ public abstract class HighLevelTVS extends TVS implements Comparable<HighLevelTV
     public abstract HighLevelTVS copy();
     
 	public void blur() {
-		genericBlur.blur(this);
+		operators().blur.blur(this);
+	}
+
+	/** Returns the colour-refinement signature of this structure, which is
+	 * used to hash structures and to check them for isomorphism.
+	 * This implementation computes the signature on every call;
+	 * implementations that know when they change may cache it.
+	 */
+	public StructureSignature getSignature() {
+		return new StructureSignature(this);
 	}
 
 	/** Applies a constraint-solver to the structure.
 	 * @return true is the structure is feasible and false otherwise.
 	 */
 	public boolean coerce() {
-		return advancedCoerce.coerce(this);
+		return operators().coerce.coerce(this);
 	}
 	
 	/** Applies the focus algorithm with the specified formula.
@@ -78,7 +150,7 @@ public abstract class HighLevelTVS extends TVS implements Comparable<HighLevelTV
 	 * @return The collection of focused structures.
 	 */
 	public Collection<HighLevelTVS> focus(Formula focusFormula) {
-		return genericFocus.focus(this, focusFormula);
+		return operators().focus.focus(this, focusFormula);
 	}
 
 	/** Updates the structure's predicate interpretations according to the specified
@@ -89,7 +161,7 @@ public abstract class HighLevelTVS extends TVS implements Comparable<HighLevelTV
 	 * @see tvla.formulae.PredicateUpdateFormula
 	 */
 	public void updatePredicates(Collection updateFormulae, Assign assignment) {
-		genericUpdate.updatePredicates(this, updateFormulae, assignment);
+		operators().update.updatePredicates(this, updateFormulae, assignment);
 	}
 
 	/** Applies the specified <tt> new </tt> formula to add new nodes to the structure.
@@ -99,7 +171,7 @@ public abstract class HighLevelTVS extends TVS implements Comparable<HighLevelTV
 	 * @see tvla.formulae.NewUpdateFormula
 	 */
 	public Collection applyNewUpdateFormula(NewUpdateFormula formula, Assign assignment) {
-		return genericUpdate.applyNewUpdateFormula(this, formula, assignment);
+		return operators().update.applyNewUpdateFormula(this, formula, assignment);
 	}
 	
 	/** Applies the specified <tt> clone </tt> formula to clone a sub-structure.
@@ -111,7 +183,7 @@ public abstract class HighLevelTVS extends TVS implements Comparable<HighLevelTV
 	 * @see tvla.formulae.NewUpdateFormula
 	 */
 	public Collection applyCloneUpdateFormula(CloneUpdateFormula formula, Assign assignment) {
-		return genericUpdate.applyCloneUpdateFormula(this, formula, assignment);
+		return operators().update.applyCloneUpdateFormula(this, formula, assignment);
 	}
 
 	/** Applies the specified <tt> retain </tt> formula to remove nodes from 
@@ -121,7 +193,7 @@ public abstract class HighLevelTVS extends TVS implements Comparable<HighLevelTV
 	 * @see tvla.formulae.RetainUpdateFormula
 	 */
 	public void applyRetainUpdateFormula(RetainUpdateFormula formula, Assign assignment, TVS refStructure) {
-		genericUpdate.applyRetainUpdateFormula(this, formula, assignment, refStructure);
+		operators().update.applyRetainUpdateFormula(this, formula, assignment, refStructure);
 	}
  	public  int numOfNodes() {
 		return nodes().size();
@@ -132,7 +204,7 @@ public abstract class HighLevelTVS extends TVS implements Comparable<HighLevelTV
  	 * @author maon
  	 */  
     protected TVS combineWith(INullaryCombiner nullaryCombiner, TVS tvsR) {
-        return  genericCombine.combine(nullaryCombiner, this, tvsR);
+        return  operators().combine.combine(nullaryCombiner, this, tvsR);
     }
     
     public HighLevelTVS permute(Map<Predicate, Predicate> mapping) {
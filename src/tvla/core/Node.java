@@ -6,40 +6,53 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import tvla.util.AnalysisContext;
+
 /** A node in the universe 
  * @see tvla.core.TVS
  * @author Tal Lev-Ami
  * @since 26/12/2000 added implementation of the Comparable interface (Roman).
  */
 public class Node extends NodeTuple  {
-	private static int idCounter = 0;
-
     protected int id;
 	
-	protected static List<Node> canonicNodes = new ArrayList<Node>(); 
+	/** The nodes allocated in an analysis context, indexed by their ids.
+	 */
+	protected static final AnalysisContext.Slot<List<Node>> canonicNodes = new AnalysisContext.Slot<List<Node>>() {
+		protected List<Node> create() {
+			return new ArrayList<Node>();
+		}
+	};
 
 	public static void reset() {
-		idCounter = 0;
-		canonicNodes = new ArrayList<Node>(); 
+		canonicNodes.reset();
 	}
 	
 	public static Node nodeForID(int id) {
-		return canonicNodes.get(id);
+		List<Node> nodes = canonicNodes.get();
+		synchronized (nodes) {
+			return nodes.get(id);
+		}
 	}
 
     public static int getMaxId() {
-        return idCounter;
+		List<Node> nodes = canonicNodes.get();
+		synchronized (nodes) {
+			return nodes.size();
+		}
     }
 
 	/** Allocate a new never before used node name.
 	 */
 	public static Node allocateNode() {
-		if (idCounter == Integer.MAX_VALUE)
-			throw new InternalError("Node ID overflow");
-		Node node = new Node(idCounter++);
-		canonicNodes.add(node);
-		assert canonicNodes.size() == idCounter;
-		return node;
+		List<Node> nodes = canonicNodes.get();
+		synchronized (nodes) {
+			if (nodes.size() == Integer.MAX_VALUE)
+				throw new InternalError("Node ID overflow");
+			Node node = new Node(nodes.size());
+			nodes.add(node);
+			return node;
+		}
 	}
 
 	/** Retrieves the node in the specified position.
@@ -155,12 +155,11 @@ public abstract class NodeTuple implements Comparable<NodeTuple> {
 		return result.toString();
 	}
 
-    static Node[][] tempTuples = new Node[][] { {}, {null}, {null,null}, {null, null, null}, {null,null,null,null}};    
     /**
      * Map the given tuple according to the node mapping.
      */
     public NodeTuple mapNodeTuple(Map<Node, Node> nodeMapping) {
-        Node[] otherTupleNodes = tempTuples[this.size()];
+        Node[] otherTupleNodes = new Node[this.size()];
         for (int i = 0; i < otherTupleNodes.length; i++) {
             otherTupleNodes[i] = nodeMapping.get(this.get(i));
         }
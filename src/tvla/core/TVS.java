@@ -95,6 +95,16 @@ public abstract class TVS {
 	 */
 	public abstract Node newNode();
 	
+	/** Adds the given node to the structure's universe, when the node names
+	 * of a saved structure are restored. Implementations that do not let
+	 * the node be chosen add a new node instead.
+	 * precondition: the structure does not contain the node.
+	 * @return The node that was added.
+	 */
+	public Node newNode(Node node) {
+		return newNode();
+	}
+	
 	/** Removes a node from the structure's universe.
 	 * precondition: eval(Vocabulary.active, node) == Kleene.trueKleene
 	 */
@@ -5,6 +5,7 @@ import java.util.Iterator;
 import tvla.core.generic.GenericBaseTVS;
 import tvla.exceptions.UserErrorException;
 import tvla.predicates.DynamicVocabulary;
+import tvla.util.AnalysisContext;
 import tvla.util.Logger;
 import tvla.util.ProgramProperties;
 import tvla.util.PropertiesEx;
@@ -25,7 +26,10 @@ public class TVSFactory {
 	public static final int JOIN_CANONIC_EMBEDDING		= 3;
 	public static final int JOIN_J3						= 4;
 	public static final int JOIN_CONCRETE				= 5;
-	public static int joinMethod = JOIN_RELATIONAL;
+	
+	/** The join method used by the sets returned from this factory.
+	 */
+	protected int joinMethod = JOIN_RELATIONAL;
 	
 	/** Initialization method: gives the factory an opportunity to do any
 	 * necessary preprocessing.
@@ -35,21 +39,28 @@ public class TVSFactory {
 	}
 	
 	public static void reset() {
-		instance = null;
+		instance.reset();
 	}
 	
-	/** The one and only instance of this factory.
+	/** The one and only instance of this factory in each analysis context.
 	 */
-	private static TVSFactory instance;
+	private static final AnalysisContext.Slot<TVSFactory> instance = new AnalysisContext.Slot<TVSFactory>() {
+		protected TVSFactory create() {
+			String implementation = ProgramProperties.getProperty("tvla.implementation", "generic");
+			return getTVSFactoryClass(implementation);
+		}
+	};
 	
 	/** Returns the one and only instance of this factory.
 	 */
 	public static TVSFactory getInstance() {
-		if (instance == null) {
-			String implementation = ProgramProperties.getProperty("tvla.implementation", "generic");
-			setTVSFactoryClass(implementation);
-		}
-		return instance;
+		return instance.get();
+	}
+	
+	/** Returns the join method used by the sets returned from the factory.
+	 */
+	public static int getJoinMethod() {
+		return getInstance().joinMethod;
 	}
 	
 	/** Returns a new empty structure.
@@ -137,7 +148,7 @@ public class TVSFactory {
 	/** Prints factory specific statistics to the log stream.
 	 */
 	public static void printStatistics() {
-		instance.dumpStatistics();
+		getInstance().dumpStatistics();
 		Canonic.CanonicNamesStatistics.dumpNames(); // conditionally dumps statistics		
 	}
 
@@ -146,7 +157,7 @@ public class TVSFactory {
 	 * @since 24.11.2001 Initial creation.
 	 */
 	public static void setTVSFactoryClass(String className) {
-		instance = getTVSFactoryClass(className);
+		instance.set(getTVSFactoryClass(className));
 	}
 	
 	/** Override this method to collect factory specific information.
@@ -170,19 +181,19 @@ public class TVSFactory {
 	protected TVSFactory() {
 		String joinType = ProgramProperties.getProperty("tvla.joinType", "rel");
 		if (joinType.equals("rel"))
-			TVSFactory.joinMethod = TVSFactory.JOIN_RELATIONAL;
+			joinMethod = TVSFactory.JOIN_RELATIONAL;
 		else if (joinType.equals("ind")) {
-			TVSFactory.joinMethod = TVSFactory.JOIN_INDEPENDENT_ATTRIBUTES;
+			joinMethod = TVSFactory.JOIN_INDEPENDENT_ATTRIBUTES;
 			Focus.needToFocusOnActive = true;
 		}
 		else if (joinType.equals("part"))
-			TVSFactory.joinMethod = TVSFactory.JOIN_CANONIC;
+			joinMethod = TVSFactory.JOIN_CANONIC;
 		else if (joinType.equals("part_embedding"))
-			TVSFactory.joinMethod = TVSFactory.JOIN_CANONIC_EMBEDDING;
+			joinMethod = TVSFactory.JOIN_CANONIC_EMBEDDING;
 		else if (joinType.equals("j3"))
-			TVSFactory.joinMethod = TVSFactory.JOIN_J3;
+			joinMethod = TVSFactory.JOIN_J3;
 		else if (joinType.equals("conc"))
-			TVSFactory.joinMethod = TVSFactory.JOIN_CONCRETE;
+			joinMethod = TVSFactory.JOIN_CONCRETE;
 		else {
 			throw new UserErrorException("Invalid property value specified for tvla.joinType : " + joinType);
 		}
@@ -220,7 +231,7 @@ public class TVSFactory {
 	/** Override this method to print factory specific information.
 	 */
 	protected void dumpStatistics() {
-		Logger.println("Factory " + instance.getClass().toString());
+		Logger.println("Factory " + getClass().toString());
 	}
 
     public HighLevelTVS makeEmptyTVS(DynamicVocabulary newVoc) {
@@ -3,6 +3,7 @@ package tvla.core;
 import java.util.Collection;
 import java.util.Iterator;
 
+import tvla.analysis.AnalysisStatus;
 import tvla.util.Pair;
 
 /** A set of three-valued structures.
@@ -21,6 +22,12 @@ public abstract class TVSSet implements Iterable<HighLevelTVS> {
     protected int shareCount = 0;
 	protected boolean cachingMode = false;
 
+	/** Whether joining a structure times its blur on the active status.
+	 * The shards of a concurrent set are not timed, since they are joined
+	 * into by threads that keep their own statistics.
+	 */
+	protected boolean timed = true;
+
     // TODO bd
     public HighLevelTVS LastStructureMerge;
 
@@ -106,6 +113,23 @@ public abstract class TVSSet implements Iterable<HighLevelTVS> {
 		return cachingMode;
 	}
 
+	/** Sets whether joining a structure times its blur on the active
+	 * status.
+	 */
+	public void setTimed(boolean timed) {
+		this.timed = timed;
+	}
+
+	protected void startBlurTimer() {
+		if (timed)
+			AnalysisStatus.getActiveStatus().startTimer(AnalysisStatus.BLUR_TIME);
+	}
+
+	protected void stopBlurTimer() {
+		if (timed)
+			AnalysisStatus.getActiveStatus().stopTimer(AnalysisStatus.BLUR_TIME);
+	}
+
     public boolean contains(HighLevelTVS structure) {
         throw new UnsupportedOperationException();
     }
@@ -1,11 +1,19 @@
 package tvla.core.base;
 
+import java.util.Collection;
 import java.util.Map;
+import java.util.Set;
 
 import tvla.core.Blur;
+import tvla.core.Canonic;
+import tvla.core.HighLevelTVS;
+import tvla.core.Node;
 import tvla.core.StoresCanonicMaps;
 import tvla.core.TVS;
 import tvla.core.generic.GenericBlur;
+import tvla.predicates.Predicate;
+import tvla.predicates.Vocabulary;
+import tvla.util.AnalysisContext;
 import tvla.util.HashMapFactory;
 
 /** An implementation of the Blur algorithm with a specialization
@@ -14,14 +22,26 @@ import tvla.util.HashMapFactory;
 public class BaseBlur extends GenericBlur {
 	/** A convenience instance.
 	 */
-	protected static BaseBlur defaultBaseBlur = new BaseBlur();
+	protected static final AnalysisContext.Slot<BaseBlur> defaultBaseBlur = new AnalysisContext.Slot<BaseBlur>() {
+		protected BaseBlur create() {
+			return new BaseBlur();
+		}
+	};
 	
 	public static void reset() {
-		defaultBaseBlur = new BaseBlur();
+		defaultBaseBlur.reset();
 	}
 	
+	/** Returns the blur bound to the current thread, if it is a BaseBlur,
+	 * or the default instance of the current analysis context.
+	 * A blur keeps its intermediate results in its fields, so threads that
+	 * apply actions or join structures concurrently each use their own.
+	 */
 	public static BaseBlur getInstance() {
-		return defaultBaseBlur;
+		HighLevelTVS.Operators operators = HighLevelTVS.getBoundOperators();
+		if (operators != null && operators.getBlur() instanceof BaseBlur)
+			return (BaseBlur) operators.getBlur();
+		return defaultBaseBlur.get();
 	}
 																  
 	/** Blurs the specified structure in-place.
@@ -45,8 +65,34 @@ public class BaseBlur extends GenericBlur {
 	public void rebuildCanonicMaps(TVS structure) {
 		Map canonicMap = HashMapFactory.make();
 		Map inverseCanonicMap = HashMapFactory.make();
-		GenericBlur genericBlur = (GenericBlur) GenericBlur.defaultGenericBlur;
+		GenericBlur genericBlur = GenericBlur.getInstance();
 		genericBlur.makeCanonicMapsForBlurred(structure, canonicMap, inverseCanonicMap);
 		((StoresCanonicMaps) structure).setCanonic(canonicMap, inverseCanonicMap);
 	}
+
+	/** Restores the canonic maps of a structure after the values of the
+	 * specified predicates were modified.
+	 * Canonic names depend only on the unary abstraction predicates, so the
+	 * maps built before the modification are reused unless one of them, or
+	 * the set of active nodes, was modified.
+	 * @param canonic The canonic map of the structure before the modification.
+	 * @param invCanonic The inverse canonic map of the structure before the
+	 * modification.
+	 * @param modified The predicates whose values were modified.
+	 */
+	public void updateCanonicMaps(TVS structure, Map<Node, Canonic> canonic,
+			Map<Canonic, Node> invCanonic, Collection<Predicate> modified) {
+		if (canonic == null || invCanonic == null) {
+			rebuildCanonicMaps(structure);
+			return;
+		}
+		Set<Predicate> unaryRel = structure.getVocabulary().unaryRel();
+		for (Predicate predicate : modified) {
+			if (predicate == Vocabulary.active || unaryRel.contains(predicate)) {
+				rebuildCanonicMaps(structure);
+				return;
+			}
+		}
+		((StoresCanonicMaps) structure).setCanonic(canonic, invCanonic);
+	}
 }
@@ -2,13 +2,13 @@ package tvla.core.base;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import tvla.analysis.AnalysisStatus;
 import tvla.core.Canonic;
+import tvla.core.CanonicSet;
 import tvla.core.HighLevelTVS;
 import tvla.core.Node;
 import tvla.core.StoresCanonicMaps;
@@ -25,9 +25,11 @@ import tvla.util.Pair;
  * @todo optimize isomorphism test (efficient evaluation of predicate formulae).
  */
 public class BaseHashTVSSet extends GenericTVSSet {
-	public static int hashAccessAttempts;
-	public static int hashColisions;
-	public static int redundantHashColisions;
+	// Atomic, since the shards of a concurrent set are joined into by
+	// several threads.
+	public static final AtomicInteger hashAccessAttempts = new AtomicInteger();
+	public static final AtomicInteger hashColisions = new AtomicInteger();
+	public static final AtomicInteger redundantHashColisions = new AtomicInteger();
 
 	/** Maps StructureSignature objects to collections of
 	 * structures that share the same signature.
@@ -41,25 +43,25 @@ public class BaseHashTVSSet extends GenericTVSSet {
 	@Override
 	public HighLevelTVS mergeWith(HighLevelTVS structure) {
         if (structure.getStructureGroup() != null) throw new RuntimeException("Join doesn't support structure group");
-		AnalysisStatus.getActiveStatus().startTimer(AnalysisStatus.BLUR_TIME);
+		startBlurTimer();
 		structure.blur();
-		AnalysisStatus.getActiveStatus().stopTimer(AnalysisStatus.BLUR_TIME);
+		stopBlurTimer();
 
 		cleanup();
 		boolean found = false;
-		Set<Canonic> signature = getCanonicSetForBlurred(structure);
+		CanonicSet signature = getCanonicSetForBlurred(structure);
 		Collection<HighLevelTVS> matching = joinHash.get(signature);
-		++hashAccessAttempts; // STATISTICS
+		hashAccessAttempts.incrementAndGet(); // STATISTICS
 		if (matching != null) {
 			candidate = structure;
 			for (Iterator<HighLevelTVS> structuresIt = matching.iterator(); 
 				 structuresIt.hasNext() && !found; ) {
 				old = structuresIt.next();
-				++hashColisions; // STATISTICS
+				hashColisions.incrementAndGet(); // STATISTICS
 				if (isomorphic()) // no need to break - the condition takes care of this
 					found = true;
 				else
-					++redundantHashColisions; // STATISTICS
+					redundantHashColisions.incrementAndGet(); // STATISTICS
 			}
 		}
 		if (found) {
@@ -75,25 +77,25 @@ public class BaseHashTVSSet extends GenericTVSSet {
 	@Override
 	public boolean mergeWith(HighLevelTVS structure, Collection<Pair<HighLevelTVS, HighLevelTVS>> mergedWith) {
         if (structure.getStructureGroup() != null) throw new RuntimeException("Join doesn't support structure group");
-		AnalysisStatus.getActiveStatus().startTimer(AnalysisStatus.BLUR_TIME);
+		startBlurTimer();
 		structure.blur();
-		AnalysisStatus.getActiveStatus().stopTimer(AnalysisStatus.BLUR_TIME);
+		stopBlurTimer();
 
 		cleanup();
 		boolean found = false;
-		Set<Canonic> signature = getCanonicSetForBlurred(structure);
+		CanonicSet signature = getCanonicSetForBlurred(structure);
 		Collection<HighLevelTVS> matching = joinHash.get(signature);
-		++hashAccessAttempts; // STATISTICS
+		hashAccessAttempts.incrementAndGet(); // STATISTICS
 		if (matching != null) {
 			candidate = structure;
 			for (Iterator<HighLevelTVS> structuresIt = matching.iterator(); 
 				 structuresIt.hasNext() && !found; ) {
 				old = structuresIt.next();
-				++hashColisions; // STATISTICS
+				hashColisions.incrementAndGet(); // STATISTICS
 				if (isomorphic()) // no need to break - the condition takes care of this
 					found = true;
 				else
-					++redundantHashColisions; // STATISTICS
+					redundantHashColisions.incrementAndGet(); // STATISTICS
 			}
 		}
 		if (found) {
@@ -128,7 +130,7 @@ public class BaseHashTVSSet extends GenericTVSSet {
 		matching.add(structure);
 	}
 	
-    protected Set<Canonic> getCanonicSetForBlurred(TVS structure) {
+    protected CanonicSet getCanonicSetForBlurred(TVS structure) {
         if (!(structure instanceof StoresCanonicMaps)) {
             return makeCanonicSet(structure);
         }
@@ -138,30 +140,22 @@ public class BaseHashTVSSet extends GenericTVSSet {
             return makeCanonicSet(structure);
         }
         
-        Collection<Node> nodes = structure.nodes();
-        int size = nodes.size();
-        Set<Canonic> canonicNames = new HashSet<Canonic>(size);
-        
         Set<Predicate> nullaryRel = structure.getVocabulary().nullaryRel();
         Canonic nullaryCanonic = new Canonic(nullaryRel.size());
         for (Predicate predicate : nullaryRel) {
             Kleene value = structure.eval(predicate);
             nullaryCanonic.add(value);
         }
-        canonicNames.add(nullaryCanonic);
-        canonicNames.addAll(invCanonicMap.keySet());
-        return canonicNames;
+        return CanonicSet.make(invCanonicMap.keySet(), nullaryCanonic);
     }
     
-    protected Set<Canonic> makeCanonicSet(TVS structure) {
+    protected CanonicSet makeCanonicSet(TVS structure) {
         Set<Predicate> nullaryRel = structure.getVocabulary().nullaryRel();
         Canonic nullaryCanonic = new Canonic(nullaryRel.size());
         for (Predicate predicate : nullaryRel) {
             Kleene value = structure.eval(predicate);
             nullaryCanonic.add(value);
         }
-        Set<Canonic> canonicNames = GenericBlur.getInstance().makeCanonicSet(structure);
-        canonicNames.add(nullaryCanonic);
-        return canonicNames;
+        return CanonicSet.make(GenericBlur.getInstance().makeCanonicSet(structure), nullaryCanonic);
     }
 }
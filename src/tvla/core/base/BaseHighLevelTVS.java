@@ -36,7 +36,8 @@ public class BaseHighLevelTVS extends BaseTVS {
    */
   public void blur() {
 	commit();
-    BaseBlur.defaultBaseBlur.blur(this);		
+    Operators operators = getBoundOperators();
+    (operators != null ? operators.getBlur() : BaseBlur.getInstance()).blur(this);		
   }
   
   // The following is deprecated.
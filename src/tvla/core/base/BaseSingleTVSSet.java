@@ -5,7 +5,6 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 
-import tvla.analysis.AnalysisStatus;
 import tvla.core.Canonic;
 import tvla.core.HighLevelTVS;
 import tvla.core.Node;
@@ -27,9 +26,9 @@ public class BaseSingleTVSSet extends GenericTVSSet {
 	 */
 	public HighLevelTVS mergeWith(HighLevelTVS structure) {
         if (structure.getStructureGroup() != null) throw new RuntimeException("Join doesn't support structure group");
-		AnalysisStatus.getActiveStatus().startTimer(AnalysisStatus.BLUR_TIME);
+		startBlurTimer();
 		structure.blur();
-		AnalysisStatus.getActiveStatus().stopTimer(AnalysisStatus.BLUR_TIME);
+		stopBlurTimer();
 
 		if (structures.isEmpty()) {
 			structures.add(structure);
@@ -26,11 +26,11 @@ import tvla.core.common.ModifiedPredicates;
 import tvla.core.common.NodePair;
 import tvla.core.common.NodeTupleIterator;
 import tvla.core.common.NodeValue;
-import tvla.core.functional.ConcreteKAryPredicateFlik;
 import tvla.core.functional.FnUniverse;
 import tvla.core.generic.MergeNodes;
 import tvla.core.generic.NodeValueMap;
 import tvla.core.generic.PredicateNode;
+import tvla.core.generic.StructureSignature;
 import tvla.logic.Kleene;
 import tvla.predicates.DynamicVocabulary;
 import tvla.predicates.Predicate;
@@ -45,6 +45,10 @@ import tvla.util.ProgramProperties;
 /**
  * An implementation of a three-valued structure. The implementation delays
  * unnecessary copy actions for its node set and predicates' values.
+ * A copy shares the predicate table and the concrete predicates with the
+ * original structure. The table is copied on the first change to either
+ * structure, and a concrete predicate is copied on the first change to
+ * its values in a structure that shares it.
  * 
  * @author Tal Lev-Ami
  * @since tvla-2-alpha added support for k-ary predicates (Roman, May 13 2002)
@@ -57,7 +61,7 @@ public abstract class BaseTVS extends HighLevelTVS implements
 	 * Enable incremental structures machinery
 	 */
 	public final static boolean EnableIncrements = ProgramProperties
-			.getBooleanProperty("tvla.engine.incremental.enable", true);
+			.getFixedBooleanProperty("tvla.engine.incremental.enable", true);
 
 	/**
 	 * Turn on increment size tradeoff. The increment size is checked against
@@ -65,15 +69,15 @@ public abstract class BaseTVS extends HighLevelTVS implements
 	 * getIncrementalUpdates.
 	 */
 	public final static boolean CheckIncrementSize = ProgramProperties
-			.getBooleanProperty("tvla.engine.incremental.checkSize", false);
+			.getFixedBooleanProperty("tvla.engine.incremental.checkSize", false);
 
 	public final static boolean IncrementWithAddedNodes = ProgramProperties
-			.getBooleanProperty("tvla.engine.incremental.incrementAddedNodes",
+			.getFixedBooleanProperty("tvla.engine.incremental.incrementAddedNodes",
 					false);
 
     public final static boolean IncrementFocusedNodes = 
         ProgramProperties
-        .getBooleanProperty("tvla.engine.incremental.incrementFocusedNodes",
+        .getFixedBooleanProperty("tvla.engine.incremental.incrementFocusedNodes",
             true);
 	
 	/**
@@ -92,10 +96,20 @@ public abstract class BaseTVS extends HighLevelTVS implements
 	 */
 	protected Map<Predicate, ConcretePredicate> predicates;
 
+	/**
+	 * Set when the predicates map may be shared with another structure.
+	 */
+	private boolean predicatesShared = false;
+
 	protected Map<Node, Canonic> canonic = null;
 
 	protected Map<Canonic, Node> invCanonic = null;
 
+	/** The signature of this structure, cleared together with the
+	 * canonic maps whenever the structure changes.
+	 */
+	protected StructureSignature signature = null;
+
 	protected DynamicVocabulary vocabulary = null;
 
 	protected Object reference = null;
@@ -129,7 +143,7 @@ public abstract class BaseTVS extends HighLevelTVS implements
 		// this.predicates = new LinkedHashMap(0);
 		// this.predicates = new QuickHashMap();
 		// mcache = new MicroCache(predicates);
-		mcache = new PredicateCache(predicates, this);
+		mcache = new PredicateCache(this);
 
 		U = FnUniverse.create();
 	}
@@ -155,8 +169,13 @@ public abstract class BaseTVS extends HighLevelTVS implements
 
 		this.vocabulary = otherBase.vocabulary;
 
-		for (Predicate predicate : otherBase.predicates.keySet()) {
-			this.copyPredicate(otherBase, predicate);
+		// Share the predicate values until either structure modifies them.
+		this.predicates = otherBase.predicates;
+		this.predicatesShared = true;
+		otherBase.predicatesShared = true;
+		for (ConcretePredicate concrete : predicates.values()) {
+			if (!(concrete instanceof ConcreteNullaryPredicate))
+				concrete.shareInstance();
 		}
 
 		// INCREMENTS
@@ -170,6 +189,7 @@ public abstract class BaseTVS extends HighLevelTVS implements
 		// Share canonic maps with original structure.
 		this.canonic = otherBase.canonic;
 		this.invCanonic = otherBase.invCanonic;
+		this.signature = otherBase.signature;
 		
 		this.group = otherBase.getStructureGroup() == null ? null :
 			otherBase.getStructureGroup().copy(this);
@@ -203,7 +223,14 @@ public abstract class BaseTVS extends HighLevelTVS implements
 	 */
 	public final Kleene eval(Predicate predicate, Node left, Node right) {
 		assert (predicate.arity() == 2);
-		return eval(predicate, NodeTuple.createPair(left, right));
+		ConcretePredicate pred = mcache.get(predicate);
+		if (pred != null) {
+			return pred.get(left, right);
+		} else if (getVocabulary().contains(predicate)) {
+			return Kleene.falseKleene;
+		} else {
+			return Kleene.unknownKleene;
+		}
 	}
 
 	/**
@@ -375,8 +402,7 @@ public abstract class BaseTVS extends HighLevelTVS implements
 		// ModifiedPredicates.modify(predicate);
 		BaseTVSCache.modify(this, predicate);
 
-		mcache.remove(predicate);
-		this.predicates.remove(predicate);
+		removePredicate(predicate);
 	}
 
 	/**
@@ -417,8 +443,7 @@ public abstract class BaseTVS extends HighLevelTVS implements
 
 		if (predicate.arity() == 0) {
 			if (val == Kleene.falseKleene) {
-				mcache.remove(predicate);
-				predicates.remove(predicate);
+				removePredicate(predicate);
 				return;
 			}
 
@@ -430,26 +455,24 @@ public abstract class BaseTVS extends HighLevelTVS implements
 
 			if (nullary == null || (nullary.get(NodeTuple.EMPTY_TUPLE) != val)) {
 				nullary = ConcreteNullaryPredicate.getInstance(val);
-				predicates.put(predicate, nullary);
 				// mcache.putCurrent(nullary);
-				mcache.put(predicate, nullary);
+				putPredicate(predicate, nullary);
 			} else {
 				// Nothing changed so no update is needed.
 			}
 
 		} else {
-			ConcreteKAryPredicate pred = (ConcreteKAryPredicate) mcache
+			ConcretePredicate pred = mcache
 					.get(predicate);
 
 			if (pred == null) {
 				if (val == Kleene.falseKleene)
 					return;
-				pred = new ConcreteKAryPredicate(predicate.arity());
+				pred = newConcretePredicate(predicate.arity());
 				// FIXME: change back for flik.
 				// pred.setUniverse(U);
 
-				predicates.put(predicate, pred);
-				mcache.put(predicate, pred);
+				putPredicate(predicate, pred);
 /*				
 			} else {
 				pred.modify();
@@ -462,12 +485,11 @@ public abstract class BaseTVS extends HighLevelTVS implements
 */
 			} else if (pred.numberSatisfy() == 1 && val == Kleene.falseKleene) {
 				if (pred.iterator().next().getKey().equals(tuple)) {
-					predicates.remove(predicate);
-					mcache.remove(predicate);
+					removePredicate(predicate);
 				}
 				return;
 			} else {
-				pred.modify();
+				pred = modifiablePredicate(predicate, pred);
 			}
 			pred.set(tuple, val);
 
@@ -485,9 +507,18 @@ public abstract class BaseTVS extends HighLevelTVS implements
 		return node;
 	}
 
+	public final Node newNode(Node node) {
+		U.addFirst(node);
+
+		clearCanonic();
+		update(Vocabulary.active, node, Kleene.trueKleene);
+		return node;
+	}
+
 	public final void removeNode(Node n) {
 		clearCanonic();
 
+		ownPredicates();
 		for (Iterator<Map.Entry<Predicate, ConcretePredicate>> i = predicates
 				.entrySet().iterator(); i.hasNext();) {
 			Map.Entry<Predicate, ConcretePredicate> entry = i.next();
@@ -495,9 +526,7 @@ public abstract class BaseTVS extends HighLevelTVS implements
 			if (predicate.arity() == 0)
 				continue;
 
-			ConcretePredicate concrete = entry.getValue();
-
-			concrete.modify();
+			ConcretePredicate concrete = modifiablePredicate(predicate, entry.getValue());
 			concrete.removeNode(n);
 			if (concrete.isAllFalse()) {
 				mcache.remove(predicate);
@@ -532,6 +561,20 @@ public abstract class BaseTVS extends HighLevelTVS implements
 	public final void clearCanonic() {
 		this.canonic = null;
 		this.invCanonic = null;
+		this.signature = null;
+	}
+
+	/**
+	 * Returns the signature of this structure, computing it on the first
+	 * call after a change.
+	 */
+	public final StructureSignature getSignature() {
+		StructureSignature result = signature;
+		if (result == null) {
+			result = new StructureSignature(this);
+			signature = result;
+		}
+		return result;
 	}
 
 	/**
@@ -590,6 +633,7 @@ public abstract class BaseTVS extends HighLevelTVS implements
 
 		// INCREMENTS
 
+		ownPredicates();
 		for (Map.Entry<Predicate, ConcretePredicate> predicateEntry : predicates
 				.entrySet()) {
 			ConcretePredicate concrete = predicateEntry.getValue();
@@ -598,7 +642,7 @@ public abstract class BaseTVS extends HighLevelTVS implements
 				continue;
 
 			Predicate predicate = predicateEntry.getKey();
-			ConcreteKAryPredicate karyPredicate = (ConcreteKAryPredicate) concrete;
+			ConcretePredicate karyPredicate = concrete;
 			Iterator<? extends NodeTuple> tupleIter = NodeTupleIterator
 					.createIterator(nodes(), predicate.arity());
 			while (tupleIter.hasNext()) {
@@ -609,7 +653,7 @@ public abstract class BaseTVS extends HighLevelTVS implements
 				Kleene value = karyPredicate.get(destTuple);
 
 				if (value != Kleene.falseKleene) {
-					karyPredicate.modify();
+					karyPredicate = modifiablePredicate(predicate, karyPredicate);
 					karyPredicate.set(tuple, value);
 					// ModifiedPredicates.modify(predicate);
 				}
@@ -619,31 +663,69 @@ public abstract class BaseTVS extends HighLevelTVS implements
 		return newNode;
 	}
 
+	/**
+	 * Creates an empty interpretation for a predicate of the specified arity.
+	 * Subclasses override this method to use another representation.
+	 */
+	protected ConcretePredicate newConcretePredicate(int arity) {
+		return new ConcreteKAryPredicate(arity);
+	}
+
 	public Iterator<Predicate> nonZeroPredicates() {
 		return predicates.keySet().iterator();
 	}
 
 	/**
-	 * @author Tal Lev-Ami
-	 * @todo generalize this to be arity independent
+	 * Copies the predicates map if it may be shared with another structure.
+	 * Must be called before the map is modified.
 	 */
-	private void copyPredicate(TVS structure, Predicate predicate) {
-		clearCanonic();
-		BaseTVS base = (BaseTVS) structure;
-
-		// ModifiedPredicates.modify(predicate);
-		ConcretePredicate concrete = (ConcretePredicate) base.predicates
-				.get(predicate);
+	private void ownPredicates() {
+		if (predicatesShared) {
+			predicates = HashMapFactory.make(predicates);
+			predicatesShared = false;
+		}
+	}
 
-		if (concrete != null) {
-			concrete = concrete.copy();
-			if (concrete instanceof ConcreteKAryPredicateFlik) {
-				((ConcreteKAryPredicateFlik) concrete).setUniverse(U);
-			}
-			this.predicates.put(predicate, concrete);
-		} else {
-			this.predicates.remove(predicate);
+	/**
+	 * Returns the concrete predicate of the specified predicate, ready to
+	 * be modified. The given concrete predicate is replaced by a copy if
+	 * another structure shares it.
+	 */
+	final ConcretePredicate modifiablePredicate(Predicate predicate,
+			ConcretePredicate concrete) {
+		ConcretePredicate result = concrete.modifiableInstance();
+		if (result != concrete) {
+			// Replacing the value of an existing key does not invalidate
+			// iterators over the map.
+			ownPredicates();
+			predicates.put(predicate, result);
+			mcache.put(predicate, result);
 		}
+		result.modify();
+		return result;
+	}
+
+	/**
+	 * Sets the concrete predicate of the specified predicate.
+	 */
+	final void putPredicate(Predicate predicate, ConcretePredicate concrete) {
+		ownPredicates();
+		ConcretePredicate old = predicates.put(predicate, concrete);
+		if (old != null && old != concrete)
+			old.unshareInstance();
+		mcache.put(predicate, concrete);
+	}
+
+	/**
+	 * Removes the concrete predicate of the specified predicate, making it
+	 * false for all tuples.
+	 */
+	final void removePredicate(Predicate predicate) {
+		ownPredicates();
+		ConcretePredicate old = predicates.remove(predicate);
+		if (old != null)
+			old.unshareInstance();
+		mcache.remove(predicate);
 	}
 
 	public void pack() {
@@ -719,7 +801,7 @@ public abstract class BaseTVS extends HighLevelTVS implements
 			ConcretePredicate cp = predicates.get(p);
 			if (cp == null)
 				continue;
-			if (cp instanceof ConcreteKAryPredicate)
+			if (!(cp instanceof ConcreteNullaryPredicate))
 				fullSize += cp.numberSatisfy() * p.rank;
 		}
 		if (fullSize < incSize * IncrementsEfficiencyMultiplier)
@@ -755,6 +837,7 @@ public abstract class BaseTVS extends HighLevelTVS implements
 		if (modifiedPredicates == null)
 			modifiedPredicates = HashSetFactory.make(2); // was 31
 		modifiedPredicates.add(p);
+		signature = null;
 		// coerced = false;
 	}
 
@@ -830,7 +913,7 @@ public abstract class BaseTVS extends HighLevelTVS implements
             if (p.arity() == 0)
                 continue;
 
-            ConcreteKAryPredicate cp = (ConcreteKAryPredicate) mcache.get(p);
+            ConcretePredicate cp = mcache.get(p);
             if (cp != null)
                 modifiedPredicates.add(p);
         }
@@ -838,7 +921,7 @@ public abstract class BaseTVS extends HighLevelTVS implements
         for (Predicate p : only_preds2) {
             if (p.arity() == 0)
                 continue;
-            ConcreteKAryPredicate cp = (ConcreteKAryPredicate) originalStructure.predicates
+            ConcretePredicate cp = originalStructure.predicates
                     .get(p);
             if (cp != null)
                 modifiedPredicates.add(p);
@@ -848,9 +931,9 @@ public abstract class BaseTVS extends HighLevelTVS implements
             if (p.arity() == 0)
                 continue;
 
-            ConcreteKAryPredicate cp_this = (ConcreteKAryPredicate) mcache
+            ConcretePredicate cp_this = mcache
                     .get(p);
-            ConcreteKAryPredicate cp_orig = (ConcreteKAryPredicate) originalStructure.predicates
+            ConcretePredicate cp_orig = originalStructure.predicates
                     .get(p);
 
             if (cp_this.wasModified(cp_orig)) {
@@ -908,7 +991,7 @@ public abstract class BaseTVS extends HighLevelTVS implements
 				map.put(new PredicateNode(p, NodeTuple.EMPTY_TUPLE), eval(p));
 				continue;
 			}
-			ConcreteKAryPredicate cp = (ConcreteKAryPredicate) mcache.get(p);
+			ConcretePredicate cp = mcache.get(p);
 			if (cp == null)
 				continue;
 
@@ -924,7 +1007,7 @@ public abstract class BaseTVS extends HighLevelTVS implements
 				continue;
 			}
 
-			ConcreteKAryPredicate cp = (ConcreteKAryPredicate) orig.predicates
+			ConcretePredicate cp = orig.predicates
 					.get(p);
 			if (cp == null)
 				continue;
@@ -946,9 +1029,9 @@ public abstract class BaseTVS extends HighLevelTVS implements
     				continue;
     			}
     
-    			ConcreteKAryPredicate cp_this = (ConcreteKAryPredicate) mcache
+    			ConcretePredicate cp_this = mcache
     					.get(p);
-    			ConcreteKAryPredicate cp_orig = (ConcreteKAryPredicate) orig.predicates
+    			ConcretePredicate cp_orig = orig.predicates
     					.get(p);
     
     			if (!cp_this.wasModified(cp_orig)) {
@@ -987,9 +1070,9 @@ public abstract class BaseTVS extends HighLevelTVS implements
     				continue;
     			}
     
-                ConcreteKAryPredicate cp_this = (ConcreteKAryPredicate) mcache
+                ConcretePredicate cp_this = mcache
                         .get(p);
-                ConcreteKAryPredicate cp_orig = (ConcreteKAryPredicate) orig.predicates
+                ConcretePredicate cp_orig = orig.predicates
                         .get(p);
     
                 if (!cp_this.wasModified(cp_orig)) {
@@ -1031,7 +1114,7 @@ public abstract class BaseTVS extends HighLevelTVS implements
 	}
 
     private boolean useFocusMapping() {
-        return IncrementFocusedNodes && Engine.activeEngine.doCoerceAfterFocus;
+        return IncrementFocusedNodes && Engine.getActiveEngine().doCoerceAfterFocus;
     }
 
     @SuppressWarnings("unchecked")
@@ -1099,8 +1182,7 @@ public abstract class BaseTVS extends HighLevelTVS implements
         clearCanonic();
 		
 		for (Predicate predicate : onlyOld.all()) {
-			mcache.remove(predicate);
-			predicates.remove(predicate);
+			removePredicate(predicate);
 		}
 		vocabulary = newVoc;
 		for (Predicate predicate : onlyNew.all()) {
@@ -1116,13 +1198,11 @@ public abstract class BaseTVS extends HighLevelTVS implements
 			update(predicate, value);
 		} else {
             BaseTVSCache.modify(this, predicate);
-            ConcreteKAryPredicate concrete = new ConcreteKAryPredicate(predicate.arity());
+            ConcretePredicate concrete = newConcretePredicate(predicate.arity());
             if (U.isEmpty() || value == Kleene.falseKleene) {
-            	predicates.remove(predicate);
-            	mcache.remove(predicate);
+            	removePredicate(predicate);
             } else {
-	            predicates.put(predicate, concrete);
-				mcache.put(predicate, concrete);
+	            putPredicate(predicate, concrete);
 	
 	            Iterator<? extends NodeTuple> iterator = NodeTupleIterator
 						.createIterator(U, predicate.arity());
@@ -1182,6 +1262,7 @@ public abstract class BaseTVS extends HighLevelTVS implements
             }
         }
         
+        ownPredicates();
         for (Iterator<Map.Entry<Predicate, ConcretePredicate>> i = predicates
                 .entrySet().iterator(); i.hasNext();) {
             Map.Entry<Predicate, ConcretePredicate> entry = i.next();
@@ -1189,9 +1270,7 @@ public abstract class BaseTVS extends HighLevelTVS implements
             if (predicate.arity() == 0)
                 continue;
 
-            ConcretePredicate concrete = entry.getValue();
-
-            concrete.modify();
+            ConcretePredicate concrete = modifiablePredicate(predicate, entry.getValue());
             concrete.removeNodes(toRemove);
             if (concrete.isAllFalse()) {
                 mcache.remove(predicate);
@@ -11,12 +11,26 @@ import tvla.predicates.Predicate;
 import tvla.util.HashMapFactory;
 
 public class BaseTVSCache {
-	static Map<Predicate, Map<NullableNodeTuple, Collection<NodeValue>>> map = null;
-	static TVS current = null;
+	/** The cached values and the structure they belong to.
+	 * Each thread caches values for the structure it is evaluating.
+	 */
+	private static class State {
+		Map<Predicate, Map<NullableNodeTuple, Collection<NodeValue>>> map = null;
+		TVS current = null;
+	}
+	
+	private static ThreadLocal<State> state = newState();
 
 	public static void reset() {
-		map = null;
-		current = null;
+		state = newState();
+	}
+	
+	private static ThreadLocal<State> newState() {
+		return new ThreadLocal<State>() {
+			protected State initialValue() {
+				return new State();
+			}
+		};
 	}
 	
 	private static class NullableNodeTuple {
@@ -53,35 +67,38 @@ public class BaseTVSCache {
 	}
 	
 	public static void setValues(TVS structure, Predicate pred, Node[] other, Collection<NodeValue> values) {
-		if (map == null) {
-			map = HashMapFactory.make();
+		State state = BaseTVSCache.state.get();
+		if (state.map == null) {
+			state.map = HashMapFactory.make();
 		}
-		if (structure != current) {
-			map.clear();
-			current = structure;
+		if (structure != state.current) {
+			state.map.clear();
+			state.current = structure;
 		}
-		Map<NullableNodeTuple, Collection<NodeValue>> other2values = map.get(pred);
+		Map<NullableNodeTuple, Collection<NodeValue>> other2values = state.map.get(pred);
 		if (other2values == null) {
 			other2values = HashMapFactory.make();
 		}
 		other2values.put(new NullableNodeTuple(other, true), values);
-		map.put(pred, other2values);
+		state.map.put(pred, other2values);
 	}
 	
 	public static void modify(TVS structure, Predicate pred) {
-		if (structure == current) {
-			map.remove(pred);
+		State state = BaseTVSCache.state.get();
+		if (structure == state.current) {
+			state.map.remove(pred);
 		}
 	}
 	
 	public static Collection<NodeValue> getValues(TVS structure, Predicate pred, Node[] other) {
-		if (map == null)
+		State state = BaseTVSCache.state.get();
+		if (state.map == null)
 			return null;
 		
-		if (structure != current)
+		if (structure != state.current)
 			return null;
 		
-        Map<NullableNodeTuple, Collection<NodeValue>> other2values = map.get(pred);
+        Map<NullableNodeTuple, Collection<NodeValue>> other2values = state.map.get(pred);
         if (other2values == null) {
 			return null;
         }
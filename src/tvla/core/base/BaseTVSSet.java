@@ -3,7 +3,6 @@ package tvla.core.base;
 import java.util.Collection;
 import java.util.Iterator;
 
-import tvla.analysis.AnalysisStatus;
 import tvla.core.Canonic;
 import tvla.core.HighLevelTVS;
 import tvla.core.Node;
@@ -20,9 +19,9 @@ public class BaseTVSSet extends GenericTVSSet {
 	 */
 	public HighLevelTVS mergeWith (HighLevelTVS structure) {
         if (structure.getStructureGroup() != null) throw new RuntimeException("Join doesn't support structure group");
-		AnalysisStatus.getActiveStatus().startTimer(AnalysisStatus.BLUR_TIME);
+		startBlurTimer();
 		structure.blur();
-		AnalysisStatus.getActiveStatus().stopTimer(AnalysisStatus.BLUR_TIME);
+		stopBlurTimer();
 
 		cleanup();
 		boolean found = false;
@@ -0,0 +1,50 @@
+package tvla.core.base;
+
+import tvla.core.TVS;
+import tvla.core.base.concrete.ConcretePredicate;
+import tvla.core.base.concrete.PackedBinaryPredicate;
+import tvla.core.base.concrete.PackedUnaryPredicate;
+import tvla.predicates.DynamicVocabulary;
+
+/** A BaseHighLevelTVS that packs the values of unary and binary predicates
+ * into two bits per node or node pair.
+ * @see tvla.core.base.concrete.PackedUnaryPredicate
+ * @see tvla.core.base.concrete.PackedBinaryPredicate
+ */
+public class PackedHighLevelTVS extends BaseHighLevelTVS {
+  /** Constructs and initializes an empty PackedHighLevelTVS.
+   */
+  public PackedHighLevelTVS() {
+    super();
+  }
+  
+  public PackedHighLevelTVS(DynamicVocabulary vocabulary) {
+    super(vocabulary);
+  }
+  
+  /** Conversion constructor.
+   */
+  public PackedHighLevelTVS(TVS other) {
+    super(other);
+  }
+  
+  /** Returns a copy of this structure.
+   */
+  public PackedHighLevelTVS copy() {
+    return new PackedHighLevelTVS(this);
+  }
+  
+  /** Creates a packed interpretation for unary and binary predicates.
+   * Predicates of higher arity use the default representation.
+   */
+  protected ConcretePredicate newConcretePredicate(int arity) {
+    switch (arity) {
+    case 1:
+      return new PackedUnaryPredicate();
+    case 2:
+      return new PackedBinaryPredicate();
+    default:
+      return super.newConcretePredicate(arity);
+    }
+  }
+}
@@ -0,0 +1,28 @@
+package tvla.core.base;
+
+import tvla.core.HighLevelTVS;
+import tvla.predicates.DynamicVocabulary;
+
+/** A factory for structures that store the values of unary and binary
+ * predicates in packed arrays.
+ * Selected by setting tvla.implementation to packed.
+ */
+public class PackedTVSFactory extends BaseTVSFactory {
+	/** Constructs and initializes a PackedTVSFactory object.
+	 */
+	public PackedTVSFactory() {
+		super();
+	}
+	
+	/** Returns a new empty structure.
+	 */
+	public HighLevelTVS makeEmptyTVS () {
+		return new PackedHighLevelTVS();
+	}
+	
+	/** Returns a new empty structure.
+	 */
+	public HighLevelTVS makeEmptyTVS (DynamicVocabulary vocabulary) {
+		return new PackedHighLevelTVS(vocabulary);
+	}
+}
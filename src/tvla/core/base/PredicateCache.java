@@ -1,29 +1,40 @@
 package tvla.core.base;
 
-import java.util.Map;
 import java.util.Iterator;
 import tvla.predicates.Predicate;
 import tvla.core.TVS;
 import tvla.core.base.concrete.ConcretePredicate;
 
 final class PredicateCache {
-	final private Map<Predicate, ConcretePredicate> predicates;
-	final private TVS structure;
+	final private BaseTVS structure;
 	
-	public PredicateCache(Map<Predicate, ConcretePredicate> predicates, TVS structure) {
-		this.predicates = predicates;
+	/** An immutable snapshot of a cached lookup, stored in the predicate.
+	 */
+	private static final class Entry {
+		final TVS structure;
+		final ConcretePredicate reference;
+		
+		Entry(TVS structure, ConcretePredicate reference) {
+			this.structure = structure;
+			this.reference = reference;
+		}
+	}
+	
+	/** The predicates map is read from the structure, since it is replaced
+	 * when a shared map is first modified.
+	 */
+	public PredicateCache(BaseTVS structure) {
 		this.structure = structure;
 	}
 	
 	final ConcretePredicate get(Predicate p) {
-
-		if (p.cachedStructure == structure)
-			return (ConcretePredicate) p.cachedReference;
+		Entry entry = (Entry) p.cachedEntry;
+		if (entry != null && entry.structure == structure)
+			return entry.reference;
 		else {
 
-		    ConcretePredicate o = predicates.get(p);
-			p.cachedStructure = structure;
-			p.cachedReference = o;
+		    ConcretePredicate o = structure.predicates.get(p);
+			p.cachedEntry = new Entry(structure, o);
 			return o;
 		}
 	}
@@ -33,23 +44,22 @@ final class PredicateCache {
 	//}
 
 	final void put(Predicate p, ConcretePredicate o) {
-		p.cachedStructure = structure;
-		p.cachedReference = o;
+		p.cachedEntry = new Entry(structure, o);
 	}
 	
 	final void remove(Predicate p) {
-		p.cachedStructure = structure;
-		p.cachedReference = null;
+		p.cachedEntry = new Entry(structure, null);
 	}
 	
 	final void clear() {
-		for (Iterator<Predicate> it = predicates.keySet().iterator(); it.hasNext();) {
-			it.next().cachedStructure = null;
+		for (Iterator<Predicate> it = structure.predicates.keySet().iterator(); it.hasNext();) {
+			clear(it.next());
 		}
 	}
 
     public void clear(Predicate p) {
-        p.cachedStructure = null;
+		Entry entry = (Entry) p.cachedEntry;
+		if (entry != null && entry.structure == structure)
+			p.cachedEntry = null;
     }
 }
-
@@ -3,7 +3,6 @@ package tvla.core.base;
 import tvla.core.Node;
 import tvla.core.NodeTuple;
 import tvla.core.TVS;
-import tvla.core.base.concrete.ConcreteKAryPredicate;
 import tvla.core.base.concrete.ConcretePredicate;
 import tvla.logic.Kleene;
 import tvla.predicates.Predicate;
@@ -55,16 +54,15 @@ public abstract class PredicateUpdater {
                             modify();
                             concrete.set(tuple, value);
                             if (concrete.isAllFalse()) {
-                                baseTvs.predicates.remove(predicate);
-                                baseTvs.mcache.remove(predicate);
+                                baseTvs.removePredicate(predicate);
+                                concrete = null;
                             }
                         }
                     } else {
                         modify();
                         if (concrete == null) {
-                            concrete = new ConcreteKAryPredicate(predicate.arity());
-                            baseTvs.predicates.put(predicate, concrete);
-                            baseTvs.mcache.put(predicate, concrete);
+                            concrete = baseTvs.newConcretePredicate(predicate.arity());
+                            baseTvs.putPredicate(predicate, concrete);
                         } 
                         concrete.set(tuple, value);
                     }
@@ -74,7 +72,7 @@ public abstract class PredicateUpdater {
                         baseTvs.clearCanonic();
                         BaseTVSCache.modify(baseTvs, predicate);
                         if (concrete != null) {
-                            concrete.modify();
+                            concrete = baseTvs.modifiablePredicate(predicate, concrete);
                         }
                         first = false;
                     }
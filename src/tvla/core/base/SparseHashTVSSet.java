@@ -5,7 +5,6 @@ import java.util.Iterator;
 import java.util.Set;
 import java.util.TreeSet;
 
-import tvla.analysis.AnalysisStatus;
 import tvla.core.HighLevelTVS;
 import tvla.core.Node;
 import tvla.core.TVS;
@@ -35,20 +34,20 @@ public class SparseHashTVSSet extends BaseHashTVSSet {
 	 */
 	public HighLevelTVS mergeWith(HighLevelTVS structure) {
         if (structure.getStructureGroup() != null) throw new RuntimeException("Join doesn't support structure group");
-		AnalysisStatus.getActiveStatus().startTimer(AnalysisStatus.BLUR_TIME);
+		startBlurTimer();
 		structure.blur();
-		AnalysisStatus.getActiveStatus().stopTimer(AnalysisStatus.BLUR_TIME);
+		stopBlurTimer();
 
 		cleanup();
 		Object signature = createSignature(structure);
 		Collection matching = (Collection) joinHash.get(signature);
-		++hashAccessAttempts; // STATISTICS
+		hashAccessAttempts.incrementAndGet(); // STATISTICS
 		if (matching != null) {
 			candidate = structure;
 
 			for (Iterator structuresIt = matching.iterator(); structuresIt.hasNext(); ) {
 				old = (HighLevelTVS) structuresIt.next();
-				++hashColisions; // STATISTICS
+				hashColisions.incrementAndGet(); // STATISTICS
 				if (isomorphic())
 					return null;
 			}
@@ -185,7 +185,8 @@ public final class ConcreteKAryPredicate extends ConcretePredicate {
     }
 
     
-    public boolean wasModified(ConcreteKAryPredicate orig) {
-        return this.values != orig.values;
+    @Override
+    public boolean wasModified(ConcretePredicate orig) {
+        return !(orig instanceof ConcreteKAryPredicate) || this.values != ((ConcreteKAryPredicate) orig).values;
     }
 }
@@ -20,6 +20,12 @@ public abstract class ConcretePredicate implements Iterable<Map.Entry<NodeTuple,
      */
     protected boolean isShared;
 
+    /**
+     * The number of structures, other than the first one, that hold this
+     * instance in their predicate tables (see BaseTVS).
+     */
+    private int structureShares = 0;
+
     /**
      * Create a concrete with a null predicate
      */
@@ -38,6 +44,13 @@ public abstract class ConcretePredicate implements Iterable<Map.Entry<NodeTuple,
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Retrieves the predicate's interpretation for the specified node pair.
+     */
+    public Kleene get(Node left, Node right) {
+        return get(NodeTuple.createPair(left, right));
+    }
+
     /**
      * Assigns a new interpretation to the specified tuple.
      */
@@ -58,6 +71,45 @@ public abstract class ConcretePredicate implements Iterable<Map.Entry<NodeTuple,
     public void modify() {
     }
 
+    /**
+     * Records that another structure holds this instance.
+     * Share counting is synchronized since copies of the same structure
+     * may be modified by different analysis threads.
+     */
+    public final synchronized void shareInstance() {
+        structureShares++;
+    }
+
+    /**
+     * Records that a structure no longer holds this instance.
+     */
+    public final synchronized void unshareInstance() {
+        if (structureShares > 0) {
+            structureShares--;
+        }
+    }
+
+    /**
+     * Returns an instance that a structure holding this instance may
+     * modify: this instance if no other structure holds it, and otherwise
+     * a copy, which shares the values until they are modified.
+     */
+    public final synchronized ConcretePredicate modifiableInstance() {
+        if (structureShares > 0) {
+            structureShares--;
+            return copy();
+        }
+        return this;
+    }
+
+    /**
+     * Returns false if this predicate still shares its values with the
+     * specified predicate, from which it was copied.
+     */
+    public boolean wasModified(ConcretePredicate orig) {
+        return true;
+    }
+
     /**
      * Clear all the true and unknown values of the predicate.
      */
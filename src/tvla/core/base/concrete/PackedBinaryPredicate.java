@@ -0,0 +1,481 @@
+package tvla.core.base.concrete;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import tvla.core.Node;
+import tvla.core.NodeTuple;
+import tvla.core.common.NodePair;
+import tvla.logic.Kleene;
+import tvla.util.AnalysisContext;
+
+/** A binary predicate interpretation that packs the value of every node pair
+ * into two bits, indexed by the ids of the nodes.
+ * Most binary predicates hold for few pairs, so the values are first kept in
+ * an open-addressing table of packed (first, second, value) words. Once the
+ * predicate holds for enough pairs the table is replaced by a dense matrix of
+ * two-bit values, which is then smaller.
+ * The values are encoded as in Kleene.kleene().
+ * @see tvla.core.base.PackedHighLevelTVS
+ */
+public final class PackedBinaryPredicate extends ConcretePredicate {
+    /** Marks a removed entry of the sparse table.
+     */
+    private static final long REMOVED = -1L;
+
+    /** The smallest dimension of the dense matrix.
+     */
+    private static final int MIN_DIMENSION = 8;
+
+    /** The open-addressing table of the sparse representation, or null if
+     * the predicate is dense. Each used entry holds
+     * (first << 33) | (second << 2) | value, where value is never 0.
+     */
+    private long[] table;
+
+    /** The number of used and removed entries of the sparse table.
+     */
+    private int occupied;
+
+    /** The largest node id in the sparse table.
+     */
+    private int maxId;
+
+    /** The values of the dense representation, or null if the predicate is
+     * sparse. The value of (first, second) is at position
+     * first * dimension + second, 32 positions to a word.
+     */
+    private long[] matrix;
+
+    /** The number of rows and columns of the dense matrix.
+     */
+    private int dimension;
+
+    /** The number of pairs with a non-false value.
+     */
+    private int size;
+
+    public PackedBinaryPredicate() {
+        super();
+        this.table = new long[8];
+    }
+
+    /** Constructs a predicate that shares its values with the specified
+     * predicate, until one of them is modified.
+     */
+    public PackedBinaryPredicate(PackedBinaryPredicate other) {
+        super();
+        this.table = other.table;
+        this.occupied = other.occupied;
+        this.maxId = other.maxId;
+        this.matrix = other.matrix;
+        this.dimension = other.dimension;
+        this.size = other.size;
+        this.isShared = true;
+        other.isShared = true;
+    }
+
+    @Override
+    public PackedBinaryPredicate copy() {
+        return new PackedBinaryPredicate(this);
+    }
+
+    /** Creates a fresh copy of the predicate's values (copy on write).
+     */
+    @Override
+    public void modify() {
+        if (isShared) {
+            if (table != null)
+                table = table.clone();
+            else
+                matrix = matrix.clone();
+            isShared = false;
+        }
+    }
+
+    @Override
+    public boolean wasModified(ConcretePredicate orig) {
+        if (!(orig instanceof PackedBinaryPredicate))
+            return true;
+        PackedBinaryPredicate other = (PackedBinaryPredicate) orig;
+        return table != other.table || matrix != other.matrix;
+    }
+
+    @Override
+    public int numberSatisfy() {
+        return size;
+    }
+
+    @Override
+    public Kleene get(NodeTuple tuple) {
+        return Kleene.kleene((byte) get(tuple.get(0).id(), tuple.get(1).id()));
+    }
+
+    @Override
+    public Kleene get(Node left, Node right) {
+        return Kleene.kleene((byte) get(left.id(), right.id()));
+    }
+
+    private int get(int first, int second) {
+        if (table != null) {
+            int index = find(table, first, second);
+            return index < 0 ? 0 : (int) (table[index] & 3);
+        }
+        if (first >= dimension || second >= dimension)
+            return 0;
+        int position = first * dimension + second;
+        return (int) (matrix[position >>> 5] >>> ((position & 31) << 1)) & 3;
+    }
+
+    @Override
+    public void set(NodeTuple tuple, Kleene value) {
+        set(tuple.get(0).id(), tuple.get(1).id(), value.kleene());
+    }
+
+    private void set(int first, int second, int value) {
+        int oldValue = get(first, second);
+        if (oldValue == value)
+            return;
+        modify();
+        if (oldValue == 0)
+            ++size;
+        else if (value == 0)
+            --size;
+
+        if (table != null) {
+            if (oldValue != 0) {
+                int index = find(table, first, second);
+                table[index] = value == 0 ? REMOVED : entry(first, second, value);
+                return;
+            }
+            maxId = Math.max(maxId, Math.max(first, second));
+            int needed = maxId + 1;
+            if (size > needed * needed / 32 && size > MIN_DIMENSION) {
+                toDense(needed);
+            }
+            else {
+                if ((occupied + 1) * 2 > table.length)
+                    rehash();
+                insert(table, entry(first, second, value));
+                ++occupied;
+                return;
+            }
+        }
+
+        if (first >= dimension || second >= dimension) {
+            if (value == 0)
+                return;
+            resize(Math.max(first, second) + 1);
+        }
+        int position = first * dimension + second;
+        int shift = (position & 31) << 1;
+        int word = position >>> 5;
+        matrix[word] = (matrix[word] & ~(3L << shift)) | ((long) value << shift);
+    }
+
+    @Override
+    public void clear() {
+        table = new long[8];
+        occupied = 0;
+        maxId = 0;
+        matrix = null;
+        dimension = 0;
+        size = 0;
+        isShared = false;
+    }
+
+    @Override
+    public void removeNode(Node node) {
+        int id = node.id();
+        if (table != null) {
+            for (int index = 0; index < table.length; ++index) {
+                long entry = table[index];
+                if (entry != 0 && entry != REMOVED && (first(entry) == id || second(entry) == id)) {
+                    modify();
+                    table[index] = REMOVED;
+                    --size;
+                }
+            }
+        }
+        else if (id < dimension) {
+            for (int other = 0; other < dimension; ++other) {
+                set(id, other, 0);
+                set(other, id, 0);
+            }
+        }
+    }
+
+    @Override
+    public Iterator<Map.Entry<NodeTuple, Kleene>> iterator() {
+        return new ValueIterator(-1, -1, null);
+    }
+
+    /**
+     * @param desiredValue - unknown or true, does not support false.
+     * @return iterator over the node pairs with the desired Kleene value
+     */
+    @Override
+    public Iterator<Map.Entry<NodeTuple, Kleene>> satisfyingTupleIterator(Node[] partialNodes, Kleene desiredValue) {
+        int first = -1;
+        int second = -1;
+        if (partialNodes != null) {
+            if (partialNodes[0] != null)
+                first = partialNodes[0].id();
+            if (partialNodes[1] != null)
+                second = partialNodes[1].id();
+        }
+        return new ValueIterator(first, second, desiredValue);
+    }
+
+    private static long entry(int first, int second, int value) {
+        return ((long) first << 33) | ((long) second << 2) | value;
+    }
+
+    private static int first(long entry) {
+        return (int) (entry >>> 33);
+    }
+
+    private static int second(long entry) {
+        return (int) (entry >>> 2) & 0x7FFFFFFF;
+    }
+
+    private static int hash(int first, int second) {
+        int hash = first * 0x9E3779B9 + second;
+        return hash ^ (hash >>> 16);
+    }
+
+    /** Returns the index of the entry for the specified pair, or -1.
+     */
+    private static int find(long[] table, int first, int second) {
+        int mask = table.length - 1;
+        long key = entry(first, second, 0);
+        for (int index = hash(first, second) & mask; ; index = (index + 1) & mask) {
+            long entry = table[index];
+            if (entry == 0)
+                return -1;
+            if (entry != REMOVED && (entry & ~3L) == key)
+                return index;
+        }
+    }
+
+    private static void insert(long[] table, long entry) {
+        int mask = table.length - 1;
+        int index = hash(first(entry), second(entry)) & mask;
+        while (table[index] != 0 && table[index] != REMOVED)
+            index = (index + 1) & mask;
+        table[index] = entry;
+    }
+
+    private void rehash() {
+        int capacity = table.length;
+        while (size * 4 > capacity)
+            capacity *= 2;
+        long[] newTable = new long[capacity];
+        for (long entry : table) {
+            if (entry != 0 && entry != REMOVED)
+                insert(newTable, entry);
+        }
+        table = newTable;
+        occupied = size - 1; // The entry being added is counted by the caller.
+    }
+
+    /** Replaces the sparse table by a dense matrix.
+     */
+    private void toDense(int needed) {
+        long[] oldTable = table;
+        table = null;
+        occupied = 0;
+        maxId = 0;
+        dimension = 0;
+        matrix = new long[0];
+        resize(needed);
+        for (long entry : oldTable) {
+            if (entry != 0 && entry != REMOVED) {
+                int position = first(entry) * dimension + second(entry);
+                matrix[position >>> 5] |= (entry & 3) << ((position & 31) << 1);
+            }
+        }
+    }
+
+    /** Grows the dense matrix to hold the specified number of nodes.
+     */
+    private void resize(int needed) {
+        int newDimension = Math.max(MIN_DIMENSION, dimension);
+        while (newDimension < needed)
+            newDimension *= 2;
+        long[] newMatrix = new long[(newDimension * newDimension + 31) >>> 5];
+        for (int first = 0; first < dimension; ++first) {
+            for (int second = 0; second < dimension; ++second) {
+                int position = first * dimension + second;
+                long value = (matrix[position >>> 5] >>> ((position & 31) << 1)) & 3;
+                if (value != 0) {
+                    int newPosition = first * newDimension + second;
+                    newMatrix[newPosition >>> 5] |= value << ((newPosition & 31) << 1);
+                }
+            }
+        }
+        matrix = newMatrix;
+        dimension = newDimension;
+        isShared = false;
+    }
+
+    /** Iterates over the pairs with a non-false value, optionally restricted
+     * to a given first or second node and a given value.
+     * The same entry object is returned by all calls to next().
+     */
+    private final class ValueIterator implements Iterator<Map.Entry<NodeTuple, Kleene>> {
+        private final long[] table = PackedBinaryPredicate.this.table;
+        private final long[] matrix = PackedBinaryPredicate.this.matrix;
+        private final int dimension = PackedBinaryPredicate.this.dimension;
+        private final int fixedFirst;
+        private final int fixedSecond;
+        private final int desiredValue;
+        private final Entry<NodeTuple, Kleene> entry = new Entry<NodeTuple, Kleene>();
+        /** The position of the next entry, or -1 if not yet found.
+         */
+        private int next = -1;
+        /** The position from which to look for the next entry.
+         */
+        private int position;
+        private int step = 1;
+        private int end;
+        private int lastFirst = -1;
+        private int lastSecond;
+
+        ValueIterator(int fixedFirst, int fixedSecond, Kleene desiredValue) {
+            this.fixedFirst = fixedFirst;
+            this.fixedSecond = fixedSecond;
+            this.desiredValue = desiredValue == null ? 0 : desiredValue.kleene();
+            if (table != null) {
+                end = table.length;
+            }
+            else if (fixedFirst >= 0) {
+                // Only scan the row of the first node.
+                position = fixedFirst < dimension ? fixedFirst * dimension : 0;
+                end = fixedFirst < dimension ? position + dimension : 0;
+            }
+            else if (fixedSecond >= 0) {
+                // Only scan the column of the second node.
+                position = fixedSecond;
+                step = dimension;
+                end = fixedSecond < dimension ? dimension * dimension : 0;
+            }
+            else {
+                end = dimension * dimension;
+            }
+        }
+
+        private boolean accepts(int first, int second, int value) {
+            return (fixedFirst < 0 || first == fixedFirst) &&
+                   (fixedSecond < 0 || second == fixedSecond) &&
+                   (desiredValue == 0 || value == desiredValue);
+        }
+
+        public boolean hasNext() {
+            if (next >= 0)
+                return true;
+            if (table != null) {
+                for (; position < end; ++position) {
+                    long value = table[position];
+                    if (value != 0 && value != REMOVED && accepts(first(value), second(value), (int) (value & 3))) {
+                        next = position++;
+                        return true;
+                    }
+                }
+                return false;
+            }
+            while (position < end) {
+                long word = matrix[position >>> 5] >>> ((position & 31) << 1);
+                if (word == 0 && step == 1) {
+                    // Skip the rest of the word.
+                    position = (position | 31) + 1;
+                    continue;
+                }
+                int value = (int) word & 3;
+                if (value != 0 && accepts(position / dimension, position % dimension, value)) {
+                    next = position;
+                    position += step;
+                    return true;
+                }
+                position += step;
+            }
+            return false;
+        }
+
+        public Map.Entry<NodeTuple, Kleene> next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            int value;
+            if (table != null) {
+                long packed = table[next];
+                lastFirst = first(packed);
+                lastSecond = second(packed);
+                value = (int) (packed & 3);
+            }
+            else {
+                lastFirst = next / dimension;
+                lastSecond = next % dimension;
+                value = (int) (matrix[next >>> 5] >>> ((next & 31) << 1)) & 3;
+            }
+            next = -1;
+            entry.setKey(pair(lastFirst, lastSecond));
+            entry.setValue(Kleene.kleene((byte) value));
+            return entry;
+        }
+
+        public void remove() {
+            if (lastFirst < 0)
+                throw new IllegalStateException();
+            set(lastFirst, lastSecond, 0);
+            lastFirst = -1;
+        }
+    }
+
+    /** The node pairs returned by the iterators, by the ids of their nodes.
+     * Pairs are immutable, so every pair is created once per context.
+     */
+    private static final class Pairs {
+        volatile NodePair[][] rows = new NodePair[0][];
+    }
+
+    private static final AnalysisContext.Slot<Pairs> pairs = new AnalysisContext.Slot<Pairs>() {
+        protected Pairs create() {
+            return new Pairs();
+        }
+    };
+
+    /** Returns the node pair with the specified ids.
+     */
+    private static NodeTuple pair(int first, int second) {
+        Pairs pairs = PackedBinaryPredicate.pairs.get();
+        NodePair[][] rows = pairs.rows;
+        if (first < rows.length) {
+            NodePair[] row = rows[first];
+            if (row != null && second < row.length) {
+                NodePair pair = row[second];
+                if (pair != null)
+                    return pair;
+            }
+        }
+        synchronized (pairs) {
+            rows = pairs.rows;
+            if (first >= rows.length)
+                rows = Arrays.copyOf(rows, Math.max(first + 1, rows.length * 2));
+            NodePair[] row = rows[first];
+            if (row == null || second >= row.length) {
+                row = row == null ? new NodePair[Math.max(second + 1, MIN_DIMENSION)] :
+                                    Arrays.copyOf(row, Math.max(second + 1, row.length * 2));
+                rows[first] = row;
+            }
+            NodePair pair = row[second];
+            if (pair == null) {
+                pair = (NodePair) NodeTuple.createPair(Node.nodeForID(first), Node.nodeForID(second));
+                row[second] = pair;
+            }
+            pairs.rows = rows;
+            return pair;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package tvla.core.base.concrete;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import tvla.core.Node;
+import tvla.core.NodeTuple;
+import tvla.logic.Kleene;
+import tvla.util.EmptyIterator;
+
+/** A unary predicate interpretation that packs the value of every node into
+ * two bits of a word array, indexed by the node's id.
+ * Structures reuse the smallest free node ids (see FnUniverse), so the array
+ * is proportional to the number of nodes in the structure.
+ * The values are encoded as in Kleene.kleene().
+ * @see tvla.core.base.PackedHighLevelTVS
+ */
+public final class PackedUnaryPredicate extends ConcretePredicate {
+    /** The values of the nodes, 32 nodes to a word.
+     */
+    private long[] bits;
+
+    /** The number of nodes with a non-false value.
+     */
+    private int size;
+
+    public PackedUnaryPredicate() {
+        super();
+        this.bits = new long[1];
+    }
+
+    /** Constructs a predicate that shares its values with the specified
+     * predicate, until one of them is modified.
+     */
+    public PackedUnaryPredicate(PackedUnaryPredicate other) {
+        super();
+        this.bits = other.bits;
+        this.size = other.size;
+        this.isShared = true;
+        other.isShared = true;
+    }
+
+    @Override
+    public PackedUnaryPredicate copy() {
+        return new PackedUnaryPredicate(this);
+    }
+
+    /** Creates a fresh copy of the predicate's values (copy on write).
+     */
+    @Override
+    public void modify() {
+        if (isShared) {
+            bits = bits.clone();
+            isShared = false;
+        }
+    }
+
+    @Override
+    public boolean wasModified(ConcretePredicate orig) {
+        return !(orig instanceof PackedUnaryPredicate) || bits != ((PackedUnaryPredicate) orig).bits;
+    }
+
+    @Override
+    public Kleene get(NodeTuple tuple) {
+        return get(((Node) tuple).id());
+    }
+
+    private Kleene get(int id) {
+        int word = id >>> 5;
+        if (word >= bits.length)
+            return Kleene.falseKleene;
+        return Kleene.kleene((byte) ((bits[word] >>> ((id & 31) << 1)) & 3));
+    }
+
+    @Override
+    public void set(NodeTuple tuple, Kleene value) {
+        int id = ((Node) tuple).id();
+        int word = id >>> 5;
+        int shift = (id & 31) << 1;
+        long newValue = value.kleene();
+        if (word >= bits.length) {
+            if (newValue == 0)
+                return;
+            bits = Arrays.copyOf(bits, Math.max(word + 1, bits.length * 2));
+            isShared = false;
+        }
+        long oldValue = (bits[word] >>> shift) & 3;
+        if (oldValue == newValue)
+            return;
+        modify();
+        if (oldValue == 0)
+            ++size;
+        else if (newValue == 0)
+            --size;
+        bits[word] = (bits[word] & ~(3L << shift)) | (newValue << shift);
+    }
+
+    @Override
+    public void clear() {
+        if (size == 0)
+            return;
+        bits = new long[bits.length];
+        isShared = false;
+        size = 0;
+    }
+
+    @Override
+    public int numberSatisfy() {
+        return size;
+    }
+
+    @Override
+    public void removeNode(Node node) {
+        set(node, Kleene.falseKleene);
+    }
+
+    @Override
+    public Iterator<Map.Entry<NodeTuple, Kleene>> iterator() {
+        return new ValueIterator(null);
+    }
+
+    /**
+     * @param desiredValue - unknown or true, does not support false.
+     * @return iterator over the nodes with the desired Kleene value
+     */
+    @Override
+    public Iterator<Map.Entry<NodeTuple, Kleene>> satisfyingTupleIterator(Node[] partialNodes, Kleene desiredValue) {
+        if (partialNodes != null && partialNodes[0] != null) {
+            Node node = partialNodes[0];
+            Kleene value = get(node.id());
+            if (value == Kleene.falseKleene || (desiredValue != null && value != desiredValue))
+                return EmptyIterator.instance();
+            return new ValueIterator(node.id());
+        }
+        return new ValueIterator(desiredValue);
+    }
+
+    /** Iterates over the nodes with a non-false value.
+     * The same entry object is returned by all calls to next().
+     */
+    private final class ValueIterator implements Iterator<Map.Entry<NodeTuple, Kleene>> {
+        private final long[] words = bits;
+        private final Kleene desiredValue;
+        private final Entry<NodeTuple, Kleene> entry = new Entry<NodeTuple, Kleene>();
+        private final int end;
+        private int word;
+        private long current;
+        private int lastId = -1;
+
+        ValueIterator(Kleene desiredValue) {
+            this.desiredValue = desiredValue;
+            this.end = words.length;
+            this.word = 0;
+            this.current = mask(words[0]);
+        }
+
+        /** Iterates over the single node with the specified id, which
+         * must have a non-false value.
+         */
+        ValueIterator(int id) {
+            this.desiredValue = null;
+            this.word = id >>> 5;
+            this.end = word + 1;
+            this.current = words[word] & (3L << ((id & 31) << 1));
+        }
+
+        /** Keeps the values of the word that match the desired value.
+         */
+        private long mask(long value) {
+            if (desiredValue == null)
+                return value;
+            // Each value occupies two bits: true is 10 and unknown is 01.
+            long high = value & 0xAAAAAAAAAAAAAAAAL;
+            long low = value & 0x5555555555555555L;
+            return desiredValue == Kleene.trueKleene ? high : low;
+        }
+
+        public boolean hasNext() {
+            while (current == 0) {
+                if (++word >= end)
+                    return false;
+                current = mask(words[word]);
+            }
+            return true;
+        }
+
+        public Map.Entry<NodeTuple, Kleene> next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            int bit = Long.numberOfTrailingZeros(current) & ~1;
+            current &= ~(3L << bit);
+            lastId = (word << 5) + (bit >>> 1);
+            entry.setKey(Node.nodeForID(lastId));
+            entry.setValue(Kleene.kleene((byte) ((words[word] >>> bit) & 3)));
+            return entry;
+        }
+
+        public void remove() {
+            if (lastId < 0)
+                throw new IllegalStateException();
+            set(Node.nodeForID(lastId), Kleene.falseKleene);
+            lastId = -1;
+        }
+    }
+}
@@ -16,22 +16,16 @@ import tvla.util.HashSetFactory;
 public class GetFormulaPredicates extends FormulaVisitor<Object> {
 	/** Stores intermediate results during traversal of the formula.
 	 */
-	private static Set<Predicate> predicates;
+	private final Set<Predicate> predicates = HashSetFactory.make();
 	
-	/** Used to invoke traverse and accept.
-	 */
-	private static GetFormulaPredicates instance = new GetFormulaPredicates();
-
 	/** Returns the set of predicates used by the specified formula.
 	 * @param formula A first-order formula.
 	 * @return A set of predicates used by the formula.
 	 */
 	public static Set<Predicate> get(Formula formula) {
-		predicates = HashSetFactory.make();
-		instance.traverse(formula);
-		Set<Predicate> result = predicates;
-		predicates = null; // Opportunity for compile-time GC.
-		return result;
+		GetFormulaPredicates visitor = new GetFormulaPredicates();
+		visitor.traverse(formula);
+		return visitor.predicates;
 	}	
 
 	/** Stores the formula's predicate in the result set.
@@ -10,39 +10,49 @@ import tvla.core.base.BaseTVS;
 
 /** A global place to store the predicates that were
  * modified by the last action.
+ * The set is kept per thread, since every analysis thread applies its own
+ * action.
  * @author Roman Manevich,
  * @since tvla-2-alpha Nomber 18 2002, Initial creation.
  */
 public class ModifiedPredicates {
-	/** A set of modified predicates.
+	/** A set of modified predicates (one per thread).
 	 */
-	private static Set<Predicate> predicates = HashSetFactory.make();
+	private static ThreadLocal<Set<Predicate>> modified = newModified();
 	
 	public static void reset() {
-		predicates = HashSetFactory.make();
+		modified = newModified();
+	}
+	
+	private static ThreadLocal<Set<Predicate>> newModified() {
+		return new ThreadLocal<Set<Predicate>>() {
+			protected Set<Predicate> initialValue() {
+				return HashSetFactory.make();
+			}
+		};
 	}
 	
 	/** Adds the specified predicate to the list of modified predicates.
 	 */
 	public static void modify(Predicate predicate) {
-		predicates.add(predicate);
+		modified.get().add(predicate);
 	}
 
 	public static void modify(TVS structure, Predicate predicate) {
-		predicates.add(predicate);
+		modified.get().add(predicate);
 		structure.modify(predicate);
 	}
 
 	/** Removes all predicates from the set.
 	 */
 	public static void clear() {
-		predicates.clear();
+		modified.get().clear();
 	}
 	
 	/** Returns the set of predicates that were reported as modified.
 	 */
 	public static Set<Predicate> getModified() {
-		return predicates;
+		return modified.get();
 	}
 	
 	public static void modify(TVS structure) {
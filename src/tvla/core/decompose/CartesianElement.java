@@ -160,9 +160,9 @@ public class CartesianElement implements Iterable<HighLevelTVS> {
                 share(name, other);
             } else {
                 TVSSet newStructs = other.structures.get(name);
-                Engine.activeEngine.getAnalysisStatus().startTimer(AnalysisStatus.MEET_TIME);
+                Engine.getActiveEngine().getAnalysisStatus().startTimer(AnalysisStatus.MEET_TIME);
                 current = Meet.meet(current, newStructs);
-                Engine.activeEngine.getAnalysisStatus().stopTimer(AnalysisStatus.MEET_TIME);
+                Engine.getActiveEngine().getAnalysisStatus().stopTimer(AnalysisStatus.MEET_TIME);
                 put(name, current);
             }
         }
@@ -50,7 +50,7 @@ public abstract class Decomposer {
 
     protected static final Node[] EMPTY_NODE_ARRAY = new Node[0];
 
-    protected static final boolean mustOutside = ProgramProperties.getBooleanProperty("tvla.decompose.mustOutside",
+    protected static final boolean mustOutside = ProgramProperties.getFixedBooleanProperty("tvla.decompose.mustOutside",
             false);
 
     public static Set<Predicate> ignorePredicates = HashSetFactory.make();
@@ -61,7 +61,7 @@ public abstract class Decomposer {
         ignorePredicates.add(Vocabulary.active);
         ignorePredicates.add(Vocabulary.instance);
         ignorePredicates.add(Vocabulary.isNew);
-        // if (!(Engine.activeEngine instanceof MultithreadEngine)) {
+        // if (!(Engine.getActiveEngine() instanceof MultithreadEngine)) {
         // ignorePredicates.add(Vocabulary.ready);
         // ignorePredicates.add(Vocabulary.isThread);
         // ignorePredicates.add(Vocabulary.runnable);
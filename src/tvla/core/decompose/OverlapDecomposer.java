@@ -64,17 +64,17 @@ public class OverlapDecomposer extends Decomposer {
      * allow unknown decomposition predicates
      */
     public static final boolean allowUnknown = ProgramProperties
-            .getBooleanProperty("tvla.decompose.allowUnknown", false);
+            .getFixedBooleanProperty("tvla.decompose.allowUnknown", false);
 
 	protected static final boolean cache = ProgramProperties
-			.getBooleanProperty("tvla.decompose.overlap.cache", true);
+			.getFixedBooleanProperty("tvla.decompose.overlap.cache", true);
 
 	/**
 	 * Should the complement of all the decomposition names be another
 	 * decomposition name?
 	 */
 	protected static final boolean complement = ProgramProperties
-			.getBooleanProperty("tvla.decompose.overlap.complement", false);
+			.getFixedBooleanProperty("tvla.decompose.overlap.complement", false);
 
 	/**
 	 * For each decomposition name, the nullary predicate used to mark it on the
@@ -84,7 +84,7 @@ public class OverlapDecomposer extends Decomposer {
 			.make();
 
 	protected static final boolean coerceBeforeCompose = ProgramProperties
-			.getBooleanProperty("tvla.decompose.coerceBeforeCompose", true);
+			.getFixedBooleanProperty("tvla.decompose.coerceBeforeCompose", true);
 
 	/**
 	 * Decomposer by keeping for each decomposition predicates the set of nodes
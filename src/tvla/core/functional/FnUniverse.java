@@ -4,6 +4,7 @@ import java.util.AbstractCollection;
 import java.util.Iterator;
 
 import tvla.core.Node;
+import tvla.util.AnalysisContext;
 
 // class FnUniverse:
 
@@ -16,6 +17,14 @@ public class FnUniverse extends AbstractCollection<Node> {
 		NodeAllocator.reset();
 	}
 	
+	/** Allocates nodes until the given number of node names was used,
+	 * when an analysis is resumed from a checkpoint.
+	 */
+	public static void reserve(int numNodes) {
+		while (Node.getMaxId() < numNodes)
+			NodeAllocator.allocateNew();
+	}
+	
 	public int size() { return size; }
 	
 	public Iterator<Node> iterator() { return new NodelistIterator(elems); }
@@ -110,53 +119,67 @@ public class FnUniverse extends AbstractCollection<Node> {
 
 class NodeAllocator {
 	private static final int max = 1000;
-	private static Node nodearray[] = new Node[max];
-	private static Nodelist nodelistarray[] = new Nodelist[max];
-	private static int lastNodeNumber = 0;
-	private static Nodelist prev = null;
 	
-	public static void reset() {
-		nodearray = new Node[max];
-		nodelistarray = new Nodelist[max];
-		lastNodeNumber = 0;
-		prev = null;	}
-	
-	public static Node node(int n) {
-		if ((n < nodearray.length) && (nodearray[n] != null)) 
-			return nodearray[n];
+	/** The nodes allocated in an analysis context, and the lists of nodes
+	 * that end with them.
+	 */
+	private static class State {
+		Node nodearray[] = new Node[max];
+		Nodelist nodelistarray[] = new Nodelist[max];
+		int lastNodeNumber = 0;
+		Nodelist prev = null;
+	}
+	
+	private static final AnalysisContext.Slot<State> state = new AnalysisContext.Slot<State>() {
+		protected State create() {
+			return new State();
+		}
+	};
+	
+	public static synchronized void reset() {
+		state.reset();
+	}
+	
+	public static synchronized Node node(int n) {
+		State state = NodeAllocator.state.get();
+		if ((n < state.nodearray.length) && (state.nodearray[n] != null)) 
+			return state.nodearray[n];
 		else
 			throw new RuntimeException("Node numbering invariant violation.");
 	}
 	
-	public static Nodelist nodelist(int n) {
-		if (nodearray[0] == null)
+	public static synchronized Nodelist nodelist(int n) {
+		State state = NodeAllocator.state.get();
+		if (state.nodearray[0] == null)
 			throw new RuntimeException("Node numbering did not start from zero.");
-		if ((n < nodelistarray.length) && (nodelistarray[n] != null)) 
-			return nodelistarray[n];
+		if ((n < state.nodelistarray.length) && (state.nodelistarray[n] != null)) 
+			return state.nodelistarray[n];
 		else
 			throw new RuntimeException("Node numbering invariant violation.");
 	}
 	
-	public static Node allocateNew() {
+	public static synchronized Node allocateNew() {
+		State state = NodeAllocator.state.get();
 		Node next = Node.allocateNode();
-		lastNodeNumber = next.id();
-		if (lastNodeNumber >= nodearray.length) {
-			Node newarray[] = new Node[2 * nodearray.length];
-			System.arraycopy(nodearray, 0, newarray, 0, nodearray.length);
-			nodearray = newarray;
-			Nodelist newlarray[] = new Nodelist[2 * nodelistarray.length];
-			System.arraycopy(nodelistarray, 0, newlarray, 0, nodelistarray.length);
-			nodelistarray = newlarray;
+		state.lastNodeNumber = next.id();
+		if (state.lastNodeNumber >= state.nodearray.length) {
+			Node newarray[] = new Node[2 * state.nodearray.length];
+			System.arraycopy(state.nodearray, 0, newarray, 0, state.nodearray.length);
+			state.nodearray = newarray;
+			Nodelist newlarray[] = new Nodelist[2 * state.nodelistarray.length];
+			System.arraycopy(state.nodelistarray, 0, newlarray, 0, state.nodelistarray.length);
+			state.nodelistarray = newlarray;
 		}
-		nodearray[lastNodeNumber] = next;
-		prev = new Nodelist(next, prev);
-		nodelistarray[lastNodeNumber] = prev;
+		state.nodearray[state.lastNodeNumber] = next;
+		state.prev = new Nodelist(next, state.prev);
+		state.nodelistarray[state.lastNodeNumber] = state.prev;
 		return next;
 	}
 	
-	public static Node allocate(Nodelist used, int size) {
-		if (size < lastNodeNumber) {
-			int checklist[] = new int[nodearray.length];
+	public static synchronized Node allocate(Nodelist used, int size) {
+		State state = NodeAllocator.state.get();
+		if (size < state.lastNodeNumber) {
+			int checklist[] = new int[state.nodearray.length];
 			
 			for (Nodelist p = used; p != null; p  = p.next) {
 				int num = p.elem.id();
@@ -166,7 +189,7 @@ class NodeAllocator {
 			
 			for (int i = 1; i < checklist.length; i++) {
 				if (checklist[i] != i)
-					return nodearray[i];
+					return state.nodearray[i];
 			}
 		}
 		
@@ -3,6 +3,9 @@ package tvla.core.functional;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.TreeSet;
 
 import tvla.core.HighLevelTVS;
@@ -10,6 +13,7 @@ import tvla.core.Node;
 import tvla.core.NodeTuple;
 import tvla.core.TVS;
 import tvla.core.assignments.Assign;
+import tvla.core.common.NodeTupleIterator;
 import tvla.core.generic.ClearPredicate;
 import tvla.formulae.Formula;
 import tvla.formulae.PredicateUpdateFormula;
@@ -238,8 +242,15 @@ public class NodePredTVS extends HighLevelTVS {
 	}
 
 	public Node newNode() {
-		Node n = U.newElement();
-		
+		return addNode(U.newElement());
+	}
+
+	public Node newNode(Node n) {
+		U.addFirst(n);
+		return addNode(n);
+	}
+
+	private Node addNode(Node n) {
 		clearAuFlik(n);
 		clearNuFlik(n);
 		for (Iterator i = U.iterator(); i.hasNext(); ) {
@@ -858,10 +869,49 @@ public class NodePredTVS extends HighLevelTVS {
 		PackedIntKleeneMap.init();
 	}
 
-  public Iterator predicateSatisfyingNodeTuples(Predicate pred, Node[] partialNodes, Kleene desiredValue) {
-    // TODO Auto-generated method stub
-    throw new UnsupportedOperationException("NYI");
-  }
+	/** Returns the tuples that agree with the given partial tuple and on which
+	 * the predicate is non-false (and equals desiredValue, if one is given).
+	 * The functional representation keeps no index by predicate, so this
+	 * scans the tuples over the universe.
+	 */
+	public Iterator<Map.Entry<NodeTuple, Kleene>> predicateSatisfyingNodeTuples(final Predicate pred,
+			Node[] partialNodes, final Kleene desiredValue) {
+		Node[] fixed = partialNodes != null ? partialNodes : new Node[pred.arity()];
+		final Iterator<? extends NodeTuple> tupleIter = NodeTupleIterator.createIterator(U, fixed);
+		return new Iterator<Map.Entry<NodeTuple, Kleene>>() {
+			Map.Entry<NodeTuple, Kleene> next = advance();
+
+			private Map.Entry<NodeTuple, Kleene> advance() {
+				while (tupleIter.hasNext()) {
+					NodeTuple tuple = tupleIter.next();
+					Kleene value = eval(pred, tuple);
+					if (value != Kleene.falseKleene && (desiredValue == null || value == desiredValue))
+						return new SimpleImmutableEntry<NodeTuple, Kleene>(tuple, value);
+				}
+				return null;
+			}
+
+			public boolean hasNext() {
+				return next != null;
+			}
+
+			public Map.Entry<NodeTuple, Kleene> next() {
+				if (next == null)
+					throw new NoSuchElementException();
+				Map.Entry<NodeTuple, Kleene> result = next;
+				next = advance();
+				return result;
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	public Iterator<Map.Entry<NodeTuple, Kleene>> iterator(Predicate predicate) {
+		return predicateSatisfyingNodeTuples(predicate, null, null);
+	}
 
 }
 
@@ -6,7 +6,6 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 
-import tvla.analysis.AnalysisStatus;
 import tvla.core.HighLevelTVS;
 import tvla.core.TVSSet;
 import tvla.util.HashMapFactory;
@@ -34,9 +33,9 @@ public class NormalizedTVSSet extends TVSSet {
 	 */
 	public HighLevelTVS mergeWith(HighLevelTVS S) {
         if (S.getStructureGroup() != null) throw new RuntimeException("Join doesn't support structure group");
-		AnalysisStatus.getActiveStatus().startTimer(AnalysisStatus.BLUR_TIME);
+		startBlurTimer();
 		S.blur();
-		AnalysisStatus.getActiveStatus().stopTimer(AnalysisStatus.BLUR_TIME);
+		stopBlurTimer();
 
 		NodePredTVS structure = (NodePredTVS) S;
 		
@@ -80,9 +79,9 @@ public class NormalizedTVSSet extends TVSSet {
     	boolean changed = false;
     	
     	
-		AnalysisStatus.getActiveStatus().startTimer(AnalysisStatus.BLUR_TIME);
+		startBlurTimer();
 		S.blur();
-		AnalysisStatus.getActiveStatus().stopTimer(AnalysisStatus.BLUR_TIME);
+		stopBlurTimer();
 
 		NodePredTVS structure = (NodePredTVS) S;
 		
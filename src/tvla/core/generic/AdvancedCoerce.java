@@ -34,6 +34,12 @@ public class AdvancedCoerce extends AdvancedCoerceOld {
     }
 
     Collection<Collection<MultiConstraint>> multiComponents = null;
+    /**
+     * The multi-constraints registry of this instance, captured at construction
+     * so that several coerce instances may be used concurrently.
+     */
+    private PredicateConstraintsTranslator multiTranslator;
+    private int multiSize;
 
     private void init() {
         // debug = true;
@@ -41,14 +47,18 @@ public class AdvancedCoerce extends AdvancedCoerceOld {
         // connectedComponents =
         // getConnectedComponents(advancedToGeneric.keySet());
         connectedComponents = GraphNode.getConnectedComponents(advancedToGeneric.keySet());
-        MultiConstraint.putConstraints(advancedToGeneric.keySet());
-        multiComponents = MultiConstraint.getConnectedComponents();
+        synchronized (MultiConstraint.class) {
+            MultiConstraint.putConstraints(advancedToGeneric.keySet());
+            multiComponents = MultiConstraint.getConnectedComponents();
+            multiTranslator = MultiConstraint.getPredicateToConstraints();
+            multiSize = MultiConstraint.totalSize();
+        }
         
         if (debug) {
         	printDependencyListToLog();
         }
 
-        Logger.println("#multi-constraints: " + MultiConstraint.totalSize());
+        Logger.println("#multi-constraints: " + multiSize);
 
         if (debug) {
             int scc = 0;
@@ -190,7 +200,7 @@ public class AdvancedCoerce extends AdvancedCoerceOld {
 
         time2 = System.currentTimeMillis();
         if (!modifiedPredicates.contains(Vocabulary.active) && ((BaseTVS) structure).getOriginalStructure() != null) {
-            modifiedSet = MultiConstraint.predicateToConstraints.getConstraints(modifiedPredicates);
+            modifiedSet = multiTranslator.getConstraints(modifiedPredicates);
             checkModified = true;
         }
         time_coerceLoop1 += System.currentTimeMillis() - time2;
@@ -295,7 +305,7 @@ public class AdvancedCoerce extends AdvancedCoerceOld {
                             if (head.testAndReset()) {
                                 if (!head.strongDependents.isEmpty()) {
                                     if (workSet == null) {
-                                        workSet = new FixedSortedSet<MultiConstraint>(MultiConstraint.totalSize());
+                                        workSet = new FixedSortedSet<MultiConstraint>(multiSize);
                                     }
                                     workSet.addAll(head.strongDependents);
                                 }
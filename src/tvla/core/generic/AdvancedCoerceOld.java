@@ -51,13 +51,11 @@ public class AdvancedCoerceOld extends GenericCoerce {
     protected Map<AdvancedConstraint, Constraint> advancedToGeneric;
     /**
      * Maps predicates to collections of constraints.
+     * Filled by addConstraint, which is called from the super constructor,
+     * hence no initializer.
      */
-    private static Map<Predicate, Collection<AdvancedConstraint>> predicateToConstraints = HashMapFactory.make();
+    private Map<Predicate, Collection<AdvancedConstraint>> predicateToConstraints;
     protected Collection<Collection<AdvancedConstraint>> connectedComponents = null;
-    
-    public static void reset() {
-    	predicateToConstraints = HashMapFactory.make();
-    }
 
     protected void addConstraint(Formula _body, Formula head) {
         Formula body = _body.optimizeForEvaluation();
@@ -94,6 +92,9 @@ public class AdvancedCoerceOld extends GenericCoerce {
             Set<Predicate> predicates = HashSetFactory.make(bodyDisjunct.getPredicates());
             predicates.addAll(head.getPredicates());
 
+            if (predicateToConstraints == null) {
+                predicateToConstraints = HashMapFactory.make();
+            }
             for (Predicate predicate : predicates) {
                 Collection<AdvancedConstraint> constraints = predicateToConstraints.get(predicate);
                 if (constraints == null) {
@@ -34,6 +34,7 @@ import tvla.formulae.TransitiveFormula.TCCache;
 import tvla.logic.Kleene;
 import tvla.predicates.Predicate;
 import tvla.predicates.Vocabulary;
+import tvla.util.AnalysisContext;
 import tvla.util.HashMapFactory;
 import tvla.util.HashSetFactory;
 import tvla.util.Logger;
@@ -67,7 +68,11 @@ public class CoerceTVLA2 extends GenericCoerce {
   /**
    * Maps predicates to collections of constraints.
    */
-  private static Map<Predicate, Collection<AdvancedConstraint>> predicateToConstraints = HashMapFactory.make();
+  private static final AnalysisContext.Slot<Map<Predicate, Collection<AdvancedConstraint>>> predicateToConstraints = new AnalysisContext.Slot<Map<Predicate, Collection<AdvancedConstraint>>>() {
+    protected Map<Predicate, Collection<AdvancedConstraint>> create() {
+      return HashMapFactory.make();
+    }
+  };
 
   public CoerceTVLA2(Set<Constraints.Constraint> constraints) {
     super(constraints);
@@ -75,7 +80,7 @@ public class CoerceTVLA2 extends GenericCoerce {
   }
   
   public static void reset() {
-	  predicateToConstraints = HashMapFactory.make();	  
+	  predicateToConstraints.reset();
   }
 
   public boolean coerce(TVS structure) {
@@ -144,10 +149,10 @@ public class CoerceTVLA2 extends GenericCoerce {
     predicates.addAll(GetFormulaPredicates.get(head));
     for (Iterator<Predicate> predIter = predicates.iterator(); predIter.hasNext();) {
       Predicate predicate = predIter.next();
-      Collection<AdvancedConstraint> constraints = predicateToConstraints.get(predicate);
+      Collection<AdvancedConstraint> constraints = predicateToConstraints.get().get(predicate);
       if (constraints == null) {
         constraints = HashSetFactory.make();
-        predicateToConstraints.put(predicate, constraints);
+        predicateToConstraints.get().put(predicate, constraints);
       }
       constraints.add(advanced);
     }
@@ -163,7 +168,7 @@ public class CoerceTVLA2 extends GenericCoerce {
     SortedSet<AdvancedConstraint> result = new TreeSet<AdvancedConstraint>();
     for (Iterator<Predicate> predIter = modifiedPredicates.iterator(); predIter.hasNext();) {
       Predicate predicate = predIter.next();
-      Collection<AdvancedConstraint> constraints = predicateToConstraints.get(predicate);
+      Collection<AdvancedConstraint> constraints = predicateToConstraints.get().get(predicate);
       if (constraints != null)
         result.addAll(constraints);
     }
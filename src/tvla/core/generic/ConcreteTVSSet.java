@@ -7,6 +7,7 @@ import tvla.predicates.Predicate;
 import tvla.predicates.Vocabulary;
 import tvla.util.Pair;
 import tvla.util.ProgramProperties;
+import tvla.util.StringUtils;
 
 /** An implementation of TVSSet that does not bound
  * structures, using hashing and isomorphism checks to
@@ -21,7 +22,7 @@ public class ConcreteTVSSet extends TVSSet {
 	private static Map<Predicate, Integer> bounds = new HashMap<Predicate, Integer>();
 	private static final boolean bmc;
 	static {
-		List<String> boundsStrs = ProgramProperties.getStringListProperty("tvla.bmc", Collections.EMPTY_LIST);
+		List<String> boundsStrs = StringUtils.breakString(ProgramProperties.getFixedProperty("tvla.bmc", ""));
 		bmc = !boundsStrs.isEmpty();
 		for (String boundStr : boundsStrs) {
 			int colonIndex = boundStr.indexOf(':');
@@ -49,15 +50,15 @@ public class ConcreteTVSSet extends TVSSet {
 	public THashSet<HighLevelTVS> structures;
 
 	public ConcreteTVSSet() {
-		structures = new THashSet<HighLevelTVS>(TVSHashFunc.generalTVSHashFunc);
+		structures = new THashSet<HighLevelTVS>(TVSHashFunc.defaultInstance);
 	}
 	
 	public ConcreteTVSSet(Collection<HighLevelTVS> set) {
-		structures = new THashSet<HighLevelTVS>(set, TVSHashFunc.generalTVSHashFunc);
+		structures = new THashSet<HighLevelTVS>(set, TVSHashFunc.defaultInstance);
     }
 
     public ConcreteTVSSet(Iterable<HighLevelTVS> istruct) {
-		structures = new THashSet<HighLevelTVS>(TVSHashFunc.generalTVSHashFunc);
+		structures = new THashSet<HighLevelTVS>(TVSHashFunc.defaultInstance);
 	    for (HighLevelTVS structure : istruct) {
 	    	structures.add(structure);
 	    }
@@ -0,0 +1,153 @@
+package tvla.core.generic;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import tvla.core.HighLevelTVS;
+import tvla.core.TVSFactory;
+import tvla.core.TVSSet;
+import tvla.util.Pair;
+
+/** A set of structures that several threads may join into concurrently.
+ * The set is split into shards, each of which is a set returned by the
+ * factory and is guarded by its own lock. With the relational and the
+ * canonic join methods, structures can only be merged with structures that
+ * have the same set of canonic names, so a structure is assigned to a shard
+ * by the hash of its canonic-name set, and structures that fall in different
+ * shards are joined in parallel. Blurring the structure and computing its
+ * canonic names is done outside of the lock. The blur is not timed here or
+ * by the shards, since the set is shared by threads that keep their own
+ * statistics; callers that time it blur the structure before joining it.
+ * The other join methods may merge structures with different canonic names,
+ * so for them the set has a single shard, which serializes the joins.
+ * Iterating over the set is not synchronized, and should only be done when
+ * no thread is joining structures into it.
+ */
+public class ConcurrentTVSSet extends TVSSet {
+	/** The shards. The number of shards is a power of two.
+	 */
+	protected final TVSSet[] shards;
+
+	/** Creates an empty set with the specified number of shards, which
+	 * is rounded up to a power of two.
+	 */
+	public ConcurrentTVSSet(int numberOfShards) {
+		int joinMethod = TVSFactory.getJoinMethod();
+		int size = 1;
+		if (joinMethod == TVSFactory.JOIN_RELATIONAL || joinMethod == TVSFactory.JOIN_CANONIC) {
+			while (size < numberOfShards)
+				size <<= 1;
+		}
+		shards = new TVSSet[size];
+		for (int i = 0; i < size; ++i) {
+			shards[i] = TVSFactory.getInstance().makeEmptySet();
+			shards[i].setTimed(false);
+		}
+	}
+
+	protected ConcurrentTVSSet(TVSSet[] shards) {
+		this.shards = shards;
+		for (TVSSet shard : shards) {
+			shard.setTimed(false);
+		}
+	}
+
+	/** Returns the shard that may contain structures that the specified
+	 * structure can be merged with.
+	 */
+	protected TVSSet shardOf(HighLevelTVS structure) {
+		if (shards.length == 1)
+			return shards[0];
+		structure.blur();
+		int hash = GenericHashPartialJoinTVSSet.getCanonicSetForBlurred(structure).hashCode();
+		hash ^= hash >>> 16;
+		return shards[hash & (shards.length - 1)];
+	}
+
+	/** Applies the Join confluence operator.
+	 * @return The difference between the updated set
+	 * and the old set or null if there is no difference.
+	 */
+	public HighLevelTVS mergeWith(HighLevelTVS structure) {
+		TVSSet shard = shardOf(structure);
+		synchronized (shard) {
+			HighLevelTVS result = shard.mergeWith(structure);
+			LastStructureMerge = shard.LastStructureMerge;
+			return result;
+		}
+	}
+
+	public boolean mergeWith(HighLevelTVS structure, Collection<Pair<HighLevelTVS, HighLevelTVS>> mergureMap) {
+		TVSSet shard = shardOf(structure);
+		synchronized (shard) {
+			boolean result = shard.mergeWith(structure, mergureMap);
+			LastStructureMerge = shard.LastStructureMerge;
+			return result;
+		}
+	}
+
+	public boolean contains(HighLevelTVS structure) {
+		TVSSet shard = shardOf(structure);
+		synchronized (shard) {
+			return shard.contains(structure);
+		}
+	}
+
+	public int size() {
+		int result = 0;
+		for (TVSSet shard : shards) {
+			synchronized (shard) {
+				result += shard.size();
+			}
+		}
+		return result;
+	}
+
+	/** Returns an iterator over the structures of all the shards.
+	 */
+	public Iterator<HighLevelTVS> iterator() {
+		return new Iterator<HighLevelTVS>() {
+			private int shard = 0;
+			private Iterator<HighLevelTVS> current = shards[0].iterator();
+
+			public boolean hasNext() {
+				while (!current.hasNext()) {
+					if (shard + 1 == shards.length)
+						return false;
+					current = shards[++shard].iterator();
+				}
+				return true;
+			}
+
+			public HighLevelTVS next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				return current.next();
+			}
+
+			public void remove() {
+				current.remove();
+			}
+		};
+	}
+
+	public TVSSet copy() {
+		TVSSet[] copies = new TVSSet[shards.length];
+		for (int i = 0; i < shards.length; ++i) {
+			synchronized (shards[i]) {
+				copies[i] = shards[i].copy();
+			}
+		}
+		ConcurrentTVSSet copy = new ConcurrentTVSSet(copies);
+		copy.cachingMode = this.cachingMode;
+		return copy;
+	}
+
+	public void setCachingMode(boolean cachingMode) {
+		super.setCachingMode(cachingMode);
+		for (TVSSet shard : shards) {
+			shard.setCachingMode(cachingMode);
+		}
+	}
+}
@@ -0,0 +1,293 @@
+package tvla.core.generic;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import tvla.core.Node;
+import tvla.core.NodeTuple;
+import tvla.core.TVS;
+import tvla.core.assignments.Assign;
+import tvla.core.assignments.AssignKleene;
+import tvla.core.common.NodeValue;
+import tvla.formulae.EqualityFormula;
+import tvla.formulae.Formula;
+import tvla.formulae.FormulaVisitor;
+import tvla.formulae.PredicateFormula;
+import tvla.formulae.TransitiveFormula;
+import tvla.formulae.Var;
+import tvla.logic.Kleene;
+import tvla.predicates.Predicate;
+import tvla.predicates.Vocabulary;
+import tvla.util.HashMapFactory;
+import tvla.util.HashSetFactory;
+
+/**
+ * The atomic formulae a complex formula depends on, used to find the
+ * assignments of its free variables on which its value may have changed,
+ * given the predicate values changed since it was last evaluated
+ * (a NodeValueMap).
+ *
+ * For a first-order formula, the value can only change on assignments that
+ * bind the free variables of some atom over a changed predicate to the
+ * nodes of a changed tuple. An equality atom depends on the summary
+ * predicate of the node bound to both its variables.
+ * For a transitive closure over a first-order formula, the value can only
+ * change between nodes connected by a path through an edge on which the
+ * sub-formula may have changed. Such paths are searched in the graph of the
+ * current non-false edges together with the changed ones, which contains
+ * the paths of both the old and the new structure. A change in the active
+ * value of a node is treated as a change of an edge from the node to itself.
+ *
+ * The footprint does not account for changes in the universe, so it may
+ * only be used when no nodes were added or removed.
+ */
+final class FormulaFootprint {
+    /** The free variables of the formula, in the order of the tuples
+     * returned by affectedAssignments.
+     */
+    private final Var[] vars;
+
+    /** The atoms over predicates, as the predicate and, for each position
+     * of a tuple of the predicate, the index of the free variable that is
+     * bound to it (-1 for a bound variable).
+     */
+    private final List<Predicate> atomPredicates = new ArrayList<Predicate>();
+    private final List<int[]> atomVars = new ArrayList<int[]>();
+
+    /** The transitive closure, if the formula is one.
+     */
+    private TransitiveFormula closure;
+
+    /** The footprint of the sub-formula of the closure, over its two
+     * sub-variables.
+     */
+    private FormulaFootprint closureBody;
+
+    /** Returns the footprint of the given formula (without a top-level
+     * negation), or null if the formula contains a transitive closure
+     * that is not at the top level, or whose sub-formula has other free
+     * variables.
+     */
+    public static FormulaFootprint create(Formula formula) {
+        if (formula instanceof TransitiveFormula) {
+            TransitiveFormula closure = (TransitiveFormula) formula;
+            Formula body = closure.subFormula();
+            for (Var var : body.freeVars()) {
+                if (!var.equals(closure.subLeft()) && !var.equals(closure.subRight()))
+                    return null;
+            }
+            FormulaFootprint bodyFootprint = create(body, new Var[] { closure.subLeft(), closure.subRight() });
+            if (bodyFootprint == null)
+                return null;
+            FormulaFootprint result = new FormulaFootprint(formula.freeVars().toArray(new Var[0]));
+            result.closure = closure;
+            result.closureBody = bodyFootprint;
+            return result;
+        }
+        return create(formula, formula.freeVars().toArray(new Var[0]));
+    }
+
+    private static FormulaFootprint create(Formula formula, Var[] vars) {
+        final FormulaFootprint result = new FormulaFootprint(vars);
+        final Set<Var> boundVars = HashSetFactory.make(formula.boundVars());
+        final boolean[] supported = { true };
+        new FormulaVisitor<Object>() {
+            public Object accept(PredicateFormula formula) {
+                int[] positions = new int[formula.predicate().arity()];
+                for (int i = 0; i < positions.length; ++i) {
+                    positions[i] = result.indexOf(formula.getVariable(i), boundVars);
+                }
+                result.atomPredicates.add(formula.predicate());
+                result.atomVars.add(positions);
+                return null;
+            }
+
+            public Object accept(EqualityFormula formula) {
+                // Both variables are bound to the node whose summary value changed.
+                int[] positions = { result.indexOf(formula.left(), boundVars),
+                        result.indexOf(formula.right(), boundVars) };
+                result.atomPredicates.add(Vocabulary.sm);
+                result.atomVars.add(positions);
+                return null;
+            }
+
+            public Object accept(TransitiveFormula formula) {
+                supported[0] = false;
+                return null;
+            }
+        }.traverse(formula);
+        return supported[0] ? result : null;
+    }
+
+    private FormulaFootprint(Var[] vars) {
+        this.vars = vars;
+    }
+
+    private int indexOf(Var var, Set<Var> boundVars) {
+        if (boundVars.contains(var))
+            return -1;
+        for (int i = 0; i < vars.length; ++i) {
+            if (vars[i].equals(var))
+                return i;
+        }
+        return -1;
+    }
+
+    /** The free variables of the formula, in the order of the nodes in the
+     * tuples returned by affectedAssignments.
+     */
+    public Var[] vars() {
+        return vars;
+    }
+
+    /** Returns the assignments to the free variables, as node tuples, on
+     * which the value of the formula may differ from its value before the
+     * given changes.
+     */
+    public Collection<NodeTuple> affectedAssignments(TVS structure, NodeValueMap changes) {
+        if (closure != null)
+            return affectedClosureAssignments(structure, changes);
+
+        Set<NodeTuple> result = null;
+        for (int atom = 0; atom < atomPredicates.size(); ++atom) {
+            Collection<NodeValue> values = changes.get(atomPredicates.get(atom));
+            if (values == null)
+                continue;
+            if (result == null)
+                result = HashSetFactory.make();
+            int[] positions = atomVars.get(atom);
+            NEXT_VALUE: for (NodeValue value : values) {
+                Node[] binding = new Node[vars.length];
+                for (int i = 0; i < positions.length; ++i) {
+                    if (positions[i] < 0)
+                        continue;
+                    // An equality atom binds both of its variables to the single node.
+                    Node node = value.tuple.get(value.tuple.size() == 1 ? 0 : i);
+                    if (binding[positions[i]] == null)
+                        binding[positions[i]] = node;
+                    else if (binding[positions[i]] != node)
+                        continue NEXT_VALUE;
+                }
+                complete(structure, binding, 0, result);
+            }
+        }
+        if (result == null)
+            return Collections.emptySet();
+        return result;
+    }
+
+    /** Adds all the tuples that agree with the given partial binding.
+     */
+    private void complete(TVS structure, Node[] binding, int index, Set<NodeTuple> result) {
+        if (index == binding.length) {
+            result.add(NodeTuple.createTuple(binding.clone()));
+            return;
+        }
+        if (binding[index] != null) {
+            complete(structure, binding, index + 1, result);
+            return;
+        }
+        for (Node node : structure.nodes()) {
+            binding[index] = node;
+            complete(structure, binding, index + 1, result);
+        }
+        binding[index] = null;
+    }
+
+    private Collection<NodeTuple> affectedClosureAssignments(TVS structure, NodeValueMap changes) {
+        Collection<NodeTuple> changedEdges = new ArrayList<NodeTuple>(closureBody.affectedAssignments(structure, changes));
+        // The closure also depends on the active value of the nodes along a path.
+        Collection<NodeValue> activeValues = changes.get(Vocabulary.active);
+        if (activeValues != null) {
+            for (NodeValue value : activeValues) {
+                changedEdges.add(NodeTuple.createPair(value.tuple.get(0), value.tuple.get(0)));
+            }
+        }
+        if (changedEdges.isEmpty())
+            return Collections.emptySet();
+
+        // The graph of the current non-false edges and the changed edges.
+        Map<Node, Collection<Node>> successors = HashMapFactory.make();
+        Map<Node, Collection<Node>> predecessors = HashMapFactory.make();
+        Formula body = closure.subFormula();
+        if (body instanceof PredicateFormula && ((PredicateFormula) body).getVariable(0).equals(closure.subLeft())
+                && ((PredicateFormula) body).getVariable(1).equals(closure.subRight())) {
+            Predicate predicate = ((PredicateFormula) body).predicate();
+            for (Iterator<Map.Entry<NodeTuple, Kleene>> it = structure.iterator(predicate); it.hasNext();) {
+                NodeTuple edge = it.next().getKey();
+                addEdge(edge.get(0), edge.get(1), successors, predecessors);
+            }
+        } else {
+            for (Iterator<AssignKleene> it = structure.evalFormula(body, new Assign()); it.hasNext();) {
+                AssignKleene edge = it.next();
+                addEdge(edge.get(closure.subLeft()), edge.get(closure.subRight()), successors, predecessors);
+            }
+        }
+        Set<Node> sources = HashSetFactory.make();
+        Set<Node> targets = HashSetFactory.make();
+        for (NodeTuple edge : changedEdges) {
+            addEdge(edge.get(0), edge.get(1), successors, predecessors);
+            sources.add(edge.get(0));
+            targets.add(edge.get(1));
+        }
+
+        // Nodes that reach a changed edge and nodes reachable from one.
+        reach(sources, predecessors);
+        reach(targets, successors);
+
+        Set<NodeTuple> result = HashSetFactory.make();
+        boolean sameVar = closure.left().equals(closure.right());
+        int leftIndex = indexOf(closure.left(), Collections.<Var>emptySet());
+        for (Node left : sources) {
+            for (Node right : targets) {
+                if (sameVar) {
+                    if (left == right)
+                        result.add(NodeTuple.createTuple(new Node[] { left }));
+                } else if (leftIndex == 0) {
+                    result.add(NodeTuple.createPair(left, right));
+                } else {
+                    result.add(NodeTuple.createPair(right, left));
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void addEdge(Node from, Node to, Map<Node, Collection<Node>> successors,
+            Map<Node, Collection<Node>> predecessors) {
+        Collection<Node> nodes = successors.get(from);
+        if (nodes == null) {
+            nodes = new ArrayList<Node>();
+            successors.put(from, nodes);
+        }
+        nodes.add(to);
+        nodes = predecessors.get(to);
+        if (nodes == null) {
+            nodes = new ArrayList<Node>();
+            predecessors.put(to, nodes);
+        }
+        nodes.add(from);
+    }
+
+    /** Extends the given set of nodes with all the nodes reachable from it
+     * in the given graph.
+     */
+    private static void reach(Set<Node> nodes, Map<Node, Collection<Node>> graph) {
+        List<Node> workList = new ArrayList<Node>(nodes);
+        while (!workList.isEmpty()) {
+            Node node = workList.remove(workList.size() - 1);
+            Collection<Node> next = graph.get(node);
+            if (next == null)
+                continue;
+            for (Node neighbour : next) {
+                if (nodes.add(neighbour))
+                    workList.add(neighbour);
+            }
+        }
+    }
+}
@@ -40,13 +40,13 @@ public class GenericBaseTVS extends BaseTVS {
 	/** Bounds the structure in-place.
 	 */
 	public void blur() {
-		GenericBlur.defaultGenericBlur.blur(this);
+		GenericBlur.getInstance().blur(this);
 	}
 
 	/** Applies a constraint-solver to this structure.
 	 */
 	public boolean coerce() {
-		return GenericCoerce.defaultGenericCoerce.coerce(this);
+		return GenericCoerce.getInstance().coerce(this);
 	}
 	
 	/** Applies the focus algorithm with the specified formula.
@@ -54,6 +54,6 @@ public class GenericBaseTVS extends BaseTVS {
 	 * @return The collection of focused structures.
 	 */
 	public Collection focus(Formula focusFormula) {
-		return GenericFocus.defaultGenericFocus.focus(this, focusFormula);
+		return GenericFocus.getInstance().focus(this, focusFormula);
 	}
 }
\ No newline at end of file
@@ -17,6 +17,7 @@ import tvla.core.base.PredicateEvaluator;
 import tvla.logic.Kleene;
 import tvla.predicates.DynamicVocabulary;
 import tvla.predicates.Predicate;
+import tvla.util.AnalysisContext;
 import tvla.util.HashMapFactory;
 import tvla.util.HashSetFactory;
 import tvla.util.MapInverter;
@@ -29,10 +30,20 @@ import tvla.util.ProgramProperties;
 public class GenericBlur extends Blur {
 	/** A convenience instance.
 	 */
-	protected static GenericBlur defaultGenericBlur = new GenericBlur();
+	protected static final AnalysisContext.Slot<GenericBlur> defaultGenericBlur = new AnalysisContext.Slot<GenericBlur>() {
+		protected GenericBlur create() {
+			return new GenericBlur();
+		}
+	};
 	
+	/** Returns the blur bound to the current thread, if it is a GenericBlur,
+	 * or the default instance of the current analysis context.
+	 */
 	public static GenericBlur getInstance() {
-		return defaultGenericBlur;
+		HighLevelTVS.Operators operators = HighLevelTVS.getBoundOperators();
+		if (operators != null && operators.getBlur() instanceof GenericBlur)
+			return (GenericBlur) operators.getBlur();
+		return defaultGenericBlur.get();
 	}
 	
 	/** Maps Node objects to their Canonic counterpart.
@@ -51,7 +62,7 @@ public class GenericBlur extends Blur {
 	}
 	
 	public static void reset() {
-		defaultGenericBlur = new GenericBlur();
+		defaultGenericBlur.reset();
 	}	
 	
 	/** Blurs the specified structure in-place.
@@ -114,11 +125,7 @@ public class GenericBlur extends Blur {
 		}
 		
 		if (Canonic.CanonicNamesStatistics.doStatistics) {
-			for (Iterator<Canonic> canonicIter = canonicName.values().iterator();
-				 canonicIter.hasNext(); ) {
-				Canonic c = canonicIter.next();
-				Canonic.CanonicNamesStatistics.allCanonicNames.add(c);
-			}
+			Canonic.CanonicNamesStatistics.record(canonicName.values());
 		}		
 	}
 	
@@ -153,6 +160,16 @@ public class GenericBlur extends Blur {
             }
             index++;
         }
+        internCanonicNames(canonicMap, structure.nodes().size());
+    }
+
+    /** Replaces the complete canonic names of the nodes by the interned
+     * names, which are shared by all the structures.
+     */
+    protected static void internCanonicNames(Canonic[] canonicMap, int size) {
+        for (int i = 0; i < size; ++i) {
+            canonicMap[i] = canonicMap[i].intern();
+        }
     }
 
     protected void updateCanonicNames(TVS structure, int[] nodesTable, Kleene[] values,
@@ -182,6 +199,7 @@ public class GenericBlur extends Blur {
 			}
 
 		}
+        internCanonicNames(canonicMap, size);
     }
 	
 	/** Creates a mapping and inverse mapping of nodes <-> extended names.
@@ -250,9 +268,7 @@ public class GenericBlur extends Blur {
 		}
 		
 		if (Canonic.CanonicNamesStatistics.doStatistics) {
-			for (Canonic c : canonicName.values()) {
-				Canonic.CanonicNamesStatistics.allCanonicNames.add(c);
-			}
+			Canonic.CanonicNamesStatistics.record(canonicName.values());
 		}		
 	}	
 
@@ -355,9 +371,7 @@ public class GenericBlur extends Blur {
 		}
 		
 		if (Canonic.CanonicNamesStatistics.doStatistics) {
-			for (Canonic c : canonicName.values()) {
-				Canonic.CanonicNamesStatistics.allCanonicNames.add(c);
-			}
+			Canonic.CanonicNamesStatistics.record(canonicName.values());
 		}		
 	}
 
@@ -388,11 +402,7 @@ public class GenericBlur extends Blur {
 		}
 		
 		if (Canonic.CanonicNamesStatistics.doStatistics) {
-			for (Iterator<Canonic> canonicIter = canonicName.values().iterator();
-				 canonicIter.hasNext(); ) {
-				Canonic c = canonicIter.next();
-				Canonic.CanonicNamesStatistics.allCanonicNames.add(c);
-			}
+			Canonic.CanonicNamesStatistics.record(canonicName.values());
 		}		
 	}
 
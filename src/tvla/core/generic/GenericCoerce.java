@@ -32,6 +32,7 @@ import tvla.logic.Kleene;
 import tvla.predicates.Instrumentation;
 import tvla.predicates.Predicate;
 import tvla.predicates.Vocabulary;
+import tvla.util.AnalysisContext;
 import tvla.util.HashMapFactory;
 import tvla.util.HashSetFactory;
 import tvla.util.Logger;
@@ -48,7 +49,11 @@ public class GenericCoerce extends Coerce {
 
 	/** A convenience instance.
 	 */
-	public static Coerce defaultGenericCoerce = new GenericCoerce(Constraints.getInstance().constraints());
+	protected static final AnalysisContext.Slot<Coerce> defaultGenericCoerce = new AnalysisContext.Slot<Coerce>() {
+		protected Coerce create() {
+			return new GenericCoerce(Constraints.getInstance().constraints());
+		}
+	};
 	protected Map<Predicate, Collection<TransitiveFormula>> allTC = HashMapFactory.make();
 
 	protected Collection<Constraint> constraints = new ArrayList<Constraint>();
@@ -67,7 +72,11 @@ public class GenericCoerce extends Coerce {
 	}
 	
 	public static void reset() {
-		defaultGenericCoerce = new GenericCoerce(Constraints.getInstance().constraints());
+		defaultGenericCoerce.reset();
+	}
+	
+	public static Coerce getInstance() {
+		return defaultGenericCoerce.get();
 	}
 	
 	public boolean coerce(TVS structure) {
@@ -4,7 +4,6 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
 
-import tvla.analysis.AnalysisStatus;
 import tvla.core.HighLevelTVS;
 import tvla.core.Node;
 import tvla.core.NodeTuple;
@@ -48,10 +47,10 @@ public class GenericEmbeddingTVSSet extends TVSSet {
 	 */
 	public HighLevelTVS mergeWith(HighLevelTVS structure) {
         if (structure.getStructureGroup() != null) throw new RuntimeException("Join doesn't support structure group");
-		AnalysisStatus.getActiveStatus().startTimer(AnalysisStatus.BLUR_TIME);
+		startBlurTimer();
 		EmbeddingBlur.defaultEmbeddingBlur.blur(structure);
 		//structure.blur();
-		AnalysisStatus.getActiveStatus().stopTimer(AnalysisStatus.BLUR_TIME);
+		stopBlurTimer();
 		for (Iterator<HighLevelTVS> structureIter = structures.iterator(); structureIter.hasNext(); ) {
             HighLevelTVS savedStructure = structureIter.next();
 			
@@ -71,10 +70,10 @@ public class GenericEmbeddingTVSSet extends TVSSet {
 	
     public boolean mergeWith(HighLevelTVS structure, Collection<Pair<HighLevelTVS, HighLevelTVS>> mergedWith) {
         if (structure.getStructureGroup() != null) throw new RuntimeException("Join doesn't support structure group");
-		AnalysisStatus.getActiveStatus().startTimer(AnalysisStatus.BLUR_TIME);
+		startBlurTimer();
 		EmbeddingBlur.defaultEmbeddingBlur.blur(structure);
 		//structure.blur();
-		AnalysisStatus.getActiveStatus().stopTimer(AnalysisStatus.BLUR_TIME);
+		stopBlurTimer();
 		for (Iterator<HighLevelTVS> structureIter = structures.iterator(); structureIter.hasNext(); ) {
             HighLevelTVS savedStructure = structureIter.next();
 			
@@ -9,8 +9,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
 
 import tvla.analysis.AnalysisStatus;
+import tvla.analysis.ParallelFocus;
 import tvla.core.Focus;
 import tvla.core.Node;
 import tvla.core.NodeTuple;
@@ -36,6 +38,7 @@ import tvla.io.StructureToTVS;
 import tvla.logic.Kleene;
 import tvla.predicates.Predicate;
 import tvla.predicates.Vocabulary;
+import tvla.util.AnalysisContext;
 import tvla.util.HashMapFactory;
 import tvla.util.HashSetFactory;
 import tvla.util.Logger;
@@ -51,7 +54,11 @@ public class GenericFocus extends Focus {
 	/**
 	 * A convenience object.
 	 */
-	protected static Focus defaultGenericFocus = new GenericFocus();
+	protected static final AnalysisContext.Slot<Focus> defaultGenericFocus = new AnalysisContext.Slot<Focus>() {
+		protected Focus create() {
+			return new GenericFocus();
+		}
+	};
 
 	/**
 	 * Maps a Formula object to a FocusFormula object, which is its optimized
@@ -61,7 +68,11 @@ public class GenericFocus extends Focus {
 			.make();
 
 	public static void reset() {
-		defaultGenericFocus = new GenericFocus();
+		defaultGenericFocus.reset();
+	}
+
+	public static Focus getInstance() {
+		return defaultGenericFocus.get();
 	}
 
 	/**
@@ -78,10 +89,11 @@ public class GenericFocus extends Focus {
 	 */
 	public Collection<TVS> focus(TVS structure, Formula origFormula) {
 		// Retrieve the optimized form of the formula, and if not found optimize
-		// it.
+		// it. Optimizing rewrites parts of the formula, so a copy is used to
+		// keep the action's formula intact for other Focus instances.
 		FocusFormula formula = registeredFormulae.get(origFormula);
 		if (formula == null) {
-			formula = new FocusFormula(origFormula);
+			formula = new FocusFormula(origFormula.copy());
 			registeredFormulae.put(origFormula, formula);
 		}
 
@@ -137,6 +149,9 @@ public class GenericFocus extends Focus {
 	}
 
 	public Collection<TVS> focusDisjunction(TVS structure, FocusFormula formula) {
+		if (ParallelFocus.inWorker())
+			return parallelFocusDisjunction(structure, formula);
+
 		List<TVS> pendingStructures = new ArrayList<>();
 		List<TVS> nextStructures = new ArrayList<>();
 		pendingStructures.add(structure);
@@ -179,6 +194,63 @@ public class GenericFocus extends Focus {
 
 		return pendingStructures;
 	}
+
+	/**
+	 * Returns the same structures as focusDisjunction, in the same order.
+	 * The structures produced by each focus step are focused further by the
+	 * following steps in parallel tasks.
+	 */
+	protected Collection<TVS> parallelFocusDisjunction(TVS structure, FocusFormula formula) {
+		List<TVS> pendingStructures = new ArrayList<>();
+		pendingStructures.add(structure);
+
+		// For each disjunct (a conjunction)
+		for (int i = 0; i < formula.focusFormulae.length; i++) {
+			List<Callable<List<TVS>>> tasks = new ArrayList<>(pendingStructures.size());
+			for (TVS pendingStrucure : pendingStructures) {
+				tasks.add(focusTask(formula.focusFormulae[i], 0, new StructureAssign(pendingStrucure,
+						Assign.EMPTY)));
+			}
+			pendingStructures = new ArrayList<>();
+			for (List<TVS> focused : ParallelFocus.invokeAll(tasks)) {
+				pendingStructures.addAll(focused);
+			}
+		}
+
+		return pendingStructures;
+	}
+
+	/**
+	 * Returns a task that applies the steps of the conjunction, starting
+	 * from the given one, to a structure and its assignments.
+	 */
+	private Callable<List<TVS>> focusTask(final List<FocusStep> conjunction, final int step,
+			final StructureAssign current) {
+		return new Callable<List<TVS>>() {
+			public List<TVS> call() {
+				List<TVS> answer = new ArrayList<>();
+				if (step == conjunction.size()) {
+					answer.add(current.structure);
+					return answer;
+				}
+				Collection<StructureAssign> next = conjunction.get(step).focus(new StructureAssign(current));
+				if (step + 1 == conjunction.size()) {
+					for (StructureAssign structureAssign : next) {
+						answer.add(structureAssign.structure);
+					}
+					return answer;
+				}
+				List<Callable<List<TVS>>> tasks = new ArrayList<>(next.size());
+				for (StructureAssign structureAssign : next) {
+					tasks.add(focusTask(conjunction, step + 1, structureAssign));
+				}
+				for (List<TVS> focused : ParallelFocus.invokeAll(tasks)) {
+					answer.addAll(focused);
+				}
+				return answer;
+			}
+		};
+	}
 }
 
 /**
@@ -1326,7 +1398,7 @@ class FocusFormula {
 	 * optimal order of literals. The list is used for emitting an informative
 	 * error message.
 	 */
-	private static List<FocusStep> unboundBinaryPredicates = null;
+	private List<FocusStep> unboundBinaryPredicates = null;
 
 	/**
 	 * Constructs a new formula by optimizing the specified formula.
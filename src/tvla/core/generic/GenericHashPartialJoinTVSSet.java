@@ -12,10 +12,11 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import tvla.analysis.AnalysisStatus;
 import tvla.analysis.decompose.DecomposeLocation;
 import tvla.core.Canonic;
+import tvla.core.CanonicSet;
 import tvla.core.HighLevelTVS;
 import tvla.core.Node;
 import tvla.core.NodeTuple;
@@ -24,20 +25,21 @@ import tvla.core.TVS;
 import tvla.core.TVSSet;
 import tvla.core.base.BaseBlur;
 import tvla.core.base.BaseHighLevelTVS;
-import tvla.core.base.BaseTVS;
 import tvla.core.base.PredicateEvaluator;
 import tvla.logic.Kleene;
 import tvla.predicates.Predicate;
 import tvla.transitionSystem.AnalysisGraph;
 import tvla.transitionSystem.Location;
+import tvla.util.AnalysisContext;
 import tvla.util.HashMapFactory;
 import tvla.util.Pair;
 import tvla.util.Timer;
 
 public final class GenericHashPartialJoinTVSSet extends GenericPartialJoinTVSSet {
-	/** Maps sets of canonic names to structures.
+	/** Maps sets of canonic names to structures. The sets are interned, so
+	 * looking up a structure compares the sets by reference.
 	 */
-	protected Map<Set<Canonic>, HighLevelTVS> universeToStructure = new HashMap<Set<Canonic>,HighLevelTVS>();
+	protected Map<CanonicSet, HighLevelTVS> universeToStructure = new HashMap<CanonicSet,HighLevelTVS>();
 
 	protected static int foundInCache = 0;
 
@@ -50,13 +52,15 @@ public final class GenericHashPartialJoinTVSSet extends GenericPartialJoinTVSSet
 	 * and the old set or null if there is no difference.
 	 */
 
-	public static int countNewStructures = 0;
-	public static int countMergedStructures = 0;
+	// Atomic, since the shards of a concurrent set are joined into by
+	// several threads.
+	public static final AtomicInteger countNewStructures = new AtomicInteger();
+	public static final AtomicInteger countMergedStructures = new AtomicInteger();
 
     public TVSSet copy() {
         GenericHashPartialJoinTVSSet copy = new GenericHashPartialJoinTVSSet();
         copy.cachingMode = this.cachingMode;
-        for (Map.Entry<Set<Canonic>, HighLevelTVS> entry : universeToStructure.entrySet()) {
+        for (Map.Entry<CanonicSet, HighLevelTVS> entry : universeToStructure.entrySet()) {
             HighLevelTVS structureCopy = entry.getValue();
             copy.universeToStructure.put(entry.getKey(), structureCopy);
             copy.structures.add(structureCopy);
@@ -65,14 +69,14 @@ public final class GenericHashPartialJoinTVSSet extends GenericPartialJoinTVSSet
     }
 
     public boolean contains(HighLevelTVS structure) {
-        AnalysisStatus.getActiveStatus().startTimer(AnalysisStatus.BLUR_TIME);
+        startBlurTimer();
         structure.blur();
-        AnalysisStatus.getActiveStatus().stopTimer(AnalysisStatus.BLUR_TIME);
+        stopBlurTimer();
 
         cleanup();
 
         // ADDED
-        Set<Canonic> canonicNames = getCanonicSetForBlurred(structure);
+        CanonicSet canonicNames = getCanonicSetForBlurred(structure);
         HighLevelTVS singleStructure = universeToStructure.get(canonicNames);
         if (singleStructure == null) {
             return false;
@@ -87,59 +91,67 @@ public final class GenericHashPartialJoinTVSSet extends GenericPartialJoinTVSSet
 
 	    try {
 	        timer.start();
-    		AnalysisStatus.getActiveStatus().startTimer(AnalysisStatus.BLUR_TIME);
+    		startBlurTimer();
     		newStructure.blur();
-    		AnalysisStatus.getActiveStatus().stopTimer(AnalysisStatus.BLUR_TIME);
+    		stopBlurTimer();
     
     		cleanup();
     
     		// ADDED
-    		Set<Canonic> canonicNames = getCanonicSetForBlurred(newStructure);
+    		CanonicSet canonicNames = getCanonicSetForBlurred(newStructure);
 
 				HighLevelTVS singleStructure = universeToStructure.get(canonicNames);
 
 				if (singleStructure == null) {
-    			countNewStructures++;
+    			countNewStructures.incrementAndGet();
     			addStructure(newStructure, canonicNames);
 					LastStructureMerge = newStructure;
     			return (HighLevelTVS) newStructure;
     		}
     		else {
-    			countMergedStructures++;
+    			countMergedStructures.incrementAndGet();
+
+    			// Calling the following method causes the the canonic maps of both structure
+    			// to be constructed, which has to be done before calling 'joinChanges'
+    			// and 'mergeStructures'.
+    			boolean conditionHolds = mergeCondition(singleStructure, newStructure);
+    			assert conditionHolds;
+
+    			// The stored structure may be shared with copies of this set,
+    			// so it is only copied when the join actually changes it.
+    			if (!joinChanges(singleStructure, newStructure)) {
+    				LastStructureMerge = singleStructure;
+    				return null;
+    			}
+
     			// Remove the old structure before merging to avoid breaking
     			// the invariants of 'structures' and 'universeToStructure'.
     			structures.remove(singleStructure);
     			universeToStructure.remove(canonicNames);
-    
-    			HighLevelTVS singleStructureOrig = singleStructure;
-    			singleStructure = singleStructure.copy(); // Instead of copying in copy
 
-					BaseTVS baseTo = (BaseTVS)singleStructure;
-					BaseTVS baseFrom = (BaseTVS)newStructure;
+    			StoresCanonicMaps orig = (StoresCanonicMaps) singleStructure;
+    			Map<Node, Canonic> canonic = orig.getCanonic();
+    			Map<Canonic, Node> invCanonic = orig.getInvCanonic();
+    			singleStructure = singleStructure.copy(); // Instead of copying in copy
 
-    			// Calling the following method causes the the canonic maps of both structure
-    			// to be constructed, which has to be done before calling 'mergeStructures'.
-    			boolean conditionHolds = mergeCondition(singleStructure, newStructure);
-    			assert conditionHolds;
+    			// The nodes of the copy are those of the stored structure,
+    			// so the canonic maps built by mergeCondition still apply.
     			boolean change = mergeStructures(singleStructure, newStructure);
-    			if (change) {
-    				AnalysisStatus.getActiveStatus().startTimer(AnalysisStatus.BLUR_TIME);
-    				BaseBlur.getInstance().rebuildCanonicMaps(singleStructure);
-    				AnalysisStatus.getActiveStatus().stopTimer(AnalysisStatus.BLUR_TIME);
-    			} else {
-    				singleStructure = singleStructureOrig;
-    			}
+    			assert change;
+    			startBlurTimer();
+    			BaseBlur.getInstance().updateCanonicMaps(singleStructure, canonic, invCanonic, joinedPredicates);
+    			stopBlurTimer();
 
 					LastStructureMerge = singleStructure;
     			addStructure(singleStructure, canonicNames);
-    			return change ? singleStructure : null;
+    			return singleStructure;
     		}
         } finally {
 				timer.stop();
 			}
 	}
 
-	protected void addStructure(HighLevelTVS structure, Set<Canonic> canonicNames) {
+	protected void addStructure(HighLevelTVS structure, CanonicSet canonicNames) {
 		if (cachingMode) {
 			structure = addStructureToCache(structure, canonicNames);
 		}
@@ -148,20 +160,24 @@ public final class GenericHashPartialJoinTVSSet extends GenericPartialJoinTVSSet
 		universeToStructure.put(canonicNames, structure);
 	}
 		
-	protected static Map<Long,Collection<WeakReference<HighLevelTVS>>> globalCache = HashMapFactory.make();
+	protected static final AnalysisContext.Slot<Map<Long,Collection<WeakReference<HighLevelTVS>>>> globalCache = new AnalysisContext.Slot<Map<Long,Collection<WeakReference<HighLevelTVS>>>>() {
+		protected Map<Long,Collection<WeakReference<HighLevelTVS>>> create() {
+			return HashMapFactory.make();
+		}
+	};
 	
 	protected static HighLevelTVS addStructureToCache(HighLevelTVS structure,
-			Set<Canonic> canonicNames) {
+			CanonicSet canonicNames) {
 		totalQueries++;
 		
 		// Calculate Signature
 		long signature = calcSignature(structure, canonicNames);
 
-		Collection<WeakReference<HighLevelTVS>> bucket = globalCache.get(signature);
+		Collection<WeakReference<HighLevelTVS>> bucket = globalCache.get().get(signature);
 		if (bucket == null) {
 			// No bucket - create bucket and add structure to it.
 			bucket = new LinkedList<WeakReference<HighLevelTVS>>();
-			globalCache.put(signature, bucket);
+			globalCache.get().put(signature, bucket);
 			bucket.add(new WeakReference<HighLevelTVS>(structure));
 		} else {
 			boolean found = false; 
@@ -191,7 +207,7 @@ public final class GenericHashPartialJoinTVSSet extends GenericPartialJoinTVSSet
 		return structure;
 	}
 
-	protected static long calcSignature(HighLevelTVS structure, Set<Canonic> canonicNames) {
+	protected static long calcSignature(HighLevelTVS structure, CanonicSet canonicNames) {
 		TreeSet<Long> nodeSignatures = new TreeSet<Long>();		
 		for (Canonic canonic : canonicNames) {
 			nodeSignatures.add(canonic.signature());
@@ -247,7 +263,7 @@ public final class GenericHashPartialJoinTVSSet extends GenericPartialJoinTVSSet
 		return canonicNames;
 	}
 	
-	public static Set<Canonic> getCanonicSetForBlurred(TVS structure) {
+	public static CanonicSet getCanonicSetForBlurred(TVS structure) {
 		if (!(structure instanceof StoresCanonicMaps)) {
 			return makeCanonicSet(structure);
 		}
@@ -257,8 +273,6 @@ public final class GenericHashPartialJoinTVSSet extends GenericPartialJoinTVSSet
 			return makeCanonicSet(structure);
 		}
 		
-		Set<Canonic> canonicNames = new HashSet<Canonic>(structure.nodes().size());
-		
 		Canonic nullaryCanonic = new Canonic(structure.getVocabulary().nullaryRel().size());
 
 		for (Predicate predicate : structure.getVocabulary().nullaryRel()) {
@@ -266,12 +280,10 @@ public final class GenericHashPartialJoinTVSSet extends GenericPartialJoinTVSSet
 			nullaryCanonic.add(value);
 		}
 
-		canonicNames.add(nullaryCanonic);
-		canonicNames.addAll(invCanonicMap.keySet());
-		return canonicNames;
+		return CanonicSet.make(invCanonicMap.keySet(), nullaryCanonic);
 	}
 	
-	protected static Set<Canonic> makeCanonicSet(TVS structure) {		
+	protected static CanonicSet makeCanonicSet(TVS structure) {		
 		Canonic nullaryCanonic = new Canonic(structure.getVocabulary().nullaryRel().size());
 
 		for (Predicate predicate : structure.getVocabulary().nullaryRel()) {
@@ -279,10 +291,7 @@ public final class GenericHashPartialJoinTVSSet extends GenericPartialJoinTVSSet
 			nullaryCanonic.add(value);
 		}
 
-		Set<Canonic> canonicNames = GenericBlur.defaultGenericBlur.makeCanonicSet(structure);
-		canonicNames.add(nullaryCanonic);
-
-		return canonicNames;
+		return CanonicSet.make(GenericBlur.getInstance().makeCanonicSet(structure), nullaryCanonic);
 	}
 
     @Override
@@ -298,7 +307,7 @@ public final class GenericHashPartialJoinTVSSet extends GenericPartialJoinTVSSet
             return false;
         }
         
-        for (Set<Canonic> signature : universeToStructure.keySet()) {
+        for (CanonicSet signature : universeToStructure.keySet()) {
             HighLevelTVS thisTVS = universeToStructure.get(signature);
             HighLevelTVS otherTVS = other.universeToStructure.get(signature);
             assert otherTVS != null; // Checked equality between keysets
@@ -375,7 +384,7 @@ public final class GenericHashPartialJoinTVSSet extends GenericPartialJoinTVSSet
     	if (totalQueries > 0) {
     		long current = 0;
     		long weak = 0;
-    		for (Collection<WeakReference<HighLevelTVS>> entries : globalCache.values()) {
+    		for (Collection<WeakReference<HighLevelTVS>> entries : globalCache.get().values()) {
     			for (WeakReference<HighLevelTVS> ref : entries) {
     				if (ref.get() == null) {
     					weak++;
@@ -388,7 +397,7 @@ public final class GenericHashPartialJoinTVSSet extends GenericPartialJoinTVSSet
     	}
     	
     	tryAllInCache(out);
-    	globalCache.clear();
+    	globalCache.get().clear();
     	tryAllInCache(out);    	
     }
 
@@ -396,13 +405,13 @@ public final class GenericHashPartialJoinTVSSet extends GenericPartialJoinTVSSet
 		long structures = 0;
     	long notInCache = 0;
     	Collection<HighLevelTVS> addedToCache = new ArrayList<HighLevelTVS>(); 
-    	for (Location location : AnalysisGraph.activeGraph.getLocations()) {
+    	for (Location location : AnalysisGraph.getActiveGraph().getLocations()) {
     		DecomposeLocation dlocation = (DecomposeLocation) location;
     		
     		for (HighLevelTVS structure : dlocation.everyStructure()) {
     			structures++;
     			structure = structure.copy(); 
-    			Set<Canonic> canonicNames = getCanonicSetForBlurred(structure);
+    			CanonicSet canonicNames = getCanonicSetForBlurred(structure);
     			if (addStructureToCache(structure, canonicNames) == structure) {
     				addedToCache.add(structure); // Save them to avoid weak reference to die in the middle of the counting...
     				notInCache++;
@@ -5,7 +5,6 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
 
-import tvla.analysis.AnalysisStatus;
 import tvla.core.HighLevelTVS;
 import tvla.core.TVS;
 import tvla.predicates.Predicate;
@@ -32,9 +31,9 @@ public class GenericHashTVSSet extends GenericTVSSet {
 	 */
 	public HighLevelTVS mergeWith(HighLevelTVS structure) {
         if (structure.getStructureGroup() != null) throw new RuntimeException("Join doesn't support structure group");
-		AnalysisStatus.getActiveStatus().startTimer(AnalysisStatus.BLUR_TIME);
+		startBlurTimer();
 		structure.blur();
-		AnalysisStatus.getActiveStatus().stopTimer(AnalysisStatus.BLUR_TIME);
+		stopBlurTimer();
 
 		cleanup();
 		candidate = structure;
@@ -56,9 +55,9 @@ public class GenericHashTVSSet extends GenericTVSSet {
 
 	public boolean mergeWith(HighLevelTVS structure, Collection<Pair<HighLevelTVS, HighLevelTVS>> mergedWith) {
         if (structure.getStructureGroup() != null) throw new RuntimeException("Join doesn't support structure group");
-		AnalysisStatus.getActiveStatus().startTimer(AnalysisStatus.BLUR_TIME);
+		startBlurTimer();
 		structure.blur();
-		AnalysisStatus.getActiveStatus().stopTimer(AnalysisStatus.BLUR_TIME);
+		stopBlurTimer();
 
 		cleanup();
 		candidate = structure;
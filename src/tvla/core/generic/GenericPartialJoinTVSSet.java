@@ -3,9 +3,9 @@ package tvla.core.generic;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 import java.util.Map.Entry;
 
-import tvla.analysis.AnalysisStatus;
 import tvla.core.Canonic;
 import tvla.core.HighLevelTVS;
 import tvla.core.Node;
@@ -16,6 +16,7 @@ import tvla.core.base.PredicateUpdater;
 import tvla.core.common.NodeTupleIterator;
 import tvla.logic.Kleene;
 import tvla.predicates.Predicate;
+import tvla.util.HashSetFactory;
 import tvla.util.Pair;
 
 /** A generic implementation of a TVSSet that merges structures with the same
@@ -24,6 +25,11 @@ import tvla.util.Pair;
  * @author Roman Manevich.
  */
 public class GenericPartialJoinTVSSet extends GenericSingleTVSSet {
+	/** The predicates whose values were changed by the last call to
+	 * mergeStructures.
+	 */
+	protected Set<Predicate> joinedPredicates = HashSetFactory.make();
+
 	public GenericPartialJoinTVSSet() {
 		super();
 	}
@@ -39,9 +45,9 @@ public class GenericPartialJoinTVSSet extends GenericSingleTVSSet {
 	public HighLevelTVS mergeWith(HighLevelTVS newStructure) {
 	    assert shareCount == 0;
 	    
-		AnalysisStatus.getActiveStatus().startTimer(AnalysisStatus.BLUR_TIME);
+		startBlurTimer();
 		newStructure.blur();
-		AnalysisStatus.getActiveStatus().stopTimer(AnalysisStatus.BLUR_TIME);
+		stopBlurTimer();
 
 		cleanup();
 		
@@ -65,9 +71,9 @@ public class GenericPartialJoinTVSSet extends GenericSingleTVSSet {
 	public boolean mergeWith(HighLevelTVS newStructure, Collection<Pair<HighLevelTVS, HighLevelTVS>> mergedWith) {
         assert shareCount == 0;
 
-    AnalysisStatus.getActiveStatus().startTimer(AnalysisStatus.BLUR_TIME);
+    startBlurTimer();
 		newStructure.blur();
-		AnalysisStatus.getActiveStatus().stopTimer(AnalysisStatus.BLUR_TIME);
+		stopBlurTimer();
 
 		cleanup();
 		
@@ -91,6 +97,7 @@ public class GenericPartialJoinTVSSet extends GenericSingleTVSSet {
 	protected boolean mergeStructures(TVS singleStructure, TVS newStructure) {
 	    assert singleStructure.getVocabulary() == newStructure.getVocabulary();
 		boolean change = false;
+		joinedPredicates.clear();
 		
 		Collection<Predicate> nullaryNonRel = singleStructure.getVocabulary().nullaryNonRel();
 		Collection<Predicate> unaryNonRel = singleStructure.getVocabulary().unaryNonRel();
@@ -105,16 +112,23 @@ public class GenericPartialJoinTVSSet extends GenericSingleTVSSet {
 				Kleene newVal = newStructure.eval(predicate, tuple);
 				if (singleVal != newVal) {
 					change = true;
+					joinedPredicates.add(predicate);
 					singleStructure.update(predicate, tuple, Kleene.unknownKleene);
 				}
 			}
 		}
 		
     for (Predicate predicate : unaryNonRel) {
-        change = mergeStructures(singleStructure, newStructure, predicate) || change;
+        if (mergeStructures(singleStructure, newStructure, predicate)) {
+            change = true;
+            joinedPredicates.add(predicate);
+        }
     }
     for (Predicate predicate : binary) {
-        change = mergeStructures(singleStructure, newStructure, predicate) || change;
+        if (mergeStructures(singleStructure, newStructure, predicate)) {
+            change = true;
+            joinedPredicates.add(predicate);
+        }
     }
         
     recomputeStructureGroup(singleStructure, newStructure);
@@ -170,6 +184,55 @@ public class GenericPartialJoinTVSSet extends GenericSingleTVSSet {
         }
         return change;
     }
+
+	/** Checks whether merging newStructure into singleStructure would
+	 * change singleStructure, without modifying it.
+	 * Assumes that the canonic maps of both structures were constructed
+	 * by mergeCondition.
+	 */
+	protected boolean joinChanges(TVS singleStructure, TVS newStructure) {
+		for (Predicate predicate : singleStructure.getVocabulary().nullaryNonRel()) {
+			Kleene singleVal = singleStructure.eval(predicate);
+			if (singleVal != Kleene.unknownKleene && singleVal != newStructure.eval(predicate))
+				return true;
+		}
+		for (Predicate predicate : singleStructure.getVocabulary().unaryNonRel()) {
+			if (joinChanges(singleStructure, newStructure, predicate))
+				return true;
+		}
+		for (Predicate predicate : singleStructure.getVocabulary().binary()) {
+			if (joinChanges(singleStructure, newStructure, predicate))
+				return true;
+		}
+		return false;
+	}
+
+	protected boolean joinChanges(TVS singleStructure, TVS newStructure, Predicate predicate) {
+		if (singleStructure.numberSatisfy(predicate) == 0)
+			return newStructure.numberSatisfy(predicate) != 0;
+
+		PredicateEvaluator newEval = PredicateEvaluator.evaluator(predicate, newStructure);
+		Iterator<Entry<NodeTuple, Kleene>> singleIt = singleStructure.iterator(predicate);
+		while (singleIt.hasNext()) {
+			Entry<NodeTuple, Kleene> entry = singleIt.next();
+			if (entry.getValue() != Kleene.unknownKleene) {
+				NodeTuple newTuple = mapNodeTuple(predicate, entry.getKey(), singleCanonicName, newInvCanonicName);
+				if (newEval.eval(newTuple) != Kleene.trueKleene)
+					return true;
+			}
+		}
+
+		PredicateEvaluator singleEval = PredicateEvaluator.evaluator(predicate, singleStructure);
+		Iterator<Entry<NodeTuple, Kleene>> newIt = newStructure.iterator(predicate);
+		while (newIt.hasNext()) {
+			Entry<NodeTuple, Kleene> entry = newIt.next();
+			NodeTuple tuple = mapNodeTuple(predicate, entry.getKey(), newCanonicName, singleInvCanonicName);
+			Kleene value = singleEval.eval(tuple);
+			if (value != Kleene.unknownKleene && value != entry.getValue())
+				return true;
+		}
+		return false;
+	}
 	
     protected boolean mergeStructures_old(TVS singleStructure, TVS newStructure) {
         assert singleStructure.getVocabulary() == newStructure.getVocabulary();
@@ -341,10 +404,10 @@ public class GenericPartialJoinTVSSet extends GenericSingleTVSSet {
 	}
 	
 	protected void makeCanonicMaps(TVS singleStructure, TVS newStructure) {
-		genericBlur.makeCanonicMapsForBlurred(singleStructure, 
+		genericBlur.get().makeCanonicMapsForBlurred(singleStructure, 
 											  singleCanonicName,
 											  singleInvCanonicName);
-		genericBlur.makeCanonicMapsForBlurred(newStructure,
+		genericBlur.get().makeCanonicMapsForBlurred(newStructure,
 											  newCanonicName,
 											  newInvCanonicName);
 	}
@@ -374,15 +437,12 @@ public class GenericPartialJoinTVSSet extends GenericSingleTVSSet {
 		return true;
 	}
 
-	static Node[][] tempTuples = new Node[][] 
-	    { {}, {null}, {null,null}, {null, null, null}, {null,null,null,null}};
-	
     protected static NodeTuple mapNodeTuple(Predicate predicate, NodeTuple thisTuple, Map<Node, Canonic> thisMap, Map<Canonic, Node> otherInvMap) {
         NodeTuple otherTuple;
         if (predicate.arity() == 1) {
             otherTuple = otherInvMap.get(thisMap.get((Node) thisTuple));
         } else {
-            Node[] otherTupleNodes = tempTuples[predicate.arity()];
+            Node[] otherTupleNodes = new Node[predicate.arity()];
             for (int i = 0; i < otherTupleNodes.length; i++) {
                 otherTupleNodes[i] = otherInvMap.get(thisMap.get(thisTuple.get(i)));
             }
@@ -5,7 +5,6 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 
-import tvla.analysis.AnalysisStatus;
 import tvla.core.Canonic;
 import tvla.core.HighLevelTVS;
 import tvla.core.Node;
@@ -48,9 +47,9 @@ public class GenericSingleTVSSet extends GenericTVSSet {
 	 * and the old set or null if there is no difference.
 	 */
 	public HighLevelTVS mergeWith(HighLevelTVS newStructure) {
-		AnalysisStatus.getActiveStatus().startTimer(AnalysisStatus.BLUR_TIME);
+		startBlurTimer();
 		newStructure.blur();
-		AnalysisStatus.getActiveStatus().stopTimer(AnalysisStatus.BLUR_TIME);
+		stopBlurTimer();
 		
 		if (structures.isEmpty()) {
 			structures.add(newStructure);
@@ -190,10 +189,10 @@ public class GenericSingleTVSSet extends GenericTVSSet {
 	}
 
 	protected void makeCanonicMaps(TVS singleStructure, TVS newStructure) {
-		genericBlur.makeCanonicMapsForBlurred(singleStructure, 
+		genericBlur.get().makeCanonicMapsForBlurred(singleStructure, 
 											  singleCanonicName,
 											  singleInvCanonicName);
-		genericBlur.makeCanonicMapsForBlurred(newStructure,
+		genericBlur.get().makeCanonicMapsForBlurred(newStructure,
 											  newCanonicName,
 											  newInvCanonicName);
 	}
@@ -5,7 +5,6 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 
-import tvla.analysis.AnalysisStatus;
 import tvla.core.Canonic;
 import tvla.core.HighLevelTVS;
 import tvla.core.Node;
@@ -15,6 +14,7 @@ import tvla.core.TVSSet;
 import tvla.core.common.NodeTupleIterator;
 import tvla.logic.Kleene;
 import tvla.predicates.Predicate;
+import tvla.util.AnalysisContext;
 import tvla.util.HashMapFactory;
 import tvla.util.HashSetFactory;
 import tvla.util.MapInverter;
@@ -33,13 +33,17 @@ public class GenericTVSSet extends TVSSet {
 	protected HighLevelTVS old;
 	
 	// Used to create canonic maps.
-	protected static GenericBlur genericBlur = new GenericBlur();
+	protected static final AnalysisContext.Slot<GenericBlur> genericBlur = new AnalysisContext.Slot<GenericBlur>() {
+		protected GenericBlur create() {
+			return new GenericBlur();
+		}
+	};
 	
 	// A reusable map.
-	protected static Map<Canonic, Collection<Node>> dummy = HashMapFactory.make();
+	protected Map<Canonic, Collection<Node>> dummy = HashMapFactory.make();
 	
 	public static void reset() {
-		genericBlur = new GenericBlur();
+		genericBlur.reset();
 	}
 	
 	public Collection<HighLevelTVS> getStructures() {
@@ -73,9 +77,9 @@ public class GenericTVSSet extends TVSSet {
 	 */
 	public HighLevelTVS mergeWith(HighLevelTVS structure) {
 	    if (structure.getStructureGroup() != null) throw new RuntimeException("Join doesn't support structure group");
-		AnalysisStatus.getActiveStatus().startTimer(AnalysisStatus.BLUR_TIME);
+		startBlurTimer();
 		structure.blur();
-		AnalysisStatus.getActiveStatus().stopTimer(AnalysisStatus.BLUR_TIME);
+		stopBlurTimer();
 
 		cleanup();
 		candidate = structure;
@@ -92,9 +96,9 @@ public class GenericTVSSet extends TVSSet {
 
 	public boolean mergeWith(HighLevelTVS structure, Collection<Pair<HighLevelTVS, HighLevelTVS>> mergureMap) {
         if (structure.getStructureGroup() != null) throw new RuntimeException("Join doesn't support structure group");
-		AnalysisStatus.getActiveStatus().startTimer(AnalysisStatus.BLUR_TIME);
+		startBlurTimer();
 		structure.blur();
-		AnalysisStatus.getActiveStatus().stopTimer(AnalysisStatus.BLUR_TIME);
+		stopBlurTimer();
 
 		cleanup();
 		candidate = structure;
@@ -144,7 +148,7 @@ public class GenericTVSSet extends TVSSet {
 
 		if (candidateInvCanonic == null) {
 			Map<Node, Canonic> candidateCanonicName = HashMapFactory.make(candidate.nodes().size());
-			genericBlur.makeCanonicMaps(candidate, candidateCanonicName, dummy);
+			genericBlur.get().makeCanonicMaps(candidate, candidateCanonicName, dummy);
 			candidateInvCanonic = HashMapFactory.make(candidate.nodes().size());
 			MapInverter.invertMap(candidateCanonicName, candidateInvCanonic);
 			candidateCanonicName = null;
@@ -157,7 +161,7 @@ public class GenericTVSSet extends TVSSet {
         }
         if (oldCanonic == null) {
             oldCanonic = HashMapFactory.make(old.nodes().size());
-    		genericBlur.makeCanonicMaps(old, oldCanonic, dummy);
+    		genericBlur.get().makeCanonicMaps(old, oldCanonic, dummy);
     		dummy.clear();
         }
         
@@ -209,7 +213,7 @@ public class GenericTVSSet extends TVSSet {
 
 		if (candidateInvCanonic == null) {
 			Map<Node, Canonic> candidateCanonicName = HashMapFactory.make(candidate.nodes().size());
-			genericBlur.makeCanonicMaps(candidate, candidateCanonicName, dummy);
+			genericBlur.get().makeCanonicMaps(candidate, candidateCanonicName, dummy);
 			candidateInvCanonic = HashMapFactory.make(candidate.nodes().size());
 			MapInverter.invertMap(candidateCanonicName, candidateInvCanonic);
 			candidateCanonicName = null;
@@ -217,7 +221,7 @@ public class GenericTVSSet extends TVSSet {
 		}
 		
 		oldCanonic = HashMapFactory.make(old.nodes().size());
-		genericBlur.makeCanonicMaps(old, oldCanonic, dummy);
+		genericBlur.get().makeCanonicMaps(old, oldCanonic, dummy);
 		dummy.clear();
 		
 		// Make sure that each node has a matching node
@@ -21,6 +21,7 @@ import tvla.core.common.ModifiedPredicates;
 import tvla.core.common.NodePair;
 import tvla.core.common.NodeTupleIterator;
 import tvla.formulae.CloneUpdateFormula;
+import tvla.formulae.CompiledFormula;
 import tvla.formulae.Formula;
 import tvla.formulae.NewUpdateFormula;
 import tvla.formulae.NotFormula;
@@ -30,6 +31,7 @@ import tvla.formulae.Var;
 import tvla.logic.Kleene;
 import tvla.predicates.Predicate;
 import tvla.predicates.Vocabulary;
+import tvla.util.AnalysisContext;
 import tvla.util.HashMapFactory;
 
 /** A generic update algorithm.
@@ -39,10 +41,18 @@ import tvla.util.HashMapFactory;
 public class GenericUpdate extends Update {
 	/** A convenience object.
 	 */
-	protected static Update defaultGenericUpdate = new GenericUpdate();
+	protected static final AnalysisContext.Slot<Update> defaultGenericUpdate = new AnalysisContext.Slot<Update>() {
+		protected Update create() {
+			return new GenericUpdate();
+		}
+	};
 	
 	public static void reset() {
-		defaultGenericUpdate = new GenericUpdate();
+		defaultGenericUpdate.reset();
+	}
+	
+	public static Update getInstance() {
+		return defaultGenericUpdate.get();
 	}
 	
 	/** Updates the structure's predicate interpretations according to the specified
@@ -77,17 +87,29 @@ public class GenericUpdate extends Update {
 			ModifiedPredicates.modify(structure, predicate);
 			//ModifiedPredicates.modify(predicate);
 			if (predicate.arity() == 0) {
-			    // Attempt to solve TC cache bug by calling prepare on eval
-                formula.prepare(oldVersion);
-				Kleene newValue = formula.eval(oldVersion, assignment);
+				Kleene newValue;
+				if (CompiledFormula.enabled) {
+					newValue = updateFormula.getCompiledFormula().eval(oldVersion, assignment);
+				}
+				else {
+					// Attempt to solve TC cache bug by calling prepare on eval
+					formula.prepare(oldVersion);
+					newValue = formula.eval(oldVersion, assignment);
+				}
 				structure.update(predicate, newValue);
 			}
 			else {
 				structure.clearPredicate(predicate); // remove old values
-				formula.prepare(oldVersion);
+				Iterator<AssignKleene> satisfyIt;
+				if (CompiledFormula.enabled) {
+					satisfyIt = updateFormula.getCompiledFormula().assignments(oldVersion, assignment);
+				}
+				else {
+					formula.prepare(oldVersion);
+					satisfyIt = formula.assignments(oldVersion, assignment);
+				}
 				PredicateUpdater updater = PredicateUpdater.updater(predicate, structure);
-				for (Iterator<AssignKleene> satisfyIt = formula.assignments(oldVersion, assignment);
-					 satisfyIt.hasNext();) {
+				while (satisfyIt.hasNext()) {
 					AssignKleene result = satisfyIt.next();
 					updateFormula.update(updater, result, result.kleene);
 				}
@@ -121,10 +143,16 @@ public class GenericUpdate extends Update {
 			List<NodePair> nodes = new LinkedList<NodePair>();
 			TVS oldVersion = structure.copy();
 			
-			formula.prepare(oldVersion);
-			for (Iterator<AssignKleene> i = formula.assignments(oldVersion, assignment); 
-			 	i.hasNext(); ) {
-				AssignKleene anotherNew = i.next();
+			Iterator<AssignKleene> newIter;
+			if (CompiledFormula.enabled) {
+				newIter = formula.getCompiledFormula().assignments(oldVersion, assignment);
+			}
+			else {
+				formula.prepare(oldVersion);
+				newIter = formula.assignments(oldVersion, assignment);
+			}
+			while (newIter.hasNext()) {
+				AssignKleene anotherNew = newIter.next();
 				Node oldNode = (Node)anotherNew.get(newVar);
 				newNode = structure.newNode();
 				structure.update(Vocabulary.active, newNode, oldVersion.eval(Vocabulary.active, oldNode));
@@ -275,10 +303,13 @@ public class GenericUpdate extends Update {
 		Var retainVar = formula.retainVar;
 		Collection<Node> toDelete = new ArrayList<Node>();
 		Collection<Node> maybeActive = new ArrayList<Node>();
-		for (Iterator<AssignKleene> i = refStructure.evalFormula(new NotFormula(formula.getFormula()), 
-												assignment); 
-			 i.hasNext(); ) {
-			AssignKleene anotherDelete = i.next();
+		Iterator<AssignKleene> deleteIter;
+		if (CompiledFormula.enabled)
+			deleteIter = formula.getCompiledNegation().assignments(refStructure, assignment);
+		else
+			deleteIter = refStructure.evalFormula(new NotFormula(formula.getFormula()), assignment);
+		while (deleteIter.hasNext()) {
+			AssignKleene anotherDelete = deleteIter.next();
 			Node nodeToDelete = (Node) anotherDelete.get(retainVar);		
 			if (anotherDelete.kleene == Kleene.unknownKleene)
 				maybeActive.add(nodeToDelete);
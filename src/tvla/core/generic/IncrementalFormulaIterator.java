@@ -0,0 +1,44 @@
+package tvla.core.generic;
+
+import java.util.Collection;
+import java.util.Iterator;
+
+import tvla.core.NodeTuple;
+import tvla.core.TVS;
+import tvla.core.assignments.AssignKleene;
+import tvla.formulae.Formula;
+import tvla.formulae.FormulaIterator;
+import tvla.formulae.Var;
+import tvla.logic.Kleene;
+
+/** Iterates over the assignments to the free variables of a formula, out of
+ * a given collection of candidate assignments, that satisfy the formula.
+ * Used with the assignments returned by FormulaFootprint to use a complex
+ * literal as a pivot in incremental coerce.
+ */
+public class IncrementalFormulaIterator extends FormulaIterator {
+	  Var[] vars;
+	  Iterator<NodeTuple> tupleIterator;
+
+	  public IncrementalFormulaIterator(TVS structure, Formula formula, Var[] vars, 
+			  Collection<NodeTuple> tuples, AssignKleene assign) {
+		  super(structure, formula, null, Kleene.trueKleene);
+		  this.vars = vars;
+		  this.tupleIterator = tuples.iterator();
+		  this.result = assign;
+	  }
+
+	  public boolean step() {
+		  while (tupleIterator.hasNext()) {
+			  NodeTuple tuple = tupleIterator.next();
+			  for (int i = 0; i < vars.length; i++) {
+				  result.putNode(vars[i], tuple.get(i));
+			  }
+			  result.kleene = formula.eval(structure, result);
+			  stat_TotalEvals++;
+			  if (checkDesiredValue(result.kleene))
+				  return true;
+		  }
+		  return false;
+	  }
+}
@@ -29,8 +29,10 @@ import tvla.logic.Kleene;
 import tvla.predicates.DynamicVocabulary;
 import tvla.predicates.Predicate;
 import tvla.predicates.Vocabulary;
+import tvla.util.AnalysisContext;
 import tvla.util.ConcatIterator;
 import tvla.util.HashMapFactory;
+import tvla.util.ProgramProperties;
 import tvla.util.SingleIterator;
 
 import com.ibm.dk.dps.util.BooleanContainer;
@@ -38,6 +40,14 @@ import com.ibm.dk.dps.util.BooleanContainer;
 public final class MultiConstraint extends GraphNode<MultiConstraint> {
 
     boolean MultiConstraintsEnabled = true;
+
+    /** Re-check constraints with complex literals incrementally, on the
+     * assignments of the complex literals affected by the changes (see
+     * FormulaFootprint), instead of re-evaluating the constraint on the
+     * whole structure.
+     */
+    static final boolean IncrementalComplexConstraints = ProgramProperties
+            .getFixedBooleanProperty("tvla.engine.incremental.complexConstraints", true);
     
     List<EvalLiteral> literals = null;
     Collection<EvalLiteral> heads = null;
@@ -45,69 +55,79 @@ public final class MultiConstraint extends GraphNode<MultiConstraint> {
     Collection<Predicate> predicates;
     Collection<Predicate> complexPredicates;
     
-    static Set<MultiConstraint> multiConstraints = new LinkedHashSet<MultiConstraint>(); 
-    private static Map<AdvancedConstraint, MultiConstraint> advancedToMulti = HashMapFactory.make();
-    public static PredicateConstraintsTranslator predicateToConstraints;
+    /** The multi-constraints most recently built in an analysis context.
+     */
+    private static class Registry {
+        Set<MultiConstraint> multiConstraints = new LinkedHashSet<MultiConstraint>(); 
+        Map<AdvancedConstraint, MultiConstraint> advancedToMulti = HashMapFactory.make();
+        PredicateConstraintsTranslator predicateToConstraints;
+        Collection<Collection<MultiConstraint>> connectedComponents = java.util.Collections.emptySet();
+    }
 
-    static Collection<Collection<MultiConstraint>> connectedComponents = java.util.Collections.emptySet();
+    private static final AnalysisContext.Slot<Registry> registry = new AnalysisContext.Slot<Registry>() {
+        protected Registry create() {
+            return new Registry();
+        }
+    };
     
     public static void reset() {
-    	multiConstraints = new LinkedHashSet<MultiConstraint>();
-    	advancedToMulti = HashMapFactory.make();
-    	predicateToConstraints = null;
-    	connectedComponents = java.util.Collections.emptySet();
+    	registry.reset();
     }
     
     public static void putConstraints(Collection<AdvancedConstraint> col) {
-        multiConstraints = new LinkedHashSet<MultiConstraint>(); 
-        advancedToMulti = HashMapFactory.make();
+        Registry current = new Registry();
+        registry.set(current);
         
         for (AdvancedConstraint ac : col) {
-            addConstraint(ac);
+            addConstraint(current, ac);
         }
 
         for (AdvancedConstraint ac : col) {
-            MultiConstraint mc = advancedToMulti.get(ac);
+            MultiConstraint mc = current.advancedToMulti.get(ac);
             for (AdvancedConstraint ac2 : ac.dependents) {
-                MultiConstraint mc2 = advancedToMulti.get(ac2);
+                MultiConstraint mc2 = current.advancedToMulti.get(ac2);
                 mc.dependents.add(mc2);
             }
             for (AdvancedConstraint ac2 : ac.dependsOn) {
-                MultiConstraint mc2 = advancedToMulti.get(ac2);
+                MultiConstraint mc2 = current.advancedToMulti.get(ac2);
                 mc.dependsOn.add(mc2);
             }
         }
                 
         setAllLiteralDependencies();
-        connectedComponents = getConnectedComponents(multiConstraints);
-        predicateToConstraints = new PredicateConstraintsTranslator(multiConstraints);
+        current.connectedComponents = getConnectedComponents(current.multiConstraints);
+        current.predicateToConstraints = new PredicateConstraintsTranslator(current.multiConstraints);
     }
     
     public static Collection<Collection<MultiConstraint>> getConnectedComponents() {
-        return connectedComponents;
+        return registry.get().connectedComponents;
+    }
+    
+    public static PredicateConstraintsTranslator getPredicateToConstraints() {
+        return registry.get().predicateToConstraints;
     }
     
     public static int totalSize() {
-        return multiConstraints.size();
+        return registry.get().multiConstraints.size();
     }
     
-    private static void addConstraint(AdvancedConstraint ac) {
+    private static void addConstraint(Registry current, AdvancedConstraint ac) {
         MultiConstraint mc = new MultiConstraint(ac);
 
-        for (MultiConstraint mc2 : multiConstraints) {
+        for (MultiConstraint mc2 : current.multiConstraints) {
             if (mc2.equalLiterals(mc)) {
                 mc2.merge(ac);
-                advancedToMulti.put(ac, mc2);
+                current.advancedToMulti.put(ac, mc2);
                 return;
             }
         }
-        multiConstraints.add(mc);
-        advancedToMulti.put(ac, mc);
+        current.multiConstraints.add(mc);
+        current.advancedToMulti.put(ac, mc);
     }
     
     public static void printStatistics() {
         System.err.println("Multiconstraints statistics:");
-        for (MultiConstraint mc : multiConstraints) {
+        for (MultiConstraint mc : registry.get().multiConstraints) {
             System.err.println(
                     mc.id + "\t" + 
                     mc + "\t" + 
@@ -234,7 +254,7 @@ public final class MultiConstraint extends GraphNode<MultiConstraint> {
     }
     
     public static void setAllLiteralDependencies() {
-        for (MultiConstraint mc : multiConstraints) {
+        for (MultiConstraint mc : registry.get().multiConstraints) {
             mc.setLiteralDependencies();
         }
     }
@@ -242,6 +262,7 @@ public final class MultiConstraint extends GraphNode<MultiConstraint> {
     public void setStrongDependents(Collection<MultiConstraint> deps) {
         super.setStrongDependents(deps);
         
+        Map<AdvancedConstraint, MultiConstraint> advancedToMulti = registry.get().advancedToMulti;
         for (EvalLiteral el : heads) {
             Collection<MultiConstraint> strongSet = new LinkedHashSet<MultiConstraint>();
             Collection<Identifiable> nonStrongSet = new LinkedHashSet<Identifiable>();
@@ -365,16 +386,20 @@ public final class MultiConstraint extends GraphNode<MultiConstraint> {
             return true;
         }
         
-        if (complexTC || nodesAdded)
+        if (nodesAdded || (complexTC && !IncrementalComplexConstraints))
             return false;
 
         if (firstTime && complexPredicates.contains(Vocabulary.sm) && oldChanges.getInequalities() != null) {
             return false;
         }
         
-        for (Predicate predicate : complexPredicates) {
-            if (oldChanges.containsKey(predicate)) {
-                return false;
+        for (EvalLiteral el : literals) {
+            if (!el.complex || (IncrementalComplexConstraints && el.footprint != null))
+                continue;
+            for (Predicate predicate : el.formula.getPredicates()) {
+                if (oldChanges.containsKey(predicate)) {
+                    return false;
+                }
             }
         }
         return true;
@@ -487,6 +512,11 @@ public final class MultiConstraint extends GraphNode<MultiConstraint> {
         Iterator<AssignKleene>[] stepIt = this.stepIt;
         List<PredicateAssign> problemAssigns = null;
         
+        // Complex TCs are cached - invalidate them, as in coerceFull.
+        if (complexTC) {
+            body.prepare(structure);
+        }
+        
         for (EvalLiteral pivot : literals) {
           if (pivot.ispredicate) {
               if (pivot.samePredicate)
@@ -540,6 +570,15 @@ public final class MultiConstraint extends GraphNode<MultiConstraint> {
                       stepIt[0] = new ConcatIterator<AssignKleene>(iteratorEq, iteratorNeq);
               }
           }
+          else if (pivot.complex) {
+              if (!IncrementalComplexConstraints || pivot.footprint == null)
+                  continue;
+              Collection<NodeTuple> tuples = pivot.footprint.affectedAssignments(structure, oldChanges);
+              if (tuples.isEmpty())
+                  continue;
+              stepIt[0] = new IncrementalFormulaIterator(structure, pivot.formula, pivot.footprint.vars(),
+                      tuples, pivot.getInitialAssign());
+          }
           else continue;
         
           int currentStep = 0;
@@ -728,6 +767,11 @@ final class EvalLiteral {
     Predicate predicate;
     Var left;
     Var right;
+
+    /** For a complex literal, the atoms it depends on, or null if it has
+     * to be re-evaluated on the whole structure when they change.
+     */
+    FormulaFootprint footprint;
     
     Collection<MultiConstraint> strongDependents;
     Collection<Identifiable> nonStrongDependents;
@@ -757,6 +801,7 @@ final class EvalLiteral {
         }
         else {
             complex = true;
+            footprint = FormulaFootprint.create(subFormula);
         }
         
         AssignPrecomputed tempAssign = new AssignPrecomputed();
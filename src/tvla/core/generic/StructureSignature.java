@@ -0,0 +1,355 @@
+package tvla.core.generic;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+
+import tvla.core.HighLevelTVS;
+import tvla.core.Node;
+import tvla.core.NodeTuple;
+import tvla.core.TVS;
+import tvla.logic.Kleene;
+import tvla.predicates.Predicate;
+import tvla.predicates.Vocabulary;
+import tvla.util.HashMapFactory;
+
+/** A signature of a structure that does not change under isomorphism,
+ * computed by colour refinement (in the style of Weisfeiler-Lehman) over
+ * the unary and binary predicates.
+ * Every node starts with a colour that summarizes its unary values, its
+ * binary self-loops and its positions in tuples of k-ary predicates.
+ * The nodes are then repeatedly recoloured by their own colour and the
+ * colours of their neighbours along each binary predicate value, until the
+ * number of colour classes stops growing.
+ * Isomorphic structures have equal signatures, so the signature is used as
+ * a hash code, and two structures are only checked for isomorphism when
+ * their signatures are equal. The check only tries to map nodes to nodes
+ * of the same colour.
+ *
+ * @see HighLevelTVS#getSignature()
+ */
+public final class StructureSignature {
+	/** The nodes of the structure.
+	 */
+	private final Node[] nodes;
+
+	/** Maps the nodes of the structure to their positions in nodes.
+	 */
+	private final Map<Node, Integer> index;
+
+	/** The stable colour of each node, by position.
+	 */
+	private final long[] colours;
+
+	/** The colours of the nodes in ascending order.
+	 */
+	private final long[] sortedColours;
+
+	/** A hash of the values of the nullary predicates.
+	 */
+	private final long nullaries;
+
+	/** The binary predicate values between distinct nodes: the positions of
+	 * the source and target nodes and a hash of the predicate and value.
+	 */
+	private final int[] edgeFrom;
+	private final int[] edgeTo;
+	private final long[] edgeLabels;
+
+	private final int hashCode;
+
+	/** Computes the signature of the given structure.
+	 */
+	public StructureSignature(TVS structure) {
+		int size = structure.nodes().size();
+		nodes = structure.nodes().toArray(new Node[size]);
+		index = HashMapFactory.make(size);
+		for (int i = 0; i < size; ++i) {
+			index.put(nodes[i], i);
+		}
+
+		long nullaryHash = 0;
+		for (Predicate nullary : Vocabulary.allNullaryPredicates()) {
+			nullaryHash = nullaryHash * 31 + label(nullary, structure.eval(nullary));
+		}
+		nullaries = nullaryHash;
+
+		long[] current = new long[size];
+		int[] from = new int[8];
+		int[] to = new int[8];
+		long[] labels = new long[8];
+		int edges = 0;
+		for (Predicate predicate : Vocabulary.allPositiveArityPredicates()) {
+			boolean binary = predicate.arity() == 2;
+			for (Iterator<Map.Entry<NodeTuple, Kleene>> it = structure.iterator(predicate); it.hasNext(); ) {
+				Map.Entry<NodeTuple, Kleene> entry = it.next();
+				NodeTuple tuple = entry.getKey();
+				long label = label(predicate, entry.getValue());
+				if (binary && !tuple.get(0).equals(tuple.get(1))) {
+					if (edges == from.length) {
+						from = Arrays.copyOf(from, edges * 2);
+						to = Arrays.copyOf(to, edges * 2);
+						labels = Arrays.copyOf(labels, edges * 2);
+					}
+					from[edges] = index.get(tuple.get(0));
+					to[edges] = index.get(tuple.get(1));
+					labels[edges] = label;
+					++edges;
+				}
+				else {
+					for (int position = 0; position < tuple.size(); ++position) {
+						current[index.get(tuple.get(position))] += mix(label + position);
+					}
+				}
+			}
+		}
+
+		edgeFrom = Arrays.copyOf(from, edges);
+		edgeTo = Arrays.copyOf(to, edges);
+		edgeLabels = Arrays.copyOf(labels, edges);
+
+		int classes = countClasses(current);
+		while (classes < size) {
+			long[] refined = new long[size];
+			for (int i = 0; i < size; ++i) {
+				refined[i] = mix(current[i]);
+			}
+			for (int e = 0; e < edgeLabels.length; ++e) {
+				refined[edgeFrom[e]] += mix(edgeLabels[e] + current[edgeTo[e]]);
+				refined[edgeTo[e]] += mix(~edgeLabels[e] + current[edgeFrom[e]]);
+			}
+			int refinedClasses = countClasses(refined);
+			if (refinedClasses <= classes)
+				break;
+			current = refined;
+			classes = refinedClasses;
+		}
+		colours = current;
+
+		sortedColours = colours.clone();
+		Arrays.sort(sortedColours);
+		long hash = mix(nullaries);
+		for (long colour : sortedColours) {
+			hash = mix(hash + colour);
+		}
+		hashCode = (int) (hash ^ (hash >>> 32));
+	}
+
+	/** Returns the signature of the given structure, which is cached
+	 * by high-level structures.
+	 */
+	public static StructureSignature of(TVS structure) {
+		if (structure instanceof HighLevelTVS)
+			return ((HighLevelTVS) structure).getSignature();
+		return new StructureSignature(structure);
+	}
+
+	/** Returns the colour of the given node.
+	 */
+	public long colour(Node node) {
+		return colours[index.get(node)];
+	}
+
+	public int hashCode() {
+		return hashCode;
+	}
+
+	/** Two signatures are equal when they have the same nullary values and
+	 * the same multiset of node colours.
+	 */
+	public boolean equals(Object o) {
+		if (this == o)
+			return true;
+		if (!(o instanceof StructureSignature))
+			return false;
+		StructureSignature other = (StructureSignature) o;
+		return hashCode == other.hashCode && nullaries == other.nullaries &&
+			Arrays.equals(sortedColours, other.sortedColours);
+	}
+
+	/** Checks whether two structures are isomorphic.
+	 * Structures with different signatures are not isomorphic. Otherwise,
+	 * a backtracking search looks for a bijection between the nodes that
+	 * maps every node to a node of the same colour and preserves the
+	 * values of all predicates.
+	 */
+	public static boolean isomorphic(TVS left, TVS right) {
+		if (left == right)
+			return true;
+		if (left.numOfNodes() != right.numOfNodes())
+			return false;
+		StructureSignature leftSignature = of(left);
+		StructureSignature rightSignature = of(right);
+		if (!leftSignature.equals(rightSignature))
+			return false;
+		for (Predicate nullary : Vocabulary.allNullaryPredicates()) {
+			if (left.eval(nullary) != right.eval(nullary))
+				return false;
+		}
+		return new Matcher(left, leftSignature, right, rightSignature).match();
+	}
+
+	/** Searches for an isomorphism between two structures with equal
+	 * signatures. Nodes are mapped one class at a time, starting from the
+	 * smallest classes, and a partial mapping is extended only by pairs
+	 * whose binary values agree, up to their hash, with the nodes that are
+	 * already mapped. A complete mapping is then checked against the
+	 * actual predicate values.
+	 */
+	private static class Matcher {
+		private final TVS left;
+		private final TVS right;
+		private final StructureSignature leftSignature;
+		private final StructureSignature rightSignature;
+		private final int size;
+
+		/** The hashes of the binary values of each pair of nodes, by the
+		 * positions of the nodes.
+		 */
+		private final long[] leftEdges;
+		private final long[] rightEdges;
+
+		/** The positions of the left nodes, in the order they are mapped.
+		 */
+		private final int[] order;
+
+		/** The positions of the right nodes with the colour of each
+		 * left node.
+		 */
+		private final int[][] candidates;
+
+		private final int[] mapping;
+		private final boolean[] used;
+
+		public Matcher(TVS left, StructureSignature leftSignature,
+				TVS right, StructureSignature rightSignature) {
+			this.left = left;
+			this.right = right;
+			this.leftSignature = leftSignature;
+			this.rightSignature = rightSignature;
+			this.size = leftSignature.nodes.length;
+			this.leftEdges = leftSignature.edgeMatrix();
+			this.rightEdges = rightSignature.edgeMatrix();
+			this.mapping = new int[size];
+			this.used = new boolean[size];
+
+			Map<Long, int[]> classes = HashMapFactory.make();
+			long[] rightColours = rightSignature.colours;
+			for (int r = 0; r < size; ++r) {
+				int[] members = classes.get(rightColours[r]);
+				if (members == null) {
+					members = new int[0];
+				}
+				members = Arrays.copyOf(members, members.length + 1);
+				members[members.length - 1] = r;
+				classes.put(rightColours[r], members);
+			}
+			this.candidates = new int[size][];
+			long[] orderKeys = new long[size];
+			for (int l = 0; l < size; ++l) {
+				candidates[l] = classes.get(leftSignature.colours[l]);
+				orderKeys[l] = ((long) candidates[l].length << 32) | l;
+			}
+			Arrays.sort(orderKeys);
+			this.order = new int[size];
+			for (int i = 0; i < size; ++i) {
+				order[i] = (int) orderKeys[i];
+			}
+		}
+
+		public boolean match() {
+			return extend(0);
+		}
+
+		private boolean extend(int depth) {
+			if (depth == size)
+				return verify();
+			int l = order[depth];
+			for (int r : candidates[l]) {
+				if (used[r] || !consistent(l, r, depth))
+					continue;
+				mapping[l] = r;
+				used[r] = true;
+				if (extend(depth + 1))
+					return true;
+				used[r] = false;
+			}
+			return false;
+		}
+
+		private boolean consistent(int l, int r, int depth) {
+			for (int d = 0; d < depth; ++d) {
+				int m = order[d];
+				int mr = mapping[m];
+				if (leftEdges[l * size + m] != rightEdges[r * size + mr] ||
+					leftEdges[m * size + l] != rightEdges[mr * size + r])
+					return false;
+			}
+			return true;
+		}
+
+		/** Checks that the complete mapping preserves the values of all
+		 * positive-arity predicates.
+		 */
+		private boolean verify() {
+			for (Predicate predicate : Vocabulary.allPositiveArityPredicates()) {
+				int count = 0;
+				for (Iterator<Map.Entry<NodeTuple, Kleene>> it = left.iterator(predicate); it.hasNext(); ) {
+					Map.Entry<NodeTuple, Kleene> entry = it.next();
+					NodeTuple tuple = entry.getKey();
+					Node[] image = new Node[tuple.size()];
+					for (int i = 0; i < image.length; ++i) {
+						image[i] = rightSignature.nodes[mapping[leftSignature.index.get(tuple.get(i))]];
+					}
+					if (right.eval(predicate, NodeTuple.createTuple(image)) != entry.getValue())
+						return false;
+					++count;
+				}
+				for (Iterator<Map.Entry<NodeTuple, Kleene>> it = right.iterator(predicate); it.hasNext(); it.next()) {
+					--count;
+				}
+				if (count != 0)
+					return false;
+			}
+			return true;
+		}
+	}
+
+	/** Returns the hashes of the binary values between every pair of
+	 * distinct nodes, indexed by from * size + to.
+	 */
+	private long[] edgeMatrix() {
+		int size = nodes.length;
+		long[] matrix = new long[size * size];
+		for (int e = 0; e < edgeLabels.length; ++e) {
+			matrix[edgeFrom[e] * size + edgeTo[e]] += edgeLabels[e];
+		}
+		return matrix;
+	}
+
+	private static long label(Predicate predicate, Kleene value) {
+		return mix(((long) predicate.id() << 2) | value.kleene());
+	}
+
+	private static int countClasses(long[] colours) {
+		if (colours.length == 0)
+			return 0;
+		long[] sorted = colours.clone();
+		Arrays.sort(sorted);
+		int classes = 1;
+		for (int i = 1; i < sorted.length; ++i) {
+			if (sorted[i] != sorted[i - 1])
+				++classes;
+		}
+		return classes;
+	}
+
+	/** A 64-bit finalizer that spreads the bits of its input (the one
+	 * used by SplitMix64).
+	 */
+	private static long mix(long x) {
+		x = (x ^ (x >>> 30)) * 0xbf58476d1ce4e5b9L;
+		x = (x ^ (x >>> 27)) * 0x94d049bb133111ebL;
+		return x ^ (x >>> 31);
+	}
+}
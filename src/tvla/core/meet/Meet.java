@@ -25,10 +25,12 @@ import tvla.core.base.PredicateUpdater;
 import tvla.core.common.ModifiedPredicates;
 import tvla.core.common.NodeTupleIterator;
 import tvla.core.generic.GenericBlur;
+import tvla.core.generic.StructureSignature;
 import tvla.logic.Kleene;
 import tvla.predicates.DynamicVocabulary;
 import tvla.predicates.Predicate;
 import tvla.predicates.Vocabulary;
+import tvla.util.AnalysisContext;
 import tvla.util.EmptyIterator;
 import tvla.util.HashMapFactory;
 import tvla.util.Pair;
@@ -44,10 +46,11 @@ import tvla.util.SimpleIterator;
  */
 public class Meet {
 	// Used to create canonical maps.
-	protected static GenericBlur genericBlur = new GenericBlur();
-
-	// A reusable map from canonical names to sets of nodes with those names.
-	private static Map<Canonic, Collection<Node>> dummy = new HashMap<Canonic, Collection<Node>>();
+	protected static final AnalysisContext.Slot<GenericBlur> genericBlur = new AnalysisContext.Slot<GenericBlur>() {
+		protected GenericBlur create() {
+			return new GenericBlur();
+		}
+	};
 
 	// Statistics related fields
 	public static int totalNumberOfTvsMeets;
@@ -93,12 +96,14 @@ public class Meet {
 		}
 
 		// Build canonical maps for both structure.
+		GenericBlur blur = genericBlur.get();
+		Map<Canonic, Collection<Node>> dummy = new HashMap<Canonic, Collection<Node>>();
 		Map<Node, Canonic> rCanonic = new HashMap<Node, Canonic>(
 				rTvs.nodes().size());
-		genericBlur.makeExtendedCanonicMaps(rTvs, rCanonic, dummy, sharedValue);
+		blur.makeExtendedCanonicMaps(rTvs, rCanonic, dummy, sharedValue);
 		dummy.clear();
 	      Map<Node, Canonic> lCanonic = new HashMap<Node, Canonic>(lTvs.nodes().size());
-		genericBlur.makeExtendedCanonicMaps(lTvs, lCanonic, dummy, sharedValue);
+		blur.makeExtendedCanonicMaps(lTvs, lCanonic, dummy, sharedValue);
 		dummy.clear();
 
 		// Build graph edges and update maximal matching quota for summaries
@@ -368,7 +373,7 @@ public class Meet {
         TVSSet rSet = TVSFactory.getInstance().makeEmptySet(TVSFactory.JOIN_CONCRETE);
         rSet.mergeWith(rSetIt);
         
-        Engine.activeEngine.getAnalysisStatus().startTimer(AnalysisStatus.MEET_TIME);
+        Engine.getActiveEngine().getAnalysisStatus().startTimer(AnalysisStatus.MEET_TIME);
         
         // Assume all structures in the same set have the same vocabulary
         DynamicVocabulary lVoc = lSet.iterator().next().getVocabulary();
@@ -389,7 +394,7 @@ public class Meet {
             Pair<Collection<TVS>, Collection<TVS>> bucket = getMatchBucket(match, signature);
             bucket.second.add(rTvs);
         }
-        Engine.activeEngine.getAnalysisStatus().stopTimer(AnalysisStatus.MEET_TIME);
+        Engine.getActiveEngine().getAnalysisStatus().stopTimer(AnalysisStatus.MEET_TIME);
         
         return new SimpleIterator<HighLevelTVS>() {
             Iterator<Pair<Collection<TVS>, Collection<TVS>>> bucketIt = match.values().iterator();
@@ -401,10 +406,10 @@ public class Meet {
             TVS rTvs = null;
             @Override
             protected HighLevelTVS advance() {
-                Engine.activeEngine.getAnalysisStatus().startTimer(AnalysisStatus.MEET_TIME);
+                Engine.getActiveEngine().getAnalysisStatus().startTimer(AnalysisStatus.MEET_TIME);
                 while (true) {
                     if (localResult.hasNext()) {
-                        Engine.activeEngine.getAnalysisStatus().stopTimer(AnalysisStatus.MEET_TIME);
+                        Engine.getActiveEngine().getAnalysisStatus().stopTimer(AnalysisStatus.MEET_TIME);
                         return localResult.next();
                     }
                     if (rIt.hasNext()) {
@@ -427,7 +432,7 @@ public class Meet {
                         lIt = bucket.first.iterator();
                         continue;
                     }
-                    Engine.activeEngine.getAnalysisStatus().stopTimer(AnalysisStatus.MEET_TIME);
+                    Engine.getActiveEngine().getAnalysisStatus().stopTimer(AnalysisStatus.MEET_TIME);
                     return null;
                 }
             }
@@ -462,13 +467,15 @@ public class Meet {
 		}
 
 		// Build canonical maps for both structure.
+		GenericBlur blur = genericBlur.get();
+		Map<Canonic, Collection<Node>> dummy = new HashMap<Canonic, Collection<Node>>();
 		Map<Node, Canonic> rTvsCanonic = new HashMap<Node, Canonic>(rTvs
 				.nodes().size());
-		genericBlur.makeCanonicMaps(rTvs, rTvsCanonic, dummy);
+		blur.makeCanonicMaps(rTvs, rTvsCanonic, dummy);
 		dummy.clear();
 		Map<Node, Canonic> lTvsCanonic = new HashMap<Node, Canonic>(lTvs
 				.nodes().size());
-		genericBlur.makeCanonicMaps(lTvs, lTvsCanonic, dummy);
+		blur.makeCanonicMaps(lTvs, lTvsCanonic, dummy);
 		dummy.clear();
 
 		// Build bipartite graph based on canonical name agreement,
@@ -572,9 +579,9 @@ public class Meet {
 	 * @return true iff <code>lTvs</code> and <code>rTvs</code> are isomorphic.
 	 */
 	public static boolean isomorphic(final TVS lTvs, final TVS rTvs) {
-		// A naive non-efficient implementation which simply applies
-		// the embedding test twice.
-		return isEmbedded(lTvs, rTvs) && isEmbedded(rTvs, lTvs);
+		// Only structures with equal signatures are matched, and only
+		// nodes of the same colour are paired.
+		return StructureSignature.isomorphic(lTvs, rTvs);
 	}
 
 	private static class NodeWrapper {
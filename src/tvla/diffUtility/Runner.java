@@ -48,23 +48,23 @@ public class Runner extends tvla.Runner {
 			initProgramProperties(args);
 
 			if (engineType.equals("tvla"))
-				Engine.activeEngine = new IntraProcEngine();
+				Engine.setActiveEngine(new IntraProcEngine());
 			else if (engineType.equals("tvmc"))
-				Engine.activeEngine = new MultithreadEngine();
+				Engine.setActiveEngine(new MultithreadEngine());
 			else if (engineType.equals("ddfs"))
-				Engine.activeEngine = new MultithreadEngineBuchi();
+				Engine.setActiveEngine(new MultithreadEngineBuchi());
 			else if (engineType.equals("pasta"))
-				Engine.activeEngine = new InterProcEngine();
+				Engine.setActiveEngine(new InterProcEngine());
             else if (engineType.equals("dtvla")) 
-                Engine.activeEngine = new DecompositionIntraProcEngine();
+                Engine.setActiveEngine(new DecompositionIntraProcEngine());
 			else {
 				throw new UserErrorException("An invalid engine was specified: " + engineType);
 			}
 			
 			Logger.print("Loading ... ");
-			AnalysisStatus.loadTimer.start();
+			AnalysisStatus.getLoadTimer().start();
 			
-			AnalysisGraph.activeGraph = new AnalysisGraph();
+			AnalysisGraph.setActiveGraph(new AnalysisGraph());
 			if (engineType.equals("tvla") || engineType.equals("dtvla")) {
 				int lastSep = programName.lastIndexOf(File.separator);
 				if (lastSep >=0) {
@@ -93,7 +93,7 @@ public class Runner extends tvla.Runner {
 				propertyAST.compile();
 				BuchiAutomaton property = propertyAST.getAutomaton();
 				TVSParser.setProperty(property);
-				((MultithreadEngineBuchi) Engine.activeEngine).setProperty(property);
+				((MultithreadEngineBuchi) Engine.getActiveEngine()).setProperty(property);
 			}  
 			else if (engineType.equals("pasta")) {
 				AuxiliaryPredicates.init();
@@ -32,56 +32,79 @@ import tvla.predicates.Vocabulary;
 import tvla.transitionSystem.Action;
 import tvla.transitionSystem.AnalysisGraph;
 import tvla.transitionSystem.Location;
+import tvla.util.AnalysisContext;
 import tvla.util.HashMapFactory;
 import tvla.util.HashSetFactory;
 import tvla.util.Logger;
 import tvla.util.ProgramProperties;
 
 public class Differencing {
-   protected static final boolean strongSimplification = 
-   ProgramProperties.getBooleanProperty("tvla.differencing.strongSimplification", false);
+  /** The settings of differencing, read from the properties of an analysis
+   * when it first uses them.
+   */
+  protected static class Settings {
+    protected final boolean strongSimplification =
+    ProgramProperties.getBooleanProperty("tvla.differencing.strongSimplification", false);
+
+    protected final boolean difference = // Is differencing enabled?
+    ProgramProperties.getBooleanProperty("tvla.differencing.difference", false);
 
-// Note that the properties below are initialized before any getInstance call
-  // but after properties are loaded in Runner's main method.
+    protected final boolean differenceIdForms = // Should we ignore implicit
+                                                 // identity formulae?
+    ProgramProperties.getBooleanProperty("tvla.differencing.differenceIdForms", false);
 
-  protected static boolean difference = // Is differencing enabled?
-  ProgramProperties.getBooleanProperty("tvla.differencing.difference", false);
+    protected final boolean differenceNonIdForms = // Should we ignore supplied
+                                                    // (non-id) formulae?
+    ProgramProperties.getBooleanProperty("tvla.differencing.differenceNonIdForms", false);
 
-  protected static boolean differenceIdForms = // Should we ignore implicit
-                                                // identity formulae?
-  ProgramProperties.getBooleanProperty("tvla.differencing.differenceIdForms", false);
+    protected final boolean tight = // Use tight versions of deltas?
+    ProgramProperties.getBooleanProperty("tvla.differencing.tight", false);
 
-  protected static boolean differenceNonIdForms = // Should we ignore supplied
-                                                  // (non-id) formulae?
-  ProgramProperties.getBooleanProperty("tvla.differencing.differenceNonIdForms", false);
+    protected final boolean debug = // Send some flow information to the Logger?
+    ProgramProperties.getBooleanProperty("tvla.differencing.debug", false);
 
-  protected static boolean tight = // Use tight versions of deltas?
-  ProgramProperties.getBooleanProperty("tvla.differencing.tight", false);
+    protected final boolean univChangeWarnOnce = // Should we warn about universe
+                                                  // changing actions once
+    // or once per such action?
+    ProgramProperties.getBooleanProperty("tvla.differencing.warnAboutUniverseChangingActionsOnce", false);
 
-  protected static boolean debug = // Send some flow information to the Logger?
-  ProgramProperties.getBooleanProperty("tvla.differencing.debug", false);
+    protected final boolean messageForCloseCycle = // Should we give a message for close a cycle
+        // on predicates defined as acyclic
+    ProgramProperties.getBooleanProperty("tvla.differencing.messageForCloseCycle", true);
+  }
 
-  protected static boolean univChangeWarnOnce = // Should we warn about universe
-                                                // changing actions once
-  // or once per such action?
-  ProgramProperties.getBooleanProperty("tvla.differencing.warnAboutUniverseChangingActionsOnce", false);
+  protected static final AnalysisContext.Slot<Settings> settings = new AnalysisContext.Slot<Settings>() {
+    protected Settings create() {
+      return new Settings();
+    }
+  };
 
-  protected static boolean messageForCloseCycle = // Should we give a message for close a cycle
-      // on predicates defined as acyclic
-  ProgramProperties.getBooleanProperty("tvla.differencing.messageForCloseCycle", true);
+  protected static Settings settings() {
+    return settings.get();
+  }
   
   
   // Stores actions with new, clone, or retain formulas for which we already
   // issued a warning about possible incorrectness of differencing.
-  protected static Set<Action> warnedUniverseChangingActions = HashSetFactory.make(10);
+  protected static final AnalysisContext.Slot<Set<Action>> warnedUniverseChangingActions = new AnalysisContext.Slot<Set<Action>>() {
+    protected Set<Action> create() {
+      return HashSetFactory.make(10);
+    }
+  };
 
   /**
    * A set of actions for which differencing is requested.
    */
-  protected static Set<Action> registeredActions = HashSetFactory.make(20);
+  protected static final AnalysisContext.Slot<Set<Action>> registeredActions = new AnalysisContext.Slot<Set<Action>>() {
+    protected Set<Action> create() {
+      return HashSetFactory.make(20);
+    }
+  };
 
   public static void reset() {
-	  registeredActions = HashSetFactory.make(20);
+	  settings.reset();
+	  registeredActions.reset();
+	  warnedUniverseChangingActions.reset();
   }
   
   /**
@@ -91,7 +114,7 @@ public class Differencing {
    *          An action.
    */
   public static void registerAction(Action action) {
-    registeredActions.add(action);
+    registeredActions.get().add(action);
   }
 
   // =========================================================================
@@ -106,7 +129,7 @@ public class Differencing {
     // Register all actions in all locations for differencing.
     // (In case AnalysisGraph is not null and actions in it were not
     // previously registered.)
-    AnalysisGraph cfg = AnalysisGraph.activeGraph;
+    AnalysisGraph cfg = AnalysisGraph.getActiveGraph();
     if (cfg != null) {
       Iterator<Location> locIter = cfg.getLocations().iterator();
       while (locIter.hasNext()) {
@@ -128,11 +151,11 @@ public class Differencing {
   }
   
   public static void differencing(Collection<Instrumentation> instrumPreds) {
-    if (difference) {
+    if (settings().difference) {
       Set<Instrumentation> tClosedInstrumPreds = gatherTClosedInstrumPreds(instrumPreds);
       List<Instrumentation> order = getOrder(instrumPreds,tClosedInstrumPreds);
       
-      if (debug) {
+      if (settings().debug) {
         Logger.println("\nAsked to difference:\n" + instrumPreds);
         Logger.println("\nOrdering of instrumentation predicates:");
         for (Iterator<Instrumentation> i = order.iterator(); i.hasNext();) {
@@ -151,7 +174,7 @@ public class Differencing {
       
       initializeDifferencing(instrumPreds);
       // Apply differencing to all reigstered actions.
-      for (Iterator<Action> actionIter = registeredActions.iterator(); actionIter.hasNext();) {
+      for (Iterator<Action> actionIter = registeredActions.get().iterator(); actionIter.hasNext();) {
         Action action = actionIter.next();
         try {
         	generateUpdates(action, order, tClosedInstrumPreds);
@@ -165,7 +188,7 @@ public class Differencing {
   }
 
   private static void generateCloseCycleMessage(Action action, PredicateUpdateMaps predUpdateMaps) {
-      if (messageForCloseCycle) {      
+      if (settings().messageForCloseCycle) {      
           // For every acyclic predicate
           for (Predicate binary : Vocabulary.allBinaryPredicates()) {
               if (!binary.acyclic()) continue;
@@ -209,14 +232,14 @@ public class Differencing {
                 predUpdateMaps.supplied.containsKey(((PredicateFormula) binaryRTC).predicate());
               if (suppliedUpdate || !fd.unitChangePlus(new PredicateFormula(binary, left, right), delta)) {
                   // non-unit change - use future version of p for RTC.
-                  binaryRTC = fd.futureFormula("", null, binaryRTC, predUpdateMaps, tight);
+                  binaryRTC = fd.futureFormula("", null, binaryRTC, predUpdateMaps, settings().tight);
               }
               // check dp[p](v1,v2) & p*(v2, v1)
               closeCycleCondition = ExistQuantFormula.close(fd.constructAndFormula(delta.plus, binaryRTC));
               action.addMessage(closeCycleCondition, 
                       "Closed cycle for acyclic predicate " + binary, 
                       CloseCycle.getDName(binary));
-              if (debug)
+              if (settings().debug)
                   Logger.println("\nAdded close cycle message with condition " + closeCycleCondition + "\n");
               
           }
@@ -248,7 +271,7 @@ public class Differencing {
    * treating each instrumentation predicate.
    */
   public static void generateUpdates(Action action, List<Instrumentation> order, Set<Instrumentation> tClosedInstrumPreds) {
-    if (debug)
+    if (settings().debug)
       Logger.println("\nDifferencing for action " + action);
 
     PredicateUpdateMaps predUpdateMaps = 
@@ -266,7 +289,7 @@ public class Differencing {
       // is set.
       // May need another trigger when controlled by abstraction refinement.
       // Alexey
-      if ((update == null && differenceIdForms || update != null && (update.getAuto() || differenceNonIdForms))) {
+      if ((update == null && settings().differenceIdForms || update != null && (update.getAuto() || settings().differenceNonIdForms))) {
 
         // If this action changes the universe (i.e., includes a new,
         // retain, or clone formula), then we should warn the user.
@@ -275,7 +298,7 @@ public class Differencing {
           // If the flag below is set, then warn only once, otherwise warn once
           // for each action. Could put original AST references back into
           // actions and warn only once per schema but that would be messy.
-          if (univChangeWarnOnce ? warnedUniverseChangingActions.isEmpty() : !warnedUniverseChangingActions.contains(action)) {
+          if (settings().univChangeWarnOnce ? warnedUniverseChangingActions.get().isEmpty() : !warnedUniverseChangingActions.get().contains(action)) {
 
             System.err.println("\n\nWARNING!\n\tAttempting to generate an update for predicate " + instrum + "\n\tin action "
                 + action + "\n\tThis is a universe-changing action (it contains a new, retain,\n"
@@ -284,56 +307,56 @@ public class Differencing {
                 + "\tplease define your own update and turn off differencing for it, or\n"
                 + "\tswitch to the use of the freeList idiom for allocation/deallocation.");
 
-            if (univChangeWarnOnce)
+            if (settings().univChangeWarnOnce)
               System.err.println("This warning will not be issued for other universe-changing actions.\n\n");
             else
               System.err.println("This warning will not be issued for other instrumentation predicates.\n\n");
           }
 
-          warnedUniverseChangingActions.add(action);
+          warnedUniverseChangingActions.get().add(action);
         }
 
         PredicateFormula predicateFormula = new PredicateFormula(instrum, instrum.getVars());
-        if (debug && update != null) {
+        if (settings().debug && update != null) {
           Logger.println("\n\nIgnoring supplied update formula" + "\n\tpredicate:       " + predicateFormula
               + "\n\tsupplied update: " + update.getFormula());
         }
 
         String header = "action: " + action;
         Formula formula = FormulaDifferencing.getInstance().futureFormula(header, instrum, instrum.getFormula(), predUpdateMaps,
-            tight);
-        if (strongSimplification) {
+            settings().tight);
+        if (settings().strongSimplification) {
             formula = FormulaDifferencing.getInstance().strongSimplify(formula);
         }
 
         // Do some sanity checks
         /*
-        if (debug && update == null && !formula.equals(predicateFormula))
+        if (settings().debug && update == null && !formula.equals(predicateFormula))
           Logger.println("\nWarning: obtained unexpected non-identity formula after differencing!" + "\n\tpredicate:       "
               + predicateFormula + "\n\tcomputed update: " + formula);
         else 
         */    
-        if (debug && update != null && formula.equals(predicateFormula))
+        if (settings().debug && update != null && formula.equals(predicateFormula))
           Logger.println("\nWarning: obtained unexpected identity formula after differencing!" + "\n\tpredicate:       "
               + predicateFormula + "\n\tsupplied update: " + update.getFormula());
 
         // Save the newly generated update formula if it is not the identity,
         // or if it is the identity but wasn't supposed to be.
-        if (difference && (!formula.equals(predicateFormula) || update != null)) {
+        if (settings().difference && (!formula.equals(predicateFormula) || update != null)) {
           if (instrum.arity() == 0)
             action.setPredicateUpdateFormula(instrum, formula, update != null && update.getAuto());
           else
             action.setPredicateUpdateFormula(instrum, formula, ((PredicateFormula) predicateFormula).variables(), update != null
                 && update.getAuto());
-          if (tight)
+          if (settings().tight)
             predUpdateMaps.generatedTight.put(instrum, action.getUpdateFormula(instrum));
           else
             predUpdateMaps.generatedUntight.put(instrum, action.getUpdateFormula(instrum));
         }
 
-        if (!tight && tClosedInstrumPreds.contains(instrum)) {
+        if (!settings().tight && tClosedInstrumPreds.contains(instrum)) {
           // Need to obtain a tight version of the update for this instrum pred.
-          if (debug)
+          if (settings().debug)
             Logger.println("\nObtaining a tight update for instrum pred " + instrum);
 
           formula = FormulaDifferencing.getInstance().futureFormula(header, instrum, instrum.getFormula(), predUpdateMaps, true);
@@ -347,7 +370,7 @@ public class Differencing {
 
     generateCloseCycleMessage(action, predUpdateMaps);
     
-    if (debug)
+    if (settings().debug)
       Logger.println("\nFinished differencing for action " + action + "\n");
   }
 
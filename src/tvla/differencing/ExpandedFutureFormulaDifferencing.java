@@ -22,7 +22,7 @@ import tvla.util.ProgramProperties;
 public class ExpandedFutureFormulaDifferencing extends FormulaDifferencing {
 
     // Expand even PredicateFormula's future formula (set to true to obtain the ESOP'03 version)?
-    protected static boolean expandPredicateFormulaFuture =
+    protected final boolean expandPredicateFormulaFuture =
 	ProgramProperties.getBooleanProperty("tvla.differencing.expandPredicateFormulaFuture", true);
 
     /**
@@ -38,6 +38,7 @@ import tvla.logic.Kleene;
 import tvla.predicates.Instrumentation;
 import tvla.predicates.Predicate;
 import tvla.predicates.Vocabulary;
+import tvla.util.AnalysisContext;
 import tvla.util.HashMapFactory;
 import tvla.util.HashSetFactory;
 import tvla.util.Logger;
@@ -51,61 +52,65 @@ import tvla.util.ProgramProperties;
  */
 
 public abstract class FormulaDifferencing {
-    // Note that the properties below are initialized before any getInstance
-    // call
-    // but after properties are loaded in Runner's main method.
+    // Note that the properties below are read when the instance of an
+    // analysis is created, after its properties are loaded.
 
-    protected static boolean simplify = // Use simplifying constructors?
+    protected boolean simplify = // Use simplifying constructors?
     ProgramProperties.getBooleanProperty("tvla.differencing.simplify", false);
 
-    protected static boolean simplifyUpdate = // Simplify top-level update
+    protected final boolean simplifyUpdate = // Simplify top-level update
                                                 // formulae?
     ProgramProperties.getBooleanProperty("tvla.differencing.simplifyUpdate", false);
 
-    protected static boolean substituteDeltas = // Look for instrum preds
+    protected final boolean substituteDeltas = // Look for instrum preds
                                                 // matching deltas?
     ProgramProperties.getBooleanProperty("tvla.differencing.substituteDeltas", false);
 
-    protected static boolean minimizeUpdateFormulae = // Minimize formulae to
+    protected final boolean minimizeUpdateFormulae = // Minimize formulae to
                                                         // be returned from
                                                         // updateFormula?
     ProgramProperties.getBooleanProperty("tvla.differencing.minimizeUpdateFormulae", false);
 
-    protected static String minTmpFile = // Tmp file for minimization output
+    protected final String minTmpFile = // Tmp file for minimization output
                                             // parsing.
     ProgramProperties.getProperty("tvla.differencing.minTmpFile", null);
 
-    protected static String searchPath = // Search path to be passed to
+    protected final String searchPath = // Search path to be passed to
                                             // formula parser.
     ProgramProperties.getProperty("tvla.searchPath", ";");
 
-    protected static boolean logging = // Log main steps of differencing in a
+    protected final boolean logging = // Log main steps of differencing in a
                                         // file?
     ProgramProperties.getBooleanProperty("tvla.differencing.logging", false)
             && ProgramProperties.getBooleanProperty("tvla.differencing.difference", false);
 
     // Should we assume that all structures are non-empty in simplification?
-    protected static boolean nonEmptyStructs = ProgramProperties.getBooleanProperty(
+    protected final boolean nonEmptyStructs = ProgramProperties.getBooleanProperty(
             "tvla.simplify.nonEmptyStructs", false);
 
-    protected static boolean warnAboutNonUnitChanges = ProgramProperties.getBooleanProperty(
+    protected final boolean warnAboutNonUnitChanges = ProgramProperties.getBooleanProperty(
             "tvla.differencing.warnAboutNonUnitChanges", true);
 
-    protected static PrintStream diffLogStream;
+    protected PrintStream diffLogStream;
 
     /**
      * The one and only instance of this class.
      */
-    protected static FormulaDifferencing instance;
+    protected static final AnalysisContext.Slot<FormulaDifferencing> instance = new AnalysisContext.Slot<FormulaDifferencing>() {
+        protected FormulaDifferencing create() {
+            return null;
+        }
+    };
 
     public static void reset() {
-    	instance = null;
+    	instance.reset();
     }
     
     /**
      * Returns the one and only instance of this class.
      */
     public static FormulaDifferencing getInstance() {
+        FormulaDifferencing instance = FormulaDifferencing.instance.get();
         if (instance == null) {
             String implementation = ProgramProperties.getProperty(
                     "tvla.differencing.implementation", "expandedFuture");
@@ -120,6 +125,7 @@ public abstract class FormulaDifferencing {
                         "Invalid property value specified for tvla.differencing.implementation : "
                                 + implementation
                                 + "valid property values are: expandedFuture and propagatedFuture\n");
+            FormulaDifferencing.instance.set(instance);
         }
         return instance;
     }
@@ -138,12 +144,12 @@ public abstract class FormulaDifferencing {
         }
     }
 
-    protected static void print(Object o) {
+    protected void print(Object o) {
         if (logging && diffLogStream != null)
             diffLogStream.print(o);
     }
 
-    protected static void println(Object o) {
+    protected void println(Object o) {
         if (logging && diffLogStream != null)
             diffLogStream.println(o);
     }
@@ -22,7 +22,12 @@ import tvla.util.HashMapFactory;
  * @author Tal Lev-Ami
  */
 final public class AllQuantFormula extends QuantFormula {
-    AssignPrecomputed assignFactory;
+    /** Reused assignments, one per evaluating thread. */
+    final ThreadLocal<AssignPrecomputed> assignFactory = new ThreadLocal<AssignPrecomputed>() {
+        protected AssignPrecomputed initialValue() {
+            return new AssignPrecomputed();
+        }
+    };
 
     /** Create a copy of the formula */
     public Formula copy() {
@@ -33,12 +38,11 @@ final public class AllQuantFormula extends QuantFormula {
     /** Create a new ForAll quantified formula. */
     public AllQuantFormula(Var boundVariable, Formula subFormula) {
         super(boundVariable, subFormula);
-        assignFactory = new AssignPrecomputed();
     }
 
     /** Evaluate the formula on the given structure and assignment. */
     public Kleene eval(TVS s, Assign assign) {
-        Assign localAssign = assignFactory.instanceForIterator(assign, boundVars(), true);
+        Assign localAssign = assignFactory.get().instanceForIterator(assign, boundVars(), true);
 
         Kleene result = Kleene.trueKleene;
         localAssign.addVar(boundVariable);
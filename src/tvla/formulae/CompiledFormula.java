@@ -0,0 +1,955 @@
+package tvla.formulae;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import tvla.core.Node;
+import tvla.core.NodeTuple;
+import tvla.core.TVS;
+import tvla.core.assignments.Assign;
+import tvla.core.assignments.AssignKleene;
+import tvla.logic.Kleene;
+import tvla.predicates.Predicate;
+import tvla.predicates.Vocabulary;
+import tvla.util.HashMapFactory;
+import tvla.util.ProgramProperties;
+
+/** A formula compiled into a tree of evaluators that do not allocate
+ * while evaluating.
+ * Each variable is mapped to a slot of a node array instead of an Assign,
+ * quantifiers range over a snapshot of the structure's universe, and
+ * transitive closures are computed into reusable bit matrices.
+ * The scratch state is kept in a frame per thread, so a compiled formula
+ * may be shared by actions that are applied concurrently.
+ * @see tvla.formulae.Formula#eval
+ * @see tvla.formulae.Formula#assignments
+ */
+public final class CompiledFormula {
+	/** Should actions evaluate their preconditions and updates using
+	 * compiled formulae?
+	 */
+	public static final boolean enabled =
+		ProgramProperties.getFixedBooleanProperty("tvla.formulae.compiled", false);
+
+	/** The formula that was compiled.
+	 */
+	private final Formula formula;
+
+	/** The evaluator of the whole formula.
+	 */
+	private final Op root;
+
+	/** The free variables of the formula and their slots.
+	 */
+	private final Var[] freeVars;
+	private final int[] freeSlots;
+
+	/** The evaluators of the top-level conjuncts of the formula, and
+	 * the slots of their free variables. Assignments are enumerated by
+	 * binding the variables of one conjunct after the other.
+	 */
+	private final Op[] conjuncts;
+	private final int[][] conjunctSlots;
+
+	/** For each conjunct that is a predicate formula, its predicate and
+	 * the slots of its arguments.
+	 */
+	private final Predicate[] conjunctPredicates;
+	private final int[][] conjunctArgs;
+
+	/** The free variable assigned to each slot, or null for slots of
+	 * bound variables.
+	 */
+	private final Var[] slotVars;
+
+	private final int numberOfSlots;
+	private final int numberOfClosures;
+
+	/** Scratch state, one per evaluating thread.
+	 */
+	private final ThreadLocal<Frame> frames = new ThreadLocal<Frame>() {
+		protected Frame initialValue() {
+			return new Frame();
+		}
+	};
+
+	/** Compiles the specified formula.
+	 * The formula should not be modified after it is compiled.
+	 */
+	public CompiledFormula(Formula formula) {
+		this.formula = formula;
+		Compiler compiler = new Compiler();
+
+		List<Var> free = formula.freeVars();
+		this.freeVars = free.toArray(new Var[free.size()]);
+		this.freeSlots = new int[freeVars.length];
+		for (int i = 0; i < freeVars.length; ++i)
+			freeSlots[i] = compiler.bind(freeVars[i]);
+
+		this.root = compiler.compile(formula);
+
+		List<Formula> ands = new ArrayList<Formula>();
+		Formula.getAnds(formula, ands);
+		this.conjuncts = new Op[ands.size()];
+		this.conjunctSlots = new int[ands.size()][];
+		this.conjunctPredicates = new Predicate[ands.size()];
+		this.conjunctArgs = new int[ands.size()][];
+		for (int i = 0; i < conjuncts.length; ++i) {
+			Formula conjunct = ands.get(i);
+			conjuncts[i] = compiler.compile(conjunct);
+			List<Var> vars = conjunct.freeVars();
+			int[] slots = new int[vars.size()];
+			int index = 0;
+			for (Var var : vars)
+				slots[index++] = compiler.slot(var);
+			conjunctSlots[i] = slots;
+			if (conjunct instanceof PredicateFormula && ((PredicateFormula) conjunct).predicate().arity() > 0) {
+				PredicateFormula predicateFormula = (PredicateFormula) conjunct;
+				Var[] variables = predicateFormula.variables();
+				int[] args = new int[variables.length];
+				for (int j = 0; j < args.length; ++j)
+					args[j] = compiler.slot(variables[j]);
+				conjunctPredicates[i] = predicateFormula.predicate();
+				conjunctArgs[i] = args;
+			}
+		}
+
+		this.numberOfSlots = compiler.numberOfSlots;
+		this.numberOfClosures = compiler.numberOfClosures;
+		this.slotVars = new Var[numberOfSlots];
+		for (int i = 0; i < freeVars.length; ++i)
+			slotVars[freeSlots[i]] = freeVars[i];
+	}
+
+	/** Returns the formula that was compiled.
+	 */
+	public Formula getFormula() {
+		return formula;
+	}
+
+	/** Evaluates the formula on the given structure and assignment of
+	 * its free variables.
+	 */
+	public Kleene eval(TVS structure, Assign assign) {
+		Frame frame = frames.get();
+		if (frame.structure != null)
+			frame = new Frame();
+		frame.bind(structure);
+		try {
+			for (int i = 0; i < freeVars.length; ++i)
+				frame.slots[freeSlots[i]] = assign.get(freeVars[i]);
+			return root.eval(frame);
+		}
+		finally {
+			frame.release();
+		}
+	}
+
+	/** Returns an iterator over the assignments to the free variables of
+	 * the formula, extending the partial assignment, for which the formula
+	 * does not evaluate to false.
+	 * As with FormulaIterator, the same AssignKleene object is returned by
+	 * all calls to next().
+	 */
+	public Iterator<AssignKleene> assignments(TVS structure, Assign partial) {
+		return new Assignments(structure, partial);
+	}
+
+	public String toString() {
+		return formula.toString();
+	}
+
+	/** Maps variables to slots while compiling.
+	 */
+	private final class Compiler {
+		private final Map<Var, Integer> slots = HashMapFactory.make();
+		int numberOfSlots = 0;
+		int numberOfClosures = 0;
+
+		/** Allocates a new slot for the variable.
+		 * @return The slot previously bound to the variable, or null.
+		 */
+		Integer rebind(Var var) {
+			return slots.put(var, numberOfSlots++);
+		}
+
+		int bind(Var var) {
+			rebind(var);
+			return numberOfSlots - 1;
+		}
+
+		void restore(Var var, Integer previous) {
+			if (previous == null)
+				slots.remove(var);
+			else
+				slots.put(var, previous);
+		}
+
+		int slot(Var var) {
+			Integer slot = slots.get(var);
+			if (slot == null)
+				throw new RuntimeException("Variable " + var + " is not bound in the compiled formula " + formula);
+			return slot.intValue();
+		}
+
+		Op compile(Formula formula) {
+			if (formula instanceof PredicateFormula) {
+				PredicateFormula predicateFormula = (PredicateFormula) formula;
+				Predicate predicate = predicateFormula.predicate();
+				Var[] variables = predicateFormula.variables();
+				switch (predicate.arity()) {
+				case 0:
+					return new NullaryOp(predicate);
+				case 1:
+					return new UnaryOp(predicate, slot(variables[0]));
+				case 2:
+					return new BinaryOp(predicate, slot(variables[0]), slot(variables[1]));
+				default:
+					int[] args = new int[variables.length];
+					for (int i = 0; i < args.length; ++i)
+						args[i] = slot(variables[i]);
+					return new KAryOp(predicate, args);
+				}
+			}
+			else if (formula instanceof ValueFormula) {
+				return new ValueOp(((ValueFormula) formula).value());
+			}
+			else if (formula instanceof EqualityFormula) {
+				EqualityFormula equality = (EqualityFormula) formula;
+				if (equality.left().equals(equality.right()))
+					return new ValueOp(Kleene.trueKleene);
+				return new EqualityOp(slot(equality.left()), slot(equality.right()));
+			}
+			else if (formula instanceof NotFormula) {
+				return new NotOp(compile(((NotFormula) formula).subFormula()));
+			}
+			else if (formula instanceof AndFormula) {
+				AndFormula and = (AndFormula) formula;
+				return new AndOp(compile(and.left()), compile(and.right()));
+			}
+			else if (formula instanceof OrFormula) {
+				OrFormula or = (OrFormula) formula;
+				return new OrOp(compile(or.left()), compile(or.right()));
+			}
+			else if (formula instanceof ImpliesFormula) {
+				ImpliesFormula implies = (ImpliesFormula) formula;
+				return new OrOp(new NotOp(compile(implies.left())), compile(implies.right()), false);
+			}
+			else if (formula instanceof EquivalenceFormula) {
+				EquivalenceFormula equivalence = (EquivalenceFormula) formula;
+				return new EquivalenceOp(compile(equivalence.left()), compile(equivalence.right()));
+			}
+			else if (formula instanceof IfFormula) {
+				IfFormula ifFormula = (IfFormula) formula;
+				return new IfOp(compile(ifFormula.condSubFormula()),
+						compile(ifFormula.trueSubFormula()),
+						compile(ifFormula.falseSubFormula()));
+			}
+			else if (formula instanceof QuantFormula) {
+				QuantFormula quant = (QuantFormula) formula;
+				Var bound = quant.boundVariable();
+				Integer previous = rebind(bound);
+				int slot = numberOfSlots - 1;
+				Op body = compile(quant.subFormula());
+				restore(bound, previous);
+				if (formula instanceof ExistQuantFormula)
+					return new ExistOp(slot, body);
+				else
+					return new AllOp(slot, body);
+			}
+			else if (formula instanceof TransitiveFormula) {
+				TransitiveFormula tc = (TransitiveFormula) formula;
+				int left = slot(tc.left());
+				int right = slot(tc.right());
+				Integer previousLeft = rebind(tc.subLeft());
+				int subLeft = numberOfSlots - 1;
+				Integer previousRight = rebind(tc.subRight());
+				int subRight = numberOfSlots - 1;
+				Op body = compile(tc.subFormula());
+				restore(tc.subRight(), previousRight);
+				restore(tc.subLeft(), previousLeft);
+				// The closure depends on the assignment if the sub formula has
+				// free variables other than the ones the closure is taken on.
+				List<Var> subFree = tc.subFormula().freeVars();
+				boolean dependent = false;
+				for (Var var : subFree)
+					dependent |= !var.equals(tc.subLeft()) && !var.equals(tc.subRight());
+				return new TransitiveOp(numberOfClosures++, left, right, subLeft, subRight, body, dependent);
+			}
+			throw new RuntimeException("Unable to compile formula of type " +
+					formula.getClass().getName() + " : " + formula);
+		}
+	}
+
+	/** The scratch state of an evaluation.
+	 */
+	private final class Frame {
+		/** The structure being evaluated, or null if the frame is free.
+		 */
+		TVS structure;
+
+		/** The nodes assigned to the variables.
+		 */
+		final Node[] slots = new Node[numberOfSlots];
+
+		/** A snapshot of the universe and of the value of active for each
+		 * node, taken when first needed. size is -1 until then.
+		 */
+		Node[] universe = new Node[16];
+		Kleene[] active = new Kleene[16];
+		int size = -1;
+
+		/** One more than the largest node id in the universe snapshot.
+		 */
+		int ids;
+
+		/** The transitive closures, as bit matrices over node ids.
+		 */
+		final TransitiveFormula.TCCache[] closures = new TransitiveFormula.TCCache[numberOfClosures];
+		final boolean[] closureValid = new boolean[numberOfClosures];
+
+		void bind(TVS structure) {
+			this.structure = structure;
+			this.size = -1;
+			Arrays.fill(closureValid, false);
+		}
+
+		void release() {
+			structure = null;
+		}
+
+		int size() {
+			if (size < 0)
+				snapshot();
+			return size;
+		}
+
+		private void snapshot() {
+			int n = structure.nodes().size();
+			if (universe.length < n) {
+				universe = new Node[n];
+				active = new Kleene[n];
+			}
+			int index = 0;
+			ids = 0;
+			for (Node node : structure.nodes()) {
+				universe[index] = node;
+				active[index] = structure.eval(Vocabulary.active, node);
+				if (node.id() >= ids)
+					ids = node.id() + 1;
+				++index;
+			}
+			size = n;
+		}
+	}
+
+	/** An evaluator of a compiled sub formula.
+	 */
+	private static abstract class Op {
+		abstract Kleene eval(Frame frame);
+	}
+
+	private static final class ValueOp extends Op {
+		private final Kleene value;
+
+		ValueOp(Kleene value) {
+			this.value = value;
+		}
+
+		Kleene eval(Frame frame) {
+			return value;
+		}
+	}
+
+	private static final class NullaryOp extends Op {
+		private final Predicate predicate;
+
+		NullaryOp(Predicate predicate) {
+			this.predicate = predicate;
+		}
+
+		Kleene eval(Frame frame) {
+			return frame.structure.eval(predicate);
+		}
+	}
+
+	private static final class UnaryOp extends Op {
+		private final Predicate predicate;
+		private final int slot;
+
+		UnaryOp(Predicate predicate, int slot) {
+			this.predicate = predicate;
+			this.slot = slot;
+		}
+
+		Kleene eval(Frame frame) {
+			return frame.structure.eval(predicate, frame.slots[slot]);
+		}
+	}
+
+	private static final class BinaryOp extends Op {
+		private final Predicate predicate;
+		private final int left;
+		private final int right;
+
+		BinaryOp(Predicate predicate, int left, int right) {
+			this.predicate = predicate;
+			this.left = left;
+			this.right = right;
+		}
+
+		Kleene eval(Frame frame) {
+			return frame.structure.eval(predicate, frame.slots[left], frame.slots[right]);
+		}
+	}
+
+	private static final class KAryOp extends Op {
+		private final Predicate predicate;
+		private final int[] args;
+
+		KAryOp(Predicate predicate, int[] args) {
+			this.predicate = predicate;
+			this.args = args;
+		}
+
+		Kleene eval(Frame frame) {
+			Node[] nodes = new Node[args.length];
+			for (int i = 0; i < args.length; ++i)
+				nodes[i] = frame.slots[args[i]];
+			return frame.structure.eval(predicate, NodeTuple.createTuple(nodes));
+		}
+	}
+
+	private static final class EqualityOp extends Op {
+		private final int left;
+		private final int right;
+
+		EqualityOp(int left, int right) {
+			this.left = left;
+			this.right = right;
+		}
+
+		Kleene eval(Frame frame) {
+			Node leftNode = frame.slots[left];
+			if (!leftNode.equals(frame.slots[right]))
+				return Kleene.falseKleene;
+			return Kleene.not(frame.structure.eval(Vocabulary.sm, leftNode));
+		}
+	}
+
+	private static final class NotOp extends Op {
+		private final Op sub;
+
+		NotOp(Op sub) {
+			this.sub = sub;
+		}
+
+		Kleene eval(Frame frame) {
+			return Kleene.not(sub.eval(frame));
+		}
+	}
+
+	private static final class AndOp extends Op {
+		private final Op left;
+		private final Op right;
+
+		AndOp(Op left, Op right) {
+			this.left = left;
+			this.right = right;
+		}
+
+		Kleene eval(Frame frame) {
+			Kleene result = left.eval(frame);
+			if (result == Kleene.falseKleene)
+				return result;
+			return Kleene.and(result, right.eval(frame));
+		}
+	}
+
+	private static final class OrOp extends Op {
+		private final Op left;
+		private final Op right;
+		private final boolean shortCircuit;
+
+		OrOp(Op left, Op right) {
+			this(left, right, true);
+		}
+
+		/** @param shortCircuit Whether the right operand may be skipped
+		 * when the left one is true. Implications evaluate both operands,
+		 * as ImpliesFormula does.
+		 */
+		OrOp(Op left, Op right, boolean shortCircuit) {
+			this.left = left;
+			this.right = right;
+			this.shortCircuit = shortCircuit;
+		}
+
+		Kleene eval(Frame frame) {
+			Kleene result = left.eval(frame);
+			if (shortCircuit && result == Kleene.trueKleene)
+				return result;
+			return Kleene.or(result, right.eval(frame));
+		}
+	}
+
+	private static final class EquivalenceOp extends Op {
+		private final Op left;
+		private final Op right;
+
+		EquivalenceOp(Op left, Op right) {
+			this.left = left;
+			this.right = right;
+		}
+
+		Kleene eval(Frame frame) {
+			Kleene leftResult = left.eval(frame);
+			Kleene rightResult = right.eval(frame);
+			return Kleene.and(Kleene.or(Kleene.not(leftResult), rightResult),
+							  Kleene.or(Kleene.not(rightResult), leftResult));
+		}
+	}
+
+	private static final class IfOp extends Op {
+		private final Op cond;
+		private final Op then;
+		private final Op otherwise;
+
+		IfOp(Op cond, Op then, Op otherwise) {
+			this.cond = cond;
+			this.then = then;
+			this.otherwise = otherwise;
+		}
+
+		Kleene eval(Frame frame) {
+			Kleene condResult = cond.eval(frame);
+			if (condResult == Kleene.trueKleene)
+				return then.eval(frame);
+			else if (condResult == Kleene.falseKleene)
+				return otherwise.eval(frame);
+			else
+				return Kleene.join(then.eval(frame), otherwise.eval(frame));
+		}
+	}
+
+	/** Evaluates an existential quantifier as ExistQuantFormula does.
+	 */
+	private static final class ExistOp extends Op {
+		private final int slot;
+		private final Op body;
+
+		ExistOp(int slot, Op body) {
+			this.slot = slot;
+			this.body = body;
+		}
+
+		Kleene eval(Frame frame) {
+			int size = frame.size();
+			Node[] slots = frame.slots;
+			Node[] universe = frame.universe;
+			Kleene[] active = frame.active;
+			Kleene result = Kleene.falseKleene;
+			for (int i = 0; i < size; ++i) {
+				slots[slot] = universe[i];
+				result = Kleene.or(result, body.eval(frame));
+				if (result == Kleene.trueKleene)
+					result = active[i];
+				if (result == Kleene.trueKleene)
+					return result;
+			}
+			return result;
+		}
+	}
+
+	/** Evaluates a universal quantifier as AllQuantFormula does.
+	 */
+	private static final class AllOp extends Op {
+		private final int slot;
+		private final Op body;
+
+		AllOp(int slot, Op body) {
+			this.slot = slot;
+			this.body = body;
+		}
+
+		Kleene eval(Frame frame) {
+			int size = frame.size();
+			Node[] slots = frame.slots;
+			Node[] universe = frame.universe;
+			Kleene[] active = frame.active;
+			Kleene result = Kleene.trueKleene;
+			for (int i = 0; i < size; ++i) {
+				if (active[i] == Kleene.falseKleene)
+					continue;
+				slots[slot] = universe[i];
+				result = Kleene.and(result, body.eval(frame));
+				if (result == Kleene.falseKleene)
+					result = Kleene.not(active[i]);
+				if (result == Kleene.falseKleene)
+					return result;
+			}
+			return result;
+		}
+	}
+
+	/** Evaluates a transitive closure by looking it up in a matrix over
+	 * the universe, which is computed once per evaluation unless the sub
+	 * formula depends on other variables.
+	 */
+	private static final class TransitiveOp extends Op {
+		private final int index;
+		private final int left;
+		private final int right;
+		private final int subLeft;
+		private final int subRight;
+		private final Op body;
+		private final boolean dependent;
+
+		TransitiveOp(int index, int left, int right, int subLeft, int subRight, Op body, boolean dependent) {
+			this.index = index;
+			this.left = left;
+			this.right = right;
+			this.subLeft = subLeft;
+			this.subRight = subRight;
+			this.body = body;
+			this.dependent = dependent;
+		}
+
+		Kleene eval(Frame frame) {
+			int size = frame.size();
+			TransitiveFormula.TCCache closure = frame.closures[index];
+			if (dependent || !frame.closureValid[index]) {
+				closure = calculate(frame, size);
+				frame.closureValid[index] = true;
+			}
+			return closure.get(frame.slots[left], frame.slots[right]);
+		}
+
+		/** Computes the closure of the sub formula over the universe.
+		 * The value of a path is the conjunction of its edges and of
+		 * active for its intermediate nodes.
+		 */
+		private TransitiveFormula.TCCache calculate(Frame frame, int size) {
+			TransitiveFormula.TCCache closure = frame.closures[index];
+			if (closure == null) {
+				closure = new TransitiveFormula.TCCache();
+				frame.closures[index] = closure;
+			}
+			Node[] slots = frame.slots;
+			Node[] universe = frame.universe;
+			closure.startEdges(frame.ids);
+			for (int i = 0; i < size; ++i) {
+				closure.setActive(universe[i].id(), frame.active[i]);
+				slots[subLeft] = universe[i];
+				for (int j = 0; j < size; ++j) {
+					slots[subRight] = universe[j];
+					closure.setEdge(universe[i].id(), universe[j].id(), body.eval(frame));
+				}
+			}
+			closure.close();
+			return closure;
+		}
+	}
+
+	/** Binds the variables of one conjunct while enumerating assignments.
+	 */
+	private static abstract class Step {
+		/** The value of the conjunct for the current binding.
+		 */
+		Kleene value;
+
+		/** Starts enumerating the bindings for the current values of the
+		 * variables bound by the previous steps.
+		 */
+		abstract void open(Frame frame);
+
+		/** Binds the next assignment for which the conjunct does not
+		 * evaluate to false.
+		 * @return false if there are no more such assignments.
+		 */
+		abstract boolean advance(Frame frame);
+	}
+
+	/** Binds the new variables of a conjunct to every combination of
+	 * nodes in the universe, and evaluates the conjunct.
+	 */
+	private static final class UniverseStep extends Step {
+		/** The conjunct, or null for variables that do not appear in any
+		 * conjunct.
+		 */
+		private final Op conjunct;
+		private final int[] slots;
+		private final int[] positions;
+		private boolean started;
+
+		UniverseStep(Op conjunct, int[] slots) {
+			this.conjunct = conjunct;
+			this.slots = slots;
+			this.positions = new int[slots.length];
+		}
+
+		void open(Frame frame) {
+			started = false;
+		}
+
+		boolean advance(Frame frame) {
+			while (next(frame)) {
+				value = conjunct == null ? Kleene.trueKleene : conjunct.eval(frame);
+				if (value != Kleene.falseKleene)
+					return true;
+			}
+			return false;
+		}
+
+		/** Moves to the next combination of nodes.
+		 */
+		private boolean next(Frame frame) {
+			if (slots.length == 0) {
+				if (started)
+					return false;
+				started = true;
+				return true;
+			}
+			int size = frame.size();
+			Node[] universe = frame.universe;
+			if (!started) {
+				started = true;
+				if (size == 0)
+					return false;
+				for (int i = 0; i < slots.length; ++i) {
+					positions[i] = 0;
+					frame.slots[slots[i]] = universe[0];
+				}
+				return true;
+			}
+			for (int i = slots.length - 1; i >= 0; --i) {
+				if (++positions[i] < size) {
+					frame.slots[slots[i]] = universe[positions[i]];
+					return true;
+				}
+				positions[i] = 0;
+				frame.slots[slots[i]] = universe[0];
+			}
+			return false;
+		}
+	}
+
+	/** Binds the new variables of a predicate conjunct by iterating over
+	 * the tuples that satisfy the predicate.
+	 */
+	private static final class PredicateStep extends Step {
+		private final Predicate predicate;
+		private final int[] args;
+		/** For each argument, whether it is the first occurrence of a
+		 * variable that is bound by this step.
+		 */
+		private final boolean[] binds;
+		/** For each argument, whether its value is known when the step is
+		 * opened.
+		 */
+		private final boolean[] known;
+		private final Node[] partialNodes;
+		private final boolean anyKnown;
+		private Iterator<Map.Entry<NodeTuple, Kleene>> tuples;
+
+		PredicateStep(Predicate predicate, int[] args, boolean[] binds, boolean[] known) {
+			this.predicate = predicate;
+			this.args = args;
+			this.binds = binds;
+			this.known = known;
+			this.partialNodes = new Node[args.length];
+			boolean anyKnown = false;
+			for (int i = 0; i < known.length; ++i)
+				anyKnown |= known[i];
+			this.anyKnown = anyKnown;
+		}
+
+		void open(Frame frame) {
+			for (int i = 0; i < args.length; ++i)
+				partialNodes[i] = known[i] ? frame.slots[args[i]] : null;
+			tuples = frame.structure.predicateSatisfyingNodeTuples(predicate, anyKnown ? partialNodes : null, null);
+		}
+
+		boolean advance(Frame frame) {
+			Node[] slots = frame.slots;
+			candidates: while (tuples.hasNext()) {
+				Map.Entry<NodeTuple, Kleene> entry = tuples.next();
+				NodeTuple tuple = entry.getKey();
+				for (int i = 0; i < args.length; ++i) {
+					if (binds[i])
+						slots[args[i]] = tuple.get(i);
+				}
+				// Structures may ignore the partial nodes, and a variable
+				// may appear more than once.
+				for (int i = 0; i < args.length; ++i) {
+					if (!binds[i] && !tuple.get(i).equals(slots[args[i]]))
+						continue candidates;
+				}
+				value = entry.getValue();
+				if (value != Kleene.falseKleene)
+					return true;
+			}
+			return false;
+		}
+	}
+
+	/** Enumerates the assignments that satisfy the formula, binding the
+	 * variables of the conjuncts in order and pruning an assignment as
+	 * soon as one conjunct evaluates to false.
+	 */
+	private final class Assignments implements Iterator<AssignKleene> {
+		private final Frame frame = new Frame();
+		private final Step[] steps;
+		private final Kleene[] values;
+		private final AssignKleene result;
+		private final Var[] boundVars;
+		private final int[] boundSlots;
+		private int level;
+		private boolean ready;
+		private boolean done;
+
+		Assignments(TVS structure, Assign partial) {
+			frame.bind(structure);
+			boolean[] bound = new boolean[numberOfSlots];
+			for (int i = 0; i < freeVars.length; ++i) {
+				if (partial.contains(freeVars[i])) {
+					frame.slots[freeSlots[i]] = partial.get(freeVars[i]);
+					bound[freeSlots[i]] = true;
+				}
+			}
+
+			List<Step> stepList = new ArrayList<Step>(conjuncts.length + 1);
+			for (int i = 0; i < conjuncts.length; ++i) {
+				int[] slots = conjunctSlots[i];
+				int newSlots = 0;
+				for (int j = 0; j < slots.length; ++j) {
+					if (!bound[slots[j]])
+						++newSlots;
+				}
+				if (conjunctPredicates[i] != null && newSlots > 0) {
+					int[] args = conjunctArgs[i];
+					boolean[] binds = new boolean[args.length];
+					boolean[] known = new boolean[args.length];
+					for (int j = 0; j < args.length; ++j)
+						known[j] = bound[args[j]];
+					for (int j = 0; j < args.length; ++j) {
+						if (!bound[args[j]]) {
+							binds[j] = true;
+							bound[args[j]] = true;
+						}
+					}
+					stepList.add(new PredicateStep(conjunctPredicates[i], args, binds, known));
+				}
+				else {
+					int[] stepSlots = new int[newSlots];
+					int index = 0;
+					for (int j = 0; j < slots.length; ++j) {
+						if (!bound[slots[j]]) {
+							stepSlots[index++] = slots[j];
+							bound[slots[j]] = true;
+						}
+					}
+					stepList.add(new UniverseStep(conjuncts[i], stepSlots));
+				}
+			}
+
+			// Free variables that do not appear in any conjunct, such as
+			// variables on the left-hand side of an update formula.
+			int remaining = 0;
+			for (int i = 0; i < freeVars.length; ++i)
+				if (!bound[freeSlots[i]])
+					++remaining;
+			if (remaining > 0) {
+				int[] stepSlots = new int[remaining];
+				int index = 0;
+				for (int i = 0; i < freeVars.length; ++i)
+					if (!bound[freeSlots[i]])
+						stepSlots[index++] = freeSlots[i];
+				stepList.add(new UniverseStep(null, stepSlots));
+			}
+			this.steps = stepList.toArray(new Step[stepList.size()]);
+			this.values = new Kleene[steps.length];
+
+			// The variables bound by the steps, in the order of the conjuncts.
+			List<Var> vars = new ArrayList<Var>();
+			List<Integer> varSlots = new ArrayList<Integer>();
+			for (int i = 0; i < conjuncts.length; ++i) {
+				for (int slot : conjunctSlots[i]) {
+					Var var = slotVars[slot];
+					if (!partial.contains(var) && !vars.contains(var)) {
+						vars.add(var);
+						varSlots.add(slot);
+					}
+				}
+			}
+			for (int i = 0; i < freeVars.length; ++i) {
+				if (!partial.contains(freeVars[i]) && !vars.contains(freeVars[i])) {
+					vars.add(freeVars[i]);
+					varSlots.add(freeSlots[i]);
+				}
+			}
+			this.boundVars = vars.toArray(new Var[vars.size()]);
+			this.boundSlots = new int[boundVars.length];
+			for (int i = 0; i < boundSlots.length; ++i)
+				boundSlots[i] = varSlots.get(i);
+
+			this.result = new AssignKleene(partial, Kleene.falseKleene);
+			result.addVars(vars);
+
+			this.level = 0;
+			if (steps.length == 0)
+				done = true;
+			else
+				steps[0].open(frame);
+		}
+
+		public boolean hasNext() {
+			if (!ready && !done) {
+				if (findNext()) {
+					ready = true;
+				}
+				else {
+					done = true;
+					frame.release();
+				}
+			}
+			return ready;
+		}
+
+		public AssignKleene next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			ready = false;
+			for (int i = 0; i < boundVars.length; ++i)
+				result.putNode(boundVars[i], frame.slots[boundSlots[i]]);
+			result.kleene = values[steps.length - 1];
+			return result;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		private boolean findNext() {
+			int last = steps.length - 1;
+			while (level >= 0) {
+				Step step = steps[level];
+				if (step.advance(frame)) {
+					values[level] = level == 0 ? step.value : Kleene.and(values[level - 1], step.value);
+					if (level == last)
+						return true;
+					++level;
+					steps[level].open(frame);
+				}
+				else {
+					--level;
+				}
+			}
+			return false;
+		}
+	}
+}
@@ -119,8 +119,9 @@ final public class EqualityFormula extends AtomicFormula {
 		if (predicates != null) {
 			return predicates;
 		}
-		predicates = new LinkedHashSet<Predicate>(2);
-		predicates.add(Vocabulary.sm);
+		Set<Predicate> result = new LinkedHashSet<Predicate>(2);
+		result.add(Vocabulary.sm);
+		predicates = result;
 		return predicates;
 	}
 	
@@ -118,9 +118,10 @@ public class EquivalenceFormula extends Formula {
 		if (predicates != null) {
 			return predicates;
 		}
-		predicates = new LinkedHashSet<Predicate>();
-		predicates.addAll(leftSubFormula.getPredicates());
-		predicates.addAll(rightSubFormula.getPredicates());
+		Set<Predicate> result = new LinkedHashSet<Predicate>();
+		result.addAll(leftSubFormula.getPredicates());
+		result.addAll(rightSubFormula.getPredicates());
+		predicates = result;
 		return predicates;
 	}
 
@@ -19,12 +19,16 @@ import tvla.util.HashMapFactory;
  * @author Tal Lev-Ami 
  */
 final public class ExistQuantFormula extends QuantFormula {
-	/** Create a new exists quanitified formula. */
-	AssignPrecomputed assignFactory;
+	/** Reused assignments, one per evaluating thread. */
+	final ThreadLocal<AssignPrecomputed> assignFactory = new ThreadLocal<AssignPrecomputed>() {
+		protected AssignPrecomputed initialValue() {
+			return new AssignPrecomputed();
+		}
+	};
 	
+	/** Create a new exists quanitified formula. */
 	public ExistQuantFormula(Var boundVariable, Formula subFormula) {
 		super(boundVariable, subFormula);
-		assignFactory = new AssignPrecomputed();
 	}
 
 	/** Create a copy of the formula */
@@ -59,7 +63,7 @@ final public class ExistQuantFormula extends QuantFormula {
 */
 
 		//Assign localAssign = assign.copy();
-		Assign localAssign = assignFactory.instanceForIterator(assign, boundVars(), true);
+		Assign localAssign = assignFactory.get().instanceForIterator(assign, boundVars(), true);
 		localAssign.addVar(boundVariable);
 		Kleene result = Kleene.falseKleene;
 		// Compute the three valued logical disjunction on the value of the sub formula
@@ -27,7 +27,7 @@ public abstract class Formula {
 	 * Keep this as a flag for now, so we can compare cost and results.
 	 */
 	protected static boolean alphaRenamingEquals =
-	    ProgramProperties.getBooleanProperty("tvla.formulae.alphaRenamingEquals", false);
+	    ProgramProperties.getFixedBooleanProperty("tvla.formulae.alphaRenamingEquals", false);
 
 	/** Free vars of this formula.  Need to reset to recompute after a substitution.
 	 */
@@ -54,9 +54,12 @@ public abstract class Formula {
 	 *  appear in the formula.
 	 */
 	public List<Var> freeVars() {
-		if (freeVars == null)
+		List<Var> result = freeVars;
+		if (result == null) {
 			recalcFreeVars();
-		return freeVars;
+			result = freeVars;
+		}
+		return result;
 	}
 
 	/** Return variables bound in this formula or in its subformulae in the order
@@ -556,9 +559,10 @@ public abstract class Formula {
 	}
 	
 	private void recalcFreeVars() {
-		freeVars = calcFreeVars();
+		List<Var> result = calcFreeVars();
 		if (additionalVars != null)
-			freeVars.addAll(additionalVars);
+			result.addAll(additionalVars);
+		freeVars = result;
 	}
 	
 	/**
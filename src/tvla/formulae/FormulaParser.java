@@ -1794,7 +1794,7 @@ class CUP$FormulaParser$actions {
 		int pleft = ((java_cup.runtime.Symbol)CUP$FormulaParser$stack.elementAt(CUP$FormulaParser$top-0)).left;
 		int pright = ((java_cup.runtime.Symbol)CUP$FormulaParser$stack.elementAt(CUP$FormulaParser$top-0)).right;
 		List p = (List)((java_cup.runtime.Symbol) CUP$FormulaParser$stack.elementAt(CUP$FormulaParser$top-0)).value;
-		 AnalysisGraph.activeGraph.setPrintableLocations(p); 
+		 AnalysisGraph.getActiveGraph().setPrintableLocations(p); 
               CUP$FormulaParser$result = new java_cup.runtime.Symbol(4/*to_print*/, ((java_cup.runtime.Symbol)CUP$FormulaParser$stack.elementAt(CUP$FormulaParser$top-2)).left, ((java_cup.runtime.Symbol)CUP$FormulaParser$stack.elementAt(CUP$FormulaParser$top-0)).right, RESULT);
             }
           return CUP$FormulaParser$result;
@@ -148,10 +148,11 @@ public class IfFormula extends Formula {
 		if (predicates != null) {
 			return predicates;
 		}
-		predicates = new LinkedHashSet<Predicate>();
-		predicates.addAll(condSubFormula.getPredicates());
-		predicates.addAll(trueSubFormula.getPredicates());
-		predicates.addAll(falseSubFormula.getPredicates());
+		Set<Predicate> result = new LinkedHashSet<Predicate>();
+		result.addAll(condSubFormula.getPredicates());
+		result.addAll(trueSubFormula.getPredicates());
+		result.addAll(falseSubFormula.getPredicates());
+		predicates = result;
 		return predicates;
 	}
 	
@@ -8,11 +8,11 @@ package tvla.formulae;
 public class NormalizeOutVars extends FormulaVisitor {
 	/** Variables to normalize out.
 	 */
-	private static Var[] vars;
+	private final Var[] vars;
 	
-	/** Used to invoke traverse and accept.
-	 */
-	private static NormalizeOutVars instance = new NormalizeOutVars();
+	private NormalizeOutVars(Var[] vars) {
+		this.vars = vars;
+	}
 
 	/** Normalizes all quantifier and transitive formulae with
 	 * bound variables in the vs array.  (The bound variables
@@ -21,8 +21,7 @@ public class NormalizeOutVars extends FormulaVisitor {
 	 * @param vs A variable array.
 	 */
 	public static void normalize(Formula formula, Var[] vs) {
-	    vars = vs;
-	    instance.traverse(formula);
+	    new NormalizeOutVars(vs).traverse(formula);
 	}	
 
 	/** Normalizes the formula if bound variable is var.
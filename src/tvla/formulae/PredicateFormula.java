@@ -86,7 +86,6 @@ final public class PredicateFormula extends AtomicFormula {
 		this.predicate = predicate;
 		this.cachedArity = predicate.arity();
 		this.variables = new Var[vars.length];
-		this.nodes = new Node[cachedArity];
 		System.arraycopy(vars, 0, this.variables, 0, vars.length);
 		if (vars != null && cachedArity != vars.length)
 			throw new SemanticErrorException("Predicate of arity " + predicate.arity() +
@@ -259,8 +258,6 @@ final public class PredicateFormula extends AtomicFormula {
 
 	/** Evaluate the formula on the given structure and assignment.
 	 */
-	Node[] nodes;
-	
 	public Kleene eval(TVS s, Assign assign) {
 	  NodeTuple tuple;
 	  switch(cachedArity) {
@@ -281,6 +278,7 @@ final public class PredicateFormula extends AtomicFormula {
 
 	
 	public NodeTuple makeTuple(Assign assign) {
+		Node[] nodes = new Node[cachedArity];
 		for (int i = 0; i < cachedArity; ++i) {
 			nodes[i] = assign.get(variables[i]);
 			if (nodes[i] == null) {
@@ -307,8 +305,9 @@ final public class PredicateFormula extends AtomicFormula {
 		if (predicates != null) {
 			return predicates;
 		}
-		predicates = new LinkedHashSet<Predicate>(2);
-		predicates.add(predicate());
+		Set<Predicate> result = new LinkedHashSet<Predicate>(2);
+		result.add(predicate());
+		predicates = result;
 		return predicates;
 	}
 
@@ -7,7 +7,23 @@ package tvla.formulae;
 public class RetainUpdateFormula extends UpdateFormula {
 	public Var retainVar;
 	
+	/** The compiled negation of the formula, created on first use.
+	 */
+	private volatile CompiledFormula compiledNegation;
+	
 	public RetainUpdateFormula(Formula formula) {
 		super(formula);
 	}
+	
+	/** Returns the compiled negation of the formula, which holds for
+	 * the nodes that should be removed.
+	 */
+	public CompiledFormula getCompiledNegation() {
+		CompiledFormula result = compiledNegation;
+		if (result == null) {
+			result = new CompiledFormula(new NotFormula(formula));
+			compiledNegation = result;
+		}
+		return result;
+	}
 }
\ No newline at end of file
@@ -1,13 +1,14 @@
 package tvla.formulae;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import tvla.core.Node;
+import tvla.core.NodeTuple;
 import tvla.core.TVS;
 import tvla.core.assignments.Assign;
 import tvla.core.generic.AdvancedCoerceOld;
@@ -15,9 +16,7 @@ import tvla.logic.Kleene;
 import tvla.predicates.Predicate;
 import tvla.predicates.Vocabulary;
 import tvla.util.HashMapFactory;
-import tvla.util.HashSetFactory;
 import tvla.util.NoDuplicateLinkedList;
-import tvla.util.Pair;
 
 /** A transitive closure formula. It is possible to compute the transitive 
  * closure externally and set it using the setCalculatedTC formula.
@@ -31,7 +30,15 @@ final public class TransitiveFormula extends Formula {
 	private Var right;
 	private Var subLeft;
 	private Var subRight;
-	private TCCache cache;
+	/** An externally calculated TC, set by setCalculatedTC.
+	 */
+	private TCCache calculatedTC;
+
+	/** The internally calculated TC. Each thread evaluating this formula
+	 * keeps its own cache, since the formula may be shared by actions
+	 * applied concurrently.
+	 */
+	private final ThreadLocal<TCCache> localCache = new ThreadLocal<TCCache>();
 	private boolean explicitRecalc = false;
 
 	/** Create one temp var for equality tests requiring substitution with a temporary.
@@ -39,12 +46,11 @@ final public class TransitiveFormula extends Formula {
 	 */
 	private static final Var tempVar = Var.allocateVar();
 
-	/** Determines whether to use a TC algorithm
-	 * that operates in O(|V|*|E|) time worst-case (the old one takes Theta(V^3) ).
+	/** Determines whether to use the bit-matrix TC algorithm, which
+	 * operates on words of 64 nodes and updates the previous closure when
+	 * the sub formula only gained values (the old one takes Theta(V^3) ).
 	 */
 	private static final boolean newTCAlgorithm = true;
-	
-	private Assign tempAssign = null;
 
 	/** Create a new transitive closure formula.
 	 * @param left the left variable of the calculated TC.
@@ -61,9 +67,6 @@ final public class TransitiveFormula extends Formula {
 		this.right = right;
 		this.subLeft = subLeft;
 		this.subRight = subRight;
-		this.tempAssign = new Assign();
-		tempAssign.put(subLeft, null);
-		tempAssign.put(subRight, null);
 		List<Var> freeVars = subFormula.freeVars();
 		if (!(freeVars.contains(subLeft)) ||
 			!(freeVars.contains(subRight))) {
@@ -181,12 +184,23 @@ final public class TransitiveFormula extends Formula {
 	 * It is the caller responsibility to recalculate the TC as needed.
 	 */
 	public void setCalculatedTC(TCCache calculatedTC) {
-		cache = calculatedTC;
+		this.calculatedTC = calculatedTC;
 	}
 
 	/** Return the internally or externally calculated TC.
 	 */
 	public TCCache getCalculatedTC() {
+		return calculatedTC != null ? calculatedTC : localCache.get();
+	}
+
+	/** Return the TC used by this thread, creating an internal one if needed.
+	 */
+	private TCCache cache() {
+		TCCache cache = getCalculatedTC();
+		if (cache == null) {
+			cache = new TCCache();
+			localCache.set(cache);
+		}
 		return cache;
 	}
 
@@ -227,7 +241,7 @@ final public class TransitiveFormula extends Formula {
 	public boolean askPrepare(TVS s) {
 		subFormula.prepare(s);
 		if (!explicitRecalc)
-			cache = null;
+			localCache.remove();
 		return true;
 	}
 	
@@ -240,31 +254,33 @@ final public class TransitiveFormula extends Formula {
 
 		Assign localAssign;
 		if (assign == null) {
-			localAssign = tempAssign;
+			localAssign = new Assign();
 		}
 		else {
 			localAssign = assign.copy();
-			localAssign.put(subLeft, null);
-			localAssign.put(subRight, null);
 		}
+		localAssign.put(subLeft, null);
+		localAssign.put(subRight, null);
 
+		TCCache cache = cache();
 		if (!newTCAlgorithm)
-			calculateTC1(s, localAssign);
+			calculateTC1(s, localAssign, cache);
 		else
-			calculateTC3(s, localAssign);
+			calculateBitTC(s, localAssign, cache);
 		cache.validate();
 		AdvancedCoerceOld.time_coerceTC += System.currentTimeMillis() - time;
 	}
 	
 	public void invalidateTC() {
+		TCCache cache = getCalculatedTC();
 		if (cache != null)
 			cache.invalidate();
 	}
 	
 	/**
-	 * This is the standard O(|V|^3) algorithm
+	 * This is the standard O(|V|^3) algorithm, over Kleene values.
 	 */
-	public void calculateTC1(TVS s, Assign localAssign) {
+	public void calculateTC1(TVS s, Assign localAssign, TCCache cache) {
 		// Keep outside assignments
 		//Assign localAssign = (assign == null ? tempAssign : new Assign(assign));
 		
@@ -294,168 +310,53 @@ final public class TransitiveFormula extends Formula {
 		}
 	}
 
-	/** Calculates the transitive closure of the sub formula on the given structure.
-	 * This is an O(|V|*|E|) algorithm.
-	 * WARNING: this implementation still contains bugs.
-	 * @author Roman Manevich.
-	 * @since tvla-2-alpha Added ability to keep outside assignments (Alexey).
-	 */
-	public void calculateTC2(TVS s, Assign localAssign) {
-		// Keep outside assignments
-		//Assign localAssign = (assign == null ? tempAssign : new Assign(assign));
-
-		// build the input graph
-		cache.clear();
-		Map<Node, Set<Pair<Node, Kleene>>> inGraph = HashMapFactory.make(s.nodes().size());
-        for (Node leftNode : s.nodes()) {
-			Set<Pair<Node, Kleene>> edges = HashSetFactory.make(2);
-			inGraph.put(leftNode, edges);
-	        for (Node rightNode : s.nodes()) {
-				localAssign.putNode(subLeft, leftNode);
-				localAssign.putNode(subRight, rightNode);
-				Kleene edgeValue = subFormula.eval(s, localAssign);
-				if (edgeValue != Kleene.falseKleene) {
-					edges.add(new Pair<Node, Kleene>(rightNode, edgeValue));
-					cache.set(leftNode, rightNode, edgeValue);
-				}
-			}
-		}
-		
-		// build the output graph
-		//cache.clear();
-		Set<Node> visitedNodes = HashSetFactory.make(s.nodes().size());
-		LinkedList<Node> workSet1 = new LinkedList<Node>();
-		Set<Node> workSet2 = HashSetFactory.make();
-        for (Node node : s.nodes()) {
-			//Kleene nodeActive = s.eval(Vocabulary.active, node);
-			// do a DFS-visit from this node
-			workSet1.add(node);
-			while (!workSet1.isEmpty()) {
-				Node nextNode = workSet1.removeFirst();
-				Kleene nextNodeActive = s.eval(Vocabulary.active, nextNode);
-				Collection<Pair<Node, Kleene>> neighbors = inGraph.get(nextNode);
-				Kleene pathValue = cache.get(node, nextNode);
-				for (Pair<Node, Kleene> pair : neighbors) {
-					Node neighbour = (Node) pair.first;
-					if (visitedNodes.contains(neighbour)) {
-						continue;
-					}
-					Kleene newValue = null;
-					if (cache.get(node, neighbour) == Kleene.trueKleene) {
-						newValue = Kleene.trueKleene;
-					}
-					else {
-						Kleene edgeValue = (Kleene) pair.second;
-						//Kleene active = Kleene.join(nodeActive, s.eval(Vocabulary.active, neighbour));
-						Kleene active = Kleene.join(nextNodeActive, s.eval(Vocabulary.active, neighbour));
-						//Kleene active = join(nodeActive, s.eval(Vocabulary.inac, neighbour));
-						newValue = Kleene.join(Kleene.join(edgeValue, pathValue), active);
-					}
-					
-					if (newValue == Kleene.unknownKleene) {
-						workSet2.add(nextNode);
-					}
-					else {
-						visitedNodes.add(neighbour);
-						workSet1.addLast(neighbour); // a simulation of a queue
-						cache.set(node, neighbour, Kleene.trueKleene);
-					}
-				}
-			}
-			while (!workSet2.isEmpty()) {
-				Iterator<Node> setIter = workSet2.iterator();
-				Node nextNode = setIter.next();
-				setIter.remove();
-				Collection<Pair<Node, Kleene>> neighbors = inGraph.get(nextNode);
-				for (Pair<Node, Kleene> pair : neighbors) {
-					Node neighbour = pair.first;
-					if (visitedNodes.contains(neighbour) || cache.get(node, neighbour) != Kleene.falseKleene)
-						continue;
-					visitedNodes.add(neighbour);
-					workSet2.add(neighbour); // a simulation of a queue
-					cache.set(node, neighbour, Kleene.unknownKleene );
-				}
-			}
-			
-			// cleanup before next iteration
-			visitedNodes.clear();
-		}
-	}	
-	/** Calculates the transitive closure of the sub formula on the given structure.
-	 * This is the new O(|V|*|E|) algorithm - hopefully not buggy anymore.
-	 * @author Igor
+	/** Calculates the transitive closure of the sub formula on the given
+	 * structure into bit matrices indexed by node ids, using Warshall's
+	 * algorithm on words of 64 nodes (see TCCache).
+	 * When the sub formula is a binary predicate, its values are read from
+	 * the structure instead of evaluating the sub formula for every pair
+	 * of nodes.
 	 */
-	
-	public void calculateTC3(TVS s, Assign localAssign) {
-		// Keep outside assignments
-		//Assign localAssign = (assign == null ? tempAssign : new Assign(assign));
+	public void calculateBitTC(TVS s, Assign localAssign, TCCache cache) {
 		Collection<Node> nodes = s.nodes();
+		int size = 0;
+		for (Node node : nodes) {
+			if (node.id() >= size)
+				size = node.id() + 1;
+		}
+		cache.startEdges(size);
+		for (Node node : nodes) {
+			cache.setActive(node.id(), s.eval(Vocabulary.active, node));
+		}
 
-		// build the input graph
-		cache.clear();
-		Map<Node,Collection<Node>> inGraph = HashMapFactory.make(nodes.size());
-		for (Iterator<Node> leftIter = nodes.iterator(); leftIter.hasNext(); ) {
-			Node leftNode = leftIter.next();
-			//Set edges = HashSetFactory.make(2);
-            Collection<Node> edges = new LinkedList<Node>();
-			//Set edges = new LinkedHashSet(2);
-			inGraph.put(leftNode, edges);
-			for (Iterator<Node> rightIter = nodes.iterator(); rightIter.hasNext(); ) {
-				Node rightNode = rightIter.next();
-				localAssign.putNode(subLeft, leftNode);
-				localAssign.putNode(subRight, rightNode);
-				Kleene edgeValue = subFormula.eval(s, localAssign);
-				if (edgeValue != Kleene.falseKleene) {
-					edges.add(rightNode);
-					cache.set(leftNode, rightNode, edgeValue);
-				}
+		PredicateFormula predicateFormula = subFormula instanceof PredicateFormula ? (PredicateFormula) subFormula : null;
+		if (predicateFormula != null && predicateFormula.predicate().arity() == 2) {
+			boolean reversed = predicateFormula.getVariable(0).equals(subRight);
+			for (Iterator<Map.Entry<NodeTuple, Kleene>> it = s.iterator(predicateFormula.predicate()); it.hasNext(); ) {
+				Map.Entry<NodeTuple, Kleene> entry = it.next();
+				NodeTuple tuple = entry.getKey();
+				if (reversed)
+					cache.setEdge(tuple.get(1).id(), tuple.get(0).id(), entry.getValue());
+				else
+					cache.setEdge(tuple.get(0).id(), tuple.get(1).id(), entry.getValue());
 			}
 		}
-		
-		// build the output graph
-		Map<Node,Kleene> visitedNodes = HashMapFactory.make(nodes.size());
-		LinkedList<Node> workSet1 = new LinkedList<Node>();
-		//Set workSet2 = HashSetFactory.make();
-		for (Node node : nodes) {
-			workSet1.add(node);
-			while (!workSet1.isEmpty()) {
-				Node nextNode = workSet1.removeFirst();
-				Kleene nextNodeActive = s.eval(Vocabulary.active, nextNode);
-				Collection<Node> neighbors = inGraph.get(nextNode);
-				Kleene pathValue = cache.get(node, nextNode);
-				for (Node neighbour : neighbors) {
-					Kleene prevValue = visitedNodes.get(neighbour);
-                    if (prevValue == Kleene.trueKleene) {
-						continue;
-					}
-                    Kleene newValue = 
-                        Kleene.or(cache.get(node, neighbour), 
-                                  Kleene.and(Kleene.and(pathValue,
-                                                        cache.get(nextNode, neighbour)),
-                                             nextNodeActive)
-                                 );
-                    if (newValue == prevValue) {
-                        continue;
-                    }
-					cache.set(node, neighbour, newValue);
-					
-					visitedNodes.put(neighbour, newValue);
-					workSet1.addLast(neighbour); // a simulation of a queue
+		else {
+			for (Node leftNode : nodes) {
+				localAssign.putNode(subLeft, leftNode);
+				for (Node rightNode : nodes) {
+					localAssign.putNode(subRight, rightNode);
+					cache.setEdge(leftNode.id(), rightNode.id(), subFormula.eval(s, localAssign));
 				}
 			}
-			
-			// cleanup before next iteration
-			visitedNodes.clear();
 		}
-	}	
+		cache.close();
+	}
 
 	/** Evaluate the formula on the given structure and assignment. 
 	 */
 	public Kleene eval(TVS s, Assign assign) {
-		if (cache == null) {
-			cache = new TCCache();
-			//calculateTC(s, assign);
-		}
+		TCCache cache = cache();
 		
 		// FIXME: BUG! Must pass assign, not null, and invalidate
 		// the cache, if it contains some of subformula free vars...
@@ -595,51 +496,94 @@ final public class TransitiveFormula extends Formula {
 		return predicates;
 	}
 	
-    /** A cache for transitive closures.
+    /** A cache for transitive closures, as two bit matrices indexed by node
+	 * ids: the pairs whose value is true, and the pairs whose value is true
+	 * or unknown.
+	 * The closure is computed from the values of the sub formula (the
+	 * edges) and of active, one layer at a time: a path is true if all its
+	 * edges are true and all its intermediate nodes are active, and it is
+	 * possible if none of these is false.
+	 * The edges and active values of the previous computation are kept, so
+	 * that the closure is not recomputed when they did not change, and is
+	 * updated one edge at a time when edges were only added or raised from
+	 * unknown to true.
 	 * @author Roman Manevich.
 	*/
 	public static class TCCache {
-		/** a map from node pairs to the unknown and true values of the predicate.
-		 */		
-		private Map<tvla.formulae.TransitiveFormula.TCCache.Pair, Kleene> values;
-		
-		/** A reusable node pair.
+		/** The number of node ids covered by the matrices and the number
+		 * of words in each row.
 		 */
-		private static final Pair pair = new Pair(null, null);
-		
-		/** Create a concrete binary predicate with a null predicate.
+		private int size;
+		private int words;
+
+		/** The closure layers, row by row.
 		 */
+		private long[] closureTrue = new long[0];
+		private long[] closurePossible = new long[0];
+
+		/** The edge and active layers of the closure.
+		 */
+		private long[] edgesTrue = new long[0];
+		private long[] edgesPossible = new long[0];
+		private long[] activeTrue = new long[0];
+		private long[] activePossible = new long[0];
+
+		/** The edge and active layers being set by setEdge and setActive,
+		 * which replace the current ones on close.
+		 */
+		private long[] newEdgesTrue = new long[0];
+		private long[] newEdgesPossible = new long[0];
+		private long[] newActiveTrue = new long[0];
+		private long[] newActivePossible = new long[0];
+		private int newSize;
+
+		/** Set when the closure layers are the closure of the edge and
+		 * active layers.
+		 */
+		private boolean closed = false;
+
+		private boolean valid = false;
+
 		public TCCache() {
-			this.values = HashMapFactory.make(11);
 		}
 
-		/** Return the value of the predicate for the given node pair.
+		/** Return the value of the closure for the given node pair.
 		 */
 		public Kleene get(Node l, Node r) {
-			pair.set(l, r);
-			Kleene value = values.get(pair);
-			return value == null ? Kleene.falseKleene : value;
+			int left = l.id();
+			int right = r.id();
+			if (left >= size || right >= size)
+				return Kleene.falseKleene;
+			int index = left * words + (right >>> 6);
+			long bit = 1L << right;
+			if ((closureTrue[index] & bit) != 0)
+				return Kleene.trueKleene;
+			if ((closurePossible[index] & bit) != 0)
+				return Kleene.unknownKleene;
+			return Kleene.falseKleene;
 		}
 
-		/** Set the value of the predicate for the given node pair.
+		/** Set the value of the closure for the given node pair.
 		 */
 		public void set(Node l, Node r, Kleene value) {
-			pair.set(l, r);
-			if (value == Kleene.falseKleene) {
-				values.remove(pair);
-				return;
+			int left = l.id();
+			int right = r.id();
+			if (left >= size || right >= size) {
+				if (value == Kleene.falseKleene)
+					return;
+				resize(Math.max(left, right) + 1);
 			}
-
-			values.put(new Pair(pair), value);
+			closed = false;
+			setBit(closureTrue, closurePossible, left * words + (right >>> 6), 1L << right, value);
 		}
 
-		/** Clear all the true and unknown values of the predicate.
+		/** Clear all the true and unknown values of the closure.
 		 */
 		public void clear() {
-			values.clear();
+			closed = false;
+			Arrays.fill(closureTrue, 0L);
+			Arrays.fill(closurePossible, 0L);
 		}
-		
-		private boolean valid = false;
 
 		public boolean isValid() {
 			return valid;
@@ -653,38 +597,176 @@ final public class TransitiveFormula extends Formula {
 			valid = false;
 		}
 
-		/** A pair of nodes.
+		/** Starts setting the edges and active values for a new closure over
+		 * node ids smaller than the given size. All of them are false until
+		 * set.
+		 */
+		public void startEdges(int size) {
+			int words = (size + 63) >>> 6;
+			newSize = size;
+			newEdgesTrue = cleared(newEdgesTrue, size * words);
+			newEdgesPossible = cleared(newEdgesPossible, size * words);
+			newActiveTrue = cleared(newActiveTrue, words);
+			newActivePossible = cleared(newActivePossible, words);
+		}
+
+		/** Sets the value of the sub formula for the given pair of node ids.
+		 */
+		public void setEdge(int left, int right, Kleene value) {
+			int words = (newSize + 63) >>> 6;
+			setBit(newEdgesTrue, newEdgesPossible, left * words + (right >>> 6), 1L << right, value);
+		}
+
+		/** Sets the value of active for the given node id.
+		 */
+		public void setActive(int node, Kleene value) {
+			setBit(newActiveTrue, newActivePossible, node >>> 6, 1L << node, value);
+		}
+
+		/** Makes the closure layers the closure of the edges and active
+		 * values set since startEdges.
 		 */
-		private static final class Pair {
-			public Node left;
-			public Node right;
+		public void close() {
+			int words = (newSize + 63) >>> 6;
+			int length = newSize * words;
+			boolean incremental = closed && newSize == size &&
+				equal(newActiveTrue, activeTrue, words) && equal(newActivePossible, activePossible, words) &&
+				contains(newEdgesTrue, edgesTrue, length) && contains(newEdgesPossible, edgesPossible, length);
+
+			// Swap the new layers in, keeping the old arrays for the next computation.
+			long[] swap = edgesTrue; edgesTrue = newEdgesTrue; newEdgesTrue = swap;
+			swap = edgesPossible; edgesPossible = newEdgesPossible; newEdgesPossible = swap;
+			swap = activeTrue; activeTrue = newActiveTrue; newActiveTrue = swap;
+			swap = activePossible; activePossible = newActivePossible; newActivePossible = swap;
+
+			if (incremental) {
+				// The old edges are now in the new* arrays.
+				addEdges(closureTrue, edgesTrue, newEdgesTrue, activeTrue);
+				addEdges(closurePossible, edgesPossible, newEdgesPossible, activePossible);
+			}
+			else {
+				this.size = newSize;
+				this.words = words;
+				if (closureTrue.length < length) {
+					closureTrue = new long[length];
+					closurePossible = new long[length];
+				}
+				System.arraycopy(edgesTrue, 0, closureTrue, 0, length);
+				System.arraycopy(edgesPossible, 0, closurePossible, 0, length);
+				warshall(closureTrue, activeTrue);
+				warshall(closurePossible, activePossible);
+			}
+			closed = true;
+		}
 
-			public Pair(Node left, Node right) {
-				this.left = left;
-				this.right = right;
+		/** Closes one layer of the matrix in place, allowing only the given
+		 * nodes as intermediate nodes of a path.
+		 */
+		private void warshall(long[] closure, long[] intermediate) {
+			for (int k = 0; k < size; ++k) {
+				if ((intermediate[k >>> 6] & (1L << k)) == 0)
+					continue;
+				int kRow = k * words;
+				int kWord = k >>> 6;
+				long kBit = 1L << k;
+				for (int i = 0; i < size; ++i) {
+					int iRow = i * words;
+					if ((closure[iRow + kWord] & kBit) == 0)
+						continue;
+					for (int w = 0; w < words; ++w)
+						closure[iRow + w] |= closure[kRow + w];
+				}
+			}
+		}
+
+		/** Updates one closed layer of the matrix with the edges that are in
+		 * the new edges but not in the old ones. Each edge (i,j) connects
+		 * every node that reaches i to j and to every node that j reaches,
+		 * where i and j must be active unless they are the end points.
+		 */
+		private void addEdges(long[] closure, long[] edges, long[] oldEdges, long[] intermediate) {
+			long[] targets = new long[words];
+			for (int i = 0; i < size; ++i) {
+				int iRow = i * words;
+				for (int w = 0; w < words; ++w) {
+					long added = edges[iRow + w] & ~oldEdges[iRow + w];
+					while (added != 0) {
+						int j = (w << 6) + Long.numberOfTrailingZeros(added);
+						added &= added - 1;
+						int jRow = j * words;
+						if ((intermediate[j >>> 6] & (1L << j)) != 0)
+							System.arraycopy(closure, jRow, targets, 0, words);
+						else
+							Arrays.fill(targets, 0L);
+						targets[j >>> 6] |= 1L << j;
+
+						boolean iActive = (intermediate[i >>> 6] & (1L << i)) != 0;
+						for (int x = 0; x < size; ++x) {
+							int xRow = x * words;
+							if (x != i && (!iActive || (closure[xRow + (i >>> 6)] & (1L << i)) == 0))
+								continue;
+							for (int v = 0; v < words; ++v)
+								closure[xRow + v] |= targets[v];
+						}
+					}
+				}
 			}
-			
-			public Pair(Pair other) {
-				this.left = other.left;
-				this.right = other.right;
+		}
+
+		/** Resizes the closure layers, keeping their values.
+		 */
+		private void resize(int newSize) {
+			int newWords = (newSize + 63) >>> 6;
+			long[] newTrue = new long[newSize * newWords];
+			long[] newPossible = new long[newSize * newWords];
+			for (int i = 0; i < size; ++i) {
+				System.arraycopy(closureTrue, i * words, newTrue, i * newWords, words);
+				System.arraycopy(closurePossible, i * words, newPossible, i * newWords, words);
 			}
+			closureTrue = newTrue;
+			closurePossible = newPossible;
+			size = newSize;
+			words = newWords;
+		}
 
-			public void set(Node left, Node right) {
-				this.left = left;
-				this.right = right;
+		private static void setBit(long[] trueLayer, long[] possibleLayer, int index, long bit, Kleene value) {
+			if (value == Kleene.trueKleene) {
+				trueLayer[index] |= bit;
+				possibleLayer[index] |= bit;
+			}
+			else if (value == Kleene.unknownKleene) {
+				trueLayer[index] &= ~bit;
+				possibleLayer[index] |= bit;
+			}
+			else {
+				trueLayer[index] &= ~bit;
+				possibleLayer[index] &= ~bit;
 			}
+		}
+
+		private static long[] cleared(long[] array, int length) {
+			if (array.length < length)
+				return new long[length];
+			Arrays.fill(array, 0, length, 0L);
+			return array;
+		}
 
-			public boolean equals(Object o) {
-				if (!(o instanceof Pair))
+		private static boolean equal(long[] first, long[] second, int length) {
+			for (int i = 0; i < length; ++i) {
+				if (first[i] != second[i])
 					return false;
-				Pair other = (Pair) o;
-				return this.left.equals(other.left) &&
-					   this.right.equals(other.right);
 			}
+			return true;
+		}
 
-			public int hashCode() {
-				return left.hashCode() * 31 + right.hashCode();
+		/** Does the first layer contain all the bits of the second one?
+		 */
+		private static boolean contains(long[] first, long[] second, int length) {
+			for (int i = 0; i < length; ++i) {
+				if ((second[i] & ~first[i]) != 0)
+					return false;
 			}
+			return true;
 		}
 	}	 
 }
@@ -16,6 +16,10 @@ public abstract class UpdateFormula {
 	protected Formula formula;
 	protected List<Var> freeVars;
 	
+	/** The compiled right-hand side, created on first use.
+	 */
+	private volatile CompiledFormula compiled;
+	
 	public UpdateFormula(Formula updateFormula) {
 		// TODO: FIX BACK?
 		this.formula = updateFormula.copy();
@@ -28,6 +32,18 @@ public abstract class UpdateFormula {
 		return formula;
 	}
 
+	/** Returns the compiled right-hand side of the formula.
+	 * @see tvla.formulae.CompiledFormula
+	 */
+	public CompiledFormula getCompiledFormula() {
+		CompiledFormula result = compiled;
+		if (result == null) {
+			result = new CompiledFormula(formula);
+			compiled = result;
+		}
+		return result;
+	}
+
 	public List<Var> freeVars() {
 		// Copy list here because it may be changed in a call to
 		// addAdditionalFreeVars.  Without the copy, this change
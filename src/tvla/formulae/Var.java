@@ -23,12 +23,14 @@ public final class Var implements Comparable {
 	/** Create a variable with the given name. */
 	public Var(String name) {
 		this.name = name;
-		Integer id = (Integer) ids.get(name);
-		if (id == null) {
-			id = new Integer(maxId++);
-			ids.put(name, id);
+		synchronized (ids) {
+			Integer id = (Integer) ids.get(name);
+			if (id == null) {
+				id = new Integer(maxId++);
+				ids.put(name, id);
+			}
+			this.id = id.intValue();
 		}
-		this.id = id.intValue();
 	}
 	
 	/** Return the unique id of this variable */
@@ -65,14 +67,14 @@ public final class Var implements Comparable {
 	private static int lastAllocatedID = 0;
 
 	/** Allocate a never before used variable */
-	public static Var allocateVar() {
+	public static synchronized Var allocateVar() {
 		return new Var("___v" + lastAllocatedID++);
 	}
 	
 	/** Allocate a never before used variable 
 	 * @author Greta Yorsh
 	 */
-	public static Var allocateVarPrefix(String prefix) {
+	public static synchronized Var allocateVarPrefix(String prefix) {
 		return new Var(prefix + (lastAllocatedID++) + "_");
 	}
 	/** Creates List of variables, named prefix+i, where i=1..n
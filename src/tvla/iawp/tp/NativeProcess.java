@@ -38,12 +38,12 @@ public class NativeProcess {
   /**
    * debug flag
    */
-  private static final boolean fileDebug = ProgramProperties.getBooleanProperty("tvla.tp.filedebug", false);
+  private static final boolean fileDebug = ProgramProperties.getFixedBooleanProperty("tvla.tp.filedebug", false);
 
   /**
    * file name for debug output recording file
    */
-  private static final String debugFileName = ProgramProperties.getProperty("tvla.tp.debugfilename", "iawpout.txt");
+  private static final String debugFileName = ProgramProperties.getFixedProperty("tvla.tp.debugfilename", "iawpout.txt");
 
   /**
    * name of the native process
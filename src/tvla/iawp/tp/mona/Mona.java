@@ -35,7 +35,7 @@ public class Mona extends AbstractTheoremProver {
 
   protected String invokeString;
 
-  private static String mode = ProgramProperties.getProperty("tvla.tp.mona.mode", "m2l-tree");
+  private static String mode = ProgramProperties.getFixedProperty("tvla.tp.mona.mode", "m2l-tree");
 
   public Mona() {
     String exec = ProgramProperties.getProperty("tvla.tp.mona.executable", "mona");
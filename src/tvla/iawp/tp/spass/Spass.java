@@ -34,10 +34,10 @@ public class Spass extends AbstractTheoremProver {
 
   private final static boolean debug = false;
 
-  private final static boolean allowAssumptionsWithTC = ProgramProperties.getBooleanProperty(
+  private final static boolean allowAssumptionsWithTC = ProgramProperties.getFixedBooleanProperty(
       "tvla.tp.spass.allowAssumptionsWithTC", true);
 
-  private final static boolean useFunctions = ProgramProperties.getBooleanProperty("tvla.tp.spass.useFunctions", false);
+  private final static boolean useFunctions = ProgramProperties.getFixedBooleanProperty("tvla.tp.spass.useFunctions", false);
 
   protected String invokeString;
 
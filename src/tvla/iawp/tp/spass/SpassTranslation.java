@@ -183,7 +183,7 @@ public class SpassTranslation implements Translation {
 	* @author Eran Yahav (eyahav)
 	*/
 	private static class SPASSTranslationVisitor extends FormulaVisitor {
-		private final static boolean useFunctions = ProgramProperties.getBooleanProperty(
+		private final static boolean useFunctions = ProgramProperties.getFixedBooleanProperty(
 				"tvla.tp.spass.useFunctions",
 				false);
 		protected StringBuffer sb = new StringBuffer();
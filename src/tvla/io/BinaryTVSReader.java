@@ -0,0 +1,295 @@
+package tvla.io;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import tvla.core.HighLevelTVS;
+import tvla.core.Node;
+import tvla.core.NodeTuple;
+import tvla.core.TVSFactory;
+import tvla.exceptions.UserErrorException;
+import tvla.logic.Kleene;
+import tvla.predicates.Predicate;
+import tvla.predicates.Vocabulary;
+
+/** Reads structures written by BinaryTVSWriter.
+ * The predicates of the stream are resolved by name in the vocabulary of
+ * the current analysis, so the vocabulary must contain every predicate the
+ * stream was written with, with the same arity.
+ * Structures are read one at a time, so a file can be iterated without
+ * holding all its structures in memory. Files are memory-mapped.
+ *
+ * @see BinaryTVSWriter
+ */
+public class BinaryTVSReader implements Iterable<HighLevelTVS> {
+	protected final DataInputStream in;
+
+	/** The predicates of the stream's table, by position.
+	 */
+	protected final Predicate[] predicates;
+
+	/** The label of the location of the last structure read, or null.
+	 */
+	protected String location;
+
+	/** Returns whether the given file starts with the header of the binary
+	 * format.
+	 */
+	public static boolean isBinary(String fileName) {
+		File file = new File(fileName);
+		if (!file.isFile() || file.length() < 4)
+			return false;
+		try {
+			DataInputStream in = new DataInputStream(new FileInputStream(file));
+			try {
+				return in.readInt() == BinaryTVSWriter.MAGIC;
+			}
+			finally {
+				in.close();
+			}
+		}
+		catch (IOException e) {
+			return false;
+		}
+	}
+
+	/** Opens a file for reading structures. The file is memory-mapped,
+	 * unless it is too large to be mapped as one buffer.
+	 */
+	public static BinaryTVSReader open(String fileName) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(fileName, "r");
+		try {
+			FileChannel channel = file.getChannel();
+			if (channel.size() <= Integer.MAX_VALUE) {
+				ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				return new BinaryTVSReader(new DataInputStream(new ByteBufferInputStream(buffer)));
+			}
+		}
+		finally {
+			file.close();
+		}
+		return new BinaryTVSReader(new DataInputStream(new BufferedInputStream(new FileInputStream(fileName),
+				1 << 16)));
+	}
+
+	/** Reads all the structures of a file.
+	 */
+	public static List<HighLevelTVS> readStructures(String fileName) throws IOException {
+		BinaryTVSReader reader = open(fileName);
+		try {
+			List<HighLevelTVS> result = new ArrayList<HighLevelTVS>();
+			for (HighLevelTVS structure = reader.read(); structure != null; structure = reader.read()) {
+				result.add(structure);
+			}
+			return result;
+		}
+		finally {
+			reader.close();
+		}
+	}
+
+	/** Reads the header and the predicate table from the given stream.
+	 */
+	public BinaryTVSReader(DataInputStream in) throws IOException {
+		this.in = in;
+		if (in.readInt() != BinaryTVSWriter.MAGIC)
+			throw new UserErrorException("Not a binary TVS stream");
+		int version = in.readInt();
+		if (version != BinaryTVSWriter.VERSION)
+			throw new UserErrorException("Unsupported binary TVS version " + version);
+		predicates = new Predicate[readVarint()];
+		for (int i = 0; i < predicates.length; ++i) {
+			String name = in.readUTF();
+			int arity = in.readByte();
+			Predicate predicate = Vocabulary.getPredicateByName(name);
+			if (predicate == null || predicate.arity() != arity)
+				throw new UserErrorException("The binary TVS stream uses the predicate " + name + "/" + arity
+						+ ", which is not in the vocabulary");
+			predicates[i] = predicate;
+		}
+	}
+
+	/** Returns the label of the location of the last structure read, or
+	 * null if the stream did not specify one.
+	 */
+	public String location() {
+		return location;
+	}
+
+	/** Reads the next structure from the stream.
+	 *
+	 * @return The structure, or null at the end of the stream.
+	 */
+	public HighLevelTVS read() throws IOException {
+		return read(null);
+	}
+
+	/** Reads the next structure from the stream and names its nodes by the
+	 * given nodes, in the order they were written, instead of allocating
+	 * new ones.
+	 *
+	 * @return The structure, or null at the end of the stream.
+	 */
+	public HighLevelTVS read(Node[] names) throws IOException {
+		while (true) {
+			int record;
+			try {
+				record = in.readByte();
+			}
+			catch (EOFException e) {
+				return null;
+			}
+			switch (record) {
+			case BinaryTVSWriter.END:
+				return null;
+			case BinaryTVSWriter.LOCATION:
+				location = in.readUTF();
+				break;
+			case BinaryTVSWriter.STRUCTURE:
+				return readStructure(names);
+			default:
+				throw new UserErrorException("Invalid record in a binary TVS stream: " + record);
+			}
+		}
+	}
+
+	/** Returns an iterator that reads the remaining structures of the
+	 * stream as it advances.
+	 */
+	public Iterator<HighLevelTVS> iterator() {
+		return new Iterator<HighLevelTVS>() {
+			private HighLevelTVS next;
+
+			public boolean hasNext() {
+				if (next == null) {
+					try {
+						next = read();
+					}
+					catch (IOException e) {
+						throw new UserErrorException("Failed to read a binary TVS stream: " + e.getMessage());
+					}
+				}
+				return next != null;
+			}
+
+			public HighLevelTVS next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				HighLevelTVS result = next;
+				next = null;
+				return result;
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	public void close() throws IOException {
+		in.close();
+	}
+
+	private HighLevelTVS readStructure(Node[] names) throws IOException {
+		HighLevelTVS structure = TVSFactory.getInstance().makeEmptyTVS();
+		Node[] nodes = new Node[readVarint()];
+		if (names != null && names.length != nodes.length)
+			throw new UserErrorException("A structure of " + nodes.length + " nodes was named by " + names.length
+					+ " nodes");
+		if (names == null) {
+			for (int i = 0; i < nodes.length; ++i)
+				nodes[i] = structure.newNode();
+		}
+		else {
+			// Nodes are added at the front of the universe, so adding them
+			// backwards restores the order in which they were written.
+			for (int i = nodes.length - 1; i >= 0; --i)
+				nodes[i] = structure.newNode(names[i]);
+		}
+		for (int index = readVarint(); index > 0; index = readVarint()) {
+			Predicate predicate = predicates[index - 1];
+			switch (predicate.arity()) {
+			case 0:
+				structure.update(predicate, Kleene.kleene(in.readByte()));
+				break;
+			case 1: {
+				byte[] table = readTable(nodes.length);
+				for (int node = 0; node < nodes.length; ++node) {
+					Kleene value = BinaryTVSWriter.unpack(table, node);
+					if (value != Kleene.falseKleene)
+						structure.update(predicate, nodes[node], value);
+				}
+				break;
+			}
+			default: {
+				int count = readVarint();
+				Node[][] tuples = new Node[count][predicate.arity()];
+				for (Node[] tuple : tuples) {
+					for (int position = 0; position < tuple.length; ++position) {
+						tuple[position] = nodes[readVarint()];
+					}
+				}
+				byte[] table = readTable(count);
+				for (int entry = 0; entry < count; ++entry) {
+					Kleene value = BinaryTVSWriter.unpack(table, entry);
+					if (predicate.arity() == 2)
+						structure.update(predicate, tuples[entry][0], tuples[entry][1], value);
+					else
+						structure.update(predicate, NodeTuple.createTuple(tuples[entry]), value);
+				}
+			}
+			}
+		}
+		return structure;
+	}
+
+	private byte[] readTable(int entries) throws IOException {
+		byte[] table = new byte[BinaryTVSWriter.tableSize(entries)];
+		in.readFully(table);
+		return table;
+	}
+
+	private int readVarint() throws IOException {
+		int result = 0;
+		for (int shift = 0;; shift += 7) {
+			int b = in.readByte();
+			result |= (b & 0x7f) << shift;
+			if ((b & 0x80) == 0)
+				return result;
+		}
+	}
+
+	/** Reads a memory-mapped file.
+	 */
+	private static class ByteBufferInputStream extends InputStream {
+		private final ByteBuffer buffer;
+
+		public ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+		}
+
+		public int read(byte[] bytes, int offset, int length) {
+			if (!buffer.hasRemaining())
+				return -1;
+			length = Math.min(length, buffer.remaining());
+			buffer.get(bytes, offset, length);
+			return length;
+		}
+	}
+}
@@ -0,0 +1,189 @@
+package tvla.io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import tvla.core.Node;
+import tvla.core.NodeTuple;
+import tvla.core.TVS;
+import tvla.logic.Kleene;
+import tvla.predicates.Predicate;
+import tvla.predicates.Vocabulary;
+import tvla.util.HashMapFactory;
+
+/** Writes structures to a stream in a compact binary format, which is read
+ * by BinaryTVSReader.
+ * The stream starts with a version and the table of predicates of the
+ * vocabulary, by name and arity, so that a reader can check it against its
+ * own vocabulary. It is followed by a sequence of records, each of which is
+ * a structure or the label of the location of the structures that follow
+ * it, and ends with an end record.
+ * A structure is written as the number of its nodes followed by the
+ * predicates that have non-false values. Nodes are written as their
+ * positions in the structure, so their names are not preserved. The values
+ * of a unary predicate are written as a table of two bits per node, and the
+ * values of other predicates as the list of their non-false tuples followed
+ * by a table of two bits per tuple. Counts and positions are written as
+ * variable-length integers (7 bits per byte).
+ *
+ * @see BinaryTVSReader
+ */
+public class BinaryTVSWriter {
+	/** Identifies the format at the start of the stream.
+	 */
+	static final int MAGIC = 0x54565342; // "TVSB"
+	static final int VERSION = 2;
+
+	/** The kinds of records.
+	 */
+	static final int END = 0;
+	static final int STRUCTURE = 1;
+	static final int LOCATION = 2;
+
+	protected final DataOutputStream out;
+
+	/** The predicates of the table, by position.
+	 */
+	protected final Predicate[] predicates;
+
+	/** The tuples and values of the predicate being written. The entries of
+	 * the predicate iterators are not kept, since they may be reused.
+	 */
+	private final List<NodeTuple> tuples = new ArrayList<NodeTuple>();
+	private final List<Kleene> values = new ArrayList<Kleene>();
+
+	/** Opens a file for writing structures.
+	 */
+	public static BinaryTVSWriter create(String fileName) throws IOException {
+		return new BinaryTVSWriter(new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName),
+				1 << 16)));
+	}
+
+	/** Writes the header and the predicate table to the given stream.
+	 */
+	public BinaryTVSWriter(DataOutputStream out) throws IOException {
+		this.out = out;
+		this.predicates = Vocabulary.allPredicates().toArray(new Predicate[0]);
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		writeVarint(predicates.length);
+		for (Predicate predicate : predicates) {
+			out.writeUTF(predicate.name());
+			out.writeByte(predicate.arity());
+		}
+	}
+
+	/** Writes the label of the location of the structures written next.
+	 */
+	public void writeLocation(String label) throws IOException {
+		out.writeByte(LOCATION);
+		out.writeUTF(label);
+	}
+
+	/** Writes a structure to the stream.
+	 */
+	public void write(TVS structure) throws IOException {
+		out.writeByte(STRUCTURE);
+		Map<Node, Integer> positions = HashMapFactory.make(structure.nodes().size());
+		for (Node node : structure.nodes()) {
+			positions.put(node, positions.size());
+		}
+		int size = positions.size();
+		writeVarint(size);
+
+		for (int i = 0; i < predicates.length; ++i) {
+			Predicate predicate = predicates[i];
+			if (predicate.arity() == 0) {
+				Kleene value = structure.eval(predicate);
+				if (value != Kleene.falseKleene) {
+					writeVarint(i + 1);
+					out.writeByte(value.kleene());
+				}
+				continue;
+			}
+			tuples.clear();
+			values.clear();
+			for (Iterator<Map.Entry<NodeTuple, Kleene>> it = structure.iterator(predicate); it.hasNext(); ) {
+				Map.Entry<NodeTuple, Kleene> entry = it.next();
+				tuples.add(entry.getKey());
+				values.add(entry.getValue());
+			}
+			if (tuples.isEmpty())
+				continue;
+			writeVarint(i + 1);
+			if (predicate.arity() == 1) {
+				byte[] table = new byte[tableSize(size)];
+				for (int entry = 0; entry < tuples.size(); ++entry) {
+					pack(table, positions.get(tuples.get(entry).get(0)), values.get(entry));
+				}
+				out.write(table);
+			}
+			else {
+				writeVarint(tuples.size());
+				byte[] table = new byte[tableSize(tuples.size())];
+				for (int entry = 0; entry < tuples.size(); ++entry) {
+					NodeTuple tuple = tuples.get(entry);
+					for (int position = 0; position < tuple.size(); ++position) {
+						writeVarint(positions.get(tuple.get(position)));
+					}
+					pack(table, entry, values.get(entry));
+				}
+				out.write(table);
+			}
+		}
+		writeVarint(0);
+	}
+
+	/** Writes the structures of a location, preceded by its label.
+	 */
+	public void writeLocation(String label, Iterator<?> structures) throws IOException {
+		writeLocation(label);
+		while (structures.hasNext()) {
+			write((TVS) structures.next());
+		}
+	}
+
+	/** Flushes the underlying stream.
+	 */
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	/** Ends the stream and closes it.
+	 */
+	public void close() throws IOException {
+		out.writeByte(END);
+		out.close();
+	}
+
+	private void writeVarint(int value) throws IOException {
+		while ((value & ~0x7f) != 0) {
+			out.writeByte((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	private static void pack(byte[] table, int index, Kleene value) {
+		table[index >> 2] |= value.kleene() << ((index & 3) << 1);
+	}
+
+	/** Returns the size of the table of two bits for the given number of
+	 * entries.
+	 */
+	static int tableSize(int entries) {
+		return (entries + 3) / 4;
+	}
+
+	/** Returns the value at the given index of a table of two bits.
+	 */
+	static Kleene unpack(byte[] table, int index) {
+		return Kleene.kleene((byte) ((table[index >> 2] >> ((index & 3) << 1)) & 3));
+	}
+}
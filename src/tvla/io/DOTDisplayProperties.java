@@ -56,7 +56,7 @@ public class DOTDisplayProperties {
 			}
 			
 			// Check whether the identifier refers to a set of predicates.
-			List predicates = (List) tvla.language.TVP.SetDefAST.allSets.get(prop.id);
+			List predicates = (List) tvla.language.TVP.SetDefAST.getAllSets().get(prop.id);
 			if (predicates != null) {
 				// Update the display properties for each predicate in the set.
 				for (Iterator predIter = predicates.iterator(); predIter.hasNext(); ) {
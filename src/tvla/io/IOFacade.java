@@ -14,7 +14,9 @@ import java.util.Map;
 
 import tvla.analysis.TransitionRelation;
 import tvla.transitionSystem.PrintableProgramLocation;
+import tvla.util.AnalysisContext;
 import tvla.util.HashMapFactory;
+import tvla.util.Logger;
 import tvla.util.ProgramProperties;
 import tvla.util.PropertiesEx;
 import tvla.util.StringUtils;
@@ -25,9 +27,13 @@ import tvla.util.StringUtils;
  * @since tvla-2-alpha.
  */
 public abstract class IOFacade implements TVLAIO {
-  /** The one and only instance of this class.
+  /** The one and only instance of this class in each analysis context.
    */
-  private static IOFacade theInstance;
+  private static final AnalysisContext.Slot<IOFacade> theInstance = new AnalysisContext.Slot<IOFacade>() {
+    protected IOFacade create() {
+      return null;
+    }
+  };
   
   /** Maps the name of an implementation to its corresponding ImplementationBundle.
    */
@@ -35,6 +41,11 @@ public abstract class IOFacade implements TVLAIO {
   
   protected boolean xdebug = false;
   
+  /** Writes the structures of the analysis state in the binary TVS format,
+   * if an output file is set by the tvla.tvs.binaryFile property.
+   */
+  protected BinaryTVSWriter binaryOutput;
+  
   
   /** 
    * Singleton pattern.
@@ -45,31 +56,35 @@ public abstract class IOFacade implements TVLAIO {
   protected static final String engineAPI = "api";
   
   public static void reset() {
-	  theInstance.close();
-	  theInstance = null;
+	  IOFacade instance = theInstance.get();
+	  if (instance != null)
+		  instance.close();
+	  theInstance.reset();
   }
   
   public static IOFacade instance() {
-    if (theInstance != null)
-      return theInstance;
+    IOFacade instance = theInstance.get();
+    if (instance != null)
+      return instance;
     
     String engineType = ProgramProperties.getProperty("tvla.engine.type", engineTVLA);
     
     if (engineType.equals(enginePASTA))
-      theInstance = new InterProcIOFacade();
+      instance = new InterProcIOFacade();
     else if (engineType.equals(engineAPI))
-      theInstance = new APIIOFacade();   
+      instance = new APIIOFacade();   
     else 
-      theInstance = new IntraIOFacade();
+      instance = new IntraIOFacade();
+    theInstance.set(instance);
     
     /* TODO remove this code fragment
-     if (Engine.activeEngine instanceof InterProcEngine)
+     if (Engine.getActiveEngine() instanceof InterProcEngine)
      theInstance = new InterProcIOFacade();
      else 
      theInstance = new IntraIOFacade();			
      */
     
-    return theInstance;
+    return instance;
   }
   
   public static String fileSeperator;
@@ -82,6 +97,16 @@ public abstract class IOFacade implements TVLAIO {
     fileSeperator = File.separator; //ProgramProperties.getProperty("tvla.output.file.seperator", "\\");		
     initImplementations();
     printHeader();
+    
+    String binaryFile = ProgramProperties.getProperty("tvla.tvs.binaryFile", "null");
+    if (!binaryFile.equals("null")) {
+      try {
+        binaryOutput = BinaryTVSWriter.create(binaryFile);
+      }
+      catch (IOException e) {
+        throw new RuntimeException(e.getMessage());
+      }
+    }
   }	
   
   /** Loads the different output converter implementations into 
@@ -134,8 +159,39 @@ public abstract class IOFacade implements TVLAIO {
 	            bundle.outputStream.close();
 	        }
 	    }
+	    if (binaryOutput != null) {
+	      try {
+	        binaryOutput.close();
+	      }
+	      catch (IOException e) {
+	        throw new RuntimeException(e.getMessage());
+	      }
+	      binaryOutput = null;
+	    }
 	  }
   
+  /** Writes the structures of the given locations that should be printed
+   * to the binary TVS output, if there is one.
+   * @param locations A collection of PrintableProgramLocation objects.
+   */
+  protected void printBinaryState(Collection locations) {
+    if (binaryOutput == null)
+      return;
+    Logger.print("Producing binary tvs output ... ");
+    try {
+      for (Iterator i = locations.iterator(); i.hasNext(); ) {
+        PrintableProgramLocation location = (PrintableProgramLocation) i.next();
+        if (location.getShouldPrint())
+          binaryOutput.writeLocation(location.label(), location.getStructuresIterator());
+      }
+      binaryOutput.flush();
+    }
+    catch (IOException e) {
+      throw new RuntimeException(e.getMessage());
+    }
+    Logger.println("done");
+  }
+  
   /** Prints a structure to all desired outputs.
    * @param structure A TVS.
    * @param header An optional header.
@@ -1,6 +1,7 @@
 package tvla.io;
 
 import java.io.PrintStream;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
 
@@ -80,6 +81,8 @@ public class IntraIOFacade extends  IOFacade  {
 				Logger.println("done"); // done producing the output
 			}
 		}
+		if (state instanceof Collection)
+			printBinaryState((Collection) state);
 	}
 	
 	
@@ -25,7 +25,7 @@ public class ProgramToDOT extends StringConverter {
 	
 	/** DOT attributes for the CFG printout.
 	 */
-	private static final String cfgAttributes = ProgramProperties.getProperty(
+	private static final String cfgAttributes = ProgramProperties.getFixedProperty(
 			"tvla.dot.cfgAttributes",
 			"size = \"7.5,10\"\ncenter = true; fontsize=6; node [fontsize=10, style=filled]; " +
 			"edge [fontsize=10]; nodesep=0.1; ranksep=0.1;\n");
@@ -29,7 +29,7 @@ public class StructureToTVS extends StringConverter {
 
 	// Initializing static attributes from properties.
 	static {
-		tvla091BackwardCompatibility = ProgramProperties.getBooleanProperty("tvla.tvs.tvla091BackwardCompatibility", true);
+		tvla091BackwardCompatibility = ProgramProperties.getFixedBooleanProperty("tvla.tvs.tvla091BackwardCompatibility", true);
 		if (tvla091BackwardCompatibility)
 			nodePrefix = "_";
 	}
@@ -16,7 +16,7 @@ public class ActionAST extends tvla.language.TVP.ActionAST {
 	public void generate() {
 		Action action = def.getAction();
 		
-		AnalysisGraph.activeGraph.addAction(label, action, next);
+		AnalysisGraph.getActiveGraph().addAction(label, action, next);
 	}
 	
 	public AST copy() {
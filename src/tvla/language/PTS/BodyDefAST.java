@@ -44,12 +44,12 @@ public class BodyDefAST extends AST {
 	}
 	
 	public void generate() {
-		MultithreadEngine engine = (MultithreadEngine) Engine.activeEngine;
+		MultithreadEngine engine = (MultithreadEngine) Engine.getActiveEngine();
 		programBody = engine.addMethodDefinition(sig,actions);
 	}
 	
 	public void compile() {
-		MultithreadEngine engine = (MultithreadEngine) Engine.activeEngine;
+		MultithreadEngine engine = (MultithreadEngine) Engine.getActiveEngine();
 		engine.compileBodyDefinition(sig);
 	}
 	
@@ -32,7 +32,7 @@ public class MacroSectionAST extends AST {
 	
 	public void generate() {
 		for (Iterator i = macroList.iterator(); i.hasNext(); ) {
-			InterProcEngine eng = (InterProcEngine) Engine.activeEngine;
+			InterProcEngine eng = (InterProcEngine) Engine.getActiveEngine();
 			ActionMacroAST macro = (ActionMacroAST) i.next();
 			eng.addActionDefinition(macro);
 		}
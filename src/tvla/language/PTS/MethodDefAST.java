@@ -37,7 +37,7 @@ public abstract class MethodDefAST extends AST {
 			
 
 	public void generate() {
-		InterProcEngine eng = (InterProcEngine) Engine.activeEngine;
+		InterProcEngine eng = (InterProcEngine) Engine.getActiveEngine();
 		eng.addMethodDefinition(sig,stmts.size());	
 	}
 	
@@ -50,7 +50,7 @@ public abstract class MethodDefAST extends AST {
 	
 
 	public void compile() {
-		InterProcEngine eng = (InterProcEngine) Engine.activeEngine;
+		InterProcEngine eng = (InterProcEngine) Engine.getActiveEngine();
 		
 
 		if (0 < sig.indexOf("<clinit>")) {
@@ -49,7 +49,7 @@ public class PTSAST extends AST {
 	}
 	
 	private  void processPrintNodesList() {
-		InterProcEngine eng = (InterProcEngine) Engine.activeEngine; 
+		InterProcEngine eng = (InterProcEngine) Engine.getActiveEngine(); 
 		if (print_nodes.isEmpty()) {
 			if (printJustInterProcNodes)
 				eng.setPrintInterProcNodes();
@@ -22,7 +22,7 @@ public class ProgramAST extends AST {
 	
 
 	public void generate() {
-		InterProcEngine eng = (InterProcEngine) Engine.activeEngine; 
+		InterProcEngine eng = (InterProcEngine) Engine.getActiveEngine(); 
 		
 		if (xdebug) {
 			out.println("\n*** GENERATING PROGRAM ***");
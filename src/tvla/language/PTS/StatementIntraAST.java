@@ -23,7 +23,7 @@ public class StatementIntraAST extends StatementAST {
 	}
 		
 	public void generate(String sig) {
-		InterProcEngine eng = (InterProcEngine) Engine.activeEngine;
+		InterProcEngine eng = (InterProcEngine) Engine.getActiveEngine();
 		eng.addIntraStmt(sig,
 						from(),to(),
 						macroName,macroArgs);
@@ -18,7 +18,7 @@ public class StatementStaticInvocationAST extends StatementInvocationAST {
 	}
 	
 	public void generate(String curentMethodSig) {
-		InterProcEngine eng = (InterProcEngine) Engine.activeEngine;
+		InterProcEngine eng = (InterProcEngine) Engine.getActiveEngine();
 		String macChk = checkMacros();		
 		if (macChk != null)
 			throw new Error("Error in method: [" + curentMethodSig + "]: " + macChk); 
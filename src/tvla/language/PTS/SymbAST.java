@@ -66,7 +66,7 @@ public class SymbAST extends  tvla.language.TVP.AST {
 	}
 
 	public void compile() {
-		InterProcEngine eng = (InterProcEngine) Engine.activeEngine; 
+		InterProcEngine eng = (InterProcEngine) Engine.getActiveEngine(); 
 
 		if (xdebug)
 			dump(System.out);
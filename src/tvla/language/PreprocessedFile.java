@@ -0,0 +1,169 @@
+package tvla.language;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import tvla.util.LRUCache;
+import tvla.util.ProgramProperties;
+
+import com.ibm.dk.dps.io.CPreProcessorStream;
+
+/** An input file after the C preprocessor was applied to it: the
+ * preprocessed text, and the file and line in the sources from which each
+ * line of the text came.
+ * When caching is enabled, preprocessed files are kept in a cache shared
+ * by the analyses that run in the JVM (see tvla.BatchRunner), so that a program analyzed again, e.g. with other
+ * inputs or properties, is not preprocessed again with its include files.
+ * A cached file is used as long as its macros and search path are the same
+ * and no file was changed, added or removed in the directories of its
+ * sources and in the directories of the search path.
+ */
+public class PreprocessedFile {
+	/** The maximal number of files in the cache.
+	 */
+	protected static final int CACHE_SIZE = 256;
+
+	/** The cache of preprocessed files, by the file name, the search path
+	 * and the macros.
+	 */
+	private static final Map<String, PreprocessedFile> cache = Collections.synchronizedMap(
+			new LRUCache<String, PreprocessedFile>(CACHE_SIZE));
+
+	private static volatile boolean caching = false;
+
+	protected final byte[] text;
+	protected final String[] files;
+	protected final int[] lines;
+
+	/** The directories whose contents the text depends on, and the stamps
+	 * of their contents when the file was preprocessed.
+	 */
+	protected final List<File> directories = new ArrayList<File>();
+	protected final List<String> stamps = new ArrayList<String>();
+
+	/** Enables or disables the cache.
+	 */
+	public static void setCaching(boolean enabled) {
+		caching = enabled;
+		if (!enabled)
+			cache.clear();
+	}
+
+	/** Applies the C preprocessor to a file, or returns the cached result.
+	 * @param fileName The name of the file.
+	 * @param searchPath The search path for included files.
+	 */
+	public static PreprocessedFile open(String fileName, String searchPath) throws IOException {
+		if (!caching)
+			return new PreprocessedFile(fileName, searchPath);
+
+		List<String> macros = ProgramProperties.getStringListProperty("tvla.parser.externalMacros",
+				Collections.<String>emptyList());
+
+		String key = new File(fileName).getAbsolutePath() + "\n" + searchPath + "\n" + macros;
+		PreprocessedFile result = cache.get(key);
+		if (result == null || !result.isValid()) {
+			result = new PreprocessedFile(fileName, searchPath);
+			cache.put(key, result);
+		}
+		return result;
+	}
+
+	protected PreprocessedFile(String fileName, String searchPath) throws IOException {
+		CPreProcessorStream stream = new CPreProcessorStream(fileName);
+		AddMacrosToPreProcessor.add(stream);
+		stream.setSearchPath(searchPath);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int length;
+		while ((length = stream.read(buffer, 0, buffer.length)) > 0) {
+			out.write(buffer, 0, length);
+		}
+		text = out.toByteArray();
+
+		int numberOfLines = 1;
+		for (byte b : text) {
+			if (b == '\n')
+				++numberOfLines;
+		}
+		files = new String[numberOfLines + 1];
+		lines = new int[numberOfLines + 1];
+		Set<File> sourceDirectories = new LinkedHashSet<File>();
+		File directory = new File(fileName).getAbsoluteFile().getParentFile();
+		sourceDirectories.add(directory);
+		for (int line = 0; line <= numberOfLines; ++line) {
+			files[line] = stream.getFile(line);
+			lines[line] = stream.getLine(line);
+			if (files[line] != null && (line == 0 || !files[line].equals(files[line - 1]))) {
+				File source = new File(files[line]);
+				if (!source.isAbsolute())
+					source = new File(directory, files[line]);
+				sourceDirectories.add(source.getAbsoluteFile().getParentFile());
+			}
+		}
+		for (String path : searchPath.split(";")) {
+			if (path.length() > 0)
+				sourceDirectories.add(new File(path).getAbsoluteFile());
+		}
+		for (File sourceDirectory : sourceDirectories) {
+			directories.add(sourceDirectory);
+			stamps.add(stamp(sourceDirectory));
+		}
+	}
+
+	/** Returns a string that changes when a file in the directory is
+	 * changed, added or removed.
+	 */
+	protected static String stamp(File directory) {
+		File[] contents = directory.listFiles();
+		if (contents == null)
+			return "";
+		Arrays.sort(contents);
+		long hash = contents.length;
+		for (File file : contents) {
+			hash = hash * 31 + file.getName().hashCode();
+			hash = hash * 31 + file.lastModified();
+			hash = hash * 31 + file.length();
+		}
+		return Long.toString(hash);
+	}
+
+	/** Returns true if none of the files the text depends on was changed.
+	 */
+	protected boolean isValid() {
+		for (int i = 0; i < directories.size(); ++i) {
+			if (!stamp(directories.get(i)).equals(stamps.get(i)))
+				return false;
+		}
+		return true;
+	}
+
+	/** Returns a stream that reads the preprocessed text.
+	 */
+	public InputStream getInputStream() {
+		return new ByteArrayInputStream(text);
+	}
+
+	/** Returns the source file of a line of the preprocessed text.
+	 */
+	public String getFile(int line) {
+		return files[Math.max(0, Math.min(line, files.length - 1))];
+	}
+
+	/** Returns the line in the source file of a line of the preprocessed
+	 * text.
+	 */
+	public int getLine(int line) {
+		return lines[Math.max(0, Math.min(line, lines.length - 1))];
+	}
+}
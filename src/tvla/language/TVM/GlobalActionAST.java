@@ -26,7 +26,7 @@ public class GlobalActionAST extends AST {
 	
 	public void generate() {
 		Action action = ((ActionDefAST) def).getGlobalAction();
-		MultithreadEngine engine = (MultithreadEngine) Engine.activeEngine;
+		MultithreadEngine engine = (MultithreadEngine) Engine.getActiveEngine();
 		engine.addAction(action);
     }	
 }
\ No newline at end of file
@@ -11,7 +11,6 @@ import tvla.formulae.*;
 import tvla.language.*;
 import tvla.language.TVP.*;
 import tvla.util.*;
-import com.ibm.dk.dps.io.CPreProcessorStream;
 import java.util.*;
 import java.io.*;
 
@@ -736,7 +735,7 @@ public class TVMParser extends java_cup.runtime.lr_parser {
 
     static TVMLex scanner;
     static String entry;
-    static CPreProcessorStream stream;
+    static PreprocessedFile stream;
 
     public void report_error(String message, Object info) {
     Logger.println(message + " in line " + stream.getLine(scanner.line_count) + 
@@ -746,11 +745,8 @@ public class TVMParser extends java_cup.runtime.lr_parser {
     public static TVMAST configure(String filename, String path) 
                     throws Exception {
 	    String infileName = filename + ".tvm";
-		stream = new CPreProcessorStream(infileName);
-		AddMacrosToPreProcessor.add(stream);
-
-		stream.setSearchPath(path);
-		scanner = new TVMLex(new InputStreamReader(stream));
+		stream = PreprocessedFile.open(infileName, path);
+		scanner = new TVMLex(new InputStreamReader(stream.getInputStream()));
 		TVMAST answer = (TVMAST)(new TVMParser(scanner).parse().value);
 		return answer;
     }
@@ -2225,7 +2221,7 @@ class CUP$TVMParser$actions {
 		int paramsleft = ((java_cup.runtime.Symbol)CUP$TVMParser$stack.elementAt(CUP$TVMParser$top-1)).left;
 		int paramsright = ((java_cup.runtime.Symbol)CUP$TVMParser$stack.elementAt(CUP$TVMParser$top-1)).right;
 		List params = (List)((java_cup.runtime.Symbol) CUP$TVMParser$stack.elementAt(CUP$TVMParser$top-1)).value;
-		 RESULT = params; 
+		 RESULT = PredicateAST.asPredicates(params); 
               CUP$TVMParser$result = new java_cup.runtime.Symbol(16/*optional_params*/, ((java_cup.runtime.Symbol)CUP$TVMParser$stack.elementAt(CUP$TVMParser$top-2)).left, ((java_cup.runtime.Symbol)CUP$TVMParser$stack.elementAt(CUP$TVMParser$top-0)).right, RESULT);
             }
           return CUP$TVMParser$result;
@@ -2512,7 +2508,7 @@ class CUP$TVMParser$actions {
 		int listleft = ((java_cup.runtime.Symbol)CUP$TVMParser$stack.elementAt(CUP$TVMParser$top-1)).left;
 		int listright = ((java_cup.runtime.Symbol)CUP$TVMParser$stack.elementAt(CUP$TVMParser$top-1)).right;
 		List list = (List)((java_cup.runtime.Symbol) CUP$TVMParser$stack.elementAt(CUP$TVMParser$top-1)).value;
-		 RESULT = new SetConstantAST(list); 
+		 RESULT = new SetConstantAST(PredicateAST.asPredicates(list)); 
               CUP$TVMParser$result = new java_cup.runtime.Symbol(28/*set_expr*/, ((java_cup.runtime.Symbol)CUP$TVMParser$stack.elementAt(CUP$TVMParser$top-2)).left, ((java_cup.runtime.Symbol)CUP$TVMParser$stack.elementAt(CUP$TVMParser$top-0)).right, RESULT);
             }
           return CUP$TVMParser$result;
@@ -2539,7 +2535,7 @@ class CUP$TVMParser$actions {
 		int membersleft = ((java_cup.runtime.Symbol)CUP$TVMParser$stack.elementAt(CUP$TVMParser$top-1)).left;
 		int membersright = ((java_cup.runtime.Symbol)CUP$TVMParser$stack.elementAt(CUP$TVMParser$top-1)).right;
 		List members = (List)((java_cup.runtime.Symbol) CUP$TVMParser$stack.elementAt(CUP$TVMParser$top-1)).value;
-		 RESULT = new SetDefAST(name, members); 
+		 RESULT = new SetDefAST(name, PredicateAST.asPredicates(members)); 
               CUP$TVMParser$result = new java_cup.runtime.Symbol(29/*set_def*/, ((java_cup.runtime.Symbol)CUP$TVMParser$stack.elementAt(CUP$TVMParser$top-4)).left, ((java_cup.runtime.Symbol)CUP$TVMParser$stack.elementAt(CUP$TVMParser$top-0)).right, RESULT);
             }
           return CUP$TVMParser$result;
@@ -47,12 +47,12 @@ public class ThreadDefAST extends BodyDefAST {
 	}
 	
 	public void generate() {
-		MultithreadEngine engine = (MultithreadEngine) Engine.activeEngine;
+		MultithreadEngine engine = (MultithreadEngine) Engine.getActiveEngine();
 		programThread = engine.addThreadDefinition(name,actions);
 	}
 	
 	public void compile() {
-		MultithreadEngine engine = (MultithreadEngine) Engine.activeEngine;
+		MultithreadEngine engine = (MultithreadEngine) Engine.getActiveEngine();
 		engine.compileThreadDefinition(name);
 	}
 	
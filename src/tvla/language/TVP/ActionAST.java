@@ -27,7 +27,7 @@ public class ActionAST extends AST {
 
 	public void generate() {
 		Action action = def.getAction();
-		AnalysisGraph.activeGraph.addAction(label, action, next);
+		AnalysisGraph.getActiveGraph().addAction(label, action, next);
 	}
 	
 	public String label() {
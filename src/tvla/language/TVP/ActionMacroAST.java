@@ -5,6 +5,7 @@ import java.util.List;
 import java.util.Map;
 
 import tvla.exceptions.SemanticErrorException;
+import tvla.util.AnalysisContext;
 import tvla.util.HashMapFactory;
 import tvla.util.StringUtils;
 
@@ -15,10 +16,14 @@ public class ActionMacroAST extends MacroAST {
 	protected String name;
 	protected List<String> args;
 	protected ActionDefAST def;
-	protected static Map<String,ActionMacroAST> actionMacros = HashMapFactory.make();
+	protected static final AnalysisContext.Slot<Map<String,ActionMacroAST>> actionMacros = new AnalysisContext.Slot<Map<String,ActionMacroAST>>() {
+		protected Map<String,ActionMacroAST> create() {
+			return HashMapFactory.make();
+		}
+	};
 
 	public static void reset() {
-		actionMacros = HashMapFactory.make();
+		actionMacros.reset();
 	}
 	
 	public ActionMacroAST(String name, List<String> args, ActionDefAST def) {
@@ -26,11 +31,11 @@ public class ActionMacroAST extends MacroAST {
 		this.args = args;
 		this.def = def;
 		def.myMacro = this;
-		actionMacros.put(name, this);
+		actionMacros.get().put(name, this);
 	}
 
 	public static ActionMacroAST get(String name) {
-		ActionMacroAST macro = (ActionMacroAST) actionMacros.get(name);
+		ActionMacroAST macro = (ActionMacroAST) actionMacros.get().get(name);
 		if (macro == null)
 			throw new SemanticErrorException("Unknown macro " + name);
 		return macro;
@@ -6,6 +6,7 @@ import java.util.Map;
 import java.util.Set;
 
 import tvla.core.decompose.ParametricSet;
+import tvla.util.AnalysisContext;
 import tvla.util.HashMapFactory;
 import tvla.util.HashSetFactory;
 
@@ -15,7 +16,11 @@ import tvla.util.HashSetFactory;
 public class SetDefAST extends AST {
 	/** Maps set names to the lists of set members.
 	 */
-	public static Map<String, List<PredicateAST>> allSets = HashMapFactory.make();
+	private static final AnalysisContext.Slot<Map<String, List<PredicateAST>>> allSets = new AnalysisContext.Slot<Map<String, List<PredicateAST>>>() {
+		protected Map<String, List<PredicateAST>> create() {
+			return HashMapFactory.make();
+		}
+	};
 
 	/** A label identifying the set.
 	 */
@@ -26,7 +31,13 @@ public class SetDefAST extends AST {
 	protected List<PredicateAST> members;
 
 	public static void reset() {
-		allSets = HashMapFactory.make();
+		allSets.reset();
+	}
+	
+	/** Returns the sets defined in the current analysis context, by name.
+	 */
+	public static Map<String, List<PredicateAST>> getAllSets() {
+		return allSets.get();
 	}
 	
 	public SetDefAST(String name, List<PredicateAST> members) {
@@ -37,6 +48,7 @@ public class SetDefAST extends AST {
 		this.name = name;
 		this.members = members;
 
+		Map<String, List<PredicateAST>> allSets = getAllSets();
 		boolean setExists = allSets.containsKey(name);
 		if (setExists) {
 			List<PredicateAST> currMembers = allSets.get(name);
@@ -62,7 +74,7 @@ public class SetDefAST extends AST {
 	}
 
 	public SetDefAST getSet(String name) {
-		return (SetDefAST) allSets.get(name);
+		return (SetDefAST) getAllSets().get(name);
 	}
 
 	//set_def ::= SET ID:name set_expr:elements
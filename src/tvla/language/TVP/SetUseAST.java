@@ -15,9 +15,9 @@ public class SetUseAST extends SetAST {
 	}
 
 	public Set<PredicateAST> getMembers() {
-		if (!SetDefAST.allSets.containsKey(setName))
+		if (!SetDefAST.getAllSets().containsKey(setName))
 			throw new SemanticErrorException("Unknown set " + setName);
-		return HashSetFactory.make(SetDefAST.allSets.get(setName));
+		return HashSetFactory.make(SetDefAST.getAllSets().get(setName));
 	}
 
 	public SetUseAST copy() {
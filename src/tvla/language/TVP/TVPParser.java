@@ -11,7 +11,6 @@ import tvla.formulae.*;
 import tvla.language.*;
 import tvla.transitionSystem.*;
 import tvla.util.*;
-import com.ibm.dk.dps.io.CPreProcessorStream;
 import java.io.*;
 import java.util.*;
 
@@ -788,7 +787,7 @@ public class TVPParser extends java_cup.runtime.lr_parser {
 
 
     static TVPLex scanner;
-    static CPreProcessorStream stream;
+    static PreprocessedFile stream;
 
     public void report_error(String message, Object info) {
 		Logger.println(message + " in line " + stream.getLine(scanner.line_count) + 
@@ -800,24 +799,22 @@ public class TVPParser extends java_cup.runtime.lr_parser {
 		String infileName = filename;
 		if (!infileName.endsWith(".tvp"))
 			infileName = infileName + ".tvp";
-		stream = new CPreProcessorStream(infileName);
-		AddMacrosToPreProcessor.add(stream);
+		stream = PreprocessedFile.open(infileName, path);
 
 		// We can dump the result of applying the C preprocessor
 		// to make debugging easier.
 		if (ProgramProperties.getBooleanProperty("tvla.dumpPreprocessedTvp", false)) {
-			FileWriter writer = new FileWriter(filename + ".cpp.tvp");
+			FileOutputStream writer = new FileOutputStream(filename + ".cpp.tvp");
+			InputStream text = stream.getInputStream();
 			int c;
-			while ((c = stream.read()) != -1) {
+			while ((c = text.read()) != -1) {
 				writer.write(c);
 			}
 			writer.flush();
 			writer.close();
-			stream = new CPreProcessorStream(infileName);
 		}
 		
-		stream.setSearchPath(path);
-		scanner = new TVPLex(new InputStreamReader(stream));
+		scanner = new TVPLex(new InputStreamReader(stream.getInputStream()));
 		new TVPParser(scanner).parse();
 	
 		// do cleanups
@@ -2727,7 +2724,7 @@ class CUP$TVPParser$actions {
 		int pleft = ((java_cup.runtime.Symbol)CUP$TVPParser$stack.elementAt(CUP$TVPParser$top-0)).left;
 		int pright = ((java_cup.runtime.Symbol)CUP$TVPParser$stack.elementAt(CUP$TVPParser$top-0)).right;
 		List p = (List)((java_cup.runtime.Symbol) CUP$TVPParser$stack.elementAt(CUP$TVPParser$top-0)).value;
-		 AnalysisGraph.activeGraph.setPrintableLocations(p); 
+		 AnalysisGraph.getActiveGraph().setPrintableLocations(p); 
               CUP$TVPParser$result = new java_cup.runtime.Symbol(3/*to_print*/, ((java_cup.runtime.Symbol)CUP$TVPParser$stack.elementAt(CUP$TVPParser$top-2)).left, ((java_cup.runtime.Symbol)CUP$TVPParser$stack.elementAt(CUP$TVPParser$top-0)).right, RESULT);
             }
           return CUP$TVPParser$result;
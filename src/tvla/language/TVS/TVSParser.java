@@ -270,15 +270,19 @@ public class TVSParser extends java_cup.runtime.lr_parser {
 		return answer;
     }	
 
-    /** Reads a list of structures from a TVS formatted input file.
+    /** Reads a list of structures from a TVS formatted input file, or from
+     * a file in the binary TVS format (see tvla.io.BinaryTVSWriter).
      * @author Tal Lev-Ami
      */
     @SuppressWarnings("unchecked")
     public static List<HighLevelTVS> readStructures(String file) throws Exception {
 		String infileName = file;
-		if (!infileName.endsWith(".tvs")) {
+		if (!infileName.endsWith(".tvs") && !tvla.io.BinaryTVSReader.isBinary(infileName)) {
 			infileName = infileName + ".tvs";
 		}
+		// Structures written with -tvs:bin are read without parsing.
+		if (tvla.io.BinaryTVSReader.isBinary(infileName))
+			return tvla.io.BinaryTVSReader.readStructures(infileName);
 		stream = new CPreProcessorStream(infileName);
 		AddMacrosToPreProcessor.add(stream);
 
@@ -22,7 +22,7 @@ public class ThreadAST extends AST {
 	public ThreadAST(String threadName, String threadType) {
 		name = threadName;
 		type = threadType;
-		MultithreadEngine engine = (MultithreadEngine) Engine.activeEngine;
+		MultithreadEngine engine = (MultithreadEngine) Engine.getActiveEngine();
 		initialLabel = engine.getEntryLabel(type);
 	}
 	
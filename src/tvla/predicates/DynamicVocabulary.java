@@ -4,6 +4,7 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
+import tvla.util.AnalysisContext;
 import tvla.util.HashConsFactory;
 import tvla.util.HashSetFactory;
 
@@ -54,7 +55,13 @@ public class DynamicVocabulary {
 		}
 	};
 
-	private static DynamicVocabulary full;
+	/** The vocabulary of all the predicates of each analysis context.
+	 */
+	private static final AnalysisContext.Slot<DynamicVocabulary> full = new AnalysisContext.Slot<DynamicVocabulary>() {
+		protected DynamicVocabulary create() {
+			return DynamicVocabulary.create(HashSetFactory.make(Vocabulary.allPredicates()));
+		}
+	};
 
 	private static DynamicVocabulary empty = create(new HashSet<Predicate>());
 
@@ -129,7 +136,7 @@ public class DynamicVocabulary {
 			}
 		};
 
-		DynamicVocabulary full = null;
+		full.reset();
 
 		empty = create(new HashSet<Predicate>());
 	}
@@ -239,12 +246,13 @@ public class DynamicVocabulary {
 	}
 
 	public static DynamicVocabulary full() {
-		if (full == null
-				|| full.predicates.size() != Vocabulary.allPredicates().size()) {
-			full = DynamicVocabulary.create(HashSetFactory.make(Vocabulary
+		DynamicVocabulary result = full.get();
+		if (result.predicates.size() != Vocabulary.allPredicates().size()) {
+			result = DynamicVocabulary.create(HashSetFactory.make(Vocabulary
 					.allPredicates()));
+			full.set(result);
 		}
-		return full;
+		return result;
 	}
 
 	public boolean contains(Predicate predicate) {
@@ -82,8 +82,12 @@ public class Predicate implements Comparable<Predicate> {
 	static int HashMultiplier = (int)(System.currentTimeMillis() | 1);
 	private int savedHashCode = -1;
 	
-	public Object cachedStructure = null;
-	public Object cachedReference = null;
+	/**
+	 * The last (structure, interpretation) pair looked up for this predicate.
+	 * Kept as a single immutable object so that concurrent lookups from
+	 * different structures never see a torn pair.
+	 */
+	public Object cachedEntry = null;
 	
 	public float rank = 0;
 	
@@ -12,6 +12,7 @@ import tvla.exceptions.TVLAException;
 import tvla.formulae.Formula;
 import tvla.formulae.Var;
 import tvla.transitionSystem.Location;
+import tvla.util.AnalysisContext;
 import tvla.util.HashMapFactory;
 import tvla.util.HashSetFactory;
 
@@ -20,24 +21,47 @@ import tvla.util.HashSetFactory;
  * @since 29.5.2001 Initial creation.
  */
 public class Vocabulary {
-	private static SortedSet<Predicate> allPredicates			= new TreeSet<Predicate>();
-	private static SortedSet<Predicate> nullaryPredicates		= new TreeSet<Predicate>();
-	private static SortedSet<Predicate> nullaryRelPredicates	= new TreeSet<Predicate>();
-	private static SortedSet<Predicate> nullaryNonRelPredicates	= new TreeSet<Predicate>();
-	private static SortedSet<Predicate> unaryPredicates			= new TreeSet<Predicate>();
-	private static SortedSet<Predicate> unaryRelPredicates		= new TreeSet<Predicate>();
-	private static SortedSet<Predicate> unaryNonRelPredicates	= new TreeSet<Predicate>();
-	private static SortedSet<Predicate> binaryPredicates		= new TreeSet<Predicate>();
-	private static SortedSet<Predicate> positiveArityPredicates	= new TreeSet<Predicate>();
-	private static SortedSet<Instrumentation> instrumentationPredicates  = new TreeSet<Instrumentation>();
-	/**
-	 * a separate set for predicates of arity 3 and above
-	 */
-	private static SortedSet<Predicate> karyPredicates			= new TreeSet<Predicate>();	
-	/** A list of location predicates "at[l]".
-	 * @author Eran Yahav.
-	 */
-	public static List<LocationPredicate> locationPredicates = new ArrayList<LocationPredicate>();
+	/** The predicates of an analysis context, grouped by categories.
+	 */
+	private static class Tables {
+		SortedSet<Predicate> allPredicates			= new TreeSet<Predicate>();
+		SortedSet<Predicate> nullaryPredicates		= new TreeSet<Predicate>();
+		SortedSet<Predicate> nullaryRelPredicates	= new TreeSet<Predicate>();
+		SortedSet<Predicate> nullaryNonRelPredicates	= new TreeSet<Predicate>();
+		SortedSet<Predicate> unaryPredicates			= new TreeSet<Predicate>();
+		SortedSet<Predicate> unaryRelPredicates		= new TreeSet<Predicate>();
+		SortedSet<Predicate> unaryNonRelPredicates	= new TreeSet<Predicate>();
+		SortedSet<Predicate> binaryPredicates		= new TreeSet<Predicate>();
+		SortedSet<Predicate> positiveArityPredicates	= new TreeSet<Predicate>();
+		SortedSet<Instrumentation> instrumentationPredicates  = new TreeSet<Instrumentation>();
+		/**
+		 * a separate set for predicates of arity 3 and above
+		 */
+		SortedSet<Predicate> karyPredicates			= new TreeSet<Predicate>();	
+		/** A list of location predicates "at[l]".
+		 * @author Eran Yahav.
+		 */
+		List<LocationPredicate> locationPredicates = new ArrayList<LocationPredicate>();
+		/** A map from predicate names to their corresponding objects.
+		 */
+		Map<String, Predicate> nameToPredicate = HashMapFactory.make();
+	}
+	
+	/** The vocabulary of each analysis context. A new vocabulary contains
+	 * the built-in predicates. The built-in predicates are created while
+	 * this class is initialized, and are added to the vocabulary of the
+	 * context that initializes the class as they are created.
+	 */
+	private static final AnalysisContext.Slot<Tables> tables = new AnalysisContext.Slot<Tables>() {
+		protected Tables create() {
+			Tables result = new Tables();
+			for (Predicate predicate : new Predicate[] {sm, active, instance, isNew, ready, isThread, runnable, outside}) {
+				if (predicate != null)
+					addPredicate(result, predicate);
+			}
+			return result;
+		}
+	};
 	
     /** The "is summary" predicate.
      * @author Tal Lev-Ami.
@@ -79,31 +103,8 @@ public class Vocabulary {
      */
     public static final Predicate outside = createPredicate("outside", 1);    
     
-	/** A map from predicate names to their corresponding objects.
-	 */
-	private static Map<String, Predicate> nameToPredicate;
-
 	public static void reset() {
-		allPredicates.clear();
-		nullaryPredicates.clear();
-		nullaryRelPredicates.clear();
-		nullaryNonRelPredicates.clear();
-		unaryPredicates.clear();
-		unaryRelPredicates.clear();
-		unaryNonRelPredicates.clear();
-		binaryPredicates.clear();
-		positiveArityPredicates.clear();
-		instrumentationPredicates.clear();
-		
-		nameToPredicate.clear();
-		addPredicate(sm);
-		addPredicate(active);
-		addPredicate(instance);
-		addPredicate(isNew);
-		addPredicate(ready);
-		addPredicate(isThread);
-		addPredicate(runnable);
-		addPredicate(outside);
+		tables.reset();
 	}
 	
 	/** Creates a new predicate and adds it to the existing vocabulary.
@@ -182,9 +183,7 @@ public class Vocabulary {
 												  boolean invfunc, 
 												  boolean acyc, 
 												  boolean visible) {
-		if (nameToPredicate == null)
-			initNameMap();
-		Predicate predicate = nameToPredicate.get(name);
+		Predicate predicate = tables.get().nameToPredicate.get(name);
 		if (predicate == null) {
 			predicate = new Predicate(name, 2, false);
 			addPredicate(predicate);
@@ -252,7 +251,7 @@ public class Vocabulary {
 	    assert location != null;
 		LocationPredicate predicate = new LocationPredicate(name, location);
 		addPredicate(predicate);
-		locationPredicates.add(predicate);
+		tables.get().locationPredicates.add(predicate);
 		return predicate;
 	}
 
@@ -262,7 +261,7 @@ public class Vocabulary {
 	public static Predicate getPredicateByName(String predicateName) {
 		if (predicateName.equals("inac")) // for backward compatibility with TVLA 0.91
 			predicateName = "ac";
-		Predicate p = nameToPredicate.get(predicateName);
+		Predicate p = tables.get().nameToPredicate.get(predicateName);
 		return p;
 	}
 	
@@ -270,7 +269,7 @@ public class Vocabulary {
 	 * @author Eran Yahav.
 	 */
 	public static LocationPredicate findLocationPredicate(String locationLebl) {
-		for (LocationPredicate currLoc : locationPredicates) {
+		for (LocationPredicate currLoc : tables.get().locationPredicates) {
 			if (currLoc.getLocation().label().equals(locationLebl)) {
 				return currLoc;
 			}
@@ -281,97 +280,81 @@ public class Vocabulary {
 	/** Returns the number of predicates in the vocabulary.
 	 */
 	public static int size() {
-		return allPredicates.size();
+		return tables.get().allPredicates.size();
 	}
 	
     /** Returns the collection of all predicates.
      */
 	
 	public static SortedSet<Predicate> allPredicates() {
-		if (allPredicates == null)
-			allPredicates = new TreeSet<Predicate>();
-		return allPredicates;
+		return tables.get().allPredicates;
 	}
 	
 	/** Returns the collection of all the nullary predicates.
 	 */
 	public static SortedSet<Predicate> allNullaryPredicates() {
-		if (nullaryPredicates == null)
-			nullaryPredicates = new TreeSet<Predicate>();
-		return nullaryPredicates;
+		return tables.get().nullaryPredicates;
 	}
 	
 	/** Returns the collection of all the nullary relational predicates.
 	 */
 	public static SortedSet<Predicate> allNullaryRelPredicates() {
-		if (nullaryRelPredicates == null)
-			nullaryRelPredicates = new TreeSet<Predicate>();
-		return nullaryRelPredicates;
+		return tables.get().nullaryRelPredicates;
 	}
 
 	/** Returns the collection of all the nullary non-relational predicates.
 	 */
 	public static SortedSet<Predicate> allNullaryNonRelPredicates() {
-		if (nullaryNonRelPredicates == null)
-			nullaryNonRelPredicates = new TreeSet<Predicate>();
-		return nullaryNonRelPredicates;
+		return tables.get().nullaryNonRelPredicates;
 	}
 
 	/** Returns the collection of all the unary predicates.
 	 */
 	public static SortedSet<Predicate> allUnaryPredicates() {
-		if (unaryPredicates == null)
-			unaryPredicates = new TreeSet<Predicate>();
-		return unaryPredicates;
+		return tables.get().unaryPredicates;
 	}
 
 	/** Returns the collection of all the unary relational predicates.
 	 */
 	public static SortedSet<Predicate> allUnaryRelPredicates() {
-		if (unaryRelPredicates == null)
-			unaryRelPredicates = new TreeSet<Predicate>();
-		return unaryRelPredicates;
+		return tables.get().unaryRelPredicates;
 	}
 
 	/** Returns the collection of all the unary non-relational predicates.
 	 */
 	public static SortedSet<Predicate> allUnaryNonRelPredicates() {
-		if (unaryNonRelPredicates == null)
-			unaryNonRelPredicates = new TreeSet<Predicate>();
-		return unaryNonRelPredicates;
+		return tables.get().unaryNonRelPredicates;
 	}
 
 	/** Returns the collection of all the binary predicates.
 	 */
 	public static SortedSet<Predicate> allBinaryPredicates() {
-		if (binaryPredicates == null)
-			binaryPredicates = new TreeSet<Predicate>();
-		return binaryPredicates;
+		return tables.get().binaryPredicates;
 	}
 	
 	/** Returns the collection of all the predicates with arity > 2.
 	 */
 	public static SortedSet<Predicate> allKaryPredicates() {
-		if (karyPredicates == null)
-			karyPredicates = new TreeSet<Predicate>();
-		return karyPredicates;
+		return tables.get().karyPredicates;
 	}
 
 	/** Returns the collection of all the predicates with 
 	 * positive arity (all non-nullary predicates).
 	 */
 	public static SortedSet<Predicate> allPositiveArityPredicates() {
-		if (positiveArityPredicates == null)
-			positiveArityPredicates = new TreeSet<Predicate>();
-		return positiveArityPredicates;
+		return tables.get().positiveArityPredicates;
 	}
 
 	/** Returns the set of all instrumentation predicates.
 	 */
 	public static SortedSet<Instrumentation> allInstrumentationPredicates() {
-		if (instrumentationPredicates == null)
-			instrumentationPredicates = new TreeSet<Instrumentation>();
-		return instrumentationPredicates;
+		return tables.get().instrumentationPredicates;
+	}
+
+	/** Returns the list of location predicates "at[l]".
+	 */
+	public static List<LocationPredicate> allLocationPredicates() {
+		return tables.get().locationPredicates;
 	}
 	
 	/** Returns a human-readable representation of the vocabulary.
@@ -394,32 +377,33 @@ public class Vocabulary {
 	 * and also from the category sets to which it belongs.
 	 */
 	public static final void removePredicate(Predicate predicate) {
+		Tables t = tables.get();
 		switch (predicate.arity()) {
-		case 0: nullaryPredicates.remove(predicate);
+		case 0: t.nullaryPredicates.remove(predicate);
 				if (predicate.abstraction())
-					nullaryRelPredicates.remove(predicate);
+					t.nullaryRelPredicates.remove(predicate);
 				else
-					nullaryNonRelPredicates.remove(predicate);
+					t.nullaryNonRelPredicates.remove(predicate);
 				break;
-		case 1: unaryPredicates.remove(predicate);
+		case 1: t.unaryPredicates.remove(predicate);
 				if (predicate.abstraction())
-					unaryRelPredicates.remove(predicate);
+					t.unaryRelPredicates.remove(predicate);
 				else
-					unaryNonRelPredicates.remove(predicate);
+					t.unaryNonRelPredicates.remove(predicate);
 				break;
-		case 2: binaryPredicates.remove(predicate);
+		case 2: t.binaryPredicates.remove(predicate);
 				break;
 		default:
-				karyPredicates.remove(predicate);
+				t.karyPredicates.remove(predicate);
 				break;
 		}
 		
 		if (predicate instanceof Instrumentation)
-			instrumentationPredicates.remove(predicate);
+			t.instrumentationPredicates.remove(predicate);
 		if (predicate.arity() > 0)
-			positiveArityPredicates.remove(predicate);		
-		allPredicates.remove(predicate);
-		nameToPredicate.remove(predicate.name());
+			t.positiveArityPredicates.remove(predicate);		
+		t.allPredicates.remove(predicate);
+		t.nameToPredicate.remove(predicate.name());
 	}
 
 	/** Sets the abstraction property of the predicate.
@@ -429,21 +413,22 @@ public class Vocabulary {
 		if (predicate.abstraction() ? abs : !abs)
 			return;  // The new value is the same as the old one.
 
+		Tables t = tables.get();
 		if (abs) {
 			if (predicate.arity() == 0) {
-				nullaryNonRelPredicates.remove(predicate);
-				nullaryRelPredicates.add(predicate);
+				t.nullaryNonRelPredicates.remove(predicate);
+				t.nullaryRelPredicates.add(predicate);
 			} else if (predicate.arity() == 1) {
-				unaryNonRelPredicates.remove(predicate);
-				unaryRelPredicates.add(predicate);
+				t.unaryNonRelPredicates.remove(predicate);
+				t.unaryRelPredicates.add(predicate);
 			}
 		} else {
 			if (predicate.arity() == 0) {
-				nullaryRelPredicates.remove(predicate);
-				nullaryNonRelPredicates.add(predicate);
+				t.nullaryRelPredicates.remove(predicate);
+				t.nullaryNonRelPredicates.add(predicate);
 			} else if (predicate.arity() == 1) {
-				unaryRelPredicates.remove(predicate);
-				unaryNonRelPredicates.add(predicate);
+				t.unaryRelPredicates.remove(predicate);
+				t.unaryNonRelPredicates.add(predicate);
 			}
 		}
 		predicate.setAbstraction(abs);
@@ -453,11 +438,13 @@ public class Vocabulary {
 	 * and also to the category sets to which it belongs.
 	 */
 	private static final void addPredicate(Predicate predicate) {
-		if (nameToPredicate == null)
-			initNameMap();
+		addPredicate(tables.get(), predicate);
+	}
+
+	private static final void addPredicate(Tables t, Predicate predicate) {
 		// TODO: add a more thorough check of the predicate's name.
 		assert !predicate.name().equals("") : "Attempting to create a predicate with an empty name!";
-	    if (nameToPredicate.containsKey(predicate.name())) {
+	    if (t.nameToPredicate.containsKey(predicate.name())) {
 	        throw new SemanticErrorException("Attempting to recreate the predicate " + predicate.name());	        
 	    }
         if (predicate.arity() < 0) {
@@ -465,34 +452,34 @@ public class Vocabulary {
                 + predicate.name() + ") with negative arity: "
                 + predicate.arity + "!");
         }
-	    nameToPredicate.put(predicate.name(), predicate);
+	    t.nameToPredicate.put(predicate.name(), predicate);
 	    
 		switch (predicate.arity()) {
-		case 0: nullaryPredicates.add(predicate);
+		case 0: t.nullaryPredicates.add(predicate);
 				if (predicate.abstraction())
-					nullaryRelPredicates.add(predicate);
+					t.nullaryRelPredicates.add(predicate);
 				else
-					nullaryNonRelPredicates.add(predicate);
+					t.nullaryNonRelPredicates.add(predicate);
 				break;
-		case 1: unaryPredicates.add(predicate);
+		case 1: t.unaryPredicates.add(predicate);
 				if (predicate.abstraction())
-					unaryRelPredicates.add(predicate);
+					t.unaryRelPredicates.add(predicate);
 				else
-					unaryNonRelPredicates.add(predicate);
+					t.unaryNonRelPredicates.add(predicate);
 				break;
-		case 2: binaryPredicates.add(predicate);
+		case 2: t.binaryPredicates.add(predicate);
 				break;
 		default:
-				karyPredicates.add(predicate);
+				t.karyPredicates.add(predicate);
 				break;
 		}
 		
 		if (predicate instanceof Instrumentation)
-			instrumentationPredicates.add((Instrumentation) predicate);
+			t.instrumentationPredicates.add((Instrumentation) predicate);
 		if (predicate.arity() > 0)
-			positiveArityPredicates.add(predicate);		
-		allPredicates.add(predicate);
-		predicate.id = allPredicates.size();
+			t.positiveArityPredicates.add(predicate);		
+		t.allPredicates.add(predicate);
+		predicate.id = t.allPredicates.size();
 	}
 	
 	/** Singleton pattern.
@@ -500,12 +487,6 @@ public class Vocabulary {
 	private Vocabulary() {
 	}
 
-	private static final void initNameMap() {
-		nameToPredicate = HashMapFactory.make();
-		for (Predicate predicate : allPredicates) {
-			nameToPredicate.put(predicate.name(), predicate);
-		}
-	}
 }
 /*
 class QuickTreeSet extends TreeSet {
@@ -25,6 +25,7 @@ import tvla.exceptions.AbstractionRefinementException;
 import tvla.exceptions.SemanticErrorException;
 import tvla.formulae.AndFormula;
 import tvla.formulae.CloneUpdateFormula;
+import tvla.formulae.CompiledFormula;
 import tvla.formulae.EqualityFormula;
 import tvla.formulae.Formula;
 import tvla.formulae.NewUpdateFormula;
@@ -42,6 +43,7 @@ import tvla.predicates.DynamicVocabulary;
 import tvla.predicates.LocationPredicate;
 import tvla.predicates.Predicate;
 import tvla.predicates.Vocabulary;
+import tvla.util.AnalysisContext;
 import tvla.util.HashSetFactory;
 import tvla.util.ProgramProperties;
 import tvla.util.SingleIterator;
@@ -52,7 +54,11 @@ import tvla.util.StringUtils;
  * @author Tal Lev-Ami.
  */
 public class Action {
-	public static Set<Location> locationsWherePropertyFails = new HashSet<Location>();
+	private static final AnalysisContext.Slot<Set<Location>> locationsWherePropertyFails = new AnalysisContext.Slot<Set<Location>>() {
+		protected Set<Location> create() {
+			return Collections.synchronizedSet(new HashSet<Location>());
+		}
+	};
 	private boolean initialized = false;
 	private Location actionLocation;
 	
@@ -65,6 +71,7 @@ public class Action {
 	private Formula internalPrecondition = null;
 	private List<Formula> preconditionConjunction = null;
 	private List<Formula> preconditionTC = null;
+	private volatile CompiledFormula compiledPrecondition = null;
 	private String title = null;
   
 	private Formula haltCondition = null;
@@ -103,13 +110,20 @@ public class Action {
 
 	/** Should an Unknown answer to a precondition result in an AR Exception? */
 	public static boolean throwUnknownPrecondException =
-	  ProgramProperties.getBooleanProperty("tvla.absRef.refine", false) &&
-	  ProgramProperties.getBooleanProperty("tvla.absRef.throwUnknownPreconditionException", false);
+	  ProgramProperties.getFixedBooleanProperty("tvla.absRef.refine", false) &&
+	  ProgramProperties.getFixedBooleanProperty("tvla.absRef.throwUnknownPreconditionException", false);
 	private Formula framePre;
 	private Formula frame;
 	
 	public static void reset() {
-		locationsWherePropertyFails = new HashSet<Location>();
+		locationsWherePropertyFails.reset();
+	}
+
+	/** Returns the locations at which a property failed in the current
+	 * analysis context.
+	 */
+	public static Set<Location> getLocationsWherePropertyFails() {
+		return locationsWherePropertyFails.get();
 	}
 
 	/** A class for associating a formula with
@@ -158,7 +172,7 @@ public class Action {
             		IOFacade.instance().printStructure(structure, message);
             }
             else {
-            	locationsWherePropertyFails.add((Location)Engine.getCurrentLocation());
+            	locationsWherePropertyFails.get().add((Location)Engine.getCurrentLocation());
             }
         }        
 
@@ -166,6 +180,10 @@ public class Action {
             return composeFormula;
         }
 
+        public Formula getFormula() {
+            return formula;
+        }
+
         public boolean shouldCheck(DecompositionName currentComponent) {
             // Consider caching
             if (getComposeFormula() == null) {
@@ -271,6 +289,11 @@ public class Action {
 		threadType = aThreadType;
 	}
 
+	/** Returns the type of the threads created by this action, or null. */
+	public ProgramThread getThreadType() {
+		return threadType;
+	}
+
 	public void addMessage(Formula formula, String message, Formula composeFormula) {
 		messages.add(new ReportMessage(formula, message, composeFormula));
 	}
@@ -285,6 +308,7 @@ public class Action {
 		// so they get reinitialized by checkPrecondition.
 		this.preconditionConjunction = null;
 		this.preconditionTC = null;
+		this.compiledPrecondition = null;
 	}
 	
 	public void internalPrecondition(Formula formula) {
@@ -293,6 +317,7 @@ public class Action {
 			precondition = internalPrecondition;
 		else
 			precondition = new AndFormula(internalPrecondition,precondition);
+		this.compiledPrecondition = null;
 	}
 
 	public NewUpdateFormula getNewFormula() {
@@ -329,6 +354,15 @@ public class Action {
 	public void stopFormula(Formula formula) {
 		this.stopFormula = formula;
 	}
+
+	public Formula getStartFormula() {
+		return startFormula;
+	}
+
+	public Formula getStopFormula() {
+		return stopFormula;
+	}
+
 	public void setTitle(String title) {
 		this.title = title;
 	}
@@ -450,12 +484,32 @@ public class Action {
 		if (precondition == null) {
 			satisfy.add(Assign.EMPTY);
 		}
+		else if (CompiledFormula.enabled) {
+			CompiledFormula compiled = compiledPrecondition;
+			if (compiled == null) {
+				compiled = new CompiledFormula(precondition);
+				compiledPrecondition = compiled;
+			}
+			for (Iterator<AssignKleene> it = compiled.assignments(structure, Assign.EMPTY); it.hasNext(); ) {
+				AssignKleene currentAssign = it.next();
+				Assign satisfyAssign = new Assign(currentAssign);
+				satisfyAssign.project(precondition.freeVars());
+				satisfy.add(satisfyAssign);
+				if (throwUnknownPrecondException && currentAssign.kleene == Kleene.unknownKleene)
+					throw new AbstractionRefinementException(actionLocation.label(), this,
+					                                         structure, satisfyAssign);
+			}
+		}
 		else {
+			List<Formula> preconditionConjunction = this.preconditionConjunction;
+			List<Formula> preconditionTC = this.preconditionTC;
 			if (preconditionConjunction == null) {
 				preconditionConjunction = new ArrayList<Formula>();
 				Formula.getAnds(precondition, preconditionConjunction);
 				preconditionTC = new ArrayList<Formula>();
 				Formula.getAllTC(precondition, preconditionTC);
+				this.preconditionTC = preconditionTC;
+				this.preconditionConjunction = preconditionConjunction;
 			}
 			for (Iterator<Formula> it = preconditionTC.iterator(); it.hasNext(); ) {
 				tvla.formulae.TransitiveFormula TC = (TransitiveFormula) it.next();
@@ -490,7 +544,7 @@ public class Action {
 			}
 			for (Iterator<Formula> it = preconditionTC.iterator(); it.hasNext(); ) {
 				tvla.formulae.TransitiveFormula TC = (TransitiveFormula) it.next();
-				TC.setCalculatedTC(null);
+				TC.invalidateTC();
 			}
 		}
 		return satisfy;
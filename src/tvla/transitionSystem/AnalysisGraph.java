@@ -18,6 +18,7 @@ import tvla.exceptions.UserErrorException;
 import tvla.io.IOFacade;
 import tvla.logic.Kleene;
 import tvla.predicates.Predicate;
+import tvla.util.AnalysisContext;
 import tvla.util.HashMapFactory;
 import tvla.util.HashSetFactory;
 import tvla.util.Logger;
@@ -28,7 +29,11 @@ import tvla.util.ProgramProperties;
  * @since 29.3.2002 Initial creation.
  */
 public class AnalysisGraph {
-	public static AnalysisGraph activeGraph;
+	private static final AnalysisContext.Slot<AnalysisGraph> activeGraph = new AnalysisContext.Slot<AnalysisGraph>() {
+		protected AnalysisGraph create() {
+			return null;
+		}
+	};
 	public boolean postOrder =
 		ProgramProperties.getBooleanProperty("tvla.cfg.postOrder", false);
 
@@ -58,11 +63,22 @@ public class AnalysisGraph {
 		ProgramProperties.getBooleanProperty(
 			"tvla.cfg.backwardAnalysis",
 			false);
-    protected static Collection<Location> reachableLocations;
+    protected Collection<Location> reachableLocations;
 
     public static void reset() {
-    	activeGraph = null;
-    	reachableLocations = null;
+    	activeGraph.reset();
+    }
+    
+    /** Returns the control flow graph analyzed in the current analysis context.
+     */
+    public static AnalysisGraph getActiveGraph() {
+    	return activeGraph.get();
+    }
+    
+    /** Sets the control flow graph analyzed in the current analysis context.
+     */
+    public static void setActiveGraph(AnalysisGraph graph) {
+    	activeGraph.set(graph);
     }
     
     public Collection<Location> findLatestLocations(Predicate marker,
@@ -2,6 +2,7 @@ package tvla.transitionSystem;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -14,6 +15,7 @@ import tvla.core.TVS;
 import tvla.core.TVSFactory;
 import tvla.core.TVSSet;
 import tvla.core.TVSSetToCollectionAdapter;
+import tvla.core.generic.ConcurrentTVSSet;
 import tvla.io.IOFacade;
 import tvla.util.HashMapFactory;
 import tvla.util.HashSetFactory;
@@ -69,6 +71,11 @@ public class Location implements Comparable<Location>, PrintableProgramLocation
 	 */
 	protected List<String> targets = new ArrayList<String>();
 
+	/** The number of shards of the structure set when several threads may
+	 * join structures into this location, and 0 otherwise.
+	 */
+	protected int joinShards = 0;
+
     private long startTime;
 
     public long totalTime;
@@ -99,7 +106,7 @@ public class Location implements Comparable<Location>, PrintableProgramLocation
 	 * to a pre-order/post-order traversal of the CFG.
 	 */
 	public int compareTo(Location other) {	
-		if (AnalysisGraph.activeGraph.postOrder)
+		if (AnalysisGraph.getActiveGraph().postOrder)
 			return this.postOrder - other.postOrder;
 		else 
 			return other.postOrder - this.postOrder; // Notice this is reversed!
@@ -115,12 +122,33 @@ public class Location implements Comparable<Location>, PrintableProgramLocation
 		}
 		else {
 			result = TVSSetToCollectionAdapter.staticInstance(structures);
-			structures = TVSFactory.getInstance().makeEmptySet(doJoin);
+			structures = createStructures(doJoin);
 		}
 		//return new TreeSet(result);
 		return result;
 	}
 	
+	/** Returns the number of structures waiting to be processed.
+	 */
+	public int numberOfUnprocessed() {
+		return doJoin ? unprocessed.size() : structures.size();
+	}
+
+	/** Returns the structures waiting to be processed, when structures are
+	 * joined at this location (otherwise all the stored structures are).
+	 */
+	public Collection<HighLevelTVS> unprocessed() {
+		return Collections.unmodifiableCollection(unprocessed);
+	}
+
+	/** Schedules a stored structure for processing, when the analysis is
+	 * resumed from a checkpoint.
+	 */
+	public void addUnprocessed(HighLevelTVS structure) {
+		if (doJoin)
+			unprocessed.add(structure);
+	}
+
 	/** Returns the label of this location, as specified in the TVP.
 	 */
 	public String label() {
@@ -306,16 +334,43 @@ public class Location implements Comparable<Location>, PrintableProgramLocation
 	 * @since  June 19 2003 Initial creation.
 	 */
 	public void clearLocation() {
-		structures = TVSFactory.getInstance().makeEmptySet(false);
+		structures = createStructures(false);
 		messages = HashMapFactory.make(0);
 		unprocessed = createUnprocessed();
 		compress();
 	}
 	
-	private static final Collection<HighLevelTVS> createUnprocessed() {
+	/** Allows several threads to join structures into this location
+	 * concurrently, by storing its structures in a ConcurrentTVSSet.
+	 * The structures stored so far are kept.
+	 * @param numberOfShards The number of shards of the structure set, or 0
+	 * to store the structures in a plain set again.
+	 */
+	public void setConcurrentJoin(int numberOfShards) {
+		if (joinShards == numberOfShards)
+			return;
+		joinShards = numberOfShards;
+		TVSSet oldStructures = structures;
+		structures = createStructures(false);
+		structures.mergeWith(oldStructures.iterator());
+		Collection<HighLevelTVS> oldUnprocessed = unprocessed;
+		unprocessed = createUnprocessed();
+		unprocessed.addAll(oldUnprocessed);
+	}
+
+	private TVSSet createStructures(boolean freezeStructures) {
+		if (joinShards > 0)
+			return new ConcurrentTVSSet(joinShards);
+		return TVSFactory.getInstance().makeEmptySet(freezeStructures);
+	}
+
+	private Collection<HighLevelTVS> createUnprocessed() {
 		// ROMAN Join optimizations
 		//return new ArrayList<HighLevelTVS>(5);
-		return HashSetFactory.make(10);
+		Collection<HighLevelTVS> result = HashSetFactory.make(10);
+		if (joinShards > 0)
+			result = Collections.synchronizedCollection(result);
+		return result;
 		//return new TreeSet();
 	}
 
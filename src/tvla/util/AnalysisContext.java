@@ -0,0 +1,163 @@
+package tvla.util;
+
+/** The state owned by a single analysis.
+ * Classes that keep state for the duration of an analysis (node counters,
+ * the vocabulary, the constraints, the default operators, etc.) declare a
+ * Slot for it, and every context holds its own value for each slot.
+ * A context is bound to the threads that run its analysis, which allows
+ * several analyses to run concurrently in one JVM without interfering.
+ * Threads that are not bound to a context use the default context, so an
+ * application that runs one analysis at a time need not be aware of
+ * contexts at all.
+ */
+public final class AnalysisContext {
+	/** The context used by threads that were not bound to another context.
+	 */
+	private static final AnalysisContext defaultContext = new AnalysisContext("default");
+
+	/** The context bound to the current thread, if any.
+	 */
+	private static final ThreadLocal<AnalysisContext> boundContext = new ThreadLocal<AnalysisContext>();
+
+	/** Set once a thread is bound to a context other than the default one.
+	 * Until then current() need not look up the thread's binding, which
+	 * keeps slot accesses cheap when a single analysis runs in the JVM.
+	 */
+	private static volatile boolean anyBound = false;
+
+	/** The number of slots declared so far.
+	 */
+	private static int numberOfSlots = 0;
+
+	/** A name used to identify the context in messages.
+	 */
+	private final String name;
+
+	/** The values of the slots, indexed by the slots' indices.
+	 * The array is replaced rather than updated in place, which allows
+	 * reading it without locking.
+	 */
+	private volatile Object[] values = new Object[0];
+
+	/** Stands for a slot whose value is null, as opposed to a slot that
+	 * does not hold a value.
+	 */
+	private static final Object NULL = new Object();
+
+	/** A piece of state that has a separate value in each context.
+	 * The value is created on demand, when a context that does not hold
+	 * a value for the slot is first asked for it.
+	 */
+	public static abstract class Slot<T> {
+		private final int index;
+
+		protected Slot() {
+			synchronized (AnalysisContext.class) {
+				index = numberOfSlots++;
+			}
+		}
+
+		/** Creates the initial value of the slot in a context.
+		 */
+		protected abstract T create();
+
+		/** Returns the value of the slot in the current context.
+		 */
+		public final T get() {
+			return current().get(this);
+		}
+
+		/** Sets the value of the slot in the current context.
+		 */
+		public final void set(T value) {
+			current().set(this, value != null ? value : NULL);
+		}
+
+		/** Discards the value of the slot in the current context.
+		 * A new value is created the next time the slot is accessed.
+		 */
+		public final void reset() {
+			current().set(this, null);
+		}
+	}
+
+	/** Constructs a new context, in which every slot has its initial value.
+	 * @param name A name used to identify the context in messages.
+	 */
+	public AnalysisContext(String name) {
+		this.name = name;
+	}
+
+	/** Returns the context of the current thread.
+	 */
+	public static AnalysisContext current() {
+		if (!anyBound)
+			return defaultContext;
+		AnalysisContext context = boundContext.get();
+		return context != null ? context : defaultContext;
+	}
+
+	/** Returns the context used by threads that were not bound to
+	 * another context.
+	 */
+	public static AnalysisContext getDefault() {
+		return defaultContext;
+	}
+
+	/** Binds a context to the current thread.
+	 * @param context The context, or null to revert to the default context.
+	 * @return The context previously bound to the thread, or null if the
+	 * thread used the default context.
+	 */
+	public static AnalysisContext bind(AnalysisContext context) {
+		AnalysisContext previous = anyBound ? boundContext.get() : null;
+		if (context == null || context == defaultContext) {
+			boundContext.remove();
+		}
+		else {
+			anyBound = true;
+			boundContext.set(context);
+		}
+		return previous;
+	}
+
+	/** Discards the values of all slots in this context.
+	 */
+	public synchronized void reset() {
+		values = new Object[0];
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String toString() {
+		return "AnalysisContext(" + name + ")";
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> T get(Slot<T> slot) {
+		Object[] current = values;
+		Object value = slot.index < current.length ? current[slot.index] : null;
+		if (value == null) {
+			synchronized (this) {
+				current = values;
+				value = slot.index < current.length ? current[slot.index] : null;
+				if (value == null) {
+					T created = slot.create();
+					value = created != null ? created : NULL;
+					set(slot, value);
+				}
+			}
+		}
+		return value != NULL ? (T) value : null;
+	}
+
+	private synchronized void set(Slot<?> slot, Object value) {
+		Object[] current = values;
+		Object[] updated = new Object[Math.max(current.length, slot.index + 1)];
+		System.arraycopy(current, 0, updated, 0, current.length);
+		updated[slot.index] = value;
+		values = updated;
+	}
+}
@@ -12,6 +12,6 @@ import java.util.Map;
  *
  *  * @author maon
  */
-public interface Cache extends Map {
+public interface Cache<K, V> extends Map<K, V> {
 	public int getMaxCapacity();
 }
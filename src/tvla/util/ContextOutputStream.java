@@ -0,0 +1,62 @@
+package tvla.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/** An output stream that writes to the stream set for the analysis context
+ * of the writing thread, or to a default stream if none was set.
+ * Installed as the standard output and error streams, it keeps apart the
+ * output of analyses that run concurrently in one JVM, including the
+ * output of their worker threads, which are bound to the same context.
+ */
+public class ContextOutputStream extends OutputStream {
+	/** The stream of each context.
+	 */
+	private static final AnalysisContext.Slot<OutputStream> output = new AnalysisContext.Slot<OutputStream>() {
+		protected OutputStream create() {
+			return null;
+		}
+	};
+
+	/** An output stream that discards its output.
+	 */
+	public static final OutputStream DISCARD = new OutputStream() {
+		public void write(int b) {
+		}
+
+		public void write(byte[] bytes, int offset, int length) {
+		}
+	};
+
+	/** The stream used by contexts that did not set a stream.
+	 */
+	private final OutputStream defaultStream;
+
+	public ContextOutputStream(OutputStream defaultStream) {
+		this.defaultStream = defaultStream;
+	}
+
+	/** Sets the stream to which the current context writes, or null to
+	 * revert to the default stream.
+	 */
+	public static void setOutput(OutputStream stream) {
+		output.set(stream);
+	}
+
+	protected OutputStream target() {
+		OutputStream stream = output.get();
+		return stream != null ? stream : defaultStream;
+	}
+
+	public void write(int b) throws IOException {
+		target().write(b);
+	}
+
+	public void write(byte[] bytes, int offset, int length) throws IOException {
+		target().write(bytes, offset, length);
+	}
+
+	public void flush() throws IOException {
+		target().flush();
+	}
+}
@@ -17,7 +17,7 @@ public abstract class HashConsFactory<T, K> {
      */
     protected Map<K, T> unique = new HashMap<K, T>(100);
 
-    public T create(K key) {
+    public synchronized T create(K key) {
         assert key != null;
 
         T existing = unique.get(key);
@@ -50,12 +50,13 @@ public abstract class HashConsFactory<T, K> {
         public R apply(T left, T right) {
             assert left != null && right != null;
             Object key = createKey(left, right);
-            R result = memoization.get(key);
-            if (result == null) {
-                result = actualApply(left, right);
-                memoization.put(key, result);
-                return result;
-            } else {
+            // Guarded by the factory, since operations create elements.
+            synchronized (HashConsFactory.this) {
+                R result = memoization.get(key);
+                if (result == null) {
+                    result = actualApply(left, right);
+                    memoization.put(key, result);
+                }
                 return result;
             }
         }
@@ -51,17 +51,21 @@ public class IsvHashMap<K, V, E extends IsvEntry<K, V, E>> implements Iterable<E
         return copy;
     }
 
-    public void share() {
+    /**
+     * Share counting is synchronized since copies of the same structure
+     * may be modified by different analysis threads.
+     */
+    public synchronized void share() {
         shareCount++;
     }
     
-    public void unshare() {
+    public synchronized void unshare() {
         if (shareCount > 0) {
             shareCount--;
         }
     }
     
-    public IsvHashMap<K, V, E> modify() {
+    public synchronized IsvHashMap<K, V, E> modify() {
         if (shareCount > 0) {
             shareCount--;
             return copy();
@@ -11,7 +11,7 @@ import java.util.Map;
 /** 
  * @author maon
  */
-public class LRUCache extends LinkedHashMap implements Cache {
+public class LRUCache<K, V> extends LinkedHashMap<K, V> implements Cache<K, V> {
     static final int DEFAULT_INITIAL_CAPACITY = 16;
     static final float DEFAULT_LOAD_FACTOR = 0.75f;
 
@@ -42,7 +42,7 @@ public class LRUCache extends LinkedHashMap implements Cache {
 		this.maxCapacity = maxCapacity;
 	}
 
-	protected boolean removeEldestEntry(Map.Entry eldest) {
+	protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
         return (0 < maxCapacity && maxCapacity < size()) ;
      }
 	
@@ -7,6 +7,7 @@ import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
@@ -27,39 +28,78 @@ import java.util.TreeMap;
 public final class ProgramProperties {
 	public static boolean debug = false;
 	
-	/** A collection of file names, corresponding to property files.
+	/** The properties database of an analysis context.
 	 */
-	private static List propertyFiles = new ArrayList();
+	private static class Database {
+		/** A collection of file names, corresponding to property files.
+		 */
+		List propertyFiles = new ArrayList();
+		
+		/** The properties database.
+		 */
+		PropertiesEx properties = new PropertiesEx();
+	}
 	
-	/** The properties database.
-	 */
-	private static PropertiesEx properties = new PropertiesEx();
+	private static final AnalysisContext.Slot<Database> database = new AnalysisContext.Slot<Database>() {
+		protected Database create() {
+			return new Database();
+		}
+	};
 	
+	/** A property that a class reads once, into a static field, and the
+	 * value it was read with.
+	 */
+	private static class FixedProperty {
+		final String key;
+		final boolean isBoolean;
+		final String defaultValue;
+		final String value;
+		final AnalysisContext context;
+
+		FixedProperty(String key, boolean isBoolean, String defaultValue) {
+			this.key = key;
+			this.isBoolean = isBoolean;
+			this.defaultValue = defaultValue;
+			this.value = read();
+			this.context = AnalysisContext.current();
+		}
+
+		/** Returns the value of the property in the current context.
+		 */
+		String read() {
+			if (isBoolean)
+				return String.valueOf(getBooleanProperty(key, Boolean.parseBoolean(defaultValue)));
+			return getProperty(key, defaultValue);
+		}
+	}
+
+	/** The properties read into static fields, by key. They are kept for the
+	 * whole run, since the fields are not read again.
+	 */
+	private static final Map<String, FixedProperty> fixedProperties = new LinkedHashMap<String, FixedProperty>();
+
 	public static void reset() {
 		debug = false;
-		propertyFiles = new ArrayList();
-		properties = new PropertiesEx();
+		database.reset();
 	}
 	
 	/** Returns a map containing all properties.
 	 */
 	public static Map getAllProperties() {
-		return Collections.unmodifiableMap(properties);
+		return Collections.unmodifiableMap(database.get().properties);
 	}
 	
 	/** Updates the properties database with the specified associative pair.
 	 */
 	public static void setProperty(String key, String value) {
-		if (properties == null)
-			properties = new PropertiesEx(System.getProperties());
-		properties.setProperty(key, value);
+		database.get().properties.setProperty(key, value);
 	}
 	
 	/** Returns the value of a property or the default
 	 * value in case there's no associated value.
 	 */
 	public static String getProperty(String key, String defaultValue) {
-		return properties.getProperty(key, defaultValue);
+		return database.get().properties.getProperty(key, defaultValue);
 	}
 
 	/** Returns the boolean value of a property or the default
@@ -67,7 +107,50 @@ public final class ProgramProperties {
 	 * value could not be parsed as a boolean.
 	 */
 	public static boolean getBooleanProperty(String key, boolean defaultValue) {
-		return properties.getBooleanProperty(key, defaultValue);
+		return database.get().properties.getBooleanProperty(key, defaultValue);
+	}
+
+	/** Returns the value of a property that is read once per run into a
+	 * static field, and so is shared by the analyses that run in one JVM
+	 * (see checkFixedProperties).
+	 */
+	public static String getFixedProperty(String key, String defaultValue) {
+		return fix(key, false, defaultValue);
+	}
+
+	/** Returns the boolean value of a property that is read once per run
+	 * into a static field (see getFixedProperty).
+	 */
+	public static boolean getFixedBooleanProperty(String key, boolean defaultValue) {
+		return Boolean.parseBoolean(fix(key, true, String.valueOf(defaultValue)));
+	}
+
+	private static String fix(String key, boolean isBoolean, String defaultValue) {
+		synchronized (fixedProperties) {
+			FixedProperty property = fixedProperties.get(key);
+			if (property == null) {
+				property = new FixedProperty(key, isBoolean, defaultValue);
+				fixedProperties.put(key, property);
+			}
+		}
+		return isBoolean ? String.valueOf(getBooleanProperty(key, Boolean.parseBoolean(defaultValue)))
+				: getProperty(key, defaultValue);
+	}
+
+	/** Returns the properties that were read into static fields in another
+	 * analysis context with values that differ from their values in the
+	 * current context, which the static fields therefore do not reflect.
+	 */
+	public static List<String> changedFixedProperties() {
+		List<String> result = new ArrayList<String>();
+		AnalysisContext current = AnalysisContext.current();
+		synchronized (fixedProperties) {
+			for (FixedProperty property : fixedProperties.values()) {
+				if (property.context != current && !property.value.equals(property.read()))
+					result.add(property.key + "=" + property.value);
+			}
+		}
+		return result;
 	}
 
 	/** Sets the property to the given boolean value
@@ -81,7 +164,7 @@ public final class ProgramProperties {
 	 * value could not be parsed as an integer.
 	 */
 	public static int getIntProperty(String key, int defaultValue) {
-		return properties.getIntProperty(key, defaultValue);
+		return database.get().properties.getIntProperty(key, defaultValue);
 	}
 	
 	/** Returns a list of strings for the specified key, by breaking the value 
@@ -90,26 +173,27 @@ public final class ProgramProperties {
 	 * (use the append method to change it).
 	 */
 	public static List<String> getStringListProperty(String key, List<String> defaultValue) {
-		return properties.getStringListProperty(key, defaultValue);
+		return database.get().properties.getStringListProperty(key, defaultValue);
 	}
 	
 	/** Appends the specified value to the string list stored with
 	 * the property.
 	 */
 	public static void appendToStringListProperty(String key, String value) {
-		properties.appendToStringListProperty(key, value);
+		database.get().properties.appendToStringListProperty(key, value);
 	}
 
 	/** Adds a property file as the top layer, overriding any properties specified
 	 * until now.
 	 */
 	public static void addPropertyFile(String path) {
-		propertyFiles.add(path);
+		database.get().propertyFiles.add(path);
 	}
 	
 	/** Writes the properties database to the specified stream.
 	 */
 	public static void list(PrintStream out, String header) {
+		PropertiesEx properties = database.get().properties;
 		if (properties != null) {
 			if (header != null)
 				out.println(header);
@@ -132,7 +216,7 @@ public final class ProgramProperties {
 	 */
 	public static void load() {
 		//properties.putAll(System.getProperties());
-		for (Iterator iter = propertyFiles.iterator(); iter.hasNext(); ) {
+		for (Iterator iter = database.get().propertyFiles.iterator(); iter.hasNext(); ) {
 			String path = (String) iter.next();
 			load(path);
 		}
@@ -147,7 +231,7 @@ public final class ProgramProperties {
 				PropertiesEx tmpProps = new PropertiesEx();
 				tmpProps.load(in);
 				in.close();
-				properties.putAll(tmpProps);
+				database.get().properties.putAll(tmpProps);
 			}
 			catch (FileNotFoundException e) {
 				System.err.println("Properties file " + path + " does not exist!");
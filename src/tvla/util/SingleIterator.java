@@ -30,10 +30,18 @@ public class SingleIterator<T> implements Iterator<T> {
 		result = o;
 	}
 	
+	/** Returns a shared iterator set to the given element.
+	 * The iterator is shared by all callers on the same thread.
+	 */
 	static public <T> SingleIterator<T> instance(T o) {
-		instance.setValue(o);
-		return instance;
+		SingleIterator<T> result = instance.get();
+		result.setValue(o);
+		return result;
 	}
 	
-	static public SingleIterator instance = new SingleIterator(null); 
+	static private final ThreadLocal<SingleIterator> instance = new ThreadLocal<SingleIterator>() {
+		protected SingleIterator initialValue() {
+			return new SingleIterator(null);
+		}
+	};
 }
\ No newline at end of file
@@ -29,6 +29,12 @@ public class Timer {
 		}
 	}
 	
+	/** Adds the time measured by another (stopped) timer.
+	 */
+	public synchronized void add(Timer other) {
+		total_time += other.total_time;
+	}
+	
 	public long total() {
 		return total_time / 1000000;
 	}
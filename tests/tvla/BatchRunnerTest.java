@@ -0,0 +1,108 @@
+package tvla;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.PrintStream;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+import tvla.util.AnalysisContext;
+import tvla.util.ContextOutputStream;
+import tvla.util.ProgramProperties;
+
+/** Unit tests for tvla.BatchRunner.
+ */
+public class BatchRunnerTest extends TestCase {
+	public BatchRunnerTest(String name) {
+		super(name);
+	}
+
+	public void testTokenize() {
+		assertEquals(Arrays.asList("prog", "input", "-terse"),
+				Arrays.asList(BatchRunner.tokenize("  prog\tinput  -terse ")));
+		assertEquals(Arrays.asList("prog", "-log", "my log.txt", "-Dx", ""),
+				Arrays.asList(BatchRunner.tokenize("prog -log \"my log.txt\" -Dx ''")));
+		assertEquals(0, BatchRunner.tokenize("   ").length);
+	}
+
+	/** Each context writes to its own stream, and contexts that did not set
+	 * a stream write to the default one.
+	 */
+	public void testOutputOfJobsIsSeparated() {
+		ByteArrayOutputStream defaultOutput = new ByteArrayOutputStream();
+		ByteArrayOutputStream jobOutput = new ByteArrayOutputStream();
+		PrintStream out = new PrintStream(new ContextOutputStream(defaultOutput), true);
+
+		AnalysisContext previous = AnalysisContext.bind(new AnalysisContext("job"));
+		try {
+			ContextOutputStream.setOutput(jobOutput);
+			out.print("job");
+		} finally {
+			AnalysisContext.bind(previous);
+		}
+		out.print("default");
+
+		AnalysisContext.bind(new AnalysisContext("discarded"));
+		try {
+			ContextOutputStream.setOutput(ContextOutputStream.DISCARD);
+			out.print("discarded");
+		} finally {
+			AnalysisContext.bind(previous);
+		}
+
+		assertEquals("job", jobOutput.toString());
+		assertEquals("default", defaultOutput.toString());
+	}
+
+	/** The differencing settings of a job are not those of the job that ran
+	 * before it. Without differencing, the example breaches a constraint
+	 * and stops early.
+	 */
+	public void testJobsReadTheirOwnSettings() throws Exception {
+		File noOutput = createProperties("tvla.dot.enabled = false\ntvla.tvs.enabled = false\n");
+		File noDifferencing = createProperties("tvla.differencing.difference = false\n");
+		BatchRunner runner = new BatchRunner(1, 0);
+		try {
+			// The default properties are loaded from the working directory,
+			// which is the TVLA home directory when the tests are run by Ant.
+			String[] args = { "examples/sll/reverse", "examples/sll/sll", "-props", "tvla.properties", "-props",
+					noOutput.getPath(), "-terse", "-props", noDifferencing.getPath() };
+			assertTrue(runner.runJob(1, args).indexOf("structures=73 ") < 0);
+			assertTrue(runner.runJob(2, Arrays.copyOf(args, args.length - 2)).indexOf("structures=73 ") > 0);
+		} finally {
+			runner.shutdown();
+			noOutput.delete();
+			noDifferencing.delete();
+		}
+	}
+
+	protected static File createProperties(String contents) throws Exception {
+		File file = File.createTempFile("batch", ".properties");
+		FileWriter writer = new FileWriter(file);
+		writer.write(contents);
+		writer.close();
+		return file;
+	}
+
+	/** A property read into a static field is reported for the contexts in
+	 * which it has another value.
+	 */
+	public void testChangedFixedProperties() {
+		AnalysisContext previous = AnalysisContext.bind(new AnalysisContext("first"));
+		try {
+			ProgramProperties.setProperty("tvla.test.fixed", "a");
+			assertEquals("a", ProgramProperties.getFixedProperty("tvla.test.fixed", "b"));
+			assertFalse(ProgramProperties.changedFixedProperties().contains("tvla.test.fixed=a"));
+
+			AnalysisContext.bind(new AnalysisContext("same"));
+			ProgramProperties.setProperty("tvla.test.fixed", "a");
+			assertFalse(ProgramProperties.changedFixedProperties().contains("tvla.test.fixed=a"));
+
+			AnalysisContext.bind(new AnalysisContext("other"));
+			assertTrue(ProgramProperties.changedFixedProperties().contains("tvla.test.fixed=a"));
+		} finally {
+			AnalysisContext.bind(previous);
+		}
+	}
+}
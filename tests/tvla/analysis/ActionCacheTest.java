@@ -0,0 +1,93 @@
+package tvla.analysis;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+import tvla.core.HighLevelTVS;
+import tvla.core.ListFixture;
+import tvla.core.Node;
+import tvla.core.TVSFactory;
+import tvla.formulae.ValueFormula;
+import tvla.logic.Kleene;
+import tvla.transitionSystem.Action;
+
+/** JUnit tests for the memoization of action results.
+ */
+public class ActionCacheTest extends TestCase {
+	protected AnalysisStatus status;
+
+	public ActionCacheTest(String name) {
+		super(name);
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		TVSFactory.setTVSFactoryClass("base");
+		TVSFactory.getInstance().init();
+		status = new AnalysisStatus();
+	}
+
+	/** Results are found for isomorphic structures and the same action
+	 * only, and are returned as fresh copies.
+	 */
+	public void testLookup() {
+		ActionCache cache = new ActionCache(10);
+		Action action = new Action();
+		HighLevelTVS result = ListFixture.createList(2, false);
+
+		ActionCache.Key key = cache.key(action, ListFixture.createList(3, false));
+		assertNull(cache.lookup(key, status));
+		cache.store(key, Collections.singleton(result));
+
+		Collection<HighLevelTVS> cached = cache.lookup(cache.key(action, ListFixture.createList(3, true)), status);
+		assertNotNull(cached);
+		assertEquals(1, cached.size());
+		HighLevelTVS copy = cached.iterator().next();
+		assertNotSame(result, copy);
+		assertEquals(2, copy.nodes().size());
+
+		assertNull(cache.lookup(cache.key(action, ListFixture.createList(4, false)), status));
+		assertNull(cache.lookup(cache.key(new Action(), ListFixture.createList(3, false)), status));
+		assertEquals(1, status.numberOfActionCacheHits);
+		assertEquals(3, status.numberOfActionCacheMisses);
+	}
+
+	/** The key holds a copy of the structure, so modifying the structure
+	 * after the action was applied does not affect the cache.
+	 */
+	public void testModifiedInput() {
+		ActionCache cache = new ActionCache(10);
+		Action action = new Action();
+		HighLevelTVS input = ListFixture.createList(3, false);
+		ActionCache.Key key = cache.key(action, input);
+		for (Node node : input.nodes())
+			input.update(ListFixture.x, node, Kleene.unknownKleene);
+		cache.store(key, Collections.<HighLevelTVS>emptySet());
+
+		assertNotNull(cache.lookup(cache.key(action, ListFixture.createList(3, false)), status));
+		assertNull(cache.lookup(cache.key(action, input), status));
+	}
+
+	/** The least recently used entries are evicted.
+	 */
+	public void testEviction() {
+		ActionCache cache = new ActionCache(2);
+		Action action = new Action();
+		for (int length = 1; length <= 3; ++length) {
+			cache.store(cache.key(action, ListFixture.createList(length, false)), Collections.<HighLevelTVS>emptySet());
+		}
+		assertEquals(2, cache.size());
+		assertNull(cache.lookup(cache.key(action, ListFixture.createList(1, false)), status));
+		assertNotNull(cache.lookup(cache.key(action, ListFixture.createList(3, false)), status));
+	}
+
+	/** Actions that report messages are not cached.
+	 */
+	public void testActionWithMessages() {
+		ActionCache cache = new ActionCache(10);
+		Action action = new Action();
+		action.addMessage(new ValueFormula(Kleene.trueKleene), "message", null);
+		assertNull(cache.key(action, ListFixture.createList(2, false)));
+	}
+}
@@ -0,0 +1,91 @@
+package tvla.analysis;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import junit.framework.TestCase;
+import tvla.core.TVSFactory;
+
+/** JUnit tests for the tasks of ParallelFocus.
+ */
+public class ParallelFocusTest extends TestCase {
+	protected ParallelFocus parallelFocus;
+
+	public ParallelFocusTest(String name) {
+		super(name);
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		TVSFactory.setTVSFactoryClass("base");
+		TVSFactory.getInstance().init();
+		parallelFocus = new ParallelFocus(4);
+	}
+
+	protected void tearDown() throws Exception {
+		parallelFocus.shutdown();
+		super.tearDown();
+	}
+
+	/** Returns a task that splits a range into nested tasks, and returns
+	 * the numbers of the range in order.
+	 */
+	protected static Callable<List<Integer>> rangeTask(final int from, final int to) {
+		return new Callable<List<Integer>>() {
+			public List<Integer> call() {
+				List<Integer> result = new ArrayList<Integer>();
+				if (to - from <= 2) {
+					for (int i = from; i < to; ++i)
+						result.add(i);
+					return result;
+				}
+				assertTrue(ParallelFocus.inWorker());
+				List<Callable<List<Integer>>> tasks = new ArrayList<Callable<List<Integer>>>();
+				int step = (to - from + 2) / 3;
+				for (int start = from; start < to; start += step) {
+					tasks.add(rangeTask(start, Math.min(start + step, to)));
+				}
+				for (List<Integer> part : ParallelFocus.invokeAll(tasks)) {
+					result.addAll(part);
+				}
+				return result;
+			}
+		};
+	}
+
+	public void testResultsInOrder() {
+		assertFalse(ParallelFocus.inWorker());
+		List<Integer> result = parallelFocus.invoke(rangeTask(0, 1000));
+		assertEquals(1000, result.size());
+		for (int i = 0; i < result.size(); ++i) {
+			assertEquals(i, result.get(i).intValue());
+		}
+	}
+
+	/** The exception of the first failing task is rethrown as is.
+	 */
+	public void testFirstFailureRethrown() {
+		final List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+		for (int i = 0; i < 8; ++i) {
+			final int index = i;
+			tasks.add(new Callable<Integer>() {
+				public Integer call() {
+					if (index % 3 == 2)
+						throw new IllegalStateException("task " + index);
+					return index;
+				}
+			});
+		}
+		try {
+			parallelFocus.invoke(new Callable<List<Integer>>() {
+				public List<Integer> call() {
+					return ParallelFocus.invokeAll(tasks);
+				}
+			});
+			fail();
+		} catch (IllegalStateException e) {
+			assertEquals("task 2", e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,81 @@
+package tvla.analysis;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/** JUnit tests for recording and exporting telemetry.
+ */
+public class TelemetryTest extends TestCase {
+	protected File file;
+
+	public TelemetryTest(String name) {
+		super(name);
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		file = File.createTempFile("telemetry", ".out");
+	}
+
+	protected void tearDown() throws Exception {
+		file.delete();
+		super.tearDown();
+	}
+
+	public void testRecordsByLocation() {
+		Telemetry telemetry = new Telemetry(file.getPath(), true);
+		Telemetry.Record record = telemetry.record("L1", null);
+		assertSame(record, telemetry.record("L1", null));
+		assertNotSame(record, telemetry.record("L2", null));
+	}
+
+	/** Percentiles are the upper bounds of the histogram buckets, and are
+	 * never greater than the maximal time.
+	 */
+	public void testPercentiles() {
+		Telemetry.Record record = new Telemetry(file.getPath(), true).record("L1", null);
+		assertEquals(0, record.percentile(Telemetry.FOCUS, 0.5));
+		for (int i = 0; i < 90; ++i) {
+			record.time(Telemetry.FOCUS, 100);
+		}
+		for (int i = 0; i < 10; ++i) {
+			record.time(Telemetry.FOCUS, 5000);
+		}
+		assertEquals(100, record.counts[Telemetry.FOCUS]);
+		assertEquals(90 * 100 + 10 * 5000, record.totals[Telemetry.FOCUS]);
+		assertEquals(128, record.percentile(Telemetry.FOCUS, 0.5));
+		assertEquals(128, record.percentile(Telemetry.FOCUS, 0.9));
+		assertEquals(5000, record.percentile(Telemetry.FOCUS, 0.99));
+	}
+
+	public void testExportCSV() throws Exception {
+		Telemetry telemetry = new Telemetry(file.getPath(), true);
+		Telemetry.Record record = telemetry.record("L1", null);
+		record.application(3, 2);
+		record.application(5, 1);
+		record.coerceBreach();
+		record.result(4);
+		record.joinChanged();
+		telemetry.record("a,b", null);
+		telemetry.export();
+		List<String> lines = Files.readAllLines(file.toPath());
+		assertEquals(3, lines.size());
+		assertTrue(lines.get(0).startsWith("location,action,applications,"));
+		assertTrue(lines.get(1).startsWith("L1,,2,3,2,1,8,5,1,4,4,1,"));
+		assertTrue(lines.get(2).startsWith("\"a,b\",,0,"));
+		assertEquals(lines.get(0).split(",").length, lines.get(1).split(",").length);
+	}
+
+	public void testExportJSON() throws Exception {
+		Telemetry telemetry = new Telemetry(file.getPath(), false);
+		telemetry.record("L\"1", null).time(Telemetry.JOIN, 1000);
+		telemetry.export();
+		String json = new String(Files.readAllBytes(file.toPath()), "UTF-8");
+		assertTrue(json.contains("\"location\": \"L\\\"1\""));
+		assertTrue(json.contains("\"join\": { \"count\": 1, \"totalNanos\": 1000, \"maxNanos\": 1000"));
+		assertFalse(new File(file.getPath() + ".tmp").exists());
+	}
+}
@@ -0,0 +1,63 @@
+package tvla.analysis.multithreading;
+
+import java.io.File;
+import java.io.FileWriter;
+
+import junit.framework.TestCase;
+import tvla.Runner;
+import tvla.analysis.AnalysisStatus;
+
+/** JUnit tests for the parallel exploration of MultithreadEngine.
+ */
+public class MultithreadEngineTest extends TestCase {
+	/** an example whose actions report messages */
+	protected static final String EXAMPLE = "examples/concurrent/mutex/tmutex_bug2";
+
+	/** a properties file that turns off the output files of the analysis
+	 * and sets the number of threads */
+	protected File properties;
+
+	public MultithreadEngineTest(String name) {
+		super(name);
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		properties = File.createTempFile("tvmc", ".properties");
+	}
+
+	protected void tearDown() throws Exception {
+		properties.delete();
+		Runner.reset();
+		super.tearDown();
+	}
+
+	/** Runs the TVMC engine on the example with the given join and number
+	 * of threads, and returns the number of messages it reported.
+	 */
+	protected int analyze(String joinType, int threads) throws Exception {
+		FileWriter writer = new FileWriter(properties);
+		writer.write("tvla.dot.enabled = false\ntvla.tvs.enabled = false\n"
+				+ "tvla.engine.tvmc.parallel.threads = " + threads + "\n");
+		writer.close();
+		Runner.reset();
+		Runner.analyze(new String[] { EXAMPLE, "-mode", "tvmc", "-join", joinType,
+				"-props", "tvla.properties", "-props", properties.getPath(), "-terse" });
+		return AnalysisStatus.getActiveStatus().numberOfMessages;
+	}
+
+	public void testParallelMessagesUnderRelationalJoin() throws Exception {
+		assertEquals(analyze("rel", 1), analyze("rel", 4));
+	}
+
+	/** Under the part join, the messages are those of the structures of the
+	 * final state space, which do not depend on the order of the joins.
+	 */
+	public void testParallelMessagesUnderPartialJoin() throws Exception {
+		int messages = analyze("part", 4);
+		assertTrue(messages > 0);
+		for (int i = 0; i < 2; ++i) {
+			assertEquals(messages, analyze("part", 4));
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package tvla.analysis.multithreading.buchi;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+import tvla.Runner;
+import tvla.analysis.Engine;
+import tvla.analysis.multithreading.ProgramThread;
+import tvla.analysis.multithreading.ThreadSymmetry;
+import tvla.core.HighLevelTVS;
+import tvla.core.Node;
+import tvla.core.TVSFactory;
+import tvla.exceptions.UserErrorException;
+import tvla.logic.Kleene;
+import tvla.predicates.Predicate;
+import tvla.predicates.Vocabulary;
+import tvla.util.HashMapFactory;
+
+/** JUnit tests for the nested depth-first search of MultithreadEngineBuchi.
+ */
+public class MultithreadEngineBuchiTest extends TestCase {
+	/** the example with an accepting cycle, in which a thread keeps
+	 * entering the critical section */
+	protected static final String EXAMPLE = "examples/concurrent/mutex/tmutex_live";
+
+	/** a properties file that turns off the output files of the analysis */
+	protected File properties;
+
+	/** set when the test ran an analysis, whose global state is reset */
+	protected boolean analyzed;
+
+	public MultithreadEngineBuchiTest(String name) {
+		super(name);
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		properties = File.createTempFile("buchi", ".properties");
+		FileWriter writer = new FileWriter(properties);
+		writer.write("tvla.dot.enabled = false\ntvla.tvs.enabled = false\n");
+		writer.close();
+	}
+
+	protected void tearDown() throws Exception {
+		properties.delete();
+		// Resetting loads classes that read the properties, which are only
+		// loaded by the analysis.
+		if (analyzed) {
+			Runner.reset();
+		} else {
+			Vocabulary.reset();
+			TVSFactory.reset();
+		}
+		super.tearDown();
+	}
+
+	/** Runs the double-DFS engine on the example with the given join. The
+	 * default properties are loaded from the working directory, which is the
+	 * TVLA home directory when the tests are run by Ant.
+	 */
+	protected MultithreadEngineBuchi analyze(String joinType) throws Exception {
+		analyzed = true;
+		Runner.analyze(new String[] { EXAMPLE, "-join", joinType, "-props", "tvla.properties",
+				"-props", properties.getPath(), "-terse" });
+		return (MultithreadEngineBuchi) Engine.getActiveEngine();
+	}
+
+	public void testAcceptingCycleUnderRelationalJoin() throws Exception {
+		MultithreadEngineBuchi engine = analyze("rel");
+		assertFalse(engine.cycleStack.isEmpty());
+	}
+
+	/** Under the part join, the inner search explores the members of the
+	 * state space, and finds the structures on the stack by their members.
+	 */
+	public void testAcceptingCycleUnderPartialJoin() throws Exception {
+		MultithreadEngineBuchi engine = analyze("part");
+		assertTrue(engine.partialJoin);
+		assertFalse(engine.cycleStack.isEmpty());
+	}
+
+	public void testUnsupportedJoin() throws Exception {
+		try {
+			analyze("ind");
+			fail("The independent-attributes join is not supported");
+		} catch (UserErrorException e) {
+		}
+	}
+
+	/** Structures with the same canonical names share a search state under
+	 * the part join, and only isomorphic ones share it otherwise.
+	 */
+	public void testSearchStateKeys() {
+		TVSFactory.setTVSFactoryClass("base");
+		TVSFactory.getInstance().init();
+		Predicate head = Vocabulary.createPredicate("buchiHead", 1, true);
+		Predicate next = Vocabulary.createPredicate("buchiNext", 2, false);
+		HighLevelTVS definite = TVSFactory.getInstance().makeEmptyTVS();
+		Node first = definite.newNode();
+		Node second = definite.newNode();
+		definite.update(head, first, Kleene.trueKleene);
+		HighLevelTVS indefinite = definite.copy();
+		definite.update(next, first, second, Kleene.trueKleene);
+		indefinite.update(next, first, second, Kleene.unknownKleene);
+
+		MultithreadEngineBuchi engine = new MultithreadEngineBuchi();
+		engine.setProperty(new BuchiAutomaton());
+		engine.init();
+		engine.forms = new ThreadSymmetry(Collections.<ProgramThread>emptyList());
+		engine.searchStates = HashMapFactory.make();
+		assertNotSame(engine.searchState(definite), engine.searchState(indefinite.copy()));
+		assertSame(engine.searchState(definite), engine.searchState(definite.copy()));
+
+		engine.partialJoin = true;
+		engine.searchStates = HashMapFactory.make();
+		MultithreadEngineBuchi.SearchState state = engine.searchState(definite);
+		state.structure = definite;
+		assertSame(state, engine.searchState(indefinite));
+		assertSame(definite, engine.representative(state, indefinite));
+	}
+}
@@ -0,0 +1,144 @@
+package tvla.analysis.worklist;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+import tvla.core.TVSFactory;
+import tvla.transitionSystem.Action;
+import tvla.transitionSystem.AnalysisGraph;
+import tvla.transitionSystem.Location;
+
+/** JUnit tests for the weak topological order and the location worklists.
+ */
+public class WeakTopologicalOrderTest extends TestCase {
+	protected AnalysisGraph graph;
+
+	public WeakTopologicalOrderTest(String name) {
+		super(name);
+	}
+
+	/** Creates the graph of two nested loops:
+	 * a -> b -> c -> d -> c, d -> e -> b, b -> f.
+	 */
+	protected void setUp() throws Exception {
+		super.setUp();
+		TVSFactory.setTVSFactoryClass("base");
+		TVSFactory.getInstance().init();
+		graph = new AnalysisGraph();
+		AnalysisGraph.setActiveGraph(graph);
+		String[][] edges = {{"a", "b"}, {"b", "c"}, {"c", "d"}, {"d", "c"}, {"d", "e"}, {"e", "b"}, {"b", "f"}};
+		for (String[] edge : edges)
+			graph.addAction(edge[0], new Action(), edge[1]);
+		graph.init();
+	}
+
+	protected Location location(String label) {
+		return graph.getLocationByLabel(label);
+	}
+
+	protected List<String> labels(List<Location> locations) {
+		List<String> result = new ArrayList<String>();
+		for (Location location : locations)
+			result.add(location.label());
+		return result;
+	}
+
+	/** Each loop is a component that starts at its head and contains its
+	 * inner loop, and the exit of the outer loop follows it.
+	 */
+	public void testOrder() {
+		WeakTopologicalOrder order = new WeakTopologicalOrder(graph);
+		assertEquals(Arrays.asList("a", "b", "c", "d", "e", "f"), labels(order.order()));
+		assertEquals(2, order.heads().size());
+		assertTrue(order.heads().contains(location("b")));
+		assertTrue(order.heads().contains(location("c")));
+	}
+
+	/** The order of a loop around a long chain of locations is computed
+	 * on a thread with a small stack.
+	 */
+	public void testDeepGraph() throws Exception {
+		graph = new AnalysisGraph();
+		AnalysisGraph.setActiveGraph(graph);
+		int depth = 5000;
+		for (int i = 0; i < depth; ++i)
+			graph.addAction("l" + i, new Action(), "l" + (i + 1));
+		graph.addAction("l" + depth, new Action(), "l0");
+		graph.init();
+		final WeakTopologicalOrder[] order = new WeakTopologicalOrder[1];
+		final Throwable[] error = new Throwable[1];
+		Thread thread = new Thread(null, new Runnable() {
+			public void run() {
+				try {
+					order[0] = new WeakTopologicalOrder(graph);
+				} catch (Throwable t) {
+					error[0] = t;
+				}
+			}
+		}, "wto", 64 * 1024);
+		thread.start();
+		thread.join();
+		assertNull(error[0]);
+		assertEquals(depth + 1, order[0].order().size());
+		assertSame(location("l0"), order[0].order().get(0));
+		assertSame(location("l" + depth), order[0].order().get(depth));
+		assertEquals(Arrays.asList(location("l0")), order[0].heads());
+	}
+
+	/** The inner loop is stabilized before the rest of the outer loop, and
+	 * the outer loop before its exit.
+	 */
+	public void testRecursiveStrategy() {
+		LocationWorklist worklist = new OrderedLocationWorklist("wto", new WeakTopologicalOrder(graph).comparator());
+		worklist.add(location("f"));
+		worklist.add(location("e"));
+		worklist.add(location("c"));
+		assertSame(location("c"), worklist.extract());
+		worklist.add(location("d"));
+		assertSame(location("d"), worklist.extract());
+		worklist.add(location("c"));
+		assertSame(location("c"), worklist.extract());
+		assertSame(location("e"), worklist.extract());
+		worklist.add(location("b"));
+		assertSame(location("b"), worklist.extract());
+		assertSame(location("f"), worklist.extract());
+		assertTrue(worklist.isEmpty());
+		assertEquals(6, worklist.iterations());
+	}
+
+	/** A location appears in the worklist at most once, and keeps its
+	 * position when it is added again.
+	 */
+	public void testSequentialWorklists() {
+		LocationWorklist fifo = new SequentialLocationWorklist("fifo", false);
+		LocationWorklist lifo = new SequentialLocationWorklist("lifo", true);
+		for (String label : new String[] {"c", "e", "c", "b"}) {
+			fifo.add(location(label));
+			lifo.add(location(label));
+		}
+		assertEquals(3, fifo.size());
+		assertSame(location("c"), fifo.extract());
+		assertSame(location("e"), fifo.extract());
+		assertSame(location("b"), fifo.extract());
+		assertSame(location("b"), lifo.extract());
+		assertSame(location("e"), lifo.extract());
+		assertSame(location("c"), lifo.extract());
+		assertTrue(lifo.isEmpty());
+	}
+
+	/** Loop heads come before the other locations.
+	 */
+	public void testLoopHeadsFirst() {
+		LocationWorklist worklist = new OrderedLocationWorklist("widening", OrderedLocationWorklist.loopHeadsFirst);
+		worklist.add(location("a"));
+		worklist.add(location("d"));
+		worklist.add(location("c"));
+		worklist.add(location("b"));
+		assertTrue(worklist.extract().hasBackEdge);
+		assertTrue(worklist.extract().hasBackEdge);
+		assertSame(location("a"), worklist.extract());
+		assertSame(location("d"), worklist.extract());
+	}
+}
@@ -3,6 +3,9 @@
  */
 package tvla.core;
 
+import java.util.Arrays;
+import java.util.HashSet;
+
 import tvla.logic.Kleene;
 import junit.framework.TestCase;
 
@@ -111,4 +114,72 @@ public class CanonicTest extends TestCase {
 		assertFalse(c1.lessThanOrEqual(c2));
 		assertFalse(c2.lessThanOrEqual(c1));
 	}
+
+	protected static Canonic canonic(Kleene... values) {
+		Canonic result = new Canonic();
+		for (Kleene value : values)
+			result.add(value);
+		return result;
+	}
+
+	/**
+	 * Test method for {@link tvla.core.Canonic#intern()}.
+	 */
+	public void testIntern() {
+		Canonic c1 = canonic(Kleene.falseKleene, Kleene.trueKleene);
+		Canonic c2 = canonic(Kleene.falseKleene, Kleene.trueKleene);
+		Canonic c3 = canonic(Kleene.trueKleene, Kleene.trueKleene);
+		assertEquals(0, c1.id());
+		
+		Canonic interned = c1.intern();
+		assertSame(interned, c2.intern());
+		assertSame(interned, interned.intern());
+		assertTrue(interned.id() > 0);
+		assertNotSame(interned, c3.intern());
+		assertTrue(c3.intern().id() != interned.id());
+	}
+
+	/**
+	 * Equal names are equal regardless of the size they were allocated
+	 * with.
+	 */
+	public void testAllocatedSize() {
+		Canonic grown = new Canonic();
+		Canonic sized = new Canonic(40);
+		for (int i = 0; i < 40; ++i) {
+			Kleene value = i % 3 == 0 ? Kleene.trueKleene : Kleene.falseKleene;
+			grown.add(value);
+			sized.add(value);
+		}
+		assertEquals(grown, sized);
+		assertEquals(grown.hashCode(), sized.hashCode());
+		assertEquals(0, grown.compareTo(sized));
+		assertTrue(sized.lessThanOrEqual(grown));
+		assertSame(grown.intern(), sized.intern());
+	}
+
+	/**
+	 * Test method for {@link tvla.core.CanonicSet#make}.
+	 */
+	public void testCanonicSet() {
+		Canonic c1 = canonic(Kleene.falseKleene, Kleene.trueKleene);
+		Canonic c2 = canonic(Kleene.unknownKleene, Kleene.trueKleene);
+		Canonic c3 = canonic(Kleene.trueKleene);
+		
+		CanonicSet s1 = CanonicSet.make(Arrays.asList(c1, c2), c3);
+		CanonicSet s2 = CanonicSet.make(Arrays.asList(canonic(Kleene.trueKleene),
+				canonic(Kleene.unknownKleene, Kleene.trueKleene)),
+				canonic(Kleene.falseKleene, Kleene.trueKleene));
+		assertSame(s1, s2);
+		assertEquals(3, s1.size());
+		assertTrue(s1.contains(canonic(Kleene.trueKleene)));
+		assertFalse(s1.contains(canonic(Kleene.falseKleene)));
+		assertEquals(new HashSet<Canonic>(Arrays.asList(c1, c2, c3)).hashCode(), s1.hashCode());
+		
+		// Duplicate names are kept once.
+		CanonicSet s3 = CanonicSet.make(Arrays.asList(c1, c2), canonic(Kleene.falseKleene, Kleene.trueKleene));
+		assertEquals(2, s3.size());
+		assertNotSame(s1, s3);
+		assertFalse(s1.equals(s3));
+	}
 }
\ No newline at end of file
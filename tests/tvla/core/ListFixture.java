@@ -0,0 +1,93 @@
+package tvla.core;
+
+import tvla.logic.Kleene;
+import tvla.predicates.Predicate;
+import tvla.predicates.Vocabulary;
+
+/** Structures shared by the JUnit tests, built over the unary abstraction
+ * predicate x, which points to the head of a list, and the binary
+ * predicate n, which links its nodes.
+ */
+public class ListFixture {
+	public static final Predicate x = Vocabulary.createPredicate("x", 1, true);
+	public static final Predicate n = Vocabulary.createPredicate("n", 2, false);
+
+	/** Adds the given number of nodes to a structure. The nodes are
+	 * created in reverse order when reversed is set.
+	 * @return the nodes, in the order of the array positions.
+	 */
+	public static Node[] addNodes(TVS structure, int count, boolean reversed) {
+		Node[] nodes = new Node[count];
+		for (int i = 0; i < count; ++i) {
+			nodes[reversed ? count - 1 - i : i] = structure.newNode();
+		}
+		return nodes;
+	}
+
+	/** Adds a node to a structure for each entry of successors. x points
+	 * to the first node, and node i points to node successors[i] by n (-1
+	 * for no successor).
+	 * @return the nodes, in the order of successors.
+	 */
+	public static Node[] addNodes(TVS structure, int[] successors, boolean reversed) {
+		Node[] nodes = addNodes(structure, successors.length, reversed);
+		if (nodes.length > 0)
+			structure.update(x, nodes[0], Kleene.trueKleene);
+		for (int i = 0; i < nodes.length; ++i) {
+			if (successors[i] >= 0)
+				structure.update(n, nodes[i], nodes[successors[i]], Kleene.trueKleene);
+		}
+		return nodes;
+	}
+
+	/** Adds a list of the given length to a structure.
+	 * @return the nodes, from the head of the list.
+	 */
+	public static Node[] addList(TVS structure, int length, boolean reversed) {
+		int[] successors = new int[length];
+		for (int i = 0; i < length; ++i) {
+			successors[i] = i + 1 < length ? i + 1 : -1;
+		}
+		return addNodes(structure, successors, reversed);
+	}
+
+	/** Adds a list of the given length to a structure, whose last node is
+	 * a summary node with an indefinite n self-loop.
+	 * @return the nodes, from the head of the list.
+	 */
+	public static Node[] addSummaryList(TVS structure, int length) {
+		Node[] nodes = addList(structure, length, false);
+		Node last = nodes[length - 1];
+		structure.update(Vocabulary.sm, last, Kleene.unknownKleene);
+		structure.update(n, last, last, Kleene.unknownKleene);
+		return nodes;
+	}
+
+	/** Creates a structure with a node for each entry of successors.
+	 * @see #addNodes(TVS, int[], boolean)
+	 */
+	public static HighLevelTVS create(int[] successors, boolean reversed) {
+		HighLevelTVS structure = TVSFactory.getInstance().makeEmptyTVS();
+		addNodes(structure, successors, reversed);
+		return structure;
+	}
+
+	/** Creates a list of the given length, with its nodes created in
+	 * reverse order when reversed is set.
+	 */
+	public static HighLevelTVS createList(int length, boolean reversed) {
+		HighLevelTVS structure = TVSFactory.getInstance().makeEmptyTVS();
+		addList(structure, length, reversed);
+		return structure;
+	}
+
+	/** Creates a list of the given length whose last node is a summary
+	 * node.
+	 * @see #addSummaryList(TVS, int)
+	 */
+	public static HighLevelTVS createSummaryList(int length) {
+		HighLevelTVS structure = TVSFactory.getInstance().makeEmptyTVS();
+		addSummaryList(structure, length);
+		return structure;
+	}
+}
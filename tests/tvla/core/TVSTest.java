@@ -29,10 +29,10 @@ public class TVSTest extends TestCase {
 	protected static Predicate binary1 = Vocabulary.createPredicate("binary1", 2, false);
 	protected static Predicate binary2 = Vocabulary.createPredicate("binary2", 2, false);
 
-	protected static Predicate x = Vocabulary.createPredicate("x", 1, true);
+	protected static Predicate x = ListFixture.x;
 	protected static Predicate y = Vocabulary.createPredicate("y", 1, true);
 	protected static Predicate t = Vocabulary.createPredicate("t", 1, true);
-	protected static Predicate n = Vocabulary.createPredicate("n", 2, false);
+	protected static Predicate n = ListFixture.n;
 
 	/** Constructor for TVSTest.
 	 * @param name The name of the test.
@@ -56,14 +56,9 @@ public class TVSTest extends TestCase {
 	}
 	
 	protected TVS createSLL() {
-		TVS sll;
-		sll = TVSFactory.getInstance().makeEmptyTVS();
-		Node head = sll.newNode();
-		Node tail = sll.newNode();
-		sll.update(Vocabulary.sm, tail, Kleene.unknownKleene);
-		sll.update(x, head, Kleene.trueKleene);
-		sll.update(n, head, tail, Kleene.unknownKleene);
-		sll.update(n, tail, tail, Kleene.unknownKleene);
+		TVS sll = TVSFactory.getInstance().makeEmptyTVS();
+		Node[] nodes = ListFixture.addSummaryList(sll, 2);
+		sll.update(n, nodes[0], nodes[1], Kleene.unknownKleene);
 		return sll;
 	}
 
@@ -5,8 +5,12 @@
 package tvla.core.base;
 
 import junit.framework.TestCase;
+import tvla.core.HighLevelTVS;
+import tvla.core.Node;
 import tvla.core.TVSFactory;
 import tvla.core.TVSTest;
+import tvla.logic.Kleene;
+import tvla.predicates.Vocabulary;
 
 /** JUnit tests for the functional TVS implementation.
  * 
@@ -38,4 +42,43 @@ public class BaseTVSTest extends TVSTest {
 	public void testThatBaseFactoryWasSet() {
 		assertTrue("setUp Should have set the TVSFactory to be NodePredTVSFactory!", TVSFactory.getInstance() instanceof BaseTVSFactory);
 	}
+
+	/** Tests that copies share their predicate values until they are
+	 * modified, and that modifying a structure does not affect its copies.
+	 */
+	public void testCopyOnWrite() {
+		BaseTVS sll = (BaseTVS) createSLL();
+		Node head = null;
+		Node tail = null;
+		for (Node node : sll.nodes()) {
+			if (sll.eval(x, node) == Kleene.trueKleene)
+				head = node;
+			else
+				tail = node;
+		}
+		HighLevelTVS copy1 = sll.copy();
+		BaseTVS copy2 = (BaseTVS) sll.copy();
+		assertSame("An unmodified copy should share its predicate values!",
+				sll.predicates.get(n), copy2.predicates.get(n));
+
+		copy1.update(x, tail, Kleene.trueKleene);
+		sll.update(n, head, tail, Kleene.trueKleene);
+		assertEquals(Kleene.falseKleene, sll.eval(x, tail));
+		assertEquals(Kleene.falseKleene, copy2.eval(x, tail));
+		assertEquals(Kleene.trueKleene, copy1.eval(x, tail));
+		assertEquals(Kleene.unknownKleene, copy1.eval(n, head, tail));
+		assertEquals(Kleene.unknownKleene, copy2.eval(n, head, tail));
+		assertSame("A copy should keep sharing the values of unmodified predicates!",
+				sll.predicates.get(Vocabulary.sm), copy2.predicates.get(Vocabulary.sm));
+
+		copy2.removeNode(tail);
+		assertEquals(2, sll.nodes().size());
+		assertEquals(Kleene.unknownKleene, sll.eval(n, tail, tail));
+		assertEquals(Kleene.unknownKleene, copy1.eval(Vocabulary.sm, tail));
+
+		copy1.clearPredicate(x);
+		assertEquals(Kleene.trueKleene, sll.eval(x, head));
+		assertEquals(Kleene.trueKleene, copy2.eval(x, head));
+		assertEquals(Kleene.falseKleene, copy1.eval(x, head));
+	}
 }
\ No newline at end of file
@@ -0,0 +1,147 @@
+package tvla.core.base.concrete;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import tvla.core.Node;
+import tvla.core.NodeTuple;
+import tvla.logic.Kleene;
+
+/** JUnit tests for the packed unary and binary predicate interpretations.
+ */
+public class PackedPredicateTest extends TestCase {
+	/** The number of nodes used by the tests, enough to span several words.
+	 */
+	protected static final int NODES = 70;
+
+	public PackedPredicateTest(String name) {
+		super(name);
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		while (Node.getMaxId() < NODES)
+			Node.allocateNode();
+	}
+
+	protected static Node node(int id) {
+		return Node.nodeForID(id);
+	}
+
+	protected static int count(Iterator<Map.Entry<NodeTuple, Kleene>> iterator) {
+		int result = 0;
+		while (iterator.hasNext()) {
+			iterator.next();
+			++result;
+		}
+		return result;
+	}
+
+	public void testUnaryGetSet() {
+		PackedUnaryPredicate predicate = new PackedUnaryPredicate();
+		predicate.set(node(3), Kleene.trueKleene);
+		predicate.set(node(40), Kleene.unknownKleene);
+		predicate.set(node(65), Kleene.trueKleene);
+		assertEquals(Kleene.trueKleene, predicate.get(node(3)));
+		assertEquals(Kleene.unknownKleene, predicate.get(node(40)));
+		assertEquals(Kleene.falseKleene, predicate.get(node(41)));
+		assertEquals(3, predicate.numberSatisfy());
+
+		predicate.set(node(65), Kleene.falseKleene);
+		assertEquals(Kleene.falseKleene, predicate.get(node(65)));
+		assertEquals(2, predicate.numberSatisfy());
+	}
+
+	public void testUnaryIterators() {
+		PackedUnaryPredicate predicate = new PackedUnaryPredicate();
+		predicate.set(node(0), Kleene.trueKleene);
+		predicate.set(node(33), Kleene.unknownKleene);
+		predicate.set(node(66), Kleene.trueKleene);
+		assertEquals(3, count(predicate.iterator()));
+		assertEquals(2, count(predicate.satisfyingTupleIterator(null, Kleene.trueKleene)));
+		assertEquals(1, count(predicate.satisfyingTupleIterator(null, Kleene.unknownKleene)));
+		assertEquals(1, count(predicate.satisfyingTupleIterator(new Node[] {node(33)}, null)));
+		assertEquals(0, count(predicate.satisfyingTupleIterator(new Node[] {node(34)}, null)));
+
+		Iterator<Map.Entry<NodeTuple, Kleene>> iterator = predicate.iterator();
+		Map.Entry<NodeTuple, Kleene> entry = iterator.next();
+		assertEquals(node(0), entry.getKey());
+		assertEquals(Kleene.trueKleene, entry.getValue());
+		iterator.remove();
+		assertEquals(Kleene.falseKleene, predicate.get(node(0)));
+		assertEquals(2, predicate.numberSatisfy());
+	}
+
+	public void testUnaryCopyOnWrite() {
+		PackedUnaryPredicate original = new PackedUnaryPredicate();
+		original.set(node(5), Kleene.trueKleene);
+		PackedUnaryPredicate copy = original.copy();
+		assertFalse(copy.wasModified(original));
+
+		copy.set(node(5), Kleene.unknownKleene);
+		assertTrue(copy.wasModified(original));
+		assertEquals(Kleene.trueKleene, original.get(node(5)));
+		assertEquals(Kleene.unknownKleene, copy.get(node(5)));
+	}
+
+	public void testBinaryGetSet() {
+		PackedBinaryPredicate predicate = new PackedBinaryPredicate();
+		predicate.set(NodeTuple.createPair(node(1), node(2)), Kleene.trueKleene);
+		predicate.set(NodeTuple.createPair(node(2), node(1)), Kleene.unknownKleene);
+		assertEquals(Kleene.trueKleene, predicate.get(node(1), node(2)));
+		assertEquals(Kleene.unknownKleene, predicate.get(NodeTuple.createPair(node(2), node(1))));
+		assertEquals(Kleene.falseKleene, predicate.get(node(1), node(1)));
+		assertEquals(2, predicate.numberSatisfy());
+
+		predicate.removeNode(node(1));
+		assertEquals(0, predicate.numberSatisfy());
+		assertEquals(0, count(predicate.iterator()));
+	}
+
+	/** Fills enough pairs to make the predicate switch to its dense
+	 * representation, and checks that the values are preserved.
+	 */
+	public void testBinaryDense() {
+		PackedBinaryPredicate predicate = new PackedBinaryPredicate();
+		for (int i = 0; i < 20; ++i) {
+			for (int j = 0; j < 20; ++j) {
+				Kleene value = (i + j) % 3 == 0 ? Kleene.unknownKleene : Kleene.trueKleene;
+				predicate.set(NodeTuple.createPair(node(i), node(j)), value);
+			}
+		}
+		assertEquals(400, predicate.numberSatisfy());
+		for (int i = 0; i < 20; ++i) {
+			for (int j = 0; j < 20; ++j) {
+				Kleene value = (i + j) % 3 == 0 ? Kleene.unknownKleene : Kleene.trueKleene;
+				assertEquals(value, predicate.get(node(i), node(j)));
+			}
+		}
+		assertEquals(Kleene.falseKleene, predicate.get(node(20), node(3)));
+		assertEquals(400, count(predicate.iterator()));
+		assertEquals(20, count(predicate.satisfyingTupleIterator(new Node[] {node(4), null}, null)));
+		assertEquals(20, count(predicate.satisfyingTupleIterator(new Node[] {null, node(7)}, null)));
+		int unknowns = count(predicate.satisfyingTupleIterator(new Node[] {null, null}, Kleene.unknownKleene));
+		int trues = count(predicate.satisfyingTupleIterator(new Node[] {null, null}, Kleene.trueKleene));
+		assertEquals(400, unknowns + trues);
+
+		predicate.removeNode(node(4));
+		assertEquals(361, predicate.numberSatisfy());
+		assertEquals(0, count(predicate.satisfyingTupleIterator(new Node[] {null, node(4)}, null)));
+	}
+
+	public void testBinaryCopyOnWrite() {
+		PackedBinaryPredicate original = new PackedBinaryPredicate();
+		NodeTuple pair = NodeTuple.createPair(node(1), node(2));
+		original.set(pair, Kleene.trueKleene);
+		PackedBinaryPredicate copy = original.copy();
+		assertFalse(copy.wasModified(original));
+
+		copy.set(pair, Kleene.falseKleene);
+		assertTrue(copy.wasModified(original));
+		assertEquals(Kleene.trueKleene, original.get(pair));
+		assertEquals(Kleene.falseKleene, copy.get(pair));
+		assertEquals(1, original.numberSatisfy());
+		assertEquals(0, copy.numberSatisfy());
+	}
+}
@@ -0,0 +1,120 @@
+package tvla.core.generic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+import tvla.core.HighLevelTVS;
+import tvla.core.ListFixture;
+import tvla.core.Node;
+import tvla.core.TVSFactory;
+import tvla.core.base.BaseBlur;
+import tvla.logic.Kleene;
+import tvla.predicates.Predicate;
+import tvla.predicates.Vocabulary;
+
+/** JUnit tests for joining structures into a ConcurrentTVSSet from several
+ * threads.
+ */
+public class ConcurrentTVSSetTest extends TestCase {
+	protected static final int NUMBER_OF_STRUCTURES = 16;
+	protected static final int NUMBER_OF_THREADS = 4;
+
+	protected static Predicate[] bits = {
+		Vocabulary.createPredicate("concurrentBit0", 1, true),
+		Vocabulary.createPredicate("concurrentBit1", 1, true),
+		Vocabulary.createPredicate("concurrentBit2", 1, true),
+		Vocabulary.createPredicate("concurrentBit3", 1, true),
+	};
+
+	public ConcurrentTVSSetTest(String name) {
+		super(name);
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		TVSFactory.setTVSFactoryClass("base");
+		TVSFactory.getInstance().init();
+	}
+
+	/** Creates a structure with the specified number of nodes, each of which
+	 * has a different canonic name.
+	 */
+	protected HighLevelTVS createStructure(int numberOfNodes) {
+		HighLevelTVS structure = TVSFactory.getInstance().makeEmptyTVS();
+		Node[] nodes = ListFixture.addNodes(structure, numberOfNodes, false);
+		for (int i = 0; i < numberOfNodes; ++i) {
+			for (int bit = 0; bit < bits.length; ++bit) {
+				if ((i & (1 << bit)) != 0)
+					structure.update(bits[bit], nodes[i], Kleene.trueKleene);
+			}
+		}
+		return structure;
+	}
+
+	public void testSequentialJoin() {
+		ConcurrentTVSSet set = new ConcurrentTVSSet(4);
+		for (int i = 1; i <= NUMBER_OF_STRUCTURES; ++i) {
+			HighLevelTVS structure = createStructure(i);
+			assertSame(structure, set.mergeWith(structure));
+			assertNull(set.mergeWith(createStructure(i)));
+		}
+		assertEquals(NUMBER_OF_STRUCTURES, set.size());
+		boolean[] found = new boolean[NUMBER_OF_STRUCTURES + 1];
+		for (HighLevelTVS structure : set) {
+			assertFalse(found[structure.nodes().size()]);
+			found[structure.nodes().size()] = true;
+		}
+		for (int i = 1; i <= NUMBER_OF_STRUCTURES; ++i) {
+			assertTrue(found[i]);
+		}
+		assertEquals(NUMBER_OF_STRUCTURES, set.copy().size());
+	}
+
+	/** Each thread joins a copy of every structure, so each structure
+	 * changes the set exactly once.
+	 */
+	public void testConcurrentJoin() throws InterruptedException {
+		final ConcurrentTVSSet set = new ConcurrentTVSSet(8);
+		final List<List<HighLevelTVS>> inputs = new ArrayList<List<HighLevelTVS>>();
+		for (int thread = 0; thread < NUMBER_OF_THREADS; ++thread) {
+			List<HighLevelTVS> input = new ArrayList<HighLevelTVS>();
+			for (int i = 1; i <= NUMBER_OF_STRUCTURES; ++i) {
+				input.add(createStructure(i));
+			}
+			inputs.add(input);
+		}
+		final AtomicInteger changes = new AtomicInteger();
+		final List<Throwable> failures = new ArrayList<Throwable>();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int thread = 0; thread < NUMBER_OF_THREADS; ++thread) {
+			final List<HighLevelTVS> input = inputs.get(thread);
+			final HighLevelTVS.Operators operators = new HighLevelTVS.Operators(new BaseBlur());
+			threads.add(new Thread() {
+				public void run() {
+					HighLevelTVS.bindOperators(operators);
+					try {
+						for (HighLevelTVS structure : input) {
+							if (set.mergeWith(structure) != null)
+								changes.incrementAndGet();
+						}
+					} catch (Throwable t) {
+						synchronized (failures) {
+							failures.add(t);
+						}
+					}
+				}
+			});
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertTrue(failures.toString(), failures.isEmpty());
+		assertEquals(NUMBER_OF_STRUCTURES, changes.get());
+		assertEquals(NUMBER_OF_STRUCTURES, set.size());
+	}
+}
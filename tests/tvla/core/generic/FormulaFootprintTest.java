@@ -0,0 +1,146 @@
+package tvla.core.generic;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import tvla.core.HighLevelTVS;
+import tvla.core.ListFixture;
+import tvla.core.Node;
+import tvla.core.NodeTuple;
+import tvla.core.TVSFactory;
+import tvla.core.assignments.Assign;
+import tvla.formulae.AndFormula;
+import tvla.formulae.EqualityFormula;
+import tvla.formulae.ExistQuantFormula;
+import tvla.formulae.Formula;
+import tvla.formulae.NotFormula;
+import tvla.formulae.PredicateFormula;
+import tvla.formulae.TransitiveFormula;
+import tvla.formulae.Var;
+import tvla.logic.Kleene;
+import tvla.predicates.Vocabulary;
+import tvla.util.HashMapFactory;
+
+/** JUnit tests that check that the assignments computed by a formula
+ * footprint include every assignment on which the value of the formula
+ * changed.
+ */
+public class FormulaFootprintTest extends TestCase {
+	protected static final Kleene[] values = {Kleene.falseKleene, Kleene.unknownKleene, Kleene.trueKleene};
+
+	protected Var v1 = new Var("v1");
+	protected Var v2 = new Var("v2");
+	protected Var v3 = new Var("v3");
+	protected Var v4 = new Var("v4");
+
+	protected HighLevelTVS structure;
+	protected Node[] nodes;
+	protected Random random = new Random(17);
+
+	public FormulaFootprintTest(String name) {
+		super(name);
+	}
+
+	/** Creates a list of five nodes.
+	 */
+	protected void setUp() throws Exception {
+		super.setUp();
+		TVSFactory.setTVSFactoryClass("base");
+		TVSFactory.getInstance().init();
+		structure = TVSFactory.getInstance().makeEmptyTVS();
+		nodes = ListFixture.addList(structure, 5, false);
+	}
+
+	protected Formula x(Var v) {
+		return new PredicateFormula(ListFixture.x, v);
+	}
+
+	protected Formula n(Var left, Var right) {
+		return new PredicateFormula(ListFixture.n, left, right);
+	}
+
+	/** Returns the value of the formula on every assignment to the given
+	 * variables.
+	 */
+	protected Map<NodeTuple, Kleene> evaluate(Formula formula, Var[] vars) {
+		Map<NodeTuple, Kleene> result = HashMapFactory.make();
+		formula.prepare(structure);
+		evaluate(formula, vars, new Node[vars.length], 0, result);
+		return result;
+	}
+
+	private void evaluate(Formula formula, Var[] vars, Node[] tuple, int index, Map<NodeTuple, Kleene> result) {
+		if (index == vars.length) {
+			Assign assign = new Assign();
+			for (int i = 0; i < vars.length; ++i)
+				assign.put(vars[i], tuple[i]);
+			result.put(NodeTuple.createTuple(tuple.clone()), formula.eval(structure, assign));
+			return;
+		}
+		for (Node node : nodes) {
+			tuple[index] = node;
+			evaluate(formula, vars, tuple, index + 1, result);
+		}
+	}
+
+	/** Applies random changes to the structure and checks that every
+	 * assignment on which the formula changed is reported by its footprint.
+	 */
+	protected void checkFormula(Formula formula) {
+		FormulaFootprint footprint = FormulaFootprint.create(formula);
+		assertNotNull(formula.toString(), footprint);
+		for (int round = 0; round < 50; ++round) {
+			Map<NodeTuple, Kleene> before = evaluate(formula, footprint.vars());
+			NodeValueMap changes = new NodeValueMap();
+			for (int change = 1 + random.nextInt(2); change > 0; --change) {
+				Kleene value = values[random.nextInt(values.length)];
+				Node node = nodes[random.nextInt(nodes.length)];
+				switch (random.nextInt(4)) {
+				case 0:
+					structure.update(ListFixture.x, node, value);
+					changes.put(ListFixture.x, NodeTuple.createSingle(node), value);
+					break;
+				case 1:
+					structure.update(Vocabulary.sm, node, value == Kleene.trueKleene ? Kleene.unknownKleene : value);
+					changes.put(Vocabulary.sm, NodeTuple.createSingle(node), structure.eval(Vocabulary.sm, node));
+					break;
+				default:
+					Node other = nodes[random.nextInt(nodes.length)];
+					structure.update(ListFixture.n, node, other, value);
+					changes.put(ListFixture.n, NodeTuple.createPair(node, other), value);
+				}
+			}
+			Collection<NodeTuple> affected = footprint.affectedAssignments(structure, changes);
+			Map<NodeTuple, Kleene> after = evaluate(formula, footprint.vars());
+			for (Map.Entry<NodeTuple, Kleene> entry : after.entrySet()) {
+				if (entry.getValue() != before.get(entry.getKey()))
+					assertTrue(formula + " changed on " + entry.getKey(), affected.contains(entry.getKey()));
+			}
+		}
+	}
+
+	public void testPredicates() {
+		checkFormula(new AndFormula(x(v1), n(v1, v2)));
+		checkFormula(new AndFormula(n(v1, v1), new NotFormula(x(v2))));
+		checkFormula(new AndFormula(new EqualityFormula(v1, v2), x(v1)));
+	}
+
+	public void testQuantifiers() {
+		checkFormula(new ExistQuantFormula(v3, new AndFormula(n(v1, v3), n(v3, v2))));
+		checkFormula(new AndFormula(x(v1), new ExistQuantFormula(v3, new AndFormula(n(v3, v1), x(v3)))));
+	}
+
+	public void testTransitiveClosure() {
+		checkFormula(new TransitiveFormula(v1, v2, v3, v4, n(v3, v4)));
+		checkFormula(new TransitiveFormula(v1, v2, v3, v4, new AndFormula(n(v3, v4), new NotFormula(x(v4)))));
+		checkFormula(new TransitiveFormula(v1, v1, v3, v4, n(v4, v3)));
+	}
+
+	/** A transitive closure nested in another formula has no footprint.
+	 */
+	public void testNestedTransitiveClosure() {
+		assertNull(FormulaFootprint.create(new AndFormula(x(v1), new TransitiveFormula(v1, v2, v3, v4, n(v3, v4)))));
+	}
+}
@@ -0,0 +1,83 @@
+package tvla.core.generic;
+
+import junit.framework.TestCase;
+import tvla.core.HighLevelTVS;
+import tvla.core.ListFixture;
+import tvla.core.Node;
+import tvla.core.StoresCanonicMaps;
+import tvla.core.TVSFactory;
+import tvla.logic.Kleene;
+import tvla.predicates.Predicate;
+import tvla.predicates.Vocabulary;
+
+/** JUnit tests for the partial join of GenericHashPartialJoinTVSSet.
+ */
+public class GenericHashPartialJoinTVSSetTest extends TestCase {
+	protected static Predicate joinNonAbs = Vocabulary.createPredicate("joinNonAbs", 1, false);
+
+	public GenericHashPartialJoinTVSSetTest(String name) {
+		super(name);
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		TVSFactory.setTVSFactoryClass("base");
+		TVSFactory.getInstance().init();
+	}
+
+	/** Creates a list of two nodes, which differ on x, with the given
+	 * values of joinNonAbs on the second node and of n between them.
+	 */
+	protected HighLevelTVS createStructure(Kleene nonAbsValue, Kleene binaryValue) {
+		HighLevelTVS structure = TVSFactory.getInstance().makeEmptyTVS();
+		Node[] nodes = ListFixture.addList(structure, 2, false);
+		structure.update(joinNonAbs, nodes[1], nonAbsValue);
+		structure.update(ListFixture.n, nodes[0], nodes[1], binaryValue);
+		return structure;
+	}
+
+	/** Joining a structure that adds no information leaves the stored
+	 * structure in place.
+	 */
+	public void testJoinWithoutChange() {
+		GenericHashPartialJoinTVSSet set = new GenericHashPartialJoinTVSSet();
+		HighLevelTVS stored = createStructure(Kleene.trueKleene, Kleene.trueKleene);
+		assertSame(stored, set.mergeWith(stored));
+
+		HighLevelTVS same = createStructure(Kleene.trueKleene, Kleene.trueKleene);
+		assertNull(set.mergeWith(same));
+		assertEquals(1, set.size());
+		assertSame(stored, set.iterator().next());
+	}
+
+	/** Joining a structure that changes the stored one does not modify the
+	 * stored structure, and keeps the canonic maps of the result.
+	 */
+	public void testJoinWithChange() {
+		GenericHashPartialJoinTVSSet set = new GenericHashPartialJoinTVSSet();
+		HighLevelTVS stored = createStructure(Kleene.trueKleene, Kleene.trueKleene);
+		set.mergeWith(stored);
+		GenericHashPartialJoinTVSSet snapshot = (GenericHashPartialJoinTVSSet) set.copy();
+
+		HighLevelTVS other = createStructure(Kleene.falseKleene, Kleene.trueKleene);
+		HighLevelTVS joined = set.mergeWith(other);
+		assertNotNull(joined);
+		assertNotSame(stored, joined);
+		assertEquals(1, set.size());
+		assertSame(joined, set.iterator().next());
+		assertSame(stored, snapshot.iterator().next());
+
+		Node second = null;
+		for (Node node : stored.nodes()) {
+			if (stored.eval(ListFixture.x, node) == Kleene.falseKleene)
+				second = node;
+		}
+		assertEquals(Kleene.trueKleene, stored.eval(joinNonAbs, second));
+		assertEquals(Kleene.unknownKleene, joined.eval(joinNonAbs, second));
+
+		StoresCanonicMaps joinedMaps = (StoresCanonicMaps) joined;
+		assertNotNull(joinedMaps.getCanonic());
+		assertEquals(GenericHashPartialJoinTVSSet.getCanonicSetForBlurred(stored),
+				GenericHashPartialJoinTVSSet.getCanonicSetForBlurred(joined));
+	}
+}
@@ -0,0 +1,92 @@
+package tvla.core.generic;
+
+import junit.framework.TestCase;
+import tvla.core.HighLevelTVS;
+import tvla.core.ListFixture;
+import tvla.core.Node;
+import tvla.core.TVSFactory;
+import tvla.core.meet.Meet;
+import tvla.logic.Kleene;
+
+/** JUnit tests for the colour-refinement signature and the isomorphism
+ * check based on it.
+ */
+public class StructureSignatureTest extends TestCase {
+	public StructureSignatureTest(String name) {
+		super(name);
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		TVSFactory.setTVSFactoryClass("base");
+		TVSFactory.getInstance().init();
+	}
+
+	/** Checks the signature-based isomorphism test against the
+	 * embedding test applied in both directions.
+	 */
+	protected boolean checkIsomorphic(HighLevelTVS left, HighLevelTVS right) {
+		boolean result = Meet.isomorphic(left, right);
+		assertEquals(Meet.isEmbedded(left, right) && Meet.isEmbedded(right, left), result);
+		return result;
+	}
+
+	/** Structures built in a different node order are isomorphic and
+	 * have equal signatures and hash codes.
+	 */
+	public void testIsomorphicStructures() {
+		int[] list = {1, 2, 3, -1};
+		HighLevelTVS left = ListFixture.create(list, false);
+		HighLevelTVS right = ListFixture.create(list, true);
+		assertEquals(left.getSignature(), right.getSignature());
+		assertEquals(TVSHashFunc.defaultInstance.computeHashCode(left),
+				TVSHashFunc.defaultInstance.computeHashCode(right));
+		assertTrue(checkIsomorphic(left, right));
+		assertTrue(TVSHashFunc.defaultInstance.equals(left, right));
+	}
+
+	/** A list and a cycle differ in their signatures.
+	 */
+	public void testDifferentSignatures() {
+		HighLevelTVS list = ListFixture.create(new int[] {1, 2, 3, -1}, false);
+		HighLevelTVS cycle = ListFixture.create(new int[] {1, 2, 3, 0}, false);
+		assertFalse(list.getSignature().equals(cycle.getSignature()));
+		assertFalse(checkIsomorphic(list, cycle));
+	}
+
+	/** Colour refinement cannot tell a cycle of length four from two
+	 * cycles of length two when no node is distinguished, so the
+	 * backtracking search has to reject the pair.
+	 */
+	public void testEqualSignaturesOfNonIsomorphicStructures() {
+		HighLevelTVS cycle = ListFixture.create(new int[] {1, 2, 3, 0}, false);
+		HighLevelTVS cycles = ListFixture.create(new int[] {1, 0, 3, 2}, false);
+		for (HighLevelTVS structure : new HighLevelTVS[] {cycle, cycles}) {
+			for (Node node : structure.nodes())
+				structure.update(ListFixture.x, node, Kleene.falseKleene);
+		}
+		assertEquals(cycle.getSignature(), cycles.getSignature());
+		assertFalse(checkIsomorphic(cycle, cycles));
+	}
+
+	/** The signature is cached until the structure is modified.
+	 */
+	public void testSignatureCache() {
+		HighLevelTVS structure = ListFixture.create(new int[] {1, 2, -1}, false);
+		StructureSignature signature = structure.getSignature();
+		assertSame(signature, structure.getSignature());
+
+		HighLevelTVS copy = structure.copy();
+		assertTrue(checkIsomorphic(structure, copy));
+
+		Node head = null;
+		for (Node node : copy.nodes()) {
+			if (copy.eval(ListFixture.x, node) == Kleene.trueKleene)
+				head = node;
+		}
+		copy.update(ListFixture.n, head, head, Kleene.unknownKleene);
+		assertFalse(signature.equals(copy.getSignature()));
+		assertSame(signature, structure.getSignature());
+		assertFalse(checkIsomorphic(structure, copy));
+	}
+}
@@ -0,0 +1,118 @@
+package tvla.formulae;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import tvla.core.HighLevelTVS;
+import tvla.core.ListFixture;
+import tvla.core.Node;
+import tvla.core.TVSFactory;
+import tvla.core.assignments.Assign;
+import tvla.core.assignments.AssignKleene;
+import tvla.logic.Kleene;
+import tvla.predicates.Vocabulary;
+import tvla.util.HashMapFactory;
+
+/** JUnit tests that compare compiled formulae with the interpreted ones.
+ */
+public class CompiledFormulaTest extends TestCase {
+	protected Var v1 = new Var("v1");
+	protected Var v2 = new Var("v2");
+	protected Var v3 = new Var("v3");
+	protected Var v4 = new Var("v4");
+
+	protected HighLevelTVS structure;
+
+	public CompiledFormulaTest(String name) {
+		super(name);
+	}
+
+	/** Creates a list of four nodes whose last node is a summary node,
+	 * with an unknown edge back to the first node.
+	 */
+	protected void setUp() throws Exception {
+		super.setUp();
+		TVSFactory.setTVSFactoryClass("base");
+		TVSFactory.getInstance().init();
+		structure = TVSFactory.getInstance().makeEmptyTVS();
+		Node[] nodes = ListFixture.addList(structure, 4, false);
+		structure.update(ListFixture.x, nodes[3], Kleene.unknownKleene);
+		structure.update(ListFixture.n, nodes[3], nodes[0], Kleene.unknownKleene);
+		structure.update(Vocabulary.sm, nodes[3], Kleene.unknownKleene);
+		structure.update(Vocabulary.active, nodes[3], Kleene.unknownKleene);
+	}
+
+	protected Formula x(Var v) {
+		return new PredicateFormula(ListFixture.x, v);
+	}
+
+	protected Formula n(Var left, Var right) {
+		return new PredicateFormula(ListFixture.n, left, right);
+	}
+
+	/** Checks that the compiled formula agrees with the interpreted one on
+	 * every assignment to two free variables, and on the assignments that
+	 * satisfy it. The formula is first optimized, as actions do.
+	 */
+	protected void checkFormula(Formula formula) {
+		formula = formula.optimizeForEvaluation();
+		CompiledFormula compiled = new CompiledFormula(formula);
+		for (Node left : structure.nodes()) {
+			for (Node right : structure.nodes()) {
+				Assign assign = new Assign();
+				assign.put(v1, left);
+				assign.put(v2, right);
+				formula.prepare(structure);
+				assertEquals(formula.toString(), formula.eval(structure, assign), compiled.eval(structure, assign));
+			}
+		}
+
+		Map<Assign, Kleene> expected = HashMapFactory.make();
+		formula.prepare(structure);
+		for (Iterator<AssignKleene> it = formula.assignments(structure, Assign.EMPTY); it.hasNext(); ) {
+			AssignKleene assign = it.next();
+			Assign copy = new Assign(assign);
+			copy.project(formula.freeVars());
+			expected.put(copy, assign.kleene);
+		}
+		Map<Assign, Kleene> actual = HashMapFactory.make();
+		for (Iterator<AssignKleene> it = compiled.assignments(structure, Assign.EMPTY); it.hasNext(); ) {
+			AssignKleene assign = it.next();
+			Assign copy = new Assign(assign);
+			copy.project(formula.freeVars());
+			assertNull("Duplicate assignment " + copy, actual.put(copy, assign.kleene));
+		}
+		assertEquals(formula.toString(), expected, actual);
+	}
+
+	public void testPredicates() {
+		checkFormula(new AndFormula(x(v1), n(v1, v2)));
+		checkFormula(new AndFormula(n(v1, v2), new NotFormula(x(v2))));
+		checkFormula(new AndFormula(n(v1, v1), x(v2)));
+		checkFormula(new OrFormula(x(v1), n(v2, v1)));
+	}
+
+	public void testEqualityAndConnectives() {
+		checkFormula(new AndFormula(new EqualityFormula(v1, v2), x(v1)));
+		checkFormula(new ImpliesFormula(x(v1), n(v1, v2)));
+		checkFormula(new EquivalenceFormula(x(v1), x(v2)));
+		checkFormula(new IfFormula(x(v1), n(v1, v2), new NotFormula(n(v2, v1))));
+	}
+
+	public void testQuantifiers() {
+		checkFormula(new ExistQuantFormula(v3, new AndFormula(n(v1, v3), n(v3, v2))));
+		// The interpreted universal quantifier needs its free variables bound.
+		checkFormula(new AndFormula(n(v1, v2),
+				new AllQuantFormula(v3, new OrFormula(new NotFormula(n(v1, v3)), x(v3)))));
+		checkFormula(new AndFormula(x(v1),
+				new ExistQuantFormula(v3, new AndFormula(n(v3, v2),
+						new ExistQuantFormula(v4, n(v4, v3))))));
+	}
+
+	public void testTransitiveClosure() {
+		checkFormula(new TransitiveFormula(v1, v2, v3, v4, n(v3, v4)));
+		checkFormula(new AndFormula(x(v1), new TransitiveFormula(v1, v2, v3, v4,
+				new AndFormula(n(v3, v4), new NotFormula(x(v4))))));
+	}
+}
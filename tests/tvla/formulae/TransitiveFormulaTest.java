@@ -0,0 +1,115 @@
+package tvla.formulae;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import tvla.core.HighLevelTVS;
+import tvla.core.ListFixture;
+import tvla.core.Node;
+import tvla.core.TVSFactory;
+import tvla.core.assignments.Assign;
+import tvla.logic.Kleene;
+import tvla.predicates.Vocabulary;
+
+/** JUnit tests that compare the bit-matrix transitive closure with the
+ * standard algorithm over Kleene values.
+ */
+public class TransitiveFormulaTest extends TestCase {
+	protected static final Kleene[] values = { Kleene.falseKleene, Kleene.unknownKleene, Kleene.trueKleene };
+
+	protected Var v1 = new Var("v1");
+	protected Var v2 = new Var("v2");
+	protected Var v3 = new Var("v3");
+	protected Var v4 = new Var("v4");
+
+	protected Random random = new Random(23);
+
+	public TransitiveFormulaTest(String name) {
+		super(name);
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		TVSFactory.setTVSFactoryClass("base");
+		TVSFactory.getInstance().init();
+	}
+
+	/** Creates a structure with the given number of nodes and random values
+	 * of x, n and active.
+	 */
+	protected HighLevelTVS createStructure(int size, int edges) {
+		HighLevelTVS structure = TVSFactory.getInstance().makeEmptyTVS();
+		Node[] nodes = ListFixture.addNodes(structure, size, false);
+		for (int i = 0; i < size; ++i) {
+			structure.update(ListFixture.x, nodes[i], values[random.nextInt(3)]);
+			if (random.nextInt(4) == 0)
+				structure.update(Vocabulary.active, nodes[i], Kleene.unknownKleene);
+		}
+		for (int i = 0; i < edges; ++i)
+			changeEdge(structure, values[1 + random.nextInt(2)]);
+		return structure;
+	}
+
+	/** Sets the value of n for a random pair of nodes.
+	 */
+	protected void changeEdge(HighLevelTVS structure, Kleene value) {
+		Node[] nodes = structure.nodes().toArray(new Node[0]);
+		structure.update(ListFixture.n, nodes[random.nextInt(nodes.length)], nodes[random.nextInt(nodes.length)], value);
+	}
+
+	/** Checks the closure computed into the given cache against the
+	 * standard algorithm.
+	 */
+	protected void check(TransitiveFormula formula, HighLevelTVS structure, TransitiveFormula.TCCache cache) {
+		Assign assign = new Assign();
+		formula.calculateBitTC(structure, assign, cache);
+		TransitiveFormula.TCCache expected = new TransitiveFormula.TCCache();
+		formula.calculateTC1(structure, new Assign(), expected);
+		for (Node left : structure.nodes()) {
+			for (Node right : structure.nodes()) {
+				assertEquals(left + "->" + right, expected.get(left, right), cache.get(left, right));
+			}
+		}
+	}
+
+	/** Closures of a binary predicate, in both directions, and of a
+	 * compound formula, on structures that span several words.
+	 */
+	public void testClosure() {
+		Formula[] bodies = {
+				new PredicateFormula(ListFixture.n, v3, v4),
+				new PredicateFormula(ListFixture.n, v4, v3),
+				new AndFormula(new PredicateFormula(ListFixture.n, v3, v4), new PredicateFormula(ListFixture.x, v4)) };
+		for (int size : new int[] {1, 5, 70}) {
+			HighLevelTVS structure = createStructure(size, size * 2);
+			for (Formula body : bodies) {
+				TransitiveFormula formula = new TransitiveFormula(v1, v2, v3, v4, body);
+				check(formula, structure, new TransitiveFormula.TCCache());
+			}
+		}
+	}
+
+	/** A cache that is reused after edges are added or raised to true is
+	 * updated incrementally, and one that is reused after edges are
+	 * removed or lowered is recomputed.
+	 */
+	public void testRecalculation() {
+		TransitiveFormula formula = new TransitiveFormula(v1, v2, v3, v4, new PredicateFormula(ListFixture.n, v3, v4));
+		for (int size : new int[] {6, 70}) {
+			HighLevelTVS structure = createStructure(size, size);
+			TransitiveFormula.TCCache cache = new TransitiveFormula.TCCache();
+			check(formula, structure, cache);
+			for (int round = 0; round < 20; ++round) {
+				changeEdge(structure, values[1 + random.nextInt(2)]);
+				check(formula, structure, cache);
+			}
+			for (int round = 0; round < 20; ++round) {
+				changeEdge(structure, values[random.nextInt(3)]);
+				check(formula, structure, cache);
+			}
+			Node node = structure.nodes().iterator().next();
+			structure.update(Vocabulary.active, node, Kleene.unknownKleene);
+			check(formula, structure, cache);
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package tvla.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+import tvla.core.HighLevelTVS;
+import tvla.core.ListFixture;
+import tvla.core.Node;
+import tvla.core.TVSFactory;
+import tvla.core.generic.TVSHashFunc;
+import tvla.exceptions.UserErrorException;
+import tvla.logic.Kleene;
+import tvla.predicates.Predicate;
+import tvla.predicates.Vocabulary;
+
+/** JUnit tests for the binary structure format.
+ */
+public class BinaryTVSTest extends TestCase {
+	protected static Predicate binFlag = Vocabulary.createPredicate("binFlag", 0);
+
+	public BinaryTVSTest(String name) {
+		super(name);
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		TVSFactory.setTVSFactoryClass("base");
+		TVSFactory.getInstance().init();
+	}
+
+	/** Creates a list of the given length whose last node is a summary
+	 * node, and where binFlag is indefinite.
+	 */
+	protected HighLevelTVS createList(int length) {
+		HighLevelTVS structure = ListFixture.createSummaryList(length);
+		structure.update(binFlag, Kleene.unknownKleene);
+		return structure;
+	}
+
+	/** Structures read back are isomorphic to the structures written.
+	 */
+	public void testRoundTrip() throws Exception {
+		HighLevelTVS[] structures = { createList(1), createList(3), TVSFactory.getInstance().makeEmptyTVS() };
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		BinaryTVSWriter writer = new BinaryTVSWriter(out);
+		for (HighLevelTVS structure : structures)
+			writer.write(structure);
+		writer.flush();
+
+		BinaryTVSReader reader = new BinaryTVSReader(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		for (HighLevelTVS structure : structures) {
+			HighLevelTVS read = reader.read();
+			assertEquals(structure.nodes().size(), read.nodes().size());
+			assertTrue(TVSHashFunc.defaultInstance.equals(structure, read));
+		}
+	}
+
+	/** Structures read with the names of their nodes keep the names and
+	 * the order of the nodes.
+	 */
+	public void testNamedNodes() throws Exception {
+		HighLevelTVS structure = createList(3);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		BinaryTVSWriter writer = new BinaryTVSWriter(new DataOutputStream(bytes));
+		writer.write(structure);
+		writer.flush();
+
+		BinaryTVSReader reader = new BinaryTVSReader(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		HighLevelTVS read = reader.read(structure.nodes().toArray(new Node[0]));
+		assertEquals(new ArrayList<Node>(structure.nodes()), new ArrayList<Node>(read.nodes()));
+		assertTrue(TVSHashFunc.defaultInstance.equals(structure, read));
+	}
+
+	/** A file with locations is iterated lazily, and its structures are
+	 * reported with their locations.
+	 */
+	public void testFileWithLocations() throws Exception {
+		File file = File.createTempFile("binary", ".tvs");
+		try {
+			BinaryTVSWriter writer = BinaryTVSWriter.create(file.getPath());
+			writer.writeLocation("L1", Arrays.asList(createList(1), createList(2)).iterator());
+			writer.writeLocation("L2", Arrays.asList(createList(5)).iterator());
+			writer.close();
+			assertTrue(BinaryTVSReader.isBinary(file.getPath()));
+
+			BinaryTVSReader reader = BinaryTVSReader.open(file.getPath());
+			int[] sizes = { 1, 2, 5 };
+			String[] locations = { "L1", "L1", "L2" };
+			int index = 0;
+			for (HighLevelTVS structure : reader) {
+				assertEquals(sizes[index], structure.nodes().size());
+				assertEquals(locations[index], reader.location());
+				++index;
+			}
+			assertEquals(3, index);
+			reader.close();
+			assertEquals(3, BinaryTVSReader.readStructures(file.getPath()).size());
+		}
+		finally {
+			file.delete();
+		}
+	}
+
+	/** A stream that does not start with the header is rejected.
+	 */
+	public void testInvalidHeader() throws Exception {
+		try {
+			new BinaryTVSReader(new DataInputStream(new ByteArrayInputStream(new byte[8])));
+			fail("Expected the header to be rejected");
+		}
+		catch (UserErrorException e) {
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package tvla.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import tvla.core.Node;
+import tvla.predicates.Vocabulary;
+
+/** Unit tests for tvla.util.AnalysisContext.
+ */
+public class AnalysisContextTest extends TestCase {
+    static final AnalysisContext.Slot<List<String>> slot = new AnalysisContext.Slot<List<String>>() {
+        protected List<String> create() {
+            return new ArrayList<String>();
+        }
+    };
+
+    public AnalysisContextTest(String name) {
+        super(name);
+    }
+
+    public void testSlotsAreIsolated() {
+        AnalysisContext context = new AnalysisContext("test");
+        List<String> defaultValue = slot.get();
+        AnalysisContext previous = AnalysisContext.bind(context);
+        try {
+            assertSame(context, AnalysisContext.current());
+            slot.get().add("x");
+            assertNotSame(defaultValue, slot.get());
+            assertEquals(1, slot.get().size());
+        }
+        finally {
+            AnalysisContext.bind(previous);
+        }
+        assertSame(defaultValue, slot.get());
+        assertFalse(defaultValue.contains("x"));
+    }
+
+    public void testReset() {
+        AnalysisContext context = new AnalysisContext("test");
+        AnalysisContext previous = AnalysisContext.bind(context);
+        try {
+            slot.get().add("x");
+            slot.reset();
+            assertTrue(slot.get().isEmpty());
+            slot.get().add("y");
+            context.reset();
+            assertTrue(slot.get().isEmpty());
+            slot.set(null);
+            assertNull(slot.get());
+        }
+        finally {
+            AnalysisContext.bind(previous);
+        }
+    }
+
+    public void testVocabularyPerContext() {
+        AnalysisContext first = new AnalysisContext("first");
+        AnalysisContext second = new AnalysisContext("second");
+        AnalysisContext previous = AnalysisContext.bind(first);
+        try {
+            Vocabulary.createPredicate("contextPredicate", 1);
+            assertNotNull(Vocabulary.getPredicateByName("contextPredicate"));
+            AnalysisContext.bind(second);
+            assertNull(Vocabulary.getPredicateByName("contextPredicate"));
+            assertSame(Vocabulary.sm, Vocabulary.getPredicateByName("sm"));
+            Vocabulary.createPredicate("contextPredicate", 2);
+            assertEquals(2, Vocabulary.getPredicateByName("contextPredicate").arity());
+        }
+        finally {
+            AnalysisContext.bind(previous);
+        }
+    }
+
+    public void testConcurrentNodeAllocation() throws InterruptedException {
+        final int nodes = 1000;
+        final boolean[] sequential = new boolean[2];
+        Thread[] threads = new Thread[2];
+        for (int i = 0; i < threads.length; ++i) {
+            final int index = i;
+            threads[i] = new Thread() {
+                public void run() {
+                    AnalysisContext.bind(new AnalysisContext("thread" + index));
+                    boolean result = true;
+                    for (int id = 0; id < nodes; ++id)
+                        result &= Node.allocateNode().id() == id;
+                    sequential[index] = result && Node.getMaxId() == nodes;
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        assertTrue(sequential[0]);
+        assertTrue(sequential[1]);
+    }
+}